@@ -1,5 +1,7 @@
 package replicant;
 
+import akasha.core.JSON;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -13,6 +15,7 @@ import replicant.messages.BulkSubscribeMessage;
 import replicant.messages.BulkUnsubscribeMessage;
 import replicant.messages.CommandMessage;
 import replicant.messages.DatasetCacheVersionsMessage;
+import replicant.messages.FilteredDatasetCacheVersion;
 import replicant.messages.PingMessage;
 import replicant.messages.ServerToClientMessage;
 import replicant.messages.SubscribeMessage;
@@ -43,11 +46,24 @@ public abstract class AbstractTransport implements Transport {
 
     @Override
     public final void updateDatasetCacheVersionsAndRequestSynchronizationPoint(
-            @NonNull final Map<String, String> datasetAddressToDatasetCacheVersionMap) {
+            @NonNull final Map<DatasetCacheKey, String> datasetCacheKeyToDatasetCacheVersionMap) {
         final JsPropertyMap<Object> map = JsPropertyMap.of();
-        datasetAddressToDatasetCacheVersionMap.forEach(map::set);
+        final List<FilteredDatasetCacheVersion> filteredDatasetCacheVersions = new ArrayList<>();
+        datasetCacheKeyToDatasetCacheVersionMap.forEach((datasetCacheKey, datasetCacheVersion) -> {
+            final String datasetAddress = datasetCacheKey.getDatasetAddress().asDatasetAddressDescriptor();
+            final String filterParameter = datasetCacheKey.getFilterParameter();
+            if (null == filterParameter) {
+                map.set(datasetAddress, datasetCacheVersion);
+            } else {
+                filteredDatasetCacheVersions.add(FilteredDatasetCacheVersion.create(
+                        datasetAddress, Objects.requireNonNull(JSON.parse(filterParameter)), datasetCacheVersion));
+            }
+        });
         final int requestId = newRequestId("DatasetCacheVersions", true, null);
-        sendRemoteMessage(DatasetCacheVersionsMessage.create(requestId, Js.uncheckedCast(map)));
+        sendRemoteMessage(DatasetCacheVersionsMessage.create(
+                requestId,
+                Js.uncheckedCast(map),
+                filteredDatasetCacheVersions.toArray(new FilteredDatasetCacheVersion[0])));
     }
 
     @Override
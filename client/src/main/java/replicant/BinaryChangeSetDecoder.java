@@ -0,0 +1,225 @@
+package replicant;
+
+import akasha.core.JSON;
+import java.util.ArrayList;
+import java.util.List;
+import jsinterop.base.Js;
+import jsinterop.base.JsPropertyMap;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import replicant.messages.ChangeSetMessage;
+import replicant.messages.EntityChange;
+import replicant.messages.EntityChangePayload;
+import replicant.messages.SubscriptionChangeMessage;
+import replicant.shared.Messages;
+
+/**
+ * Decodes a Change Set sent in the compact binary format described by {@link Messages.BinaryChangeSet} into
+ * the same message that would have been parsed from the JSON encoding.
+ */
+final class BinaryChangeSetDecoder {
+    @NonNull
+    private final byte[] _bytes;
+
+    @NonNull
+    private final List<String> _strings = new ArrayList<>();
+
+    private int _offset;
+
+    private BinaryChangeSetDecoder(@NonNull final byte[] bytes) {
+        _bytes = bytes;
+    }
+
+    /**
+     * Decode the binary Change Set.
+     *
+     * @param bytes the binary Change Set.
+     * @return the decoded Change Set.
+     * @throws IllegalStateException if the message uses an unsupported version or is malformed.
+     */
+    @NonNull
+    static ChangeSetMessage decode(@NonNull final byte[] bytes) {
+        return new BinaryChangeSetDecoder(bytes).decodeChangeSet();
+    }
+
+    /**
+     * Decode UTF-8 encoded text.
+     *
+     * @param bytes  the buffer containing the text.
+     * @param offset the offset of the text within the buffer.
+     * @param length the length of the text in bytes.
+     * @return the decoded text.
+     * @throws IllegalStateException if the text extends beyond the end of the buffer.
+     */
+    @NonNull
+    static String decodeUtf8(@NonNull final byte[] bytes, final int offset, final int length) {
+        final BinaryChangeSetDecoder decoder = new BinaryChangeSetDecoder(bytes);
+        decoder._offset = offset;
+        return decoder.readUtf8(length);
+    }
+
+    /**
+     * Decode a single tagged attribute value as it would appear in an Entity Change payload.
+     *
+     * @param bytes  the buffer containing the value.
+     * @param offset the offset of the value type tag within the buffer.
+     * @return the decoded value, using the same representation as the value parsed from the JSON encoding.
+     * @throws IllegalStateException if the value uses an unknown type or is malformed.
+     */
+    @Nullable
+    static Object decodeValue(@NonNull final byte[] bytes, final int offset) {
+        final BinaryChangeSetDecoder decoder = new BinaryChangeSetDecoder(bytes);
+        decoder._offset = offset;
+        return decoder.readValue();
+    }
+
+    @NonNull
+    private ChangeSetMessage decodeChangeSet() {
+        final int version = readByte();
+        if (Messages.BinaryChangeSet.VERSION != version) {
+            throw new IllegalStateException("Unsupported binary Change Set version " + version);
+        }
+        final int flags = readUnsigned();
+        final Integer requestId =
+                0 != (flags & Messages.BinaryChangeSet.FLAG_REQUEST_ID) ? readSigned() : null;
+        final Object commandResult =
+                0 != (flags & Messages.BinaryChangeSet.FLAG_COMMAND_RESULT) ? JSON.parse(readString()) : null;
+        final String datasetCacheVersion =
+                0 != (flags & Messages.BinaryChangeSet.FLAG_DATASET_CACHE_VERSION) ? readString() : null;
+
+        final String[] subscriptionChanges = new String[readUnsigned()];
+        for (int i = 0; i < subscriptionChanges.length; i++) {
+            subscriptionChanges[i] = readString();
+        }
+
+        final SubscriptionChangeMessage[] filterParameterSubscriptionChanges =
+                new SubscriptionChangeMessage[readUnsigned()];
+        for (int i = 0; i < filterParameterSubscriptionChanges.length; i++) {
+            final String subscriptionChange = readString();
+            filterParameterSubscriptionChanges[i] =
+                    SubscriptionChangeMessage.create(subscriptionChange, JSON.parse(readString()));
+        }
+
+        final EntityChange[] entityChanges = new EntityChange[readUnsigned()];
+        for (int i = 0; i < entityChanges.length; i++) {
+            entityChanges[i] = readEntityChange();
+        }
+
+        // Absent collections are omitted in the JSON encoding so mirror that here
+        return ChangeSetMessage.create(
+                requestId,
+                datasetCacheVersion,
+                0 == subscriptionChanges.length ? null : subscriptionChanges,
+                0 == filterParameterSubscriptionChanges.length ? null : filterParameterSubscriptionChanges,
+                0 == entityChanges.length ? null : entityChanges,
+                commandResult);
+    }
+
+    @NonNull
+    private EntityChange readEntityChange() {
+        final int entityTypeId = readUnsigned();
+        final int entityId = readSigned();
+        final int datasetAddressCount = readUnsigned();
+        // The JSON encoding omits an empty Dataset Address list so decode it as absent rather than empty
+        final String[] datasetAddresses = 0 == datasetAddressCount ? null : new String[datasetAddressCount];
+        for (int i = 0; i < datasetAddressCount; i++) {
+            datasetAddresses[i] = readRef();
+        }
+        final int attributeCount = readUnsigned();
+        if (0 == attributeCount) {
+            return EntityChange.create(entityTypeId, entityId, datasetAddresses);
+        } else {
+            final JsPropertyMap<Object> payload = JsPropertyMap.of();
+            for (int i = 1; i < attributeCount; i++) {
+                final String key = readRef();
+                payload.set(key, readValue());
+            }
+            final EntityChangePayload entityChangePayload = Js.uncheckedCast(payload);
+            return EntityChange.create(entityTypeId, entityId, datasetAddresses, entityChangePayload);
+        }
+    }
+
+    @Nullable
+    private Object readValue() {
+        final int type = readByte();
+        if (Messages.BinaryChangeSet.VALUE_STRING == type) {
+            return readString();
+        } else if (Messages.BinaryChangeSet.VALUE_INTEGER == type) {
+            // Integer is not represented as a javascript number so widen to double
+            return (double) readSigned();
+        } else if (Messages.BinaryChangeSet.VALUE_FLOAT == type) {
+            final int bits = (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+            return (double) Float.intBitsToFloat(bits);
+        } else if (Messages.BinaryChangeSet.VALUE_TRUE == type) {
+            return true;
+        } else if (Messages.BinaryChangeSet.VALUE_FALSE == type) {
+            return false;
+        } else {
+            throw new IllegalStateException("Unknown binary Change Set value type " + type);
+        }
+    }
+
+    private int readByte() {
+        if (_offset >= _bytes.length) {
+            throw new IllegalStateException("Unexpected end of binary Change Set");
+        }
+        return _bytes[_offset++] & 0xFF;
+    }
+
+    private int readUnsigned() {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = readByte();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (0 != (b & 0x80));
+        return value;
+    }
+
+    private int readSigned() {
+        final int value = readUnsigned();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    @NonNull
+    private String readRef() {
+        final int index = readUnsigned();
+        if (0 == index) {
+            final String value = readString();
+            _strings.add(value);
+            return value;
+        } else {
+            return _strings.get(index - 1);
+        }
+    }
+
+    @NonNull
+    private String readString() {
+        return readUtf8(readUnsigned());
+    }
+
+    @NonNull
+    private String readUtf8(final int length) {
+        final int end = _offset + length;
+        final StringBuilder sb = new StringBuilder();
+        while (_offset < end) {
+            final int b = readByte();
+            if (b < 0x80) {
+                sb.append((char) b);
+            } else if (b < 0xE0) {
+                sb.append((char) (((b & 0x1F) << 6) | (readByte() & 0x3F)));
+            } else if (b < 0xF0) {
+                sb.append((char) (((b & 0x0F) << 12) | ((readByte() & 0x3F) << 6) | (readByte() & 0x3F)));
+            } else {
+                final int codePoint = ((b & 0x07) << 18)
+                        | ((readByte() & 0x3F) << 12)
+                        | ((readByte() & 0x3F) << 6)
+                        | (readByte() & 0x3F);
+                sb.appendCodePoint(codePoint);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -353,6 +353,13 @@ abstract class Connection {
         request.markAsComplete();
     }
 
+    @Nullable
+    private DatasetCacheEntry lookupDatasetCacheEntry(
+            @NonNull final DatasetCacheService datasetCacheService, @NonNull final SubscriptionOperation operation) {
+        return datasetCacheService.lookupDatasetCacheEntry(
+                DatasetCacheKey.of(operation.getDatasetAddress(), operation.getFilterParameter()));
+    }
+
     /**
      * Return true if the matching operation can be grouped with the template operation in one network message.
      */
@@ -362,10 +369,8 @@ abstract class Connection {
                 _connector.getReplicantContext().getDatasetCacheService();
         return null != template.getDatasetAddress().datasetRootId()
                 && null != match.getDatasetAddress().datasetRootId()
-                && (null == datasetCacheService
-                        || null == datasetCacheService.lookupDatasetCacheEntry(template.getDatasetAddress()))
-                && (null == datasetCacheService
-                        || null == datasetCacheService.lookupDatasetCacheEntry(match.getDatasetAddress()))
+                && (null == datasetCacheService || null == lookupDatasetCacheEntry(datasetCacheService, template))
+                && (null == datasetCacheService || null == lookupDatasetCacheEntry(datasetCacheService, match))
                 && template.getType().equals(match.getType())
                 && template.getDatasetAddress().datasetId()
                         == match.getDatasetAddress().datasetId()
@@ -122,11 +122,11 @@ abstract class Connector extends ReplicantService {
     private TransportContextImpl _context;
 
     /**
-     * Dataset Addresses whose rejected Dataset Cache Entry must not be advertised until replaced by a successful
+     * Dataset Cache Keys whose rejected Dataset Cache Entry must not be advertised until replaced by a successful
      * fresh store.
      */
     @NonNull
-    private final Set<DatasetAddress> _rejectedDatasetCacheEntryAddresses = new HashSet<>();
+    private final Set<DatasetCacheKey> _rejectedDatasetCacheKeys = new HashSet<>();
 
     @NonNull
     static Connector create(
@@ -249,9 +249,9 @@ abstract class Connector extends ReplicantService {
     private void sendDatasetCacheVersionsIfAny() {
         final DatasetCacheService datasetCacheService = getReplicantContext().getDatasetCacheService();
         if (null != datasetCacheService) {
-            final List<DatasetAddress> datasetAddresses;
+            final List<DatasetCacheKey> datasetCacheKeys;
             try {
-                datasetAddresses = new ArrayList<>(datasetCacheService.getDatasetAddresses(
+                datasetCacheKeys = new ArrayList<>(datasetCacheService.getDatasetCacheKeys(
                         getSystemSchema().getId()));
             } catch (final Throwable t) {
                 ReplicantLogger.log(
@@ -260,21 +260,21 @@ abstract class Connector extends ReplicantService {
                         t);
                 return;
             }
-            final HashMap<String, String> datasetCacheVersions = new HashMap<>();
-            for (final DatasetAddress datasetAddress : datasetAddresses) {
-                if (!_rejectedDatasetCacheEntryAddresses.contains(datasetAddress)) {
+            final HashMap<DatasetCacheKey, String> datasetCacheVersions = new HashMap<>();
+            for (final DatasetCacheKey datasetCacheKey : datasetCacheKeys) {
+                if (!_rejectedDatasetCacheKeys.contains(datasetCacheKey)) {
                     try {
                         final String datasetCacheVersion =
-                                datasetCacheService.lookupDatasetCacheVersion(datasetAddress);
+                                datasetCacheService.lookupDatasetCacheVersion(datasetCacheKey);
                         if (null == datasetCacheVersion) {
                             rejectDatasetCacheEntry(
-                                    datasetCacheService, datasetAddress, "Dataset Cache Version is absent.", null);
+                                    datasetCacheService, datasetCacheKey, "Dataset Cache Version is absent.", null);
                         } else {
-                            datasetCacheVersions.put(datasetAddress.asDatasetAddressDescriptor(), datasetCacheVersion);
+                            datasetCacheVersions.put(datasetCacheKey, datasetCacheVersion);
                         }
                     } catch (final Throwable t) {
                         rejectDatasetCacheEntry(
-                                datasetCacheService, datasetAddress, "Dataset Cache Version is unreadable.", t);
+                                datasetCacheService, datasetCacheKey, "Dataset Cache Version is unreadable.", t);
                     }
                 }
             }
@@ -968,13 +968,16 @@ abstract class Connector extends ReplicantService {
                                     .getDatasetAddress()
                                     .datasetId())
                             .isCacheable()) {
-                final DatasetAddress datasetAddress = subscriptionChanges.get(0).getDatasetAddress();
+                final SubscriptionChange subscriptionChange = subscriptionChanges.get(0);
+                // A Parameter-Filtered Dataset is keyed by the Filter Parameter that the server reported
+                final DatasetCacheKey datasetCacheKey = DatasetCacheKey.of(
+                        subscriptionChange.getDatasetAddress(), subscriptionChange.getFilterParameter());
                 try {
-                    if (datasetCacheService.storeDatasetCacheEntry(datasetAddress, datasetCacheVersion, changeSet)) {
-                        _rejectedDatasetCacheEntryAddresses.remove(datasetAddress);
+                    if (datasetCacheService.storeDatasetCacheEntry(datasetCacheKey, datasetCacheVersion, changeSet)) {
+                        _rejectedDatasetCacheKeys.remove(datasetCacheKey);
                     }
                 } catch (final Throwable t) {
-                    ReplicantLogger.log("Failed to store Dataset Cache Entry at " + datasetAddress + ".", t);
+                    ReplicantLogger.log("Failed to store Dataset Cache Entry at " + datasetCacheKey + ".", t);
                 }
                 candidate = true;
             }
@@ -1028,7 +1031,9 @@ abstract class Connector extends ReplicantService {
                     }
                 }
 
-                final String[] datasetAddressDescriptors = change.getDatasetAddresses();
+                final String[] changeDatasetAddresses = change.getDatasetAddresses();
+                final String[] datasetAddressDescriptors =
+                        null != changeDatasetAddresses ? changeDatasetAddresses : new String[0];
                 final int systemSchemaId = getSystemSchema().getId();
                 for (final String datasetAddressDescriptor : datasetAddressDescriptors) {
                     try {
@@ -1313,6 +1318,8 @@ abstract class Connector extends ReplicantService {
                 onMessageProcessingFailure(t);
                 return;
             }
+            final DatasetCacheKey datasetCacheKey =
+                    DatasetCacheKey.of(datasetAddress, useDatasetCacheEntryMessage.getFilterParameter());
             final String datasetCacheVersion = useDatasetCacheEntryMessage.getDatasetCacheVersion();
 
             final DatasetCacheService datasetCacheService =
@@ -1322,27 +1329,27 @@ abstract class Connector extends ReplicantService {
                         "Received a use-dataset-cache-entry message for Dataset Address " + datasetAddress
                                 + " but no Dataset Cache Service is configured.",
                         null);
-                _rejectedDatasetCacheEntryAddresses.add(datasetAddress);
+                _rejectedDatasetCacheKeys.add(datasetCacheKey);
                 onMessageReadFailure();
                 return;
             }
 
             final DatasetCacheEntry entry;
             try {
-                entry = datasetCacheService.lookupDatasetCacheEntry(datasetAddress);
+                entry = datasetCacheService.lookupDatasetCacheEntry(datasetCacheKey);
             } catch (final Throwable t) {
-                rejectDatasetCacheEntry(datasetCacheService, datasetAddress, "Dataset Cache Entry is unreadable.", t);
+                rejectDatasetCacheEntry(datasetCacheService, datasetCacheKey, "Dataset Cache Entry is unreadable.", t);
                 onMessageReadFailure();
                 return;
             }
             if (null == entry) {
-                rejectDatasetCacheEntry(datasetCacheService, datasetAddress, "Dataset Cache Entry is absent.", null);
+                rejectDatasetCacheEntry(datasetCacheService, datasetCacheKey, "Dataset Cache Entry is absent.", null);
                 onMessageReadFailure();
                 return;
             }
             if (!Objects.equals(entry.getDatasetCacheVersion(), datasetCacheVersion)) {
                 rejectDatasetCacheEntry(
-                        datasetCacheService, datasetAddress, "Dataset Cache Version does not match.", null);
+                        datasetCacheService, datasetCacheKey, "Dataset Cache Version does not match.", null);
                 onMessageReadFailure();
                 return;
             }
@@ -1350,7 +1357,7 @@ abstract class Connector extends ReplicantService {
                 messageToQueue =
                         Objects.requireNonNull(JSON.parse(entry.getChangeSet())).cast();
             } catch (final Throwable t) {
-                rejectDatasetCacheEntry(datasetCacheService, datasetAddress, "Dataset Cache Entry is corrupt.", t);
+                rejectDatasetCacheEntry(datasetCacheService, datasetCacheKey, "Dataset Cache Entry is corrupt.", t);
                 onMessageReadFailure();
                 return;
             }
@@ -1365,15 +1372,15 @@ abstract class Connector extends ReplicantService {
 
     private void rejectDatasetCacheEntry(
             @NonNull final DatasetCacheService datasetCacheService,
-            @NonNull final DatasetAddress datasetAddress,
+            @NonNull final DatasetCacheKey datasetCacheKey,
             @NonNull final String reason,
             @Nullable final Throwable error) {
-        _rejectedDatasetCacheEntryAddresses.add(datasetAddress);
-        ReplicantLogger.log("Rejected Dataset Cache Entry at " + datasetAddress + ". " + reason, error);
+        _rejectedDatasetCacheKeys.add(datasetCacheKey);
+        ReplicantLogger.log("Rejected Dataset Cache Entry at " + datasetCacheKey + ". " + reason, error);
         try {
-            datasetCacheService.invalidateDatasetCacheEntry(datasetAddress);
+            datasetCacheService.invalidateDatasetCacheEntry(datasetCacheKey);
         } catch (final Throwable t) {
-            ReplicantLogger.log("Failed to invalidate Dataset Cache Entry at " + datasetAddress + ".", t);
+            ReplicantLogger.log("Failed to invalidate Dataset Cache Entry at " + datasetCacheKey + ".", t);
         }
     }
 
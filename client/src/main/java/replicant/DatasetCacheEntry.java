@@ -4,14 +4,15 @@ import java.util.Objects;
 import org.jspecify.annotations.NonNull;
 
 /**
- * A Dataset Cache Entry containing the serialized Change Set for one concrete Dataset Address.
+ * A Dataset Cache Entry containing the serialized Change Set for one concrete Dataset Address and, for a
+ * Parameter-Filtered Dataset, one Filter Parameter.
  *
  * <p>The Dataset Cache Version is opaque and must only be compared for equality with the server's current version for
- * the same Dataset Address.
+ * the same Dataset Cache Key.
  */
 public final class DatasetCacheEntry {
     @NonNull
-    private final DatasetAddress _datasetAddress;
+    private final DatasetCacheKey _datasetCacheKey;
 
     @NonNull
     private final String _datasetCacheVersion;
@@ -30,7 +31,21 @@ public final class DatasetCacheEntry {
             @NonNull final DatasetAddress datasetAddress,
             @NonNull final String datasetCacheVersion,
             @NonNull final String changeSet) {
-        _datasetAddress = Objects.requireNonNull(datasetAddress);
+        this(DatasetCacheKey.of(datasetAddress), datasetCacheVersion, changeSet);
+    }
+
+    /**
+     * Create a Dataset Cache Entry.
+     *
+     * @param datasetCacheKey     the Dataset Cache Key that owns the representation.
+     * @param datasetCacheVersion the opaque Dataset Cache Version supplied by the server.
+     * @param changeSet           the serialized Change Set.
+     */
+    public DatasetCacheEntry(
+            @NonNull final DatasetCacheKey datasetCacheKey,
+            @NonNull final String datasetCacheVersion,
+            @NonNull final String changeSet) {
+        _datasetCacheKey = Objects.requireNonNull(datasetCacheKey);
         _datasetCacheVersion = Objects.requireNonNull(datasetCacheVersion);
         _changeSet = Objects.requireNonNull(changeSet);
     }
@@ -42,7 +57,17 @@ public final class DatasetCacheEntry {
      */
     @NonNull
     public DatasetAddress getDatasetAddress() {
-        return _datasetAddress;
+        return _datasetCacheKey.getDatasetAddress();
+    }
+
+    /**
+     * Return the Dataset Cache Key that owns this entry.
+     *
+     * @return the Dataset Cache Key.
+     */
+    @NonNull
+    public DatasetCacheKey getDatasetCacheKey() {
+        return _datasetCacheKey;
     }
 
     /**
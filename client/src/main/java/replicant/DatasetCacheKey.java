@@ -0,0 +1,95 @@
+package replicant;
+
+import java.util.Objects;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * The immutable identity of a Dataset Cache Entry.
+ *
+ * <p>A Parameter-Filtered Dataset has a separate Dataset Cache Entry for each Filter Parameter. The Filter Parameter
+ * is held in the serialized form produced by {@link FilterParameterUtil#filterParameterToString(Object)} from the
+ * Filter Parameter that the server reported for the Subscription.
+ */
+public final class DatasetCacheKey {
+    @NonNull
+    private final DatasetAddress _datasetAddress;
+
+    @Nullable
+    private final String _filterParameter;
+
+    @NonNull
+    public static DatasetCacheKey of(@NonNull final DatasetAddress datasetAddress) {
+        return new DatasetCacheKey(datasetAddress, null);
+    }
+
+    @NonNull
+    public static DatasetCacheKey of(
+            @NonNull final DatasetAddress datasetAddress, @Nullable final Object filterParameter) {
+        return new DatasetCacheKey(
+                datasetAddress,
+                null == filterParameter ? null : FilterParameterUtil.filterParameterToString(filterParameter));
+    }
+
+    /**
+     * Create a Dataset Cache Key.
+     *
+     * @param datasetAddress  the concrete Dataset Address.
+     * @param filterParameter the serialized Filter Parameter, or null for an Unfiltered Dataset.
+     */
+    public DatasetCacheKey(@NonNull final DatasetAddress datasetAddress, @Nullable final String filterParameter) {
+        _datasetAddress = Objects.requireNonNull(datasetAddress);
+        _filterParameter = filterParameter;
+    }
+
+    @NonNull
+    public DatasetAddress getDatasetAddress() {
+        return _datasetAddress;
+    }
+
+    /**
+     * Return the serialized Filter Parameter.
+     *
+     * @return the serialized Filter Parameter, or null for an Unfiltered Dataset.
+     */
+    @Nullable
+    public String getFilterParameter() {
+        return _filterParameter;
+    }
+
+    /**
+     * Return the key under which the serialized Change Set of the Dataset Cache Entry may be persisted.
+     *
+     * @return the storage key.
+     */
+    @NonNull
+    public String getDatasetCacheEntryStorageKey() {
+        final String storageKey = _datasetAddress.getDatasetCacheEntryStorageKey();
+        return null == _filterParameter ? storageKey : storageKey + "?" + _filterParameter;
+    }
+
+    @Override
+    public String toString() {
+        return Replicant.areNamesEnabled()
+                ? null == _filterParameter ? _datasetAddress.getName() : _datasetAddress.getName() + _filterParameter
+                : super.toString();
+    }
+
+    @Override
+    public boolean equals(@Nullable final Object o) {
+        if (this == o) {
+            return true;
+        } else if (o == null || getClass() != o.getClass()) {
+            return false;
+        } else {
+            final DatasetCacheKey that = (DatasetCacheKey) o;
+            return _datasetAddress.equals(that._datasetAddress)
+                    && Objects.equals(_filterParameter, that._filterParameter);
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * _datasetAddress.hashCode() + (_filterParameter != null ? _filterParameter.hashCode() : 0);
+    }
+}
@@ -6,9 +6,10 @@ import org.jspecify.annotations.Nullable;
 import replicant.messages.ChangeSetMessage;
 
 /**
- * Optional client service for storing Dataset Cache Entries by Dataset Address.
+ * Optional client service for storing Dataset Cache Entries by Dataset Cache Key.
  *
- * <p>Each stored representation is identified by an opaque Dataset Cache Version supplied by the server. Callers
+ * <p>A Dataset Cache Key is the Dataset Address and, for a Parameter-Filtered Dataset, the serialized Filter Parameter.
+ * Each stored representation is identified by an opaque Dataset Cache Version supplied by the server. Callers
  * compare Dataset Cache Versions only for equality and treat absent, unreadable, corrupt, or mismatched entries as
  * recoverable cache misses.
  *
@@ -17,50 +18,50 @@ import replicant.messages.ChangeSetMessage;
  */
 public interface DatasetCacheService {
     /**
-     * Return the Dataset Addresses with locally stored entries for the System Schema.
+     * Return the Dataset Cache Keys with locally stored entries for the System Schema.
      *
      * @param systemSchemaId the System Schema ID.
-     * @return the Dataset Addresses with stored entries.
+     * @return the Dataset Cache Keys with stored entries.
      */
     @NonNull
-    Set<DatasetAddress> getDatasetAddresses(int systemSchemaId);
+    Set<DatasetCacheKey> getDatasetCacheKeys(int systemSchemaId);
 
     /**
-     * Return the Dataset Cache Version for the specified Dataset Address.
+     * Return the Dataset Cache Version for the specified Dataset Cache Key.
      *
-     * @param datasetAddress the Dataset Address.
+     * @param datasetCacheKey the Dataset Cache Key.
      * @return the opaque Dataset Cache Version, or null if no readable version is stored.
      */
     @Nullable
-    String lookupDatasetCacheVersion(@NonNull DatasetAddress datasetAddress);
+    String lookupDatasetCacheVersion(@NonNull DatasetCacheKey datasetCacheKey);
 
     /**
-     * Return the Dataset Cache Entry for the specified Dataset Address.
+     * Return the Dataset Cache Entry for the specified Dataset Cache Key.
      *
-     * @param datasetAddress the Dataset Address.
+     * @param datasetCacheKey the Dataset Cache Key.
      * @return the Dataset Cache Entry, or null if no readable entry is stored.
      */
     @Nullable
-    DatasetCacheEntry lookupDatasetCacheEntry(@NonNull DatasetAddress datasetAddress);
+    DatasetCacheEntry lookupDatasetCacheEntry(@NonNull DatasetCacheKey datasetCacheKey);
 
     /**
      * Store a Change Set as a Dataset Cache Entry.
      *
-     * @param datasetAddress      the concrete Dataset Address owning the representation.
+     * @param datasetCacheKey     the Dataset Cache Key owning the representation.
      * @param datasetCacheVersion the opaque Dataset Cache Version supplied by the server.
      * @param changeSet           the Change Set to store.
      * @return true if the Change Set was stored, false otherwise.
      */
     boolean storeDatasetCacheEntry(
-            @NonNull DatasetAddress datasetAddress,
+            @NonNull DatasetCacheKey datasetCacheKey,
             @NonNull String datasetCacheVersion,
             @NonNull ChangeSetMessage changeSet);
 
     /**
-     * Invalidate the Dataset Cache Entry for the specified Dataset Address.
+     * Invalidate the Dataset Cache Entry for the specified Dataset Cache Key.
      *
-     * @param datasetAddress the Dataset Address.
+     * @param datasetCacheKey the Dataset Cache Key.
      * @return true if an entry was removed, false if no entry was stored.
      */
-    boolean invalidateDatasetCacheEntry(@NonNull DatasetAddress datasetAddress);
+    boolean invalidateDatasetCacheEntry(@NonNull DatasetCacheKey datasetCacheKey);
 }
@@ -0,0 +1,271 @@
+package replicant;
+
+import java.util.Arrays;
+import org.jspecify.annotations.NonNull;
+
+/**
+ * Decompresses raw deflate data as described by RFC 1951.
+ *
+ * <p>Browsers only expose decompression through asynchronous streams which would allow a later message to be
+ * processed before an earlier compressed message. Decompressing synchronously keeps messages in the order that they
+ * were received.</p>
+ */
+final class DeflateDecoder {
+    private static final int MAX_BITS = 15;
+    private static final int END_OF_BLOCK = 256;
+    private static final int[] LENGTH_BASE = {
+        3, 4, 5, 6, 7, 8, 9, 10, 11, 13, 15, 17, 19, 23, 27, 31, 35, 43, 51, 59, 67, 83, 99, 115, 131, 163, 195, 227,
+        258
+    };
+    private static final int[] LENGTH_EXTRA_BITS = {
+        0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 4, 4, 4, 4, 5, 5, 5, 5, 0
+    };
+    private static final int[] DISTANCE_BASE = {
+        1, 2, 3, 4, 5, 7, 9, 13, 17, 25, 33, 49, 65, 97, 129, 193, 257, 385, 513, 769, 1025, 1537, 2049, 3073, 4097,
+        6145, 8193, 12289, 16385, 24577
+    };
+    private static final int[] DISTANCE_EXTRA_BITS = {
+        0, 0, 0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 6, 6, 7, 7, 8, 8, 9, 9, 10, 10, 11, 11, 12, 12, 13, 13
+    };
+    /**
+     * The order in which the code lengths of the code length alphabet are stored in a dynamic block.
+     */
+    private static final int[] CODE_LENGTH_ORDER = {16, 17, 18, 0, 8, 7, 9, 6, 10, 5, 11, 4, 12, 3, 13, 2, 14, 1, 15};
+
+    @NonNull
+    private final byte[] _input;
+
+    private int _inputOffset;
+    private int _bitBuffer;
+    private int _bitCount;
+
+    @NonNull
+    private byte[] _output;
+
+    private int _outputLength;
+
+    private DeflateDecoder(@NonNull final byte[] input, final int offset) {
+        _input = input;
+        _inputOffset = offset;
+        _output = new byte[Math.max(1024, (input.length - offset) * 4)];
+    }
+
+    /**
+     * Decompress the deflate data.
+     *
+     * @param input  the buffer containing the deflate data.
+     * @param offset the offset of the deflate data within the buffer.
+     * @return the decompressed data.
+     * @throws IllegalStateException if the data is malformed.
+     */
+    @NonNull
+    static byte[] inflate(@NonNull final byte[] input, final int offset) {
+        return new DeflateDecoder(input, offset).inflate();
+    }
+
+    @NonNull
+    private byte[] inflate() {
+        boolean lastBlock;
+        do {
+            lastBlock = 1 == readBits(1);
+            final int type = readBits(2);
+            if (0 == type) {
+                inflateStoredBlock();
+            } else if (1 == type) {
+                inflateBlock(Huffman.FIXED_LITERALS, Huffman.FIXED_DISTANCES);
+            } else if (2 == type) {
+                inflateDynamicBlock();
+            } else {
+                throw new IllegalStateException("Invalid deflate block type");
+            }
+        } while (!lastBlock);
+        return Arrays.copyOf(_output, _outputLength);
+    }
+
+    private void inflateStoredBlock() {
+        // Stored blocks begin on a byte boundary
+        _bitBuffer = 0;
+        _bitCount = 0;
+        if (_inputOffset + 4 > _input.length) {
+            throw new IllegalStateException("Unexpected end of deflate data");
+        }
+        final int length = (_input[_inputOffset] & 0xFF) | ((_input[_inputOffset + 1] & 0xFF) << 8);
+        final int complement = (_input[_inputOffset + 2] & 0xFF) | ((_input[_inputOffset + 3] & 0xFF) << 8);
+        _inputOffset += 4;
+        if (length != (~complement & 0xFFFF) || _inputOffset + length > _input.length) {
+            throw new IllegalStateException("Invalid deflate stored block");
+        }
+        ensureCapacity(length);
+        System.arraycopy(_input, _inputOffset, _output, _outputLength, length);
+        _inputOffset += length;
+        _outputLength += length;
+    }
+
+    private void inflateDynamicBlock() {
+        final int literalCount = readBits(5) + 257;
+        final int distanceCount = readBits(5) + 1;
+        final int codeLengthCount = readBits(4) + 4;
+
+        final int[] codeLengthLengths = new int[CODE_LENGTH_ORDER.length];
+        for (int i = 0; i < codeLengthCount; i++) {
+            codeLengthLengths[CODE_LENGTH_ORDER[i]] = readBits(3);
+        }
+        final Huffman codeLengths = new Huffman(codeLengthLengths, codeLengthLengths.length);
+
+        final int[] lengths = new int[literalCount + distanceCount];
+        int index = 0;
+        while (index < lengths.length) {
+            final int symbol = decodeSymbol(codeLengths);
+            if (symbol < 16) {
+                lengths[index++] = symbol;
+            } else {
+                final int value;
+                final int repeat;
+                if (16 == symbol) {
+                    if (0 == index) {
+                        throw new IllegalStateException("Invalid deflate code lengths");
+                    }
+                    value = lengths[index - 1];
+                    repeat = 3 + readBits(2);
+                } else if (17 == symbol) {
+                    value = 0;
+                    repeat = 3 + readBits(3);
+                } else {
+                    value = 0;
+                    repeat = 11 + readBits(7);
+                }
+                if (index + repeat > lengths.length) {
+                    throw new IllegalStateException("Invalid deflate code lengths");
+                }
+                Arrays.fill(lengths, index, index + repeat, value);
+                index += repeat;
+            }
+        }
+
+        final Huffman literals = new Huffman(lengths, literalCount);
+        final Huffman distances =
+                new Huffman(Arrays.copyOfRange(lengths, literalCount, lengths.length), distanceCount);
+        inflateBlock(literals, distances);
+    }
+
+    private void inflateBlock(@NonNull final Huffman literals, @NonNull final Huffman distances) {
+        while (true) {
+            final int symbol = decodeSymbol(literals);
+            if (symbol < END_OF_BLOCK) {
+                ensureCapacity(1);
+                _output[_outputLength++] = (byte) symbol;
+            } else if (END_OF_BLOCK == symbol) {
+                return;
+            } else {
+                final int lengthSymbol = symbol - 257;
+                if (lengthSymbol >= LENGTH_BASE.length) {
+                    throw new IllegalStateException("Invalid deflate length symbol");
+                }
+                final int length = LENGTH_BASE[lengthSymbol] + readBits(LENGTH_EXTRA_BITS[lengthSymbol]);
+                final int distanceSymbol = decodeSymbol(distances);
+                if (distanceSymbol >= DISTANCE_BASE.length) {
+                    throw new IllegalStateException("Invalid deflate distance symbol");
+                }
+                final int distance = DISTANCE_BASE[distanceSymbol] + readBits(DISTANCE_EXTRA_BITS[distanceSymbol]);
+                if (distance > _outputLength) {
+                    throw new IllegalStateException("Invalid deflate distance");
+                }
+                ensureCapacity(length);
+                // The source may overlap the destination so copy one byte at a time
+                int source = _outputLength - distance;
+                for (int i = 0; i < length; i++) {
+                    _output[_outputLength++] = _output[source++];
+                }
+            }
+        }
+    }
+
+    private int decodeSymbol(@NonNull final Huffman huffman) {
+        // Canonical Huffman codes are read one bit at a time, most significant bit first
+        int code = 0;
+        int first = 0;
+        int index = 0;
+        for (int length = 1; length <= MAX_BITS; length++) {
+            code |= readBits(1);
+            final int count = huffman._counts[length];
+            if (code - first < count) {
+                return huffman._symbols[index + code - first];
+            }
+            index += count;
+            first += count;
+            first <<= 1;
+            code <<= 1;
+        }
+        throw new IllegalStateException("Invalid deflate Huffman code");
+    }
+
+    private int readBits(final int count) {
+        while (_bitCount < count) {
+            if (_inputOffset >= _input.length) {
+                throw new IllegalStateException("Unexpected end of deflate data");
+            }
+            _bitBuffer |= (_input[_inputOffset++] & 0xFF) << _bitCount;
+            _bitCount += 8;
+        }
+        final int value = _bitBuffer & ((1 << count) - 1);
+        _bitBuffer >>>= count;
+        _bitCount -= count;
+        return value;
+    }
+
+    private void ensureCapacity(final int size) {
+        if (_outputLength + size > _output.length) {
+            _output = Arrays.copyOf(_output, Math.max(_output.length * 2, _outputLength + size));
+        }
+    }
+
+    /**
+     * A canonical Huffman code described by the number of codes of each length and the symbols ordered by code.
+     */
+    private static final class Huffman {
+        @NonNull
+        static final Huffman FIXED_LITERALS = new Huffman(fixedLiteralLengths(), 288);
+        @NonNull
+        static final Huffman FIXED_DISTANCES = new Huffman(fixedDistanceLengths(), 30);
+
+        @NonNull
+        final int[] _counts = new int[MAX_BITS + 1];
+
+        @NonNull
+        final int[] _symbols;
+
+        Huffman(@NonNull final int[] lengths, final int symbolCount) {
+            _symbols = new int[symbolCount];
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                _counts[lengths[symbol]]++;
+            }
+            _counts[0] = 0;
+            final int[] offsets = new int[MAX_BITS + 1];
+            for (int length = 1; length < MAX_BITS; length++) {
+                offsets[length + 1] = offsets[length] + _counts[length];
+            }
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                if (0 != lengths[symbol]) {
+                    _symbols[offsets[lengths[symbol]]++] = symbol;
+                }
+            }
+        }
+
+        @NonNull
+        private static int[] fixedLiteralLengths() {
+            final int[] lengths = new int[288];
+            Arrays.fill(lengths, 0, 144, 8);
+            Arrays.fill(lengths, 144, 256, 9);
+            Arrays.fill(lengths, 256, 280, 7);
+            Arrays.fill(lengths, 280, 288, 8);
+            return lengths;
+        }
+
+        @NonNull
+        private static int[] fixedDistanceLengths() {
+            final int[] lengths = new int[30];
+            Arrays.fill(lengths, 5);
+            return lengths;
+        }
+    }
+}
@@ -40,7 +40,7 @@ public interface Transport {
      * Send the known Dataset Cache Versions and use the response to establish a Synchronization Point.
      */
     void updateDatasetCacheVersionsAndRequestSynchronizationPoint(
-            @NonNull Map<String, String> datasetAddressToDatasetCacheVersionMap);
+            @NonNull Map<DatasetCacheKey, String> datasetCacheKeyToDatasetCacheVersionMap);
 
     /**
      * Send a Command to the server.
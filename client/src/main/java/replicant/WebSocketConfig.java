@@ -24,6 +24,14 @@ public final class WebSocketConfig {
      */
     @Nullable
     private final Supplier<String> _authenticationTokenGenerator;
+    /**
+     * True if the server is asked to send Change Sets using the compact binary encoding rather than JSON text.
+     */
+    private final boolean _binaryChangeSets;
+    /**
+     * True if the server may compress large Change Sets.
+     */
+    private final boolean _compressedChangeSets;
 
     @NonNull
     public static WebSocketConfig create(@NonNull final String baseURL) {
@@ -35,16 +43,55 @@ public final class WebSocketConfig {
             @NonNull final String baseURL,
             @Nullable final Consumer<Runnable> remoteCallWrapper,
             @Nullable final Supplier<String> authenticationTokenGenerator) {
-        return new WebSocketConfig(baseURL, remoteCallWrapper, authenticationTokenGenerator);
+        return create(baseURL, remoteCallWrapper, authenticationTokenGenerator, false);
+    }
+
+    @NonNull
+    public static WebSocketConfig create(
+            @NonNull final String baseURL,
+            @Nullable final Consumer<Runnable> remoteCallWrapper,
+            @Nullable final Supplier<String> authenticationTokenGenerator,
+            final boolean binaryChangeSets) {
+        return create(baseURL, remoteCallWrapper, authenticationTokenGenerator, binaryChangeSets, false);
+    }
+
+    @NonNull
+    public static WebSocketConfig create(
+            @NonNull final String baseURL,
+            @Nullable final Consumer<Runnable> remoteCallWrapper,
+            @Nullable final Supplier<String> authenticationTokenGenerator,
+            final boolean binaryChangeSets,
+            final boolean compressedChangeSets) {
+        return new WebSocketConfig(
+                baseURL, remoteCallWrapper, authenticationTokenGenerator, binaryChangeSets, compressedChangeSets);
     }
 
     private WebSocketConfig(
             @NonNull final String url,
             @Nullable final Consumer<Runnable> remoteCallWrapper,
-            @Nullable final Supplier<String> authenticationTokenGenerator) {
-        _url = url.replace("https://", "wss://").replace("http://", "ws://") + SharedConstants.REPLICANT_URL_FRAGMENT;
+            @Nullable final Supplier<String> authenticationTokenGenerator,
+            final boolean binaryChangeSets,
+            final boolean compressedChangeSets) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(url.replace("https://", "wss://").replace("http://", "ws://"));
+        sb.append(SharedConstants.REPLICANT_URL_FRAGMENT);
+        if (binaryChangeSets) {
+            sb.append('?');
+            sb.append(SharedConstants.CHANGE_SET_ENCODING_PARAMETER);
+            sb.append('=');
+            sb.append(SharedConstants.BINARY_CHANGE_SET_ENCODING);
+        }
+        if (compressedChangeSets) {
+            sb.append(binaryChangeSets ? '&' : '?');
+            sb.append(SharedConstants.CHANGE_SET_COMPRESSION_PARAMETER);
+            sb.append('=');
+            sb.append(SharedConstants.DEFLATE_CHANGE_SET_COMPRESSION);
+        }
+        _url = sb.toString();
         _remoteCallWrapper = remoteCallWrapper;
         _authenticationTokenGenerator = authenticationTokenGenerator;
+        _binaryChangeSets = binaryChangeSets;
+        _compressedChangeSets = compressedChangeSets;
     }
 
     @NonNull
@@ -52,6 +99,14 @@ public final class WebSocketConfig {
         return _url;
     }
 
+    public boolean isBinaryChangeSets() {
+        return _binaryChangeSets;
+    }
+
+    public boolean isCompressedChangeSets() {
+        return _compressedChangeSets;
+    }
+
     @Nullable
     public String getAuthenticationToken() {
         return null != _authenticationTokenGenerator ? _authenticationTokenGenerator.get() : null;
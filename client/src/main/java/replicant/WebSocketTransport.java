@@ -2,10 +2,13 @@ package replicant;
 
 import akasha.MessageEvent;
 import akasha.WebSocket;
+import akasha.core.ArrayBuffer;
 import akasha.core.JSON;
+import akasha.core.Uint8Array;
 import java.util.Objects;
 import jsinterop.base.Any;
 import jsinterop.base.Js;
+import jsinterop.base.JsArrayLike;
 import jsinterop.base.JsPropertyMap;
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
@@ -26,6 +29,9 @@ public final class WebSocketTransport extends AbstractTransport {
     @Override
     protected void doConnect() {
         _webSocket = new WebSocket(_config.getUrl());
+        if (_config.isBinaryChangeSets() || _config.isCompressedChangeSets()) {
+            _webSocket.binaryType = "arraybuffer";
+        }
 
         _webSocket.onmessage = this::handleMessageEvent;
         _webSocket.onerror = e -> onError();
@@ -74,6 +80,18 @@ public final class WebSocketTransport extends AbstractTransport {
         Any parsed;
         if ("string".equals(kind)) {
             parsed = JSON.parse(data.asString());
+        } else if (data instanceof ArrayBuffer) {
+            // Binary messages are only sent for Change Sets when negotiated at connect time
+            final byte[] bytes = toByteArray(data.cast());
+            final int format = 0 == bytes.length ? -1 : bytes[0] & 0xFF;
+            if (Messages.CompressedChangeSet.FORMAT_DEFLATED_JSON == format) {
+                final byte[] inflated = DeflateDecoder.inflate(bytes, 1);
+                parsed = JSON.parse(BinaryChangeSetDecoder.decodeUtf8(inflated, 0, inflated.length));
+            } else if (Messages.CompressedChangeSet.FORMAT_DEFLATED_BINARY == format) {
+                return BinaryChangeSetDecoder.decode(DeflateDecoder.inflate(bytes, 1));
+            } else {
+                return BinaryChangeSetDecoder.decode(bytes);
+            }
         } else {
             ReplicantLogger.log("WebSocket message incorrect type: " + kind, null);
             return null;
@@ -93,6 +111,16 @@ public final class WebSocketTransport extends AbstractTransport {
         }
     }
 
+    @NonNull
+    private static byte[] toByteArray(@NonNull final ArrayBuffer buffer) {
+        final JsArrayLike<Double> view = Js.uncheckedCast(new Uint8Array(buffer));
+        final byte[] bytes = new byte[view.getLength()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = view.getAt(i).byteValue();
+        }
+        return bytes;
+    }
+
     @Override
     protected void doDisconnect() {
         if (null != _webSocket) {
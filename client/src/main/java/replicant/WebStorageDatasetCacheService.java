@@ -22,6 +22,8 @@ public final class WebStorageDatasetCacheService implements DatasetCacheService
     @NonNull
     static final String DATASET_CACHE_VERSION_INDEX = "REPLICANT_DATASET_CACHE_VERSION_INDEX";
 
+    private static final char FILTER_PARAMETER_SEPARATOR = '\n';
+
     @NonNull
     private final Storage _storage;
 
@@ -62,28 +64,28 @@ public final class WebStorageDatasetCacheService implements DatasetCacheService
 
     @NonNull
     @Override
-    public Set<DatasetAddress> getDatasetAddresses(final int systemSchemaId) {
-        final Set<DatasetAddress> datasetAddresses = new HashSet<>();
-        getIndex(systemSchemaId).forEach(v -> datasetAddresses.add(DatasetAddress.parse(systemSchemaId, v)));
-        return CollectionsUtil.wrap(datasetAddresses);
+    public Set<DatasetCacheKey> getDatasetCacheKeys(final int systemSchemaId) {
+        final Set<DatasetCacheKey> datasetCacheKeys = new HashSet<>();
+        getIndex(systemSchemaId).forEach(v -> datasetCacheKeys.add(parseIndexKey(systemSchemaId, v)));
+        return CollectionsUtil.wrap(datasetCacheKeys);
     }
 
     @Nullable
     @Override
-    public String lookupDatasetCacheVersion(@NonNull final DatasetAddress datasetAddress) {
-        return getIndex(datasetAddress.systemSchemaId())
-                .get(Objects.requireNonNull(datasetAddress).asDatasetAddressDescriptor());
+    public String lookupDatasetCacheVersion(@NonNull final DatasetCacheKey datasetCacheKey) {
+        return getIndex(datasetCacheKey.getDatasetAddress().systemSchemaId())
+                .get(indexKey(Objects.requireNonNull(datasetCacheKey)));
     }
 
     @Nullable
     @Override
-    public DatasetCacheEntry lookupDatasetCacheEntry(@NonNull final DatasetAddress datasetAddress) {
-        Objects.requireNonNull(datasetAddress);
+    public DatasetCacheEntry lookupDatasetCacheEntry(@NonNull final DatasetCacheKey datasetCacheKey) {
+        Objects.requireNonNull(datasetCacheKey);
         final String datasetCacheVersion =
-                getIndex(datasetAddress.systemSchemaId()).get(datasetAddress.asDatasetAddressDescriptor());
-        final String changeSet = _storage.getItem(datasetAddress.getDatasetCacheEntryStorageKey());
+                getIndex(datasetCacheKey.getDatasetAddress().systemSchemaId()).get(indexKey(datasetCacheKey));
+        final String changeSet = _storage.getItem(datasetCacheKey.getDatasetCacheEntryStorageKey());
         if (null != datasetCacheVersion && null != changeSet) {
-            return new DatasetCacheEntry(datasetAddress, datasetCacheVersion, changeSet);
+            return new DatasetCacheEntry(datasetCacheKey, datasetCacheVersion, changeSet);
         } else {
             return null;
         }
@@ -91,22 +93,22 @@ public final class WebStorageDatasetCacheService implements DatasetCacheService
 
     @Override
     public boolean storeDatasetCacheEntry(
-            @NonNull final DatasetAddress datasetAddress,
+            @NonNull final DatasetCacheKey datasetCacheKey,
             @NonNull final String datasetCacheVersion,
             @NonNull final ChangeSetMessage changeSet) {
-        Objects.requireNonNull(datasetAddress);
+        Objects.requireNonNull(datasetCacheKey);
         Objects.requireNonNull(datasetCacheVersion);
         assert null != changeSet;
         try {
-            final int systemSchemaId = datasetAddress.systemSchemaId();
+            final int systemSchemaId = datasetCacheKey.getDatasetAddress().systemSchemaId();
             final JsPropertyMap<String> index = getIndex(systemSchemaId);
-            index.set(datasetAddress.asDatasetAddressDescriptor(), datasetCacheVersion);
+            index.set(indexKey(datasetCacheKey), datasetCacheVersion);
             saveIndex(systemSchemaId, index);
-            getStorage().setItem(datasetAddress.getDatasetCacheEntryStorageKey(), JSON.stringify(changeSet));
+            getStorage().setItem(datasetCacheKey.getDatasetCacheEntryStorageKey(), JSON.stringify(changeSet));
             return true;
         } catch (final Throwable e) {
             // This exception can occur when storage is full
-            invalidateDatasetCacheEntry(datasetAddress);
+            invalidateDatasetCacheEntry(datasetCacheKey);
             return false;
         }
     }
@@ -122,17 +124,17 @@ public final class WebStorageDatasetCacheService implements DatasetCacheService
     }
 
     @Override
-    public boolean invalidateDatasetCacheEntry(@NonNull final DatasetAddress datasetAddress) {
-        Objects.requireNonNull(datasetAddress);
-        final int systemSchemaId = datasetAddress.systemSchemaId();
+    public boolean invalidateDatasetCacheEntry(@NonNull final DatasetCacheKey datasetCacheKey) {
+        Objects.requireNonNull(datasetCacheKey);
+        final int systemSchemaId = datasetCacheKey.getDatasetAddress().systemSchemaId();
         final JsPropertyMap<String> index = findIndex(systemSchemaId);
-        final String key = datasetAddress.asDatasetAddressDescriptor();
+        final String key = indexKey(datasetCacheKey);
         if (null == index || null == index.get(key)) {
             return false;
         } else {
             index.delete(key);
             saveIndex(systemSchemaId, index);
-            getStorage().removeItem(datasetAddress.getDatasetCacheEntryStorageKey());
+            getStorage().removeItem(datasetCacheKey.getDatasetCacheEntryStorageKey());
             return true;
         }
     }
@@ -154,6 +156,27 @@ public final class WebStorageDatasetCacheService implements DatasetCacheService
         return null == indexData ? null : Js.uncheckedCast(JSON.parse(indexData));
     }
 
+    /**
+     * Return the key of the Dataset Cache Key within the index. A serialized Filter Parameter never contains an
+     * unescaped line feed so the Filter Parameter is everything after the last line feed.
+     */
+    @NonNull
+    private String indexKey(@NonNull final DatasetCacheKey datasetCacheKey) {
+        final String descriptor = datasetCacheKey.getDatasetAddress().asDatasetAddressDescriptor();
+        final String filterParameter = datasetCacheKey.getFilterParameter();
+        return null == filterParameter ? descriptor : descriptor + FILTER_PARAMETER_SEPARATOR + filterParameter;
+    }
+
+    @NonNull
+    private DatasetCacheKey parseIndexKey(final int systemSchemaId, @NonNull final String indexKey) {
+        final int offset = indexKey.lastIndexOf(FILTER_PARAMETER_SEPARATOR);
+        return -1 == offset
+                ? DatasetCacheKey.of(DatasetAddress.parse(systemSchemaId, indexKey))
+                : new DatasetCacheKey(
+                        DatasetAddress.parse(systemSchemaId, indexKey.substring(0, offset)),
+                        indexKey.substring(offset + 1));
+    }
+
     @NonNull
     private String indexKey(final int systemSchemaId) {
         return DATASET_CACHE_VERSION_INDEX + '-' + systemSchemaId;
@@ -4,6 +4,7 @@ import jsinterop.annotations.JsOverlay;
 import jsinterop.annotations.JsPackage;
 import jsinterop.annotations.JsType;
 import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
 import replicant.shared.Messages;
 
 @JsType(isNative = true, namespace = JsPackage.GLOBAL, name = "Object")
@@ -15,14 +16,30 @@ public final class DatasetCacheVersionsMessage extends ClientToServerMessage {
     @NonNull
     private DatasetCacheVersionsData datasetCacheVersions;
 
+    @Nullable
+    private FilteredDatasetCacheVersion[] filteredDatasetCacheVersions;
+
     @JsOverlay
     @NonNull
     public static DatasetCacheVersionsMessage create(
             final int req, @NonNull final DatasetCacheVersionsData datasetCacheVersions) {
+        return create(req, datasetCacheVersions, null);
+    }
+
+    @JsOverlay
+    @NonNull
+    public static DatasetCacheVersionsMessage create(
+            final int req,
+            @NonNull final DatasetCacheVersionsData datasetCacheVersions,
+            @Nullable final FilteredDatasetCacheVersion[] filteredDatasetCacheVersions) {
         final DatasetCacheVersionsMessage message = new DatasetCacheVersionsMessage();
         message.type = TYPE;
         message.requestId = req;
         message.datasetCacheVersions = datasetCacheVersions;
+        // Omitted when empty so the message is unchanged for clients that cache no Parameter-Filtered Datasets
+        if (null != filteredDatasetCacheVersions && 0 != filteredDatasetCacheVersions.length) {
+            message.filteredDatasetCacheVersions = filteredDatasetCacheVersions;
+        }
         return message;
     }
 }
@@ -17,6 +17,8 @@ import org.jspecify.annotations.Nullable;
 public class EntityChange {
     private int entityTypeId;
     private int entityId;
+
+    @Nullable
     private String[] datasetAddresses;
 
     @Nullable
@@ -27,13 +29,14 @@ public class EntityChange {
      *
      * @param entityTypeId     the Entity Type ID.
      * @param entityId         the Entity ID.
-     * @param datasetAddresses the Dataset Addresses of Subscriptions from which to remove the Replica.
+     * @param datasetAddresses the Dataset Addresses of Subscriptions from which to remove the Replica, or null if
+     *                         the Entity Change targets no Subscriptions.
      * @return the new Entity Change.
      */
     @JsOverlay
     @NonNull
     public static EntityChange create(
-            final int entityTypeId, final int entityId, @NonNull final String[] datasetAddresses) {
+            final int entityTypeId, final int entityId, @Nullable final String[] datasetAddresses) {
         final EntityChange change = new EntityChange();
         change.entityTypeId = entityTypeId;
         change.entityId = entityId;
@@ -46,7 +49,8 @@ public class EntityChange {
      *
      * @param entityTypeId     the Entity Type ID.
      * @param entityId         the Entity ID.
-     * @param datasetAddresses the Dataset Addresses of Subscriptions containing the Replica after the update.
+     * @param datasetAddresses the Dataset Addresses of Subscriptions containing the Replica after the update, or
+     *                         null if the Entity Change targets no Subscriptions.
      * @param payload          the serialized Entity attribute values used to create or update the Replica.
      * @return the new Entity Change.
      */
@@ -55,7 +59,7 @@ public class EntityChange {
     public static EntityChange create(
             final int entityTypeId,
             final int entityId,
-            @NonNull final String[] datasetAddresses,
+            @Nullable final String[] datasetAddresses,
             @Nullable final EntityChangePayload payload) {
         final EntityChange change = create(entityTypeId, entityId, datasetAddresses);
         change.payload = payload;
@@ -87,8 +91,9 @@ public class EntityChange {
     /**
      * Return the Dataset Addresses for Subscriptions containing the Entity.
      *
-     * @return the Dataset Addresses for Subscriptions containing the Entity.
+     * @return the Dataset Addresses for Subscriptions containing the Entity, or null if the message omitted them.
      */
+    @Nullable
     @JsOverlay
     public final String[] getDatasetAddresses() {
         return datasetAddresses;
@@ -0,0 +1,65 @@
+package replicant.messages;
+
+import jsinterop.annotations.JsOverlay;
+import jsinterop.annotations.JsPackage;
+import jsinterop.annotations.JsType;
+import org.jspecify.annotations.NonNull;
+import replicant.shared.Messages;
+
+/**
+ * A message fragment defining the Dataset Cache Version of a Dataset Cache Entry for a Parameter-Filtered Dataset.
+ * See {@link Messages.DatasetCacheVersions#FILTERED_DATASET_CACHE_VERSIONS}.
+ */
+@JsType(isNative = true, namespace = JsPackage.GLOBAL, name = "Object")
+@SuppressWarnings({"NotNullFieldNotInitialized", "NullAway.Init", "unused"})
+public class FilteredDatasetCacheVersion {
+    @NonNull
+    private String datasetAddress;
+
+    @NonNull
+    private Object filterParameter;
+
+    @NonNull
+    private String datasetCacheVersion;
+
+    /**
+     * Create a FilteredDatasetCacheVersion.
+     *
+     * @param datasetAddress      the Dataset Address descriptor.
+     * @param filterParameter     the Filter Parameter.
+     * @param datasetCacheVersion the opaque Dataset Cache Version.
+     * @return the new FilteredDatasetCacheVersion.
+     */
+    @JsOverlay
+    @NonNull
+    public static FilteredDatasetCacheVersion create(
+            @NonNull final String datasetAddress,
+            @NonNull final Object filterParameter,
+            @NonNull final String datasetCacheVersion) {
+        final FilteredDatasetCacheVersion message = new FilteredDatasetCacheVersion();
+        message.datasetAddress = datasetAddress;
+        message.filterParameter = filterParameter;
+        message.datasetCacheVersion = datasetCacheVersion;
+        return message;
+    }
+
+    private FilteredDatasetCacheVersion() {}
+
+    @JsOverlay
+    @NonNull
+    public final String getDatasetAddress() {
+        return datasetAddress;
+    }
+
+    @JsOverlay
+    @NonNull
+    public final Object getFilterParameter() {
+        return filterParameter;
+    }
+
+    @JsOverlay
+    @NonNull
+    public final String getDatasetCacheVersion() {
+        return datasetCacheVersion;
+    }
+}
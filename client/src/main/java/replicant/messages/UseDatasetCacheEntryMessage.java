@@ -8,7 +8,8 @@ import org.jspecify.annotations.Nullable;
 import replicant.shared.Messages;
 
 /**
- * A server instruction to apply the Dataset Cache Entry for a Dataset Address.
+ * A server instruction to apply the Dataset Cache Entry for a Dataset Address and, for a Parameter-Filtered Dataset,
+ * a Filter Parameter.
  */
 @SuppressWarnings({"NotNullFieldNotInitialized", "NullAway.Init"})
 @JsType(isNative = true, namespace = JsPackage.GLOBAL, name = "Object")
@@ -19,6 +20,9 @@ public class UseDatasetCacheEntryMessage extends ServerToClientMessage {
     @NonNull
     private String datasetAddress;
 
+    @Nullable
+    private Object filterParameter;
+
     @NonNull
     private String datasetCacheVersion;
 
@@ -28,12 +32,23 @@ public class UseDatasetCacheEntryMessage extends ServerToClientMessage {
             @Nullable final Integer requestId,
             @NonNull final String datasetAddress,
             @NonNull final String datasetCacheVersion) {
+        return create(requestId, datasetAddress, null, datasetCacheVersion);
+    }
+
+    @JsOverlay
+    @NonNull
+    public static UseDatasetCacheEntryMessage create(
+            @Nullable final Integer requestId,
+            @NonNull final String datasetAddress,
+            @Nullable final Object filterParameter,
+            @NonNull final String datasetCacheVersion) {
         final UseDatasetCacheEntryMessage message = new UseDatasetCacheEntryMessage();
         assert null != datasetAddress;
         assert null != datasetCacheVersion;
         message.type = TYPE;
         message.requestId = null == requestId ? null : requestId.doubleValue();
         message.datasetAddress = datasetAddress;
+        message.filterParameter = filterParameter;
         message.datasetCacheVersion = datasetCacheVersion;
         return message;
     }
@@ -44,6 +59,15 @@ public class UseDatasetCacheEntryMessage extends ServerToClientMessage {
         return datasetAddress;
     }
 
+    /**
+     * @return the Filter Parameter of the Dataset Cache Entry for a Parameter-Filtered Dataset.
+     */
+    @JsOverlay
+    @Nullable
+    public final Object getFilterParameter() {
+        return filterParameter;
+    }
+
     @JsOverlay
     @NonNull
     public final String getDatasetCacheVersion() {
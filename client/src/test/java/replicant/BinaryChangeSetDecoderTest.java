@@ -0,0 +1,215 @@
+package replicant;
+
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import org.testng.annotations.Test;
+import replicant.messages.ChangeSetMessage;
+import replicant.messages.EntityChange;
+import replicant.shared.Messages;
+
+public class BinaryChangeSetDecoderTest extends AbstractReplicantTest {
+    @Test
+    public void decode_matchesJsonEncoding() {
+        // Bytes laid out as the server BinaryEncoder emits them
+        final Output output = new Output();
+        output.writeByte(Messages.BinaryChangeSet.VERSION);
+        output.writeUnsigned(
+                Messages.BinaryChangeSet.FLAG_REQUEST_ID | Messages.BinaryChangeSet.FLAG_DATASET_CACHE_VERSION);
+        output.writeSigned(-7);
+        output.writeString("#1");
+        output.writeUnsigned(2);
+        output.writeString("+3");
+        output.writeString("-4.5");
+        output.writeUnsigned(0);
+        output.writeUnsigned(3);
+        // Remove with Dataset Addresses
+        output.writeUnsigned(42);
+        output.writeSigned(-1);
+        output.writeUnsigned(2);
+        output.writeRef("1");
+        output.writeRef("2.42");
+        output.writeUnsigned(0);
+        // Remove with an empty Dataset Address list
+        output.writeUnsigned(42);
+        output.writeSigned(2);
+        output.writeUnsigned(0);
+        output.writeUnsigned(0);
+        // Remove sharing a Dataset Address with the first Entity Change
+        output.writeUnsigned(43);
+        output.writeSigned(300);
+        output.writeUnsigned(1);
+        output.writeRef("2.42");
+        output.writeUnsigned(0);
+
+        final ChangeSetMessage expected = ChangeSetMessage.create(
+                -7,
+                "#1",
+                new String[] {"+3", "-4.5"},
+                null,
+                new EntityChange[] {
+                    EntityChange.create(42, -1, new String[] {"1", "2.42"}),
+                    EntityChange.create(42, 2, null),
+                    EntityChange.create(43, 300, new String[] {"2.42"})
+                },
+                null);
+
+        assertChangeSet(BinaryChangeSetDecoder.decode(output.toByteArray()), expected);
+    }
+
+    @Test
+    public void decode_omitsEmptyCollections() {
+        final Output output = new Output();
+        output.writeByte(Messages.BinaryChangeSet.VERSION);
+        output.writeUnsigned(0);
+        output.writeUnsigned(0);
+        output.writeUnsigned(0);
+        output.writeUnsigned(0);
+
+        assertChangeSet(
+                BinaryChangeSetDecoder.decode(output.toByteArray()),
+                ChangeSetMessage.create(null, null, null, null, null, null));
+    }
+
+    @Test
+    public void decode_unsupportedVersion() {
+        final IllegalStateException exception = expectThrows(
+                IllegalStateException.class, () -> BinaryChangeSetDecoder.decode(new byte[] {(byte) 99}));
+        assertEquals(exception.getMessage(), "Unsupported binary Change Set version 99");
+    }
+
+    @Test
+    public void decode_truncated() {
+        final IllegalStateException exception = expectThrows(
+                IllegalStateException.class,
+                () -> BinaryChangeSetDecoder.decode(new byte[] {(byte) Messages.BinaryChangeSet.VERSION}));
+        assertEquals(exception.getMessage(), "Unexpected end of binary Change Set");
+    }
+
+    @Test
+    public void decodeValue_matchesJsonEncoding() {
+        // The JSON encoding writes a float attribute as the widened double so JSON.parse yields the same value
+        final Map<Float, Double> floats = new HashMap<>();
+        floats.put(1.5F, 1.5D);
+        floats.put(0.1F, 0.10000000149011612D);
+        floats.put(-3.4028235E38F, -3.4028234663852886E38D);
+        floats.put(Float.MIN_VALUE, 1.401298464324817E-45D);
+        for (final Map.Entry<Float, Double> entry : floats.entrySet()) {
+            final Output output = new Output();
+            output.writeByte(Messages.BinaryChangeSet.VALUE_FLOAT);
+            output.writeFloat(entry.getKey());
+            assertEquals(BinaryChangeSetDecoder.decodeValue(output.toByteArray(), 0), entry.getValue());
+        }
+
+        assertEquals(decodeInteger(-5), -5D);
+        assertEquals(decodeInteger(Integer.MAX_VALUE), (double) Integer.MAX_VALUE);
+        assertEquals(decodeInteger(Integer.MIN_VALUE), (double) Integer.MIN_VALUE);
+
+        final Output strings = new Output();
+        strings.writeByte(Messages.BinaryChangeSet.VALUE_STRING);
+        strings.writeString("Ünïcødé 😀");
+        assertEquals(BinaryChangeSetDecoder.decodeValue(strings.toByteArray(), 0), "Ünïcødé 😀");
+
+        assertEquals(
+                BinaryChangeSetDecoder.decodeValue(new byte[] {(byte) Messages.BinaryChangeSet.VALUE_TRUE}, 0),
+                Boolean.TRUE);
+        assertEquals(
+                BinaryChangeSetDecoder.decodeValue(new byte[] {(byte) Messages.BinaryChangeSet.VALUE_FALSE}, 0),
+                Boolean.FALSE);
+    }
+
+    @Test
+    public void decodeValue_unknownType() {
+        final IllegalStateException exception = expectThrows(
+                IllegalStateException.class, () -> BinaryChangeSetDecoder.decodeValue(new byte[] {(byte) 77}, 0));
+        assertEquals(exception.getMessage(), "Unknown binary Change Set value type 77");
+    }
+
+    private Object decodeInteger(final int value) {
+        final Output output = new Output();
+        output.writeByte(Messages.BinaryChangeSet.VALUE_INTEGER);
+        output.writeSigned(value);
+        return BinaryChangeSetDecoder.decodeValue(output.toByteArray(), 0);
+    }
+
+    private void assertChangeSet(final ChangeSetMessage actual, final ChangeSetMessage expected) {
+        assertEquals(actual.getRequestId(), expected.getRequestId());
+        assertEquals(actual.getDatasetCacheVersion(), expected.getDatasetCacheVersion());
+        assertEquals(actual.getCommandResult(), expected.getCommandResult());
+        assertEquals(actual.hasSubscriptionChanges(), expected.hasSubscriptionChanges());
+        if (expected.hasSubscriptionChanges()) {
+            assertEquals(actual.getSubscriptionChanges(), expected.getSubscriptionChanges());
+        }
+        assertEquals(
+                actual.hasFilterParameterSubscriptionChanges(), expected.hasFilterParameterSubscriptionChanges());
+        assertEquals(actual.hasEntityChanges(), expected.hasEntityChanges());
+        if (expected.hasEntityChanges()) {
+            final EntityChange[] actualChanges = actual.getEntityChanges();
+            final EntityChange[] expectedChanges = expected.getEntityChanges();
+            assertEquals(actualChanges.length, expectedChanges.length);
+            for (int i = 0; i < expectedChanges.length; i++) {
+                assertEquals(actualChanges[i].getEntityTypeId(), expectedChanges[i].getEntityTypeId());
+                assertEquals(actualChanges[i].getEntityId(), expectedChanges[i].getEntityId());
+                assertEquals(actualChanges[i].getDatasetAddresses(), expectedChanges[i].getDatasetAddresses());
+                assertEquals(actualChanges[i].isUpdate(), expectedChanges[i].isUpdate());
+            }
+        }
+    }
+
+    /**
+     * Writes values using the same layout as the server encoder.
+     */
+    private static final class Output {
+        private final ByteArrayOutputStream _bytes = new ByteArrayOutputStream();
+        private final Map<String, Integer> _refs = new HashMap<>();
+
+        void writeByte(final int value) {
+            _bytes.write(value);
+        }
+
+        void writeUnsigned(final int value) {
+            int remaining = value;
+            while (0 != (remaining & ~0x7F)) {
+                _bytes.write((remaining & 0x7F) | 0x80);
+                remaining >>>= 7;
+            }
+            _bytes.write(remaining);
+        }
+
+        void writeSigned(final int value) {
+            writeUnsigned((value << 1) ^ (value >> 31));
+        }
+
+        void writeFloat(final float value) {
+            final int bits = Float.floatToIntBits(value);
+            _bytes.write(bits >>> 24);
+            _bytes.write(bits >>> 16);
+            _bytes.write(bits >>> 8);
+            _bytes.write(bits);
+        }
+
+        void writeString(final String value) {
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeUnsigned(bytes.length);
+            _bytes.write(bytes, 0, bytes.length);
+        }
+
+        void writeRef(final String value) {
+            final Integer index = _refs.get(value);
+            if (null != index) {
+                writeUnsigned(index);
+            } else {
+                _refs.put(value, _refs.size() + 1);
+                writeUnsigned(0);
+                writeString(value);
+            }
+        }
+
+        byte[] toByteArray() {
+            return _bytes.toByteArray();
+        }
+    }
+}
@@ -454,7 +454,7 @@ public class ConnectionTest extends AbstractReplicantTest {
         Replicant.context().setDatasetCacheService(datasetCacheService);
 
         datasetCacheService.storeDatasetCacheEntry(
-                datasetAddressA,
+                DatasetCacheKey.of(datasetAddressA),
                 ValueUtil.randomString(),
                 replicant.messages.ChangeSetMessage.create(null, null, null, null, null, null));
 
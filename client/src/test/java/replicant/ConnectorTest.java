@@ -432,7 +432,7 @@ public final class ConnectorTest extends AbstractReplicantTest {
         connector.onMessageReceived(UseDatasetCacheEntryMessage.create(
                 null, datasetAddress.asDatasetAddressDescriptor(), ValueUtil.randomString()));
 
-        verify(datasetCacheService).invalidateDatasetCacheEntry(datasetAddress);
+        verify(datasetCacheService).invalidateDatasetCacheEntry(DatasetCacheKey.of(datasetAddress));
         assertEquals(connector.getState(), ConnectorState.DISCONNECTING);
     }
 
@@ -446,15 +446,15 @@ public final class ConnectorTest extends AbstractReplicantTest {
         final DatasetAddress datasetAddress = new DatasetAddress(1, 0);
         final DatasetCacheService datasetCacheService = mock(DatasetCacheService.class);
         Replicant.context().setDatasetCacheService(datasetCacheService);
-        when(datasetCacheService.lookupDatasetCacheEntry(datasetAddress))
+        when(datasetCacheService.lookupDatasetCacheEntry(DatasetCacheKey.of(datasetAddress)))
                 .thenThrow(new IllegalStateException("Unavailable"));
-        when(datasetCacheService.invalidateDatasetCacheEntry(datasetAddress))
+        when(datasetCacheService.invalidateDatasetCacheEntry(DatasetCacheKey.of(datasetAddress)))
                 .thenThrow(new IllegalStateException("Unavailable"));
 
         connector.onMessageReceived(UseDatasetCacheEntryMessage.create(
                 null, datasetAddress.asDatasetAddressDescriptor(), ValueUtil.randomString()));
 
-        verify(datasetCacheService).invalidateDatasetCacheEntry(datasetAddress);
+        verify(datasetCacheService).invalidateDatasetCacheEntry(DatasetCacheKey.of(datasetAddress));
         assertEquals(connector.getState(), ConnectorState.DISCONNECTING);
     }
 
@@ -470,12 +470,12 @@ public final class ConnectorTest extends AbstractReplicantTest {
         Replicant.context().setDatasetCacheService(datasetCacheService);
         final DatasetCacheEntry entry =
                 new DatasetCacheEntry(datasetAddress, ValueUtil.randomString(), ValueUtil.randomString());
-        when(datasetCacheService.lookupDatasetCacheEntry(datasetAddress)).thenReturn(entry);
+        when(datasetCacheService.lookupDatasetCacheEntry(DatasetCacheKey.of(datasetAddress))).thenReturn(entry);
 
         connector.onMessageReceived(UseDatasetCacheEntryMessage.create(
                 null, datasetAddress.asDatasetAddressDescriptor(), ValueUtil.randomString()));
 
-        verify(datasetCacheService).invalidateDatasetCacheEntry(datasetAddress);
+        verify(datasetCacheService).invalidateDatasetCacheEntry(DatasetCacheKey.of(datasetAddress));
         assertEquals(connector.getState(), ConnectorState.DISCONNECTING);
     }
 
@@ -491,12 +491,12 @@ public final class ConnectorTest extends AbstractReplicantTest {
         final DatasetCacheService datasetCacheService = mock(DatasetCacheService.class);
         final DatasetCacheEntry entry = new DatasetCacheEntry(datasetAddress, datasetCacheVersion, "{");
         Replicant.context().setDatasetCacheService(datasetCacheService);
-        when(datasetCacheService.lookupDatasetCacheEntry(datasetAddress)).thenReturn(entry);
+        when(datasetCacheService.lookupDatasetCacheEntry(DatasetCacheKey.of(datasetAddress))).thenReturn(entry);
 
         connector.onMessageReceived(UseDatasetCacheEntryMessage.create(
                 null, datasetAddress.asDatasetAddressDescriptor(), datasetCacheVersion));
 
-        verify(datasetCacheService).invalidateDatasetCacheEntry(datasetAddress);
+        verify(datasetCacheService).invalidateDatasetCacheEntry(DatasetCacheKey.of(datasetAddress));
         assertEquals(connector.getState(), ConnectorState.DISCONNECTING);
     }
 
@@ -508,7 +508,7 @@ public final class ConnectorTest extends AbstractReplicantTest {
 
         final DatasetCacheService datasetCacheService = mock(DatasetCacheService.class);
         Replicant.context().setDatasetCacheService(datasetCacheService);
-        when(datasetCacheService.getDatasetAddresses(connector.getSystemSchema().getId()))
+        when(datasetCacheService.getDatasetCacheKeys(connector.getSystemSchema().getId()))
                 .thenThrow(new IllegalStateException("Unavailable"));
 
         connector.onReplicantSessionCreated(ValueUtil.randomString());
@@ -527,15 +527,15 @@ public final class ConnectorTest extends AbstractReplicantTest {
                 new DatasetAddress(connector.getSystemSchema().getId(), 0);
         final DatasetCacheService datasetCacheService = mock(DatasetCacheService.class);
         Replicant.context().setDatasetCacheService(datasetCacheService);
-        when(datasetCacheService.getDatasetAddresses(datasetAddress.systemSchemaId()))
-                .thenReturn(Collections.singleton(datasetAddress));
-        when(datasetCacheService.lookupDatasetCacheVersion(datasetAddress))
+        when(datasetCacheService.getDatasetCacheKeys(datasetAddress.systemSchemaId()))
+                .thenReturn(Collections.singleton(DatasetCacheKey.of(datasetAddress)));
+        when(datasetCacheService.lookupDatasetCacheVersion(DatasetCacheKey.of(datasetAddress)))
                 .thenThrow(new IllegalStateException("Unavailable"));
 
         connector.onReplicantSessionCreated(ValueUtil.randomString());
 
         assertEquals(connector.getState(), ConnectorState.CONNECTED);
-        verify(datasetCacheService).invalidateDatasetCacheEntry(datasetAddress);
+        verify(datasetCacheService).invalidateDatasetCacheEntry(DatasetCacheKey.of(datasetAddress));
         verify(connector.getTransport(), never()).updateDatasetCacheVersionsAndRequestSynchronizationPoint(anyMap());
     }
 
@@ -549,9 +549,10 @@ public final class ConnectorTest extends AbstractReplicantTest {
         final DatasetAddress datasetAddress = new DatasetAddress(1, 0);
         final DatasetCacheService datasetCacheService = mock(DatasetCacheService.class);
         Replicant.context().setDatasetCacheService(datasetCacheService);
-        when(datasetCacheService.getDatasetAddresses(datasetAddress.systemSchemaId()))
-                .thenReturn(Collections.singleton(datasetAddress));
-        when(datasetCacheService.lookupDatasetCacheVersion(datasetAddress)).thenReturn(ValueUtil.randomString());
+        when(datasetCacheService.getDatasetCacheKeys(datasetAddress.systemSchemaId()))
+                .thenReturn(Collections.singleton(DatasetCacheKey.of(datasetAddress)));
+        when(datasetCacheService.lookupDatasetCacheVersion(DatasetCacheKey.of(datasetAddress)))
+                .thenReturn(ValueUtil.randomString());
 
         connector.onMessageReceived(UseDatasetCacheEntryMessage.create(
                 null, datasetAddress.asDatasetAddressDescriptor(), ValueUtil.randomString()));
@@ -2913,7 +2914,8 @@ public final class ConnectorTest extends AbstractReplicantTest {
                 Collections.singletonList(SubscriptionChange.from(systemSchema.getId(), subscriptionChanges[0])));
         final DatasetCacheService datasetCacheService = mock(DatasetCacheService.class);
         Replicant.context().setDatasetCacheService(datasetCacheService);
-        when(datasetCacheService.storeDatasetCacheEntry(datasetAddress, datasetCacheVersion, changeSet))
+        when(datasetCacheService.storeDatasetCacheEntry(
+                        DatasetCacheKey.of(datasetAddress), datasetCacheVersion, changeSet))
                 .thenThrow(new IllegalStateException("Unavailable"));
 
         connector.processSubscriptionChanges();
@@ -2923,7 +2925,8 @@ public final class ConnectorTest extends AbstractReplicantTest {
         connector.completeMessageProcessing();
 
         assertSame(Replicant.context().findSubscription(datasetAddress), subscription);
-        verify(datasetCacheService).storeDatasetCacheEntry(datasetAddress, datasetCacheVersion, changeSet);
+        verify(datasetCacheService)
+                .storeDatasetCacheEntry(DatasetCacheKey.of(datasetAddress), datasetCacheVersion, changeSet);
     }
 
     @Test
@@ -3256,7 +3259,9 @@ public final class ConnectorTest extends AbstractReplicantTest {
 
         final String datasetCacheVersion = "";
         datasetCacheService.storeDatasetCacheEntry(
-                datasetAddress, datasetCacheVersion, ChangeSetMessage.create(null, null, null, null, null, null));
+                DatasetCacheKey.of(datasetAddress, filterParameter),
+                datasetCacheVersion,
+                ChangeSetMessage.create(null, null, null, null, null, null));
         final AtomicInteger callCount = new AtomicInteger();
         doAnswer(i -> {
                     callCount.incrementAndGet();
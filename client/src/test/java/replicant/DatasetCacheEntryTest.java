@@ -14,6 +14,21 @@ public class DatasetCacheEntryTest extends AbstractReplicantTest {
         final DatasetCacheEntry entry = new DatasetCacheEntry(datasetAddress, datasetCacheVersion, changeSet);
 
         assertEquals(entry.getDatasetAddress(), datasetAddress);
+        assertEquals(entry.getDatasetCacheKey(), DatasetCacheKey.of(datasetAddress));
+        assertEquals(entry.getDatasetCacheVersion(), datasetCacheVersion);
+        assertEquals(entry.getChangeSet(), changeSet);
+    }
+
+    @Test
+    public void filtered() {
+        final DatasetAddress datasetAddress = new DatasetAddress(ValueUtil.randomInt(), ValueUtil.randomInt());
+        final DatasetCacheKey datasetCacheKey = DatasetCacheKey.of(datasetAddress, ValueUtil.randomString());
+        final String datasetCacheVersion = ValueUtil.randomString();
+        final String changeSet = ValueUtil.randomString();
+        final DatasetCacheEntry entry = new DatasetCacheEntry(datasetCacheKey, datasetCacheVersion, changeSet);
+
+        assertEquals(entry.getDatasetAddress(), datasetAddress);
+        assertEquals(entry.getDatasetCacheKey(), datasetCacheKey);
         assertEquals(entry.getDatasetCacheVersion(), datasetCacheVersion);
         assertEquals(entry.getChangeSet(), changeSet);
     }
@@ -0,0 +1,39 @@
+package replicant;
+
+import static org.testng.Assert.*;
+
+import org.testng.annotations.Test;
+
+public final class DatasetCacheKeyTest extends AbstractReplicantTest {
+    @Test
+    void unfiltered() {
+        final DatasetAddress datasetAddress = new DatasetAddress(2, 4, 1, "a");
+        final DatasetCacheKey datasetCacheKey = DatasetCacheKey.of(datasetAddress);
+
+        assertEquals(datasetCacheKey.getDatasetAddress(), datasetAddress);
+        assertNull(datasetCacheKey.getFilterParameter());
+        assertEquals(datasetCacheKey.getDatasetCacheEntryStorageKey(), datasetAddress.getDatasetCacheEntryStorageKey());
+        assertEquals(datasetCacheKey, DatasetCacheKey.of(datasetAddress, null));
+        assertEquals(datasetCacheKey.hashCode(), DatasetCacheKey.of(datasetAddress, null).hashCode());
+    }
+
+    @Test
+    void filtered() {
+        final DatasetAddress datasetAddress = new DatasetAddress(2, 4, 1);
+        final DatasetCacheKey datasetCacheKey = DatasetCacheKey.of(datasetAddress, "X");
+
+        assertEquals(datasetCacheKey.getDatasetAddress(), datasetAddress);
+        assertEquals(datasetCacheKey.getFilterParameter(), FilterParameterUtil.filterParameterToString("X"));
+        assertEquals(
+                datasetCacheKey.getDatasetCacheEntryStorageKey(),
+                datasetAddress.getDatasetCacheEntryStorageKey() + "?" + datasetCacheKey.getFilterParameter());
+        assertEquals(datasetCacheKey, DatasetCacheKey.of(datasetAddress, "X"));
+        assertEquals(datasetCacheKey.hashCode(), DatasetCacheKey.of(datasetAddress, "X").hashCode());
+        assertNotEquals(datasetCacheKey, DatasetCacheKey.of(datasetAddress, "Y"));
+        assertNotEquals(datasetCacheKey, DatasetCacheKey.of(datasetAddress));
+        assertNotEquals(datasetCacheKey, DatasetCacheKey.of(new DatasetAddress(2, 4, 2), "X"));
+        assertNotEquals(
+                datasetCacheKey.getDatasetCacheEntryStorageKey(),
+                DatasetCacheKey.of(datasetAddress, "Y").getDatasetCacheEntryStorageKey());
+    }
+}
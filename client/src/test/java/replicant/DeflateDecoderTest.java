@@ -0,0 +1,77 @@
+package replicant;
+
+import static org.testng.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Deflater;
+import org.testng.annotations.Test;
+
+public class DeflateDecoderTest extends AbstractReplicantTest {
+    @Test
+    public void inflate_repetitiveText() {
+        final byte[] data = "{\"entityTypeId\":42,\"entityId\":1,\"payload\":{\"name\":\"X\"}},"
+                .repeat(10000)
+                .getBytes(StandardCharsets.UTF_8);
+
+        for (final int level : new int[] {Deflater.NO_COMPRESSION, Deflater.BEST_SPEED, Deflater.BEST_COMPRESSION}) {
+            assertEquals(DeflateDecoder.inflate(deflate(data, level, Deflater.DEFAULT_STRATEGY), 1), data);
+        }
+    }
+
+    @Test
+    public void inflate_randomData() {
+        final Random random = new Random(42);
+        for (int i = 0; i < 20; i++) {
+            final byte[] data = new byte[random.nextInt(100000)];
+            random.nextBytes(data);
+            final int strategy = 0 == i % 2 ? Deflater.DEFAULT_STRATEGY : Deflater.HUFFMAN_ONLY;
+            assertEquals(DeflateDecoder.inflate(deflate(data, Deflater.DEFAULT_COMPRESSION, strategy), 1), data);
+        }
+    }
+
+    @Test
+    public void inflate_empty() {
+        final byte[] compressed = deflate(new byte[0], Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY);
+        assertEquals(DeflateDecoder.inflate(compressed, 1), new byte[0]);
+    }
+
+    @Test
+    public void inflate_truncated() {
+        final byte[] data = "Hello Hello Hello Hello".repeat(100).getBytes(StandardCharsets.UTF_8);
+        final byte[] compressed = deflate(data, Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY);
+
+        final IllegalStateException exception = expectThrows(
+                IllegalStateException.class,
+                () -> DeflateDecoder.inflate(Arrays.copyOf(compressed, compressed.length / 2), 1));
+        assertEquals(exception.getMessage(), "Unexpected end of deflate data");
+    }
+
+    @Test
+    public void inflate_invalidBlockType() {
+        final IllegalStateException exception =
+                expectThrows(IllegalStateException.class, () -> DeflateDecoder.inflate(new byte[] {0x07}, 0));
+        assertEquals(exception.getMessage(), "Invalid deflate block type");
+    }
+
+    /**
+     * Deflate the data without a zlib header, prefixed by a single byte as the server prefixes the format.
+     */
+    private byte[] deflate(final byte[] data, final int level, final int strategy) {
+        final Deflater deflater = new Deflater(level, true);
+        deflater.setStrategy(strategy);
+        deflater.setInput(data);
+        deflater.finish();
+        byte[] output = new byte[data.length + 1024];
+        int length = 1;
+        while (!deflater.finished()) {
+            if (length == output.length) {
+                output = Arrays.copyOf(output, output.length * 2);
+            }
+            length += deflater.deflate(output, length, output.length - length);
+        }
+        deflater.end();
+        return Arrays.copyOf(output, length);
+    }
+}
@@ -9,54 +9,58 @@ import replicant.messages.ChangeSetMessage;
 
 public class TestDatasetCacheService implements DatasetCacheService {
     @NonNull
-    private final Map<Integer, Map<DatasetAddress, DatasetCacheEntry>> _datasetCacheEntriesBySystemSchema =
+    private final Map<Integer, Map<DatasetCacheKey, DatasetCacheEntry>> _datasetCacheEntriesBySystemSchema =
             new HashMap<>();
 
     @NonNull
-    private Map<DatasetAddress, DatasetCacheEntry> getDatasetCacheEntries(final int systemSchemaId) {
+    private Map<DatasetCacheKey, DatasetCacheEntry> getDatasetCacheEntries(final int systemSchemaId) {
         return _datasetCacheEntriesBySystemSchema.computeIfAbsent(systemSchemaId, v -> new HashMap<>());
     }
 
+    @NonNull
+    private Map<DatasetCacheKey, DatasetCacheEntry> getDatasetCacheEntries(
+            @NonNull final DatasetCacheKey datasetCacheKey) {
+        return getDatasetCacheEntries(datasetCacheKey.getDatasetAddress().systemSchemaId());
+    }
+
     @NonNull
     @Override
-    public Set<DatasetAddress> getDatasetAddresses(final int systemSchemaId) {
+    public Set<DatasetCacheKey> getDatasetCacheKeys(final int systemSchemaId) {
         return CollectionsUtil.wrap(getDatasetCacheEntries(systemSchemaId).keySet());
     }
 
     @Nullable
     @Override
-    public String lookupDatasetCacheVersion(@NonNull final DatasetAddress datasetAddress) {
-        final DatasetCacheEntry entry =
-                getDatasetCacheEntries(datasetAddress.systemSchemaId()).get(datasetAddress);
+    public String lookupDatasetCacheVersion(@NonNull final DatasetCacheKey datasetCacheKey) {
+        final DatasetCacheEntry entry = getDatasetCacheEntries(datasetCacheKey).get(datasetCacheKey);
         return null != entry ? entry.getDatasetCacheVersion() : null;
     }
 
     @Nullable
     @Override
-    public DatasetCacheEntry lookupDatasetCacheEntry(@NonNull final DatasetAddress datasetAddress) {
-        return getDatasetCacheEntries(datasetAddress.systemSchemaId()).get(datasetAddress);
+    public DatasetCacheEntry lookupDatasetCacheEntry(@NonNull final DatasetCacheKey datasetCacheKey) {
+        return getDatasetCacheEntries(datasetCacheKey).get(datasetCacheKey);
     }
 
     @Override
     public boolean storeDatasetCacheEntry(
-            @NonNull final DatasetAddress datasetAddress,
+            @NonNull final DatasetCacheKey datasetCacheKey,
             @NonNull final String datasetCacheVersion,
             @NonNull final ChangeSetMessage changeSet) {
-        getDatasetCacheEntries(datasetAddress.systemSchemaId())
+        getDatasetCacheEntries(datasetCacheKey)
                 .put(
-                        datasetAddress,
-                        new DatasetCacheEntry(datasetAddress, datasetCacheVersion, String.valueOf(changeSet)));
+                        datasetCacheKey,
+                        new DatasetCacheEntry(datasetCacheKey, datasetCacheVersion, String.valueOf(changeSet)));
         return true;
     }
 
     @Override
-    public boolean invalidateDatasetCacheEntry(@NonNull final DatasetAddress datasetAddress) {
-        final Map<DatasetAddress, DatasetCacheEntry> datasetCacheEntries =
-                getDatasetCacheEntries(datasetAddress.systemSchemaId());
-        if (!datasetCacheEntries.containsKey(datasetAddress)) {
+    public boolean invalidateDatasetCacheEntry(@NonNull final DatasetCacheKey datasetCacheKey) {
+        final Map<DatasetCacheKey, DatasetCacheEntry> datasetCacheEntries = getDatasetCacheEntries(datasetCacheKey);
+        if (!datasetCacheEntries.containsKey(datasetCacheKey)) {
             return false;
         } else {
-            datasetCacheEntries.remove(datasetAddress);
+            datasetCacheEntries.remove(datasetCacheKey);
             return true;
         }
     }
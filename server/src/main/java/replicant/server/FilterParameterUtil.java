@@ -1,7 +1,13 @@
 package replicant.server;
 
 import java.util.Objects;
+import java.util.TreeMap;
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonNumber;
 import javax.json.JsonObject;
+import javax.json.JsonValue;
+import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
 
 public final class FilterParameterUtil {
@@ -11,4 +17,41 @@ public final class FilterParameterUtil {
             @Nullable final JsonObject filterParameter1, @Nullable final JsonObject filterParameter2) {
         return Objects.equals(filterParameter1, filterParameter2);
     }
+
+    /**
+     * Return the canonical form of a Filter Parameter.
+     *
+     * <p>Object members are sorted by name and numbers are written without trailing zeros so that equivalent Filter
+     * Parameters have an equal and identically serialized canonical form, whatever the member order or number
+     * formatting used by the subscriber.</p>
+     *
+     * @param filterParameter the Filter Parameter.
+     * @return the canonical Filter Parameter.
+     */
+    @NonNull
+    public static JsonObject canonicalize(@NonNull final JsonObject filterParameter) {
+        final var builder = Json.createObjectBuilder();
+        for (final var entry : new TreeMap<>(filterParameter).entrySet()) {
+            builder.add(entry.getKey(), canonicalizeValue(entry.getValue()));
+        }
+        return builder.build();
+    }
+
+    @NonNull
+    private static JsonValue canonicalizeValue(@NonNull final JsonValue value) {
+        if (value instanceof JsonObject object) {
+            return canonicalize(object);
+        } else if (value instanceof JsonArray array) {
+            final var builder = Json.createArrayBuilder();
+            for (final var element : array) {
+                builder.add(canonicalizeValue(element));
+            }
+            return builder.build();
+        } else if (value instanceof JsonNumber number) {
+            final var canonical = number.bigDecimalValue().stripTrailingZeros();
+            return Json.createValue(canonical.scale() < 0 ? canonical.setScale(0) : canonical);
+        } else {
+            return value;
+        }
+    }
 }
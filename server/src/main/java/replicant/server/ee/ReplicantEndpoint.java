@@ -26,6 +26,7 @@ import org.jspecify.annotations.Nullable;
 import replicant.server.DatasetAddress;
 import replicant.server.json.JsonEncoder;
 import replicant.server.transport.Dataset;
+import replicant.server.transport.DatasetCacheKey;
 import replicant.server.transport.ReplicantSession;
 import replicant.server.transport.ReplicantSessionManager;
 import replicant.server.transport.WebSocketUtil;
@@ -68,6 +69,14 @@ public class ReplicantEndpoint {
             authorization.close();
             throw e;
         }
+        newReplicantSession.setBinaryChangeSetsEnabled(isRequested(
+                session,
+                SharedConstants.CHANGE_SET_ENCODING_PARAMETER,
+                SharedConstants.BINARY_CHANGE_SET_ENCODING));
+        newReplicantSession.setCompressionAccepted(isRequested(
+                session,
+                SharedConstants.CHANGE_SET_COMPRESSION_PARAMETER,
+                SharedConstants.DEFLATE_CHANGE_SET_COMPRESSION));
         if (LOG.isLoggable(Level.FINE)) {
             LOG.log(
                     Level.FINE,
@@ -77,8 +86,8 @@ public class ReplicantEndpoint {
 
         _replicantSessionAddedEventEvent.fire(new ReplicantSessionAdded(newReplicantSession.getReplicantSessionId()));
 
-        WebSocketUtil.sendText(
-                session, JsonEncoder.encodeSessionCreatedMessage(newReplicantSession.getReplicantSessionId()));
+        newReplicantSession.sendText(
+                JsonEncoder.encodeSessionCreatedMessage(newReplicantSession.getReplicantSessionId()));
     }
 
     @OnMessage
@@ -115,6 +124,16 @@ public class ReplicantEndpoint {
         }
     }
 
+    /**
+     * Return true if the client supplied the value for the query parameter when it connected.
+     */
+    private static boolean isRequested(
+            @NonNull final Session session, @NonNull final String parameter, @NonNull final String value) {
+        final var parameters = session.getRequestParameterMap();
+        final var values = null != parameters ? parameters.get(parameter) : null;
+        return null != values && values.contains(value);
+    }
+
     private void processRequest(
             @NonNull final ReplicantSession replicantSession,
             @NonNull final JsonObject request,
@@ -134,7 +153,7 @@ public class ReplicantEndpoint {
             } else if (Messages.C2S_Type.DATASET_CACHE_VERSIONS.equals(type)) {
                 onDatasetCacheVersions(replicantSession, request);
             } else if (Messages.C2S_Type.PING.equals(type)) {
-                sendOk(replicantSession.getWebSocketSession(), requestId);
+                sendOk(replicantSession, requestId);
             } else if (Messages.C2S_Type.SUB.equals(type)) {
                 onSubscribe(replicantSession, request);
             } else if (Messages.C2S_Type.BULK_SUB.equals(type)) {
@@ -152,8 +171,8 @@ public class ReplicantEndpoint {
         }
     }
 
-    private void sendOk(@NonNull final Session session, final int requestId) {
-        WebSocketUtil.sendText(session, JsonEncoder.encodeOkMessage(requestId));
+    private void sendOk(@NonNull final ReplicantSession replicantSession, final int requestId) {
+        replicantSession.sendText(JsonEncoder.encodeOkMessage(requestId));
     }
 
     private static boolean runIfValid(
@@ -171,16 +190,28 @@ public class ReplicantEndpoint {
     }
 
     private void onDatasetCacheVersions(@NonNull final ReplicantSession session, @NonNull final JsonObject request) {
-        final var datasetCacheVersions = new HashMap<DatasetAddress, String>();
+        final var datasetCacheVersions = new HashMap<DatasetCacheKey, String>();
         for (final var entry : request.getJsonObject(Messages.DatasetCacheVersions.DATASET_CACHE_VERSIONS)
                 .entrySet()) {
             final var datasetAddress = DatasetAddress.parse(entry.getKey());
             final var datasetCacheVersion = ((JsonString) entry.getValue()).getString();
-            datasetCacheVersions.put(datasetAddress, datasetCacheVersion);
+            datasetCacheVersions.put(DatasetCacheKey.of(datasetAddress), datasetCacheVersion);
+        }
+        // Clients that cache no Parameter-Filtered Datasets omit the filtered versions
+        final var filteredDatasetCacheVersions =
+                request.getJsonArray(Messages.DatasetCacheVersions.FILTERED_DATASET_CACHE_VERSIONS);
+        if (null != filteredDatasetCacheVersions) {
+            for (final var value : filteredDatasetCacheVersions) {
+                final var entry = (JsonObject) value;
+                final var datasetAddress = DatasetAddress.parse(entry.getString(Messages.Common.DATASET_ADDRESS));
+                final var filterParameter = entry.getJsonObject(Messages.Common.FILTER_PARAMETER);
+                final var datasetCacheVersion = entry.getString(Messages.S2C_Common.DATASET_CACHE_VERSION);
+                datasetCacheVersions.put(DatasetCacheKey.of(datasetAddress, filterParameter), datasetCacheVersion);
+            }
         }
         _sessionManager.setDatasetCacheVersions(session, datasetCacheVersions);
 
-        sendOk(session.getWebSocketSession(), request.getInt(Messages.Common.REQUEST_ID));
+        sendOk(session, request.getInt(Messages.Common.REQUEST_ID));
     }
 
     private void onMalformedMessage(@NonNull final ReplicantSession replicantSession, @NonNull final String message) {
@@ -28,6 +28,63 @@ public class ReplicantResources {
     @Resource(lookup = "replicant/broker/maxSessionsPerDrainTask")
     private Integer _maxSessionsPerDrainTask;
 
+    @Resource(lookup = "replicant/broker/maxCoalescedPackets")
+    private Integer _maxCoalescedPackets;
+
+    @Resource(lookup = "replicant/broker/maxCoalescedEntities")
+    private Integer _maxCoalescedEntities;
+
+    @Resource(lookup = "replicant/broker/perSessionDelivery")
+    private Boolean _perSessionDelivery;
+
+    @Resource(lookup = "replicant/broker/maxConcurrentEncodes")
+    private Integer _maxConcurrentEncodes;
+
+    @Resource(lookup = "replicant/broker/deficitQuantum")
+    private Integer _deficitQuantum;
+
+    @Resource(lookup = "replicant/broker/asyncFanOut")
+    private Boolean _asyncFanOut;
+
+    @Resource(lookup = "replicant/subscription/collectOutsideSessionLock")
+    private Boolean _collectSubscriptionDataOutsideSessionLock;
+
+    @Resource(lookup = "replicant/broker/maxPendingPacketsPerSession")
+    private Integer _maxPendingPacketsPerSession;
+
+    @Resource(lookup = "replicant/broker/maxPendingBytesPerSession")
+    private Integer _maxPendingBytesPerSession;
+
+    @Resource(lookup = "replicant/broker/maxInFlightBytesPerSession")
+    private Integer _maxInFlightBytesPerSession;
+
+    @Resource(lookup = "replicant/broker/sendStallTimeoutMs")
+    private Integer _sendStallTimeoutMs;
+
+    @Resource(lookup = "replicant/broker/changeSetCompressionThreshold")
+    private Integer _changeSetCompressionThreshold;
+
+    @Resource(lookup = "replicant/cache/patchDatasetCacheEntries")
+    private Boolean _patchDatasetCacheEntries;
+
+    @Resource(lookup = "replicant/cache/contentAddressedDatasetCacheVersions")
+    private Boolean _contentAddressedDatasetCacheVersions;
+
+    @Resource(lookup = "replicant/cache/refreshDelayMs")
+    private Integer _refreshDelayMs;
+
+    @Resource(lookup = "replicant/cache/warmUpDatasetAddresses")
+    private String _warmUpDatasetAddresses;
+
+    @Resource(lookup = "replicant/cache/storeDirectory")
+    private String _storeDirectory;
+
+    @Resource(lookup = "replicant/cache/storeSegmentSize")
+    private Integer _storeSegmentSize;
+
+    @Resource(lookup = "replicant/cache/maxBytes")
+    private Long _maxBytes;
+
     @Resource
     private TransactionSynchronizationRegistry _transactionSynchronizationRegistry;
 
@@ -66,4 +123,118 @@ public class ReplicantResources {
     public Integer maxSessionsPerDrainTask() {
         return _maxSessionsPerDrainTask;
     }
+
+    @Produces
+    @ReplicantSystem("broker/maxCoalescedPackets")
+    public Integer maxCoalescedPackets() {
+        return _maxCoalescedPackets;
+    }
+
+    @Produces
+    @ReplicantSystem("broker/maxCoalescedEntities")
+    public Integer maxCoalescedEntities() {
+        return _maxCoalescedEntities;
+    }
+
+    @Produces
+    @ReplicantSystem("broker/perSessionDelivery")
+    public Boolean perSessionDelivery() {
+        return _perSessionDelivery;
+    }
+
+    @Produces
+    @ReplicantSystem("broker/maxConcurrentEncodes")
+    public Integer maxConcurrentEncodes() {
+        return _maxConcurrentEncodes;
+    }
+
+    @Produces
+    @ReplicantSystem("broker/deficitQuantum")
+    public Integer deficitQuantum() {
+        return _deficitQuantum;
+    }
+
+    @Produces
+    @ReplicantSystem("broker/asyncFanOut")
+    public Boolean asyncFanOut() {
+        return _asyncFanOut;
+    }
+
+    @Produces
+    @ReplicantSystem("subscription/collectOutsideSessionLock")
+    public Boolean collectSubscriptionDataOutsideSessionLock() {
+        return _collectSubscriptionDataOutsideSessionLock;
+    }
+
+    @Produces
+    @ReplicantSystem("broker/maxPendingPacketsPerSession")
+    public Integer maxPendingPacketsPerSession() {
+        return _maxPendingPacketsPerSession;
+    }
+
+    @Produces
+    @ReplicantSystem("broker/maxPendingBytesPerSession")
+    public Integer maxPendingBytesPerSession() {
+        return _maxPendingBytesPerSession;
+    }
+
+    @Produces
+    @ReplicantSystem("broker/maxInFlightBytesPerSession")
+    public Integer maxInFlightBytesPerSession() {
+        return _maxInFlightBytesPerSession;
+    }
+
+    @Produces
+    @ReplicantSystem("broker/sendStallTimeoutMs")
+    public Integer sendStallTimeoutMs() {
+        return _sendStallTimeoutMs;
+    }
+
+    @Produces
+    @ReplicantSystem("broker/changeSetCompressionThreshold")
+    public Integer changeSetCompressionThreshold() {
+        return _changeSetCompressionThreshold;
+    }
+
+    @Produces
+    @ReplicantSystem("cache/patchDatasetCacheEntries")
+    public Boolean patchDatasetCacheEntries() {
+        return _patchDatasetCacheEntries;
+    }
+
+    @Produces
+    @ReplicantSystem("cache/contentAddressedDatasetCacheVersions")
+    public Boolean contentAddressedDatasetCacheVersions() {
+        return _contentAddressedDatasetCacheVersions;
+    }
+
+    @Produces
+    @ReplicantSystem("cache/refreshDelayMs")
+    public Integer refreshDelayMs() {
+        return _refreshDelayMs;
+    }
+
+    @Produces
+    @ReplicantSystem("cache/warmUpDatasetAddresses")
+    public String warmUpDatasetAddresses() {
+        return _warmUpDatasetAddresses;
+    }
+
+    @Produces
+    @ReplicantSystem("cache/storeDirectory")
+    public String storeDirectory() {
+        return _storeDirectory;
+    }
+
+    @Produces
+    @ReplicantSystem("cache/storeSegmentSize")
+    public Integer storeSegmentSize() {
+        return _storeSegmentSize;
+    }
+
+    @Produces
+    @ReplicantSystem("cache/maxBytes")
+    public Long maxBytes() {
+        return _maxBytes;
+    }
 }
@@ -0,0 +1,258 @@
+package replicant.server.json;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import javax.json.JsonValue;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import replicant.server.ChangeSet;
+import replicant.shared.Messages;
+
+/**
+ * Utility class used when encoding Change Sets into the compact binary format described by
+ * {@link Messages.BinaryChangeSet}.
+ *
+ * <p>The binary format carries the same content as the JSON produced by
+ * {@link JsonEncoder#encodeChangeSet(Integer, JsonValue, String, ChangeSet)} and the client decodes it into the same
+ * Change Set message.</p>
+ */
+public final class BinaryEncoder {
+    private static final int INITIAL_CAPACITY = 256;
+
+    /**
+     * The number of leading bytes of an encoded Change Set that precede the requestId. The flags fit in a single byte.
+     */
+    public static final int CHANGE_SET_REQUEST_ID_OFFSET = 2;
+
+    private BinaryEncoder() {}
+
+    /**
+     * Encode a Change Set containing routed Entity Changes.
+     *
+     * @param requestId          the requestId that initiated the change. Only set if the packet is destined for the
+     *                           originating session.
+     * @param commandResult      the Command Result if the Change Set completes a Command initiated by the session.
+     * @param datasetCacheVersion the opaque Dataset Cache Version for a complete Cacheable Dataset Change Set.
+     * @param changeSet          the Change Set being encoded.
+     * @return the encoded Change Set.
+     */
+    @NonNull
+    public static byte[] encodeChangeSet(
+            @Nullable final Integer requestId,
+            @Nullable final JsonValue commandResult,
+            @Nullable final String datasetCacheVersion,
+            @NonNull final ChangeSet changeSet) {
+        final var output = new Output();
+        final var dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ", Locale.ROOT);
+
+        output.writeByte(Messages.BinaryChangeSet.VERSION);
+        output.writeUnsigned((null != requestId ? Messages.BinaryChangeSet.FLAG_REQUEST_ID : 0)
+                | (null != commandResult ? Messages.BinaryChangeSet.FLAG_COMMAND_RESULT : 0)
+                | (null != datasetCacheVersion ? Messages.BinaryChangeSet.FLAG_DATASET_CACHE_VERSION : 0));
+        if (null != requestId) {
+            output.writeSigned(requestId);
+        }
+        if (null != commandResult) {
+            output.writeString(commandResult.toString());
+        }
+        if (null != datasetCacheVersion) {
+            output.writeString(datasetCacheVersion);
+        }
+
+        final var subscriptionChanges = changeSet.getSubscriptionChanges().stream()
+                .filter(c -> null == c.filterParameter())
+                .toList();
+        output.writeUnsigned(subscriptionChanges.size());
+        for (final var subscriptionChange : subscriptionChanges) {
+            output.writeString(JsonEncoder.toDescriptor(subscriptionChange));
+        }
+
+        final var filterParameterSubscriptionChanges = changeSet.getSubscriptionChanges().stream()
+                .filter(c -> null != c.filterParameter())
+                .toList();
+        output.writeUnsigned(filterParameterSubscriptionChanges.size());
+        for (final var subscriptionChange : filterParameterSubscriptionChanges) {
+            output.writeString(JsonEncoder.toDescriptor(subscriptionChange));
+            output.writeString(Objects.requireNonNull(subscriptionChange.filterParameter()).toString());
+        }
+
+        final var entityChanges = changeSet.getEntityChanges();
+        output.writeUnsigned(entityChanges.size());
+        for (final var entityChange : entityChanges) {
+            final var entityChangeCandidate = entityChange.getEntityChangeCandidate();
+            output.writeUnsigned(entityChangeCandidate.getEntityTypeId());
+            output.writeSigned(entityChangeCandidate.getEntityId());
+
+            final var datasetAddresses = entityChange.getDatasetAddresses();
+            output.writeUnsigned(datasetAddresses.size());
+            for (final var datasetAddress : datasetAddresses) {
+                output.writeRef(datasetAddress.toString());
+            }
+
+            if (entityChangeCandidate.isUpdate()) {
+                final var payloadValues = Objects.requireNonNull(entityChangeCandidate.getAttributeValues());
+                // Null values are omitted, matching the JSON encoding
+                var attributeCount = 0;
+                for (final var value : payloadValues.values()) {
+                    if (null != value) {
+                        attributeCount++;
+                    }
+                }
+                output.writeUnsigned(attributeCount + 1);
+                for (final var entry : payloadValues.entrySet()) {
+                    final var value = entry.getValue();
+                    if (null != value) {
+                        output.writeRef(entry.getKey());
+                        writeValue(output, value, dateFormat);
+                    }
+                }
+            } else {
+                output.writeUnsigned(0);
+            }
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Add a requestId to a Change Set that was encoded without a requestId or Command Result.
+     *
+     * <p>The result is identical to encoding the Change Set with the requestId. The input may also be any prefix of
+     * the encoded Change Set that includes the first {@link #CHANGE_SET_REQUEST_ID_OFFSET} bytes.</p>
+     *
+     * @param encodedChangeSet the Change Set encoded without a requestId.
+     * @param requestId        the requestId to add.
+     * @return the Change Set including the requestId.
+     */
+    @NonNull
+    public static byte[] insertRequestId(@NonNull final byte[] encodedChangeSet, final int requestId) {
+        assert encodedChangeSet.length >= CHANGE_SET_REQUEST_ID_OFFSET;
+        final var flags = encodedChangeSet[1] & 0xFF;
+        assert 0 == (flags & (Messages.BinaryChangeSet.FLAG_REQUEST_ID | Messages.BinaryChangeSet.FLAG_COMMAND_RESULT));
+        final var output = new Output(encodedChangeSet.length + 5);
+        output.writeByte(encodedChangeSet[0]);
+        output.writeUnsigned(flags | Messages.BinaryChangeSet.FLAG_REQUEST_ID);
+        output.writeSigned(requestId);
+        output.writeBytes(
+                encodedChangeSet,
+                CHANGE_SET_REQUEST_ID_OFFSET,
+                encodedChangeSet.length - CHANGE_SET_REQUEST_ID_OFFSET);
+        return output.toByteArray();
+    }
+
+    private static void writeValue(
+            @NonNull final Output output,
+            @NonNull final Serializable serializable,
+            @NonNull final SimpleDateFormat dateFormat) {
+        if (serializable instanceof String) {
+            output.writeByte(Messages.BinaryChangeSet.VALUE_STRING);
+            output.writeString((String) serializable);
+        } else if (serializable instanceof Integer) {
+            output.writeByte(Messages.BinaryChangeSet.VALUE_INTEGER);
+            output.writeSigned((Integer) serializable);
+        } else if (serializable instanceof Long) {
+            output.writeByte(Messages.BinaryChangeSet.VALUE_STRING);
+            output.writeString(new BigDecimal((Long) serializable).toString());
+        } else if (serializable instanceof Float) {
+            output.writeByte(Messages.BinaryChangeSet.VALUE_FLOAT);
+            output.writeFloat((Float) serializable);
+        } else if (serializable instanceof Date) {
+            output.writeByte(Messages.BinaryChangeSet.VALUE_STRING);
+            output.writeString(dateFormat.format((Date) serializable));
+        } else if (serializable instanceof Boolean) {
+            output.writeByte(
+                    (Boolean) serializable
+                            ? Messages.BinaryChangeSet.VALUE_TRUE
+                            : Messages.BinaryChangeSet.VALUE_FALSE);
+        } else {
+            throw new IllegalStateException("Unable to encode: " + serializable);
+        }
+    }
+
+    private static final class Output {
+        @NonNull
+        private final Map<String, Integer> _refs = new HashMap<>();
+
+        @NonNull
+        private byte[] _bytes;
+
+        private int _length;
+
+        Output() {
+            this(INITIAL_CAPACITY);
+        }
+
+        Output(final int capacity) {
+            _bytes = new byte[capacity];
+        }
+
+        void writeByte(final int value) {
+            ensureCapacity(1);
+            _bytes[_length++] = (byte) value;
+        }
+
+        void writeUnsigned(final int value) {
+            ensureCapacity(5);
+            var remaining = value;
+            while (0 != (remaining & ~0x7F)) {
+                _bytes[_length++] = (byte) ((remaining & 0x7F) | 0x80);
+                remaining >>>= 7;
+            }
+            _bytes[_length++] = (byte) remaining;
+        }
+
+        void writeSigned(final int value) {
+            writeUnsigned((value << 1) ^ (value >> 31));
+        }
+
+        void writeFloat(final float value) {
+            final var bits = Float.floatToIntBits(value);
+            ensureCapacity(4);
+            _bytes[_length++] = (byte) (bits >>> 24);
+            _bytes[_length++] = (byte) (bits >>> 16);
+            _bytes[_length++] = (byte) (bits >>> 8);
+            _bytes[_length++] = (byte) bits;
+        }
+
+        void writeString(@NonNull final String value) {
+            final var bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeUnsigned(bytes.length);
+            writeBytes(bytes, 0, bytes.length);
+        }
+
+        void writeBytes(@NonNull final byte[] bytes, final int offset, final int length) {
+            ensureCapacity(length);
+            System.arraycopy(bytes, offset, _bytes, _length, length);
+            _length += length;
+        }
+
+        void writeRef(@NonNull final String value) {
+            final var index = _refs.get(value);
+            if (null != index) {
+                writeUnsigned(index);
+            } else {
+                _refs.put(value, _refs.size() + 1);
+                writeUnsigned(0);
+                writeString(value);
+            }
+        }
+
+        @NonNull
+        byte[] toByteArray() {
+            return Arrays.copyOf(_bytes, _length);
+        }
+
+        private void ensureCapacity(final int size) {
+            if (_length + size > _bytes.length) {
+                _bytes = Arrays.copyOf(_bytes, Math.max(_bytes.length * 2, _length + size));
+            }
+        }
+    }
+}
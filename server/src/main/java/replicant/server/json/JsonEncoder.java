@@ -2,6 +2,7 @@ package replicant.server.json;
 
 import java.io.Serializable;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -27,6 +28,12 @@ public final class JsonEncoder {
     @NonNull
     private static final JsonGeneratorFactory FACTORY = Json.createGeneratorFactory(null);
 
+    /**
+     * The number of leading characters of an encoded Change Set that precede the requestId.
+     */
+    public static final int CHANGE_SET_REQUEST_ID_OFFSET =
+            ("{\"" + Messages.Common.TYPE + "\":\"" + Messages.S2C_Type.CHANGE_SET + "\"").length();
+
     private JsonEncoder() {}
 
     /**
@@ -50,6 +57,30 @@ public final class JsonEncoder {
             @Nullable final String datasetCacheVersion,
             @NonNull final ChangeSet changeSet) {
         final var writer = new StringWriter();
+        encodeChangeSet(writer, requestId, commandResult, datasetCacheVersion, changeSet);
+        return writer.toString();
+    }
+
+    /**
+     * Encode a Change Set directly into a writer.
+     *
+     * <p>This produces the same payload as {@link #encodeChangeSet(Integer, JsonValue, String, ChangeSet)} without
+     * materializing it on the heap, so large Change Sets can be streamed to the transport. The writer is closed when
+     * encoding completes.</p>
+     *
+     * @param writer             the destination of the encoded Change Set.
+     * @param requestId          the requestId that initiated the change. Only set if the packet is destined for the
+     *                           originating session.
+     * @param commandResult      the Command Result if the Change Set completes a Command initiated by the session.
+     * @param datasetCacheVersion the opaque Dataset Cache Version for a complete Cacheable Dataset Change Set.
+     * @param changeSet          the Change Set being encoded.
+     */
+    public static void encodeChangeSet(
+            @NonNull final Writer writer,
+            @Nullable final Integer requestId,
+            @Nullable final JsonValue commandResult,
+            @Nullable final String datasetCacheVersion,
+            @NonNull final ChangeSet changeSet) {
         final var generator = FACTORY.createGenerator(writer);
         final var dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ", Locale.ROOT);
 
@@ -122,7 +153,28 @@ public final class JsonEncoder {
         }
         generator.writeEnd();
         generator.close();
-        return writer.toString();
+    }
+
+    /**
+     * Add a requestId to a Change Set that was encoded without a requestId or Command Result.
+     *
+     * <p>The result is identical to encoding the Change Set with the requestId, so a Change Set sent to many sessions
+     * can be encoded once and paired with the request of each session. The input may also be any prefix of the
+     * encoded Change Set that includes the first {@link #CHANGE_SET_REQUEST_ID_OFFSET} characters.</p>
+     *
+     * @param encodedChangeSet the Change Set encoded without a requestId.
+     * @param requestId        the requestId to add.
+     * @return the Change Set including the requestId.
+     */
+    @NonNull
+    public static String insertRequestId(@NonNull final String encodedChangeSet, final int requestId) {
+        assert encodedChangeSet.length() >= CHANGE_SET_REQUEST_ID_OFFSET;
+        final var requestIdField = ",\"" + Messages.Common.REQUEST_ID + "\":" + requestId;
+        return new StringBuilder(encodedChangeSet.length() + requestIdField.length())
+                .append(encodedChangeSet, 0, CHANGE_SET_REQUEST_ID_OFFSET)
+                .append(requestIdField)
+                .append(encodedChangeSet, CHANGE_SET_REQUEST_ID_OFFSET, encodedChangeSet.length())
+                .toString();
     }
 
     @NonNull
@@ -168,10 +220,22 @@ public final class JsonEncoder {
             @NonNull final DatasetAddress datasetAddress,
             @NonNull final String datasetCacheVersion,
             @Nullable final Integer requestId) {
+        return encodeUseDatasetCacheEntryMessage(datasetAddress, null, datasetCacheVersion, requestId);
+    }
+
+    @NonNull
+    public static String encodeUseDatasetCacheEntryMessage(
+            @NonNull final DatasetAddress datasetAddress,
+            @Nullable final JsonObject filterParameter,
+            @NonNull final String datasetCacheVersion,
+            @Nullable final Integer requestId) {
         final var response = Json.createObjectBuilder()
                 .add(Messages.Common.TYPE, Messages.S2C_Type.USE_DATASET_CACHE_ENTRY)
                 .add(Messages.Common.DATASET_ADDRESS, datasetAddress.toString())
                 .add(Messages.S2C_Common.DATASET_CACHE_VERSION, datasetCacheVersion);
+        if (null != filterParameter) {
+            response.add(Messages.Common.FILTER_PARAMETER, filterParameter);
+        }
         if (null != requestId) {
             response.add(Messages.Common.REQUEST_ID, requestId);
         }
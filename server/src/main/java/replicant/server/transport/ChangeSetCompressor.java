@@ -0,0 +1,139 @@
+package replicant.server.transport;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import org.jspecify.annotations.NonNull;
+import replicant.shared.Messages;
+
+/**
+ * Compresses encoded Change Sets into the format described by {@link Messages.CompressedChangeSet}.
+ *
+ * <p>Each thread reuses a single {@link Deflater}. Change Sets are encoded and compressed on the drain threads of the
+ * message broker so this bounds the number of deflaters, and the native memory that they hold, to the number of
+ * drain threads rather than allocating one per message.</p>
+ */
+final class ChangeSetCompressor {
+    private static final int BUFFER_SIZE = 8 * 1024;
+    @NonNull
+    private static final ThreadLocal<Deflater> c_deflaters =
+            ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+
+    private ChangeSetCompressor() {}
+
+    /**
+     * Compress the encoded Change Set.
+     *
+     * @param format  the format of the encoded Change Set. One of the format constants in
+     *                {@link Messages.CompressedChangeSet}.
+     * @param payload the encoded Change Set.
+     * @return the compressed message.
+     */
+    @NonNull
+    static byte[] compress(final int format, @NonNull final byte[] payload) {
+        final var deflater = acquireDeflater();
+        deflater.setInput(payload);
+        deflater.finish();
+        // Repetitive Change Sets typically compress 5-10x so start well below the input size
+        final var output = new ByteArrayOutputStream(Math.max(BUFFER_SIZE, payload.length / 4));
+        output.write(format);
+        final var buffer = new byte[BUFFER_SIZE];
+        while (!deflater.finished()) {
+            final var length = deflater.deflate(buffer);
+            output.write(buffer, 0, length);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Compress the tail of an encoded Change Set so that it can be shared by messages with different heads.
+     * The result is a complete raw deflate stream without the format byte.
+     *
+     * @param payload the encoded Change Set.
+     * @param offset  the offset of the tail within the encoded Change Set.
+     * @return the compressed tail.
+     */
+    @NonNull
+    static byte[] compressTail(@NonNull final byte[] payload, final int offset) {
+        final var deflater = acquireDeflater();
+        deflater.setInput(payload, offset, payload.length - offset);
+        deflater.finish();
+        final var output = new ByteArrayOutputStream(Math.max(BUFFER_SIZE, payload.length / 4));
+        final var buffer = new byte[BUFFER_SIZE];
+        while (!deflater.finished()) {
+            final var length = deflater.deflate(buffer);
+            output.write(buffer, 0, length);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Compress the head of an encoded Change Set and append a tail compressed by {@link #compressTail(byte[], int)}.
+     *
+     * <p>The head is flushed with {@link Deflater#SYNC_FLUSH} which leaves the stream byte aligned without marking
+     * the final block. The tail never refers back to the head so the two concatenated streams form a single valid
+     * deflate stream, and only the few bytes of the head are compressed per message.</p>
+     *
+     * @param format         the format of the encoded Change Set. One of the format constants in
+     *                       {@link Messages.CompressedChangeSet}.
+     * @param head           the head of the encoded Change Set.
+     * @param compressedTail the compressed tail of the encoded Change Set.
+     * @return the compressed message.
+     */
+    @NonNull
+    static byte[] compress(final int format, @NonNull final byte[] head, @NonNull final byte[] compressedTail) {
+        return compress(format, head, ByteBuffer.wrap(compressedTail));
+    }
+
+    /**
+     * Compress the head of an encoded Change Set and append a compressed tail that may be held outside the heap.
+     * The position of the supplied tail is not modified.
+     *
+     * @see #compress(int, byte[], byte[])
+     */
+    @NonNull
+    static byte[] compress(final int format, @NonNull final byte[] head, @NonNull final ByteBuffer compressedTail) {
+        final var deflater = acquireDeflater();
+        deflater.setInput(head);
+        final var output = new ByteArrayOutputStream(1 + head.length + 16 + compressedTail.remaining());
+        output.write(format);
+        final var buffer = new byte[Math.max(64, head.length * 2)];
+        int length;
+        do {
+            // A full buffer indicates that the flush may not have completed
+            length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+            output.write(buffer, 0, length);
+        } while (length == buffer.length);
+        final var tail = compressedTail.duplicate();
+        while (tail.hasRemaining()) {
+            final var chunk = Math.min(buffer.length, tail.remaining());
+            tail.get(buffer, 0, chunk);
+            output.write(buffer, 0, chunk);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Compress text content directly into the output stream without materializing the uncompressed content.
+     * The output stream is closed when the content has been written.
+     */
+    static void compress(@NonNull final OutputStream output, final WebSocketUtil.@NonNull TextContent content)
+            throws IOException {
+        output.write(Messages.CompressedChangeSet.FORMAT_DEFLATED_JSON);
+        final var deflaterOutput = new DeflaterOutputStream(output, acquireDeflater(), BUFFER_SIZE);
+        content.writeTo(new OutputStreamWriter(deflaterOutput, StandardCharsets.UTF_8));
+    }
+
+    @NonNull
+    private static Deflater acquireDeflater() {
+        final var deflater = c_deflaters.get();
+        // Reset on acquire rather than release so a deflater abandoned by a failed encode is still reusable
+        deflater.reset();
+        return deflater;
+    }
+}
@@ -0,0 +1,172 @@
+package replicant.server.transport;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Map;
+import java.util.TreeMap;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import replicant.server.ChangeSet;
+import replicant.server.EntityChange;
+import replicant.server.FilterParameterUtil;
+import replicant.server.SubscriptionChange;
+import replicant.server.json.JsonEncoder;
+
+/**
+ * Derives a content-addressed Dataset Cache Version from a Change Set.
+ *
+ * <p>The digest is computed over a canonical form of the Change Set rather than its encoding. The canonical form does
+ * not depend upon the order in which changes and attribute values were collected, nor upon the time zone that dates
+ * are encoded in, so equal content yields an equal Dataset Cache Version on every node and across restarts.</p>
+ */
+final class ChangeSetDigester {
+    @NonNull
+    private static final String ALGORITHM = "SHA-256";
+    /**
+     * The version of the canonical form. It must be incremented whenever the canonical form or the encoding of Change
+     * Sets changes so that Dataset Cache Entries persisted by clients under an earlier form are no longer reused.
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int VALUE_NULL = 0;
+    private static final int VALUE_STRING = 1;
+    private static final int VALUE_INTEGER = 2;
+    private static final int VALUE_LONG = 3;
+    private static final int VALUE_FLOAT = 4;
+    private static final int VALUE_DATE = 5;
+    private static final int VALUE_BOOLEAN = 6;
+
+    @NonNull
+    private static final Comparator<EntityChange> ENTITY_CHANGE_ORDER = Comparator.comparingInt(
+                    (EntityChange c) -> c.getEntityChangeCandidate().getEntityTypeId())
+            .thenComparingInt(c -> c.getEntityChangeCandidate().getEntityId());
+
+    private ChangeSetDigester() {}
+
+    /**
+     * Return the Dataset Cache Version derived from the content of the Change Set.
+     *
+     * @param changeSet the complete Change Set of the Dataset.
+     * @return the URL-safe Base64 encoding of the digest.
+     */
+    @NonNull
+    static String digest(@NonNull final ChangeSet changeSet) {
+        final var digest = newMessageDigest();
+        try (var output = new DataOutputStream(new DigestOutputStream(OutputStream.nullOutputStream(), digest))) {
+            output.writeInt(FORMAT_VERSION);
+
+            final var subscriptionChanges = changeSet.getSubscriptionChanges().stream()
+                    .map(ChangeSetDigester::toCanonicalString)
+                    .sorted()
+                    .toList();
+            output.writeInt(subscriptionChanges.size());
+            for (final var subscriptionChange : subscriptionChanges) {
+                writeString(output, subscriptionChange);
+            }
+
+            final var entityChanges = changeSet.getEntityChanges().stream()
+                    .sorted(ENTITY_CHANGE_ORDER)
+                    .toList();
+            output.writeInt(entityChanges.size());
+            for (final var entityChange : entityChanges) {
+                writeEntityChange(output, entityChange);
+            }
+        } catch (final IOException ioe) {
+            // The digest is written to memory so this should not occur
+            throw new IllegalStateException("Unable to digest Change Set", ioe);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest());
+    }
+
+    private static void writeEntityChange(
+            @NonNull final DataOutputStream output, @NonNull final EntityChange entityChange) throws IOException {
+        final var entityChangeCandidate = entityChange.getEntityChangeCandidate();
+        output.writeInt(entityChangeCandidate.getEntityTypeId());
+        output.writeInt(entityChangeCandidate.getEntityId());
+
+        final var datasetAddresses = entityChange.getDatasetAddresses().stream()
+                .sorted()
+                .map(Object::toString)
+                .toList();
+        output.writeInt(datasetAddresses.size());
+        for (final var datasetAddress : datasetAddresses) {
+            writeString(output, datasetAddress);
+        }
+
+        final var attributeValues = entityChangeCandidate.getAttributeValues();
+        if (null == attributeValues) {
+            output.writeInt(-1);
+        } else {
+            final var sortedAttributeValues = new TreeMap<String, Serializable>(attributeValues);
+            output.writeInt(sortedAttributeValues.size());
+            for (final Map.Entry<String, Serializable> entry : sortedAttributeValues.entrySet()) {
+                writeString(output, entry.getKey());
+                writeValue(output, entry.getValue());
+            }
+        }
+    }
+
+    private static void writeValue(@NonNull final DataOutputStream output, @Nullable final Serializable value)
+            throws IOException {
+        if (null == value) {
+            output.writeByte(VALUE_NULL);
+        } else if (value instanceof String) {
+            output.writeByte(VALUE_STRING);
+            writeString(output, (String) value);
+        } else if (value instanceof Integer) {
+            output.writeByte(VALUE_INTEGER);
+            output.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            output.writeByte(VALUE_LONG);
+            output.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            output.writeByte(VALUE_FLOAT);
+            output.writeFloat((Float) value);
+        } else if (value instanceof Date) {
+            // The instant rather than the encoded text so that the digest does not depend upon the time zone
+            output.writeByte(VALUE_DATE);
+            output.writeLong(((Date) value).getTime());
+        } else if (value instanceof Boolean) {
+            output.writeByte(VALUE_BOOLEAN);
+            output.writeBoolean((Boolean) value);
+        } else {
+            throw new IllegalStateException("Unable to digest: " + value);
+        }
+    }
+
+    private static void writeString(@NonNull final DataOutputStream output, @NonNull final String value)
+            throws IOException {
+        // DataOutputStream.writeUTF is limited to 64KiB which a Filter Parameter may exceed
+        final var bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    @NonNull
+    private static String toCanonicalString(@NonNull final SubscriptionChange subscriptionChange) {
+        final var filterParameter = subscriptionChange.filterParameter();
+        final var descriptor = JsonEncoder.toDescriptor(subscriptionChange);
+        return null == filterParameter
+                ? descriptor
+                : descriptor + "\n" + FilterParameterUtil.canonicalize(filterParameter);
+    }
+
+    @NonNull
+    private static MessageDigest newMessageDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (final NoSuchAlgorithmException nsae) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(nsae);
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package replicant.server.transport;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.StringReader;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import javax.json.Json;
+import javax.json.JsonException;
+import javax.json.JsonObject;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import replicant.server.ChangeSet;
+import replicant.server.DatasetAddress;
+import replicant.server.DatasetAddressCandidate;
+import replicant.server.DatasetAddressTemplate;
+import replicant.server.EntityChange;
+import replicant.server.EntityChangeCandidate;
+import replicant.server.SubscriptionChange;
+import replicant.server.SubscriptionDependencyCandidate;
+
+/**
+ * Serializes the Change Set of a Dataset Cache Entry so that it can be held by a {@link DatasetCacheStore}.
+ *
+ * <p>Unlike the encodings sent to clients, the serialized form retains the routing keys, timestamps, value types and
+ * Subscription Dependency Candidates of each Entity Change so that the deserialized Change Set is equivalent to the
+ * collected Change Set.</p>
+ */
+final class ChangeSetSerializer {
+    /**
+     * The version of the serialized form. Content serialized with another version is rejected.
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int VALUE_NULL = 0;
+    private static final int VALUE_STRING = 1;
+    private static final int VALUE_INTEGER = 2;
+    private static final int VALUE_LONG = 3;
+    private static final int VALUE_FLOAT = 4;
+    private static final int VALUE_DATE = 5;
+    private static final int VALUE_BOOLEAN = 6;
+    // Routing keys may hold any serializable value
+    private static final int VALUE_SERIALIZED = 7;
+
+    private static final int CANDIDATE_DATASET_ADDRESS = 0;
+    private static final int CANDIDATE_DATASET_ADDRESS_TEMPLATE = 1;
+
+    private ChangeSetSerializer() {}
+
+    /**
+     * Serialize the Change Set.
+     *
+     * @param changeSet the Change Set.
+     * @return the serialized Change Set.
+     */
+    @NonNull
+    static byte[] serialize(@NonNull final ChangeSet changeSet) {
+        final var buffer = new ByteArrayOutputStream();
+        try (var output = new DataOutputStream(buffer)) {
+            output.writeInt(FORMAT_VERSION);
+
+            final var subscriptionChanges = changeSet.getSubscriptionChanges();
+            output.writeInt(subscriptionChanges.size());
+            for (final var subscriptionChange : subscriptionChanges) {
+                writeString(output, subscriptionChange.datasetAddress().toString());
+                output.writeByte(subscriptionChange.type().ordinal());
+                writeFilterParameter(output, subscriptionChange.filterParameter());
+            }
+
+            final var entityChanges = changeSet.getEntityChanges();
+            output.writeInt(entityChanges.size());
+            for (final var entityChange : entityChanges) {
+                writeEntityChange(output, entityChange);
+            }
+        } catch (final IOException ioe) {
+            // The Change Set is serialized to memory so this should not occur
+            throw new IllegalStateException("Unable to serialize Change Set", ioe);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Deserialize a Change Set produced by {@link #serialize(ChangeSet)}.
+     * The position of the supplied buffer is not modified.
+     *
+     * @param serializedChangeSet the serialized Change Set.
+     * @return the Change Set.
+     * @throws IllegalStateException if the Change Set was serialized with another version or is malformed.
+     */
+    @NonNull
+    static ChangeSet deserialize(@NonNull final ByteBuffer serializedChangeSet) {
+        final var input = serializedChangeSet.duplicate();
+        try {
+            final var version = input.getInt();
+            if (FORMAT_VERSION != version) {
+                throw new IllegalStateException("Unsupported serialized Change Set version " + version);
+            }
+            final var changeSet = new ChangeSet();
+
+            final var subscriptionChangeCount = input.getInt();
+            for (var i = 0; i < subscriptionChangeCount; i++) {
+                final var datasetAddress = DatasetAddress.parse(readString(input));
+                final var type = SubscriptionChange.Type.values()[input.get()];
+                changeSet.mergeSubscriptionChange(
+                        SubscriptionChange.of(datasetAddress, type, readFilterParameter(input)));
+            }
+
+            final var entityChangeCount = input.getInt();
+            for (var i = 0; i < entityChangeCount; i++) {
+                changeSet.merge(readEntityChange(input));
+            }
+            return changeSet;
+        } catch (final BufferUnderflowException
+                | IndexOutOfBoundsException
+                | NegativeArraySizeException
+                | IllegalArgumentException
+                | JsonException e) {
+            throw new IllegalStateException("Malformed serialized Change Set", e);
+        }
+    }
+
+    private static void writeEntityChange(
+            @NonNull final DataOutputStream output, @NonNull final EntityChange entityChange) throws IOException {
+        final var entityChangeCandidate = entityChange.getEntityChangeCandidate();
+        output.writeInt(entityChangeCandidate.getEntityId());
+        output.writeInt(entityChangeCandidate.getEntityTypeId());
+        output.writeLong(entityChangeCandidate.getTimestamp());
+        writeValues(output, entityChangeCandidate.getRoutingKeys());
+        writeValues(output, entityChangeCandidate.getAttributeValues());
+
+        final var subscriptionDependencyCandidates = entityChangeCandidate.getSubscriptionDependencyCandidates();
+        if (null == subscriptionDependencyCandidates) {
+            output.writeInt(-1);
+        } else {
+            output.writeInt(subscriptionDependencyCandidates.size());
+            for (final var subscriptionDependencyCandidate : subscriptionDependencyCandidates) {
+                writeDatasetAddressCandidate(output, subscriptionDependencyCandidate.sourceDatasetAddressCandidate());
+                writeDatasetAddressCandidate(output, subscriptionDependencyCandidate.targetDatasetAddressCandidate());
+                writeFilterParameter(output, subscriptionDependencyCandidate.targetFilterParameter());
+            }
+        }
+
+        final var datasetAddresses = entityChange.getDatasetAddresses();
+        output.writeInt(datasetAddresses.size());
+        for (final var datasetAddress : datasetAddresses) {
+            writeString(output, datasetAddress.toString());
+        }
+    }
+
+    @NonNull
+    private static EntityChange readEntityChange(@NonNull final ByteBuffer input) {
+        final var entityId = input.getInt();
+        final var entityTypeId = input.getInt();
+        final var timestamp = input.getLong();
+        final var routingKeys = readValues(input);
+        final var attributeValues = readValues(input);
+
+        final var subscriptionDependencyCandidateCount = input.getInt();
+        final Set<SubscriptionDependencyCandidate> subscriptionDependencyCandidates;
+        if (-1 == subscriptionDependencyCandidateCount) {
+            subscriptionDependencyCandidates = null;
+        } else {
+            subscriptionDependencyCandidates = new HashSet<>();
+            for (var i = 0; i < subscriptionDependencyCandidateCount; i++) {
+                final var source = readDatasetAddressCandidate(input);
+                final var target = readDatasetAddressCandidate(input);
+                subscriptionDependencyCandidates.add(
+                        new SubscriptionDependencyCandidate(source, target, readFilterParameter(input)));
+            }
+        }
+
+        final var entityChange = new EntityChange(new EntityChangeCandidate(
+                entityId,
+                entityTypeId,
+                timestamp,
+                null == routingKeys ? new HashMap<>() : routingKeys,
+                attributeValues,
+                subscriptionDependencyCandidates));
+        final var datasetAddressCount = input.getInt();
+        for (var i = 0; i < datasetAddressCount; i++) {
+            entityChange.getDatasetAddresses().add(DatasetAddress.parse(readString(input)));
+        }
+        return entityChange;
+    }
+
+    private static void writeDatasetAddressCandidate(
+            @NonNull final DataOutputStream output, @NonNull final DatasetAddressCandidate candidate)
+            throws IOException {
+        output.writeByte(
+                candidate instanceof DatasetAddress ? CANDIDATE_DATASET_ADDRESS : CANDIDATE_DATASET_ADDRESS_TEMPLATE);
+        output.writeInt(candidate.datasetId());
+        final var datasetRootId = candidate.datasetRootId();
+        output.writeBoolean(null != datasetRootId);
+        if (null != datasetRootId) {
+            output.writeInt(datasetRootId);
+        }
+        writeNullableString(output, candidate.datasetKey());
+    }
+
+    @NonNull
+    private static DatasetAddressCandidate readDatasetAddressCandidate(@NonNull final ByteBuffer input) {
+        final var kind = input.get();
+        final var datasetId = input.getInt();
+        final var datasetRootId = 0 != input.get() ? input.getInt() : null;
+        final var datasetKey = readNullableString(input);
+        if (CANDIDATE_DATASET_ADDRESS == kind) {
+            return new DatasetAddress(datasetId, datasetRootId, datasetKey);
+        } else if (CANDIDATE_DATASET_ADDRESS_TEMPLATE == kind) {
+            return new DatasetAddressTemplate(datasetId, datasetRootId);
+        } else {
+            throw new IllegalStateException("Unknown serialized Dataset Address Candidate kind " + kind);
+        }
+    }
+
+    private static void writeValues(
+            @NonNull final DataOutputStream output, @Nullable final Map<String, Serializable> values)
+            throws IOException {
+        if (null == values) {
+            output.writeInt(-1);
+        } else {
+            output.writeInt(values.size());
+            for (final var entry : values.entrySet()) {
+                writeString(output, entry.getKey());
+                writeValue(output, entry.getValue());
+            }
+        }
+    }
+
+    @Nullable
+    private static Map<String, Serializable> readValues(@NonNull final ByteBuffer input) {
+        final var count = input.getInt();
+        if (-1 == count) {
+            return null;
+        } else {
+            final var values = new HashMap<String, Serializable>();
+            for (var i = 0; i < count; i++) {
+                final var key = readString(input);
+                values.put(key, readValue(input));
+            }
+            return values;
+        }
+    }
+
+    private static void writeValue(@NonNull final DataOutputStream output, @Nullable final Serializable value)
+            throws IOException {
+        if (null == value) {
+            output.writeByte(VALUE_NULL);
+        } else if (value instanceof String) {
+            output.writeByte(VALUE_STRING);
+            writeString(output, (String) value);
+        } else if (value instanceof Integer) {
+            output.writeByte(VALUE_INTEGER);
+            output.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            output.writeByte(VALUE_LONG);
+            output.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            output.writeByte(VALUE_FLOAT);
+            output.writeFloat((Float) value);
+        } else if (value instanceof Date) {
+            output.writeByte(VALUE_DATE);
+            output.writeLong(((Date) value).getTime());
+        } else if (value instanceof Boolean) {
+            output.writeByte(VALUE_BOOLEAN);
+            output.writeBoolean((Boolean) value);
+        } else {
+            final var buffer = new ByteArrayOutputStream();
+            try (var objectOutput = new ObjectOutputStream(buffer)) {
+                objectOutput.writeObject(value);
+            }
+            output.writeByte(VALUE_SERIALIZED);
+            output.writeInt(buffer.size());
+            buffer.writeTo(output);
+        }
+    }
+
+    @Nullable
+    private static Serializable readValue(@NonNull final ByteBuffer input) {
+        final var type = input.get();
+        if (VALUE_NULL == type) {
+            return null;
+        } else if (VALUE_STRING == type) {
+            return readString(input);
+        } else if (VALUE_INTEGER == type) {
+            return input.getInt();
+        } else if (VALUE_LONG == type) {
+            return input.getLong();
+        } else if (VALUE_FLOAT == type) {
+            return input.getFloat();
+        } else if (VALUE_DATE == type) {
+            return new Date(input.getLong());
+        } else if (VALUE_BOOLEAN == type) {
+            return 0 != input.get();
+        } else if (VALUE_SERIALIZED == type) {
+            final var bytes = new byte[input.getInt()];
+            input.get(bytes);
+            try (var objectInput = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                return (Serializable) objectInput.readObject();
+            } catch (final IOException | ClassNotFoundException | ClassCastException e) {
+                throw new IllegalStateException("Unable to deserialize value", e);
+            }
+        } else {
+            throw new IllegalStateException("Unknown serialized value type " + type);
+        }
+    }
+
+    private static void writeFilterParameter(
+            @NonNull final DataOutputStream output, @Nullable final JsonObject filterParameter) throws IOException {
+        writeNullableString(output, null == filterParameter ? null : filterParameter.toString());
+    }
+
+    @Nullable
+    private static JsonObject readFilterParameter(@NonNull final ByteBuffer input) {
+        final var filterParameter = readNullableString(input);
+        if (null == filterParameter) {
+            return null;
+        } else {
+            try (var reader = Json.createReader(new StringReader(filterParameter))) {
+                return reader.readObject();
+            }
+        }
+    }
+
+    private static void writeNullableString(@NonNull final DataOutputStream output, @Nullable final String value)
+            throws IOException {
+        if (null == value) {
+            output.writeInt(-1);
+        } else {
+            writeString(output, value);
+        }
+    }
+
+    @Nullable
+    private static String readNullableString(@NonNull final ByteBuffer input) {
+        final var length = input.getInt();
+        return -1 == length ? null : readUtf8(input, length);
+    }
+
+    private static void writeString(@NonNull final DataOutputStream output, @NonNull final String value)
+            throws IOException {
+        // DataOutputStream.writeUTF is limited to 64KiB which a Filter Parameter or attribute value may exceed
+        final var bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    @NonNull
+    private static String readString(@NonNull final ByteBuffer input) {
+        return readUtf8(input, input.getInt());
+    }
+
+    @NonNull
+    private static String readUtf8(@NonNull final ByteBuffer input, final int length) {
+        final var bytes = new byte[length];
+        input.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -1,29 +1,150 @@
 package replicant.server.transport;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.json.JsonObject;
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
 import replicant.server.ChangeSet;
 import replicant.server.DatasetAddress;
+import replicant.server.EntityChange;
+import replicant.server.EntityChangeCandidate;
+import replicant.server.json.BinaryEncoder;
+import replicant.server.json.JsonEncoder;
+import replicant.shared.Messages;
+
+/**
+ * The complete Change Set of a Cacheable Dataset shared by every session that subscribes to the Dataset with an
+ * equivalent Filter Parameter.
+ *
+ * <p>The Change Set is encoded without a requestId when the entry is initialized, and the requestId of each
+ * Subscription request is inserted into the shared payload when it is sent. Other encodings are produced on first use
+ * and compressed payloads share a compressed tail, so the Change Set is encoded and compressed once per entry rather
+ * than once per session. The payloads are immutable once produced.</p>
+ *
+ * <p>An entry is never modified once initialized. Patching an entry produces a new entry with a new Dataset Cache
+ * Version so that packets already queued with the original entry continue to send the original payload.</p>
+ *
+ * <p>The Dataset Cache Version is either generated randomly or, when content-addressed, derived from a digest of the
+ * Change Set so that a client that cached the Dataset via one node or before a restart can reuse it.</p>
+ *
+ * <p>Once the entry has been written to a {@link DatasetCacheStore} it retains only views of the content held by the
+ * store. The content holds the encodings alongside the serialized Change Set, so payloads are read from the store
+ * when sent and the Change Set is deserialized only when it is patched or refreshed. An entry restored from the
+ * store after a restart is neither deserialized nor encoded again.</p>
+ *
+ * <p>The session manager accounts for the estimated heap retained by each entry so that the least recently used
+ * entries can be evicted once the Dataset Cache exceeds its budget.</p>
+ */
+public final class DatasetCacheEntry {
+    /**
+     * The estimated retained size of an entry excluding its Change Set and encodings.
+     */
+    static final int ENTRY_SIZE_ESTIMATE = 256;
+
+    /**
+     * The version of the content written to a Dataset Cache Store. Content written with another version is rejected.
+     * Version 1 held only the serialized Change Set.
+     */
+    private static final int STORED_CONTENT_VERSION = 2;
+
+    /**
+     * The number of characters decoded at a time when a stored JSON encoded Change Set is written to a writer.
+     */
+    private static final int DECODE_CHUNK_SIZE = 8 * 1024;
 
-final class DatasetCacheEntry {
     @NonNull
     private final ReadWriteLock _lock = new ReentrantReadWriteLock();
 
     @NonNull
-    private final DatasetAddress _datasetAddress;
+    private final DatasetCacheKey _datasetCacheKey;
 
     @Nullable
     private String _datasetCacheVersion;
 
+    /**
+     * True if the Dataset Cache Version is derived from the content of the Change Set rather than generated.
+     */
+    private boolean _contentAddressed;
+
     @Nullable
     private ChangeSet _changeSet;
 
+    /**
+     * The serialized Change Set held by the Dataset Cache Store, if the entry has been released from the heap.
+     */
+    @Nullable
+    private ByteBuffer _serializedChangeSet;
+
+    private int _entityChangeCount;
+
+    private int _subscriptionChangeCount;
+
+    /**
+     * The length in characters of the JSON encoded Change Set.
+     */
+    private int _encodedChangeSetLength;
+
+    /**
+     * The JSON encoded Change Set, unless the entry has been released from the heap.
+     */
+    @Nullable
+    private String _encodedChangeSet;
+
+    /**
+     * The UTF-8 JSON encoded Change Set held by the Dataset Cache Store, if the entry has been released from the heap.
+     */
+    @Nullable
+    private ByteBuffer _storedEncodedChangeSet;
+
+    @Nullable
+    private ByteBuffer _compressedChangeSetTail;
+
+    @Nullable
+    private byte[] _binaryEncodedChangeSet;
+
+    /**
+     * The binary encoded Change Set held by the Dataset Cache Store, if the entry has been released from the heap.
+     */
+    @Nullable
+    private ByteBuffer _storedBinaryEncodedChangeSet;
+
+    @Nullable
+    private ByteBuffer _compressedBinaryChangeSetTail;
+
+    /**
+     * The number of subscribers that the entry has been reused by.
+     */
+    @NonNull
+    private final AtomicInteger _useCount = new AtomicInteger();
+
+    /**
+     * The estimated size most recently accounted for the entry, or -1 once the entry has been removed from the
+     * Dataset Cache.
+     */
+    private long _accountedSize;
+
     DatasetCacheEntry(@NonNull final DatasetAddress datasetAddress) {
-        _datasetAddress = Objects.requireNonNull(datasetAddress);
+        this(DatasetCacheKey.of(datasetAddress));
+    }
+
+    DatasetCacheEntry(@NonNull final DatasetCacheKey datasetCacheKey) {
+        _datasetCacheKey = Objects.requireNonNull(datasetCacheKey);
     }
 
     @NonNull
@@ -31,14 +152,314 @@ final class DatasetCacheEntry {
         return _lock;
     }
 
+    @NonNull
+    DatasetCacheKey getDatasetCacheKey() {
+        return _datasetCacheKey;
+    }
+
     @NonNull
     DatasetAddress getDatasetAddress() {
-        return _datasetAddress;
+        return _datasetCacheKey.datasetAddress();
+    }
+
+    /**
+     * Return the canonical Filter Parameter that the Change Set was collected with, if any.
+     */
+    @Nullable
+    JsonObject getFilterParameter() {
+        return _datasetCacheKey.filterParameter();
+    }
+
+    /**
+     * Initialize the entry with the complete Change Set and encode it.
+     *
+     * @param changeSet            the complete Change Set of the Dataset.
+     * @param compressionThreshold the encoded size at or above which the payload is also compressed, or 0 if
+     *                             payloads are only compressed when first requested.
+     */
+    void init(@NonNull final ChangeSet changeSet, final int compressionThreshold) {
+        init(changeSet, compressionThreshold, false);
+    }
+
+    /**
+     * Initialize the entry with the complete Change Set and encode it.
+     *
+     * @param changeSet            the complete Change Set of the Dataset.
+     * @param compressionThreshold the encoded size at or above which the payload is also compressed, or 0 if
+     *                             payloads are only compressed when first requested.
+     * @param contentAddressed     true to derive the Dataset Cache Version from the content of the Change Set so that
+     *                             equal content has an equal version on every node, false to generate a random version.
+     */
+    void init(@NonNull final ChangeSet changeSet, final int compressionThreshold, final boolean contentAddressed) {
+        final var datasetCacheVersion =
+                contentAddressed ? ChangeSetDigester.digest(changeSet) : UUID.randomUUID().toString();
+        init(datasetCacheVersion, changeSet, compressionThreshold, contentAddressed);
+    }
+
+    /**
+     * Initialize the entry with content restored from a {@link DatasetCacheStore}.
+     * The entry retains views of the stored content and neither deserializes nor encodes the Change Set.
+     *
+     * @param datasetCacheVersion the Dataset Cache Version of the stored entry.
+     * @param content             the content held by the store, as produced by {@link #toStoredContent(int)}.
+     * @param contentAddressed    true if entries patched from this entry derive their Dataset Cache Version from
+     *                            their content.
+     * @throws IllegalStateException if the content is not supported or is malformed.
+     */
+    void restore(
+            @NonNull final String datasetCacheVersion,
+            @NonNull final ByteBuffer content,
+            final boolean contentAddressed) {
+        readStoredContent(content);
+        _datasetCacheVersion = datasetCacheVersion;
+        _contentAddressed = contentAddressed;
     }
 
-    void init(@NonNull final ChangeSet changeSet) {
-        _datasetCacheVersion = UUID.randomUUID().toString();
+    private void init(
+            @NonNull final String datasetCacheVersion,
+            @NonNull final ChangeSet changeSet,
+            final int compressionThreshold,
+            final boolean contentAddressed) {
+        final var encodedChangeSet = JsonEncoder.encodeChangeSet(null, null, datasetCacheVersion, changeSet);
+        _datasetCacheVersion = datasetCacheVersion;
+        _contentAddressed = contentAddressed;
         _changeSet = Objects.requireNonNull(changeSet);
+        _entityChangeCount = changeSet.getEntityChanges().size();
+        _subscriptionChangeCount = changeSet.getSubscriptionChanges().size();
+        _encodedChangeSetLength = encodedChangeSet.length();
+        _encodedChangeSet = encodedChangeSet;
+        if (compressionThreshold > 0 && encodedChangeSet.length() >= compressionThreshold) {
+            getCompressedChangeSet(null);
+        }
+    }
+
+    /**
+     * Return the content to write to a {@link DatasetCacheStore} for the entry.
+     * The content holds the JSON and binary encodings, any compressed tails, and the serialized Change Set.
+     *
+     * @param compressionThreshold the encoded size at or above which the compressed tail of the binary encoding is
+     *                             also stored, or 0 if it is only compressed when first requested.
+     * @return the content.
+     */
+    @NonNull
+    synchronized byte[] toStoredContent(final int compressionThreshold) {
+        final var encodedChangeSet = Objects.requireNonNull(_encodedChangeSet).getBytes(StandardCharsets.UTF_8);
+        final var binaryEncodedChangeSet = ensureBinaryEncodedChangeSet();
+        if (compressionThreshold > 0 && binaryEncodedChangeSet.length >= compressionThreshold) {
+            getCompressedBinaryChangeSet(null);
+        }
+        final var buffer = new ByteArrayOutputStream(encodedChangeSet.length + binaryEncodedChangeSet.length + 1024);
+        try (var output = new DataOutputStream(buffer)) {
+            output.writeInt(STORED_CONTENT_VERSION);
+            output.writeInt(_entityChangeCount);
+            output.writeInt(_subscriptionChangeCount);
+            output.writeInt(_encodedChangeSetLength);
+            writeSection(output, ByteBuffer.wrap(encodedChangeSet));
+            writeSection(output, _compressedChangeSetTail);
+            writeSection(output, ByteBuffer.wrap(binaryEncodedChangeSet));
+            writeSection(output, _compressedBinaryChangeSetTail);
+            output.write(ChangeSetSerializer.serialize(getChangeSet()));
+        } catch (final IOException ioe) {
+            // The content is written to memory so this should not occur
+            throw new IllegalStateException("Unable to write Dataset Cache Entry", ioe);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Release the Change Set and encodings from the heap once the entry has been written to a
+     * {@link DatasetCacheStore}. This must be invoked before the entry is shared with other threads.
+     *
+     * @param content the content held by the store, as produced by {@link #toStoredContent(int)}.
+     * @throws IllegalStateException if the content is not supported or is malformed.
+     */
+    void release(@NonNull final ByteBuffer content) {
+        assert isInitialized();
+        readStoredContent(content);
+        _changeSet = null;
+        _encodedChangeSet = null;
+        _binaryEncodedChangeSet = null;
+    }
+
+    /**
+     * Retain views of the content held by a {@link DatasetCacheStore} in place of the heap copies of its parts.
+     */
+    private void readStoredContent(@NonNull final ByteBuffer content) {
+        final var input = content.duplicate();
+        try {
+            final var version = input.getInt();
+            if (STORED_CONTENT_VERSION != version) {
+                throw new IllegalStateException("Unsupported Dataset Cache Entry content version " + version);
+            }
+            final var entityChangeCount = input.getInt();
+            final var subscriptionChangeCount = input.getInt();
+            final var encodedChangeSetLength = input.getInt();
+            final var encodedChangeSet = readSection(input);
+            final var compressedChangeSetTail = readSection(input);
+            final var binaryEncodedChangeSet = readSection(input);
+            final var compressedBinaryChangeSetTail = readSection(input);
+            if (null == encodedChangeSet || null == binaryEncodedChangeSet) {
+                throw new IllegalStateException("Dataset Cache Entry content is missing an encoded Change Set");
+            }
+            _serializedChangeSet = input.slice();
+            _entityChangeCount = entityChangeCount;
+            _subscriptionChangeCount = subscriptionChangeCount;
+            _encodedChangeSetLength = encodedChangeSetLength;
+            _storedEncodedChangeSet = encodedChangeSet;
+            _compressedChangeSetTail = compressedChangeSetTail;
+            _storedBinaryEncodedChangeSet = binaryEncodedChangeSet;
+            _compressedBinaryChangeSetTail = compressedBinaryChangeSetTail;
+        } catch (final BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalStateException("Malformed Dataset Cache Entry content", e);
+        }
+    }
+
+    private static void writeSection(@NonNull final DataOutputStream output, @Nullable final ByteBuffer section)
+            throws IOException {
+        if (null == section) {
+            output.writeInt(-1);
+        } else {
+            output.writeInt(section.remaining());
+            output.write(toByteArray(section, section.remaining()));
+        }
+    }
+
+    @Nullable
+    private static ByteBuffer readSection(@NonNull final ByteBuffer input) {
+        final var length = input.getInt();
+        if (-1 == length) {
+            return null;
+        } else {
+            final var section = input.slice(input.position(), length);
+            input.position(input.position() + length);
+            return section;
+        }
+    }
+
+    @NonNull
+    private static byte[] toByteArray(@NonNull final ByteBuffer buffer, final int length) {
+        final var bytes = new byte[length];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Return the size of a buffer if it is held on the heap rather than by a Dataset Cache Store.
+     */
+    private static long heapSize(@Nullable final ByteBuffer buffer) {
+        return null == buffer || buffer.isDirect() ? 0 : buffer.capacity();
+    }
+
+    /**
+     * Create a new entry that merges the Entity Change Candidates into the Change Set of this entry.
+     * A patch is only possible when every candidate is an update that introduces no Subscription Dependency
+     * Candidates beyond those already recorded for the Entity in the Change Set, as other changes may alter the
+     * Subscriptions that the Change Set implies.
+     *
+     * @param entityChangeCandidates the Entity Change Candidates routed to the Dataset Address of this entry.
+     * @param compressionThreshold   the encoded size at or above which the payload is also compressed, or 0 if
+     *                               payloads are only compressed when first requested.
+     * @return the initialized entry, or null if the candidates include a structural change.
+     */
+    @Nullable
+    DatasetCacheEntry patch(
+            @NonNull final Collection<EntityChangeCandidate> entityChangeCandidates, final int compressionThreshold) {
+        final var changeSet = new ChangeSet();
+        changeSet.merge(getChangeSet());
+        final var entityChanges = new HashMap<String, EntityChange>();
+        for (final var entityChange : changeSet.getEntityChanges()) {
+            entityChanges.put(entityChange.getKey(), entityChange);
+        }
+        for (final var entityChangeCandidate : entityChangeCandidates) {
+            if (entityChangeCandidate.isDelete()) {
+                return null;
+            }
+            final var entityChange = new EntityChange(entityChangeCandidate.duplicate(), getDatasetAddress());
+            final var existing = entityChanges.get(entityChange.getKey());
+            final var subscriptionDependencyCandidates = entityChangeCandidate.getSubscriptionDependencyCandidates();
+            if (null != subscriptionDependencyCandidates && !subscriptionDependencyCandidates.isEmpty()) {
+                final var existingSubscriptionDependencyCandidates = null == existing
+                        ? null
+                        : existing.getEntityChangeCandidate().getSubscriptionDependencyCandidates();
+                if (null == existingSubscriptionDependencyCandidates
+                        || !existingSubscriptionDependencyCandidates.containsAll(subscriptionDependencyCandidates)) {
+                    return null;
+                }
+            }
+            if (null == existing) {
+                changeSet.merge(entityChange);
+                entityChanges.put(entityChange.getKey(), entityChange);
+            } else {
+                existing.merge(entityChange);
+            }
+        }
+        final var datasetCacheEntry = new DatasetCacheEntry(_datasetCacheKey);
+        datasetCacheEntry.init(changeSet, compressionThreshold, _contentAddressed);
+        datasetCacheEntry._useCount.set(getUseCount());
+        return datasetCacheEntry;
+    }
+
+    void recordUse() {
+        _useCount.incrementAndGet();
+    }
+
+    int getUseCount() {
+        return _useCount.get();
+    }
+
+    /**
+     * Return an estimate of the heap retained by the entry, derived from the length of the encodings that it holds on
+     * the heap and, unless it has been released, the size of the Entity Changes in its Change Set. Content held by a
+     * Dataset Cache Store is not counted.
+     */
+    synchronized long estimateSize() {
+        var size = (long) ENTRY_SIZE_ESTIMATE;
+        if (null != _encodedChangeSet) {
+            size += 2L * _encodedChangeSet.length();
+        }
+        size += heapSize(_compressedChangeSetTail);
+        if (null != _binaryEncodedChangeSet) {
+            size += _binaryEncodedChangeSet.length;
+        }
+        size += heapSize(_compressedBinaryChangeSetTail);
+        final var changeSet = _changeSet;
+        if (null != changeSet) {
+            for (final var entityChange : changeSet.getEntityChanges()) {
+                size += Packet.estimateSize(entityChange.getEntityChangeCandidate());
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Update the estimated size accounted for the entry, as encodings are produced on first use.
+     *
+     * @return the change in the accounted size, or 0 if the entry has been removed from the Dataset Cache.
+     */
+    synchronized long updateAccountedSize() {
+        if (-1 == _accountedSize) {
+            return 0;
+        } else {
+            final var size = estimateSize();
+            final var delta = size - _accountedSize;
+            _accountedSize = size;
+            return delta;
+        }
+    }
+
+    /**
+     * Mark the entry as removed from the Dataset Cache so that its size is no longer accounted.
+     *
+     * @return the size previously accounted for the entry, or 0 if the entry had already been removed.
+     */
+    synchronized long removeAccountedSize() {
+        final var size = Math.max(0, _accountedSize);
+        _accountedSize = -1;
+        return size;
+    }
+
+    boolean isContentAddressed() {
+        return _contentAddressed;
     }
 
     boolean isInitialized() {
@@ -50,8 +471,181 @@ final class DatasetCacheEntry {
         return Objects.requireNonNull(_datasetCacheVersion);
     }
 
+    /**
+     * Return the Change Set of the entry. The Change Set must not be modified.
+     * A Change Set released to a Dataset Cache Store is deserialized on each invocation.
+     */
     @NonNull
     ChangeSet getChangeSet() {
-        return Objects.requireNonNull(_changeSet);
+        final var changeSet = _changeSet;
+        return null != changeSet
+                ? changeSet
+                : ChangeSetSerializer.deserialize(Objects.requireNonNull(_serializedChangeSet));
+    }
+
+    boolean isReleased() {
+        return null != _serializedChangeSet;
+    }
+
+    int getEntityChangeCount() {
+        return _entityChangeCount;
+    }
+
+    int getSubscriptionChangeCount() {
+        return _subscriptionChangeCount;
+    }
+
+    /**
+     * Return the length of the JSON encoded Change Set excluding any requestId.
+     */
+    int getEncodedChangeSetLength() {
+        return _encodedChangeSetLength;
+    }
+
+    /**
+     * Return the JSON encoded Change Set.
+     * The Change Set of an entry released to a Dataset Cache Store is read from the store on each invocation.
+     *
+     * @param requestId the Subscription request to pair the Change Set with, if any.
+     */
+    @NonNull
+    String getEncodedChangeSet(@Nullable final Integer requestId) {
+        final var encodedChangeSet = null != _encodedChangeSet
+                ? _encodedChangeSet
+                : StandardCharsets.UTF_8
+                        .decode(Objects.requireNonNull(_storedEncodedChangeSet).duplicate())
+                        .toString();
+        return null == requestId ? encodedChangeSet : JsonEncoder.insertRequestId(encodedChangeSet, requestId);
+    }
+
+    /**
+     * Write the JSON encoded Change Set to the writer.
+     * The Change Set of an entry released to a Dataset Cache Store is decoded from the store a chunk at a time rather
+     * than into a String holding the complete Change Set.
+     *
+     * @param requestId the Subscription request to pair the Change Set with, if any.
+     * @param writer    the writer. The writer is not closed.
+     */
+    void writeEncodedChangeSet(@Nullable final Integer requestId, @NonNull final Writer writer) throws IOException {
+        final var offset = JsonEncoder.CHANGE_SET_REQUEST_ID_OFFSET;
+        final var encodedChangeSet = _encodedChangeSet;
+        if (null != encodedChangeSet) {
+            final var head = encodedChangeSet.substring(0, offset);
+            writer.write(null == requestId ? head : JsonEncoder.insertRequestId(head, requestId));
+            writer.write(encodedChangeSet, offset, encodedChangeSet.length() - offset);
+        } else {
+            final var input = Objects.requireNonNull(_storedEncodedChangeSet).duplicate();
+            // The head precedes any non-ASCII content so characters and bytes coincide
+            final var head = new String(toByteArray(input, offset), StandardCharsets.UTF_8);
+            writer.write(null == requestId ? head : JsonEncoder.insertRequestId(head, requestId));
+            input.position(input.position() + offset);
+
+            final var decoder = StandardCharsets.UTF_8.newDecoder();
+            final var chars = CharBuffer.allocate(DECODE_CHUNK_SIZE);
+            CoderResult result;
+            do {
+                result = decoder.decode(input, chars, true);
+                if (result.isError()) {
+                    result.throwException();
+                }
+                writeChars(writer, chars);
+            } while (result.isOverflow());
+            decoder.flush(chars);
+            writeChars(writer, chars);
+        }
+    }
+
+    private static void writeChars(@NonNull final Writer writer, @NonNull final CharBuffer chars) throws IOException {
+        chars.flip();
+        writer.write(chars.array(), 0, chars.limit());
+        chars.clear();
+    }
+
+    /**
+     * Return the JSON encoded Change Set compressed as described by {@link Messages.CompressedChangeSet}.
+     *
+     * @param requestId the Subscription request to pair the Change Set with, if any.
+     */
+    @NonNull
+    synchronized byte[] getCompressedChangeSet(@Nullable final Integer requestId) {
+        final var encodedChangeSet = _encodedChangeSet;
+        final var storedEncodedChangeSet = _storedEncodedChangeSet;
+        if (null == _compressedChangeSetTail) {
+            _compressedChangeSetTail = ByteBuffer.wrap(ChangeSetCompressor.compressTail(
+                    null != encodedChangeSet
+                            ? encodedChangeSet.getBytes(StandardCharsets.UTF_8)
+                            : toByteArray(
+                                    Objects.requireNonNull(storedEncodedChangeSet),
+                                    storedEncodedChangeSet.remaining()),
+                    JsonEncoder.CHANGE_SET_REQUEST_ID_OFFSET));
+        }
+        // The head precedes any non-ASCII content so characters and bytes coincide
+        final var head = null != encodedChangeSet
+                ? encodedChangeSet.substring(0, JsonEncoder.CHANGE_SET_REQUEST_ID_OFFSET)
+                : new String(
+                        toByteArray(
+                                Objects.requireNonNull(storedEncodedChangeSet),
+                                JsonEncoder.CHANGE_SET_REQUEST_ID_OFFSET),
+                        StandardCharsets.UTF_8);
+        return ChangeSetCompressor.compress(
+                Messages.CompressedChangeSet.FORMAT_DEFLATED_JSON,
+                (null == requestId ? head : JsonEncoder.insertRequestId(head, requestId))
+                        .getBytes(StandardCharsets.UTF_8),
+                _compressedChangeSetTail);
+    }
+
+    /**
+     * Return the length of the binary encoded Change Set excluding any requestId.
+     */
+    synchronized int getBinaryEncodedChangeSetLength() {
+        final var storedEncodedChangeSet = _storedBinaryEncodedChangeSet;
+        return null != storedEncodedChangeSet
+                ? storedEncodedChangeSet.remaining()
+                : ensureBinaryEncodedChangeSet().length;
+    }
+
+    /**
+     * Return the binary encoded Change Set. The returned array may be shared and must not be modified.
+     * The Change Set of an entry released to a Dataset Cache Store is read from the store on each invocation.
+     *
+     * @param requestId the Subscription request to pair the Change Set with, if any.
+     */
+    @NonNull
+    synchronized byte[] getBinaryEncodedChangeSet(@Nullable final Integer requestId) {
+        final var storedEncodedChangeSet = _storedBinaryEncodedChangeSet;
+        final var encodedChangeSet = null != storedEncodedChangeSet
+                ? toByteArray(storedEncodedChangeSet, storedEncodedChangeSet.remaining())
+                : ensureBinaryEncodedChangeSet();
+        return null == requestId ? encodedChangeSet : BinaryEncoder.insertRequestId(encodedChangeSet, requestId);
+    }
+
+    /**
+     * Return the binary encoded Change Set compressed as described by {@link Messages.CompressedChangeSet}.
+     *
+     * @param requestId the Subscription request to pair the Change Set with, if any.
+     */
+    @NonNull
+    synchronized byte[] getCompressedBinaryChangeSet(@Nullable final Integer requestId) {
+        if (null == _compressedBinaryChangeSetTail) {
+            _compressedBinaryChangeSetTail = ByteBuffer.wrap(ChangeSetCompressor.compressTail(
+                    getBinaryEncodedChangeSet(null), BinaryEncoder.CHANGE_SET_REQUEST_ID_OFFSET));
+        }
+        final var storedEncodedChangeSet = _storedBinaryEncodedChangeSet;
+        final var head = null != storedEncodedChangeSet
+                ? toByteArray(storedEncodedChangeSet, BinaryEncoder.CHANGE_SET_REQUEST_ID_OFFSET)
+                : Arrays.copyOf(ensureBinaryEncodedChangeSet(), BinaryEncoder.CHANGE_SET_REQUEST_ID_OFFSET);
+        return ChangeSetCompressor.compress(
+                Messages.CompressedChangeSet.FORMAT_DEFLATED_BINARY,
+                null == requestId ? head : BinaryEncoder.insertRequestId(head, requestId),
+                _compressedBinaryChangeSetTail);
+    }
+
+    @NonNull
+    private byte[] ensureBinaryEncodedChangeSet() {
+        if (null == _binaryEncodedChangeSet) {
+            _binaryEncodedChangeSet =
+                    BinaryEncoder.encodeChangeSet(null, null, getDatasetCacheVersion(), getChangeSet());
+        }
+        return _binaryEncodedChangeSet;
     }
 }
@@ -0,0 +1,35 @@
+package replicant.server.transport;
+
+import java.util.Objects;
+import javax.json.JsonObject;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import replicant.server.DatasetAddress;
+import replicant.server.FilterParameterUtil;
+
+/**
+ * The identity of a Dataset Cache Entry.
+ *
+ * <p>A Parameter-Filtered Dataset has a separate Dataset Cache Entry for each distinct Filter Parameter. The Filter
+ * Parameter is held in canonical form so that subscribers supplying equivalent Filter Parameters share an entry.</p>
+ *
+ * @param datasetAddress  the Dataset Address.
+ * @param filterParameter the canonical Filter Parameter, or null for an Unfiltered Dataset.
+ */
+public record DatasetCacheKey(@NonNull DatasetAddress datasetAddress, @Nullable JsonObject filterParameter) {
+    @NonNull
+    public static DatasetCacheKey of(@NonNull final DatasetAddress datasetAddress) {
+        return of(datasetAddress, null);
+    }
+
+    @NonNull
+    public static DatasetCacheKey of(
+            @NonNull final DatasetAddress datasetAddress, @Nullable final JsonObject filterParameter) {
+        return new DatasetCacheKey(datasetAddress, filterParameter);
+    }
+
+    public DatasetCacheKey {
+        Objects.requireNonNull(datasetAddress);
+        filterParameter = null == filterParameter ? null : FilterParameterUtil.canonicalize(filterParameter);
+    }
+}
@@ -0,0 +1,18 @@
+package replicant.server.transport;
+
+import java.util.Collection;
+import org.jspecify.annotations.NonNull;
+
+/**
+ * Collects invalidated Dataset Cache Entries in the background so that subscribers find a current entry rather than
+ * collecting it while holding their session lock.
+ */
+public interface DatasetCacheRefresher {
+    /**
+     * Schedule the Dataset Cache Entries to be collected once the current transaction completes and the entries have
+     * not been invalidated again for the refresh delay.
+     *
+     * @param datasetCacheKeys the keys of the invalidated Dataset Cache Entries.
+     */
+    void refreshDatasetCacheEntries(@NonNull Collection<DatasetCacheKey> datasetCacheKeys);
+}
@@ -0,0 +1,227 @@
+package replicant.server.transport;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Observes;
+import javax.enterprise.inject.Typed;
+import javax.inject.Inject;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import org.jetbrains.annotations.VisibleForTesting;
+import org.jspecify.annotations.NonNull;
+import replicant.server.DatasetAddress;
+import replicant.server.runtime.ReplicantSystem;
+
+/**
+ * Refreshes invalidated Dataset Cache Entries on a background executor.
+ *
+ * <p>Each invalidation delays the refresh of the entry by the refresh delay so that a burst of Entity Changes results
+ * in a single collection. The entry is collected through the session manager so that it is collected in a separate
+ * transaction and under the same per-entry lock as a subscriber, and a subscriber that arrives first leaves nothing to
+ * refresh. The Dataset Cache Entries named by the warm-up list are collected when the application starts.</p>
+ */
+@ApplicationScoped
+@Typed(DatasetCacheRefresher.class)
+public class DatasetCacheRefresherImpl implements DatasetCacheRefresher {
+    @NonNull
+    private static final Logger LOG = Logger.getLogger(DatasetCacheRefresherImpl.class.getName());
+
+    /**
+     * The Dataset Cache Keys awaiting a refresh and the {@link System#nanoTime()} at which each becomes due.
+     */
+    @NonNull
+    private final ConcurrentHashMap<DatasetCacheKey, Long> _pendingDatasetCacheKeys = new ConcurrentHashMap<>();
+
+    @NonNull
+    private final AtomicBoolean _refreshScheduled = new AtomicBoolean();
+
+    @VisibleForTesting
+    @Inject
+    ReplicantSessionManager _sessionManager;
+
+    @VisibleForTesting
+    @Inject
+    @ReplicantSystem
+    TransactionSynchronizationRegistry _registry;
+
+    @Inject
+    @ReplicantSystem("ScheduledExecutorService")
+    private ScheduledExecutorService _scheduledExecutorService;
+
+    @Inject
+    @ReplicantSystem("ExecutorService")
+    private ExecutorService _executorService;
+
+    /**
+     * The time that must elapse after the last invalidation of a Dataset Cache Entry before it is refreshed.
+     * Invalidated entries are not refreshed when this is null or not positive.
+     */
+    @Inject
+    @ReplicantSystem("cache/refreshDelayMs")
+    private Integer _refreshDelayMs;
+
+    /**
+     * A comma separated list of the Dataset Addresses of Unfiltered Cacheable Datasets whose Dataset Cache Entries
+     * are collected when the application starts. No entries are collected when this is null or empty.
+     */
+    @Inject
+    @ReplicantSystem("cache/warmUpDatasetAddresses")
+    private String _warmUpDatasetAddresses;
+
+    private volatile boolean _stopping;
+
+    void onStartup(@Observes @Initialized(ApplicationScoped.class) final Object event) {
+        final var datasetCacheKeys = parseWarmUpDatasetAddresses(_warmUpDatasetAddresses);
+        if (!datasetCacheKeys.isEmpty()) {
+            if (LOG.isLoggable(Level.INFO)) {
+                LOG.log(Level.INFO, "event=datasetCache.warmUp datasetCacheEntryCount=" + datasetCacheKeys.size());
+            }
+            queueDatasetCacheKeys(datasetCacheKeys, 0);
+        }
+    }
+
+    @PreDestroy
+    void preDestroy() {
+        _stopping = true;
+    }
+
+    @Override
+    public void refreshDatasetCacheEntries(@NonNull final Collection<DatasetCacheKey> datasetCacheKeys) {
+        if (isRefreshEnabled() && !datasetCacheKeys.isEmpty()) {
+            final var refreshDelayMs = _refreshDelayMs;
+            final var keys = List.copyOf(datasetCacheKeys);
+            if (Status.STATUS_ACTIVE == _registry.getTransactionStatus()) {
+                // A refresh that started before the invalidating transaction commits could collect stale content
+                _registry.registerInterposedSynchronization(new Synchronization() {
+                    @Override
+                    public void beforeCompletion() {}
+
+                    @Override
+                    public void afterCompletion(final int status) {
+                        queueDatasetCacheKeys(keys, refreshDelayMs);
+                    }
+                });
+            } else {
+                queueDatasetCacheKeys(keys, refreshDelayMs);
+            }
+        }
+    }
+
+    private boolean isRefreshEnabled() {
+        return null != _refreshDelayMs && _refreshDelayMs > 0;
+    }
+
+    private void queueDatasetCacheKeys(
+            @NonNull final Collection<DatasetCacheKey> datasetCacheKeys, final long delayMs) {
+        final var due = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs);
+        for (final var datasetCacheKey : datasetCacheKeys) {
+            // A later invalidation replaces the due time and so defers the refresh
+            _pendingDatasetCacheKeys.put(datasetCacheKey, due);
+        }
+        scheduleRefreshIfRequired(delayMs);
+    }
+
+    private void scheduleRefreshIfRequired(final long delayMs) {
+        if (!_stopping && _refreshScheduled.compareAndSet(false, true)) {
+            try {
+                scheduleRefreshTask(this::refreshDueDatasetCacheEntries, delayMs);
+            } catch (final RuntimeException e) {
+                _refreshScheduled.set(false);
+                if (LOG.isLoggable(Level.SEVERE)) {
+                    LOG.log(
+                            Level.SEVERE,
+                            "event=datasetCache.refresh.schedule.failed pendingCount="
+                                    + _pendingDatasetCacheKeys.size(),
+                            e);
+                }
+            }
+        }
+    }
+
+    private void refreshDueDatasetCacheEntries() {
+        _refreshScheduled.set(false);
+        final var start = System.nanoTime();
+        var refreshedCount = 0;
+        var failedCount = 0;
+        for (final var entry : _pendingDatasetCacheKeys.entrySet()) {
+            if (_stopping) {
+                return;
+            }
+            final var datasetCacheKey = entry.getKey();
+            final long due = entry.getValue();
+            if (start - due >= 0 && _pendingDatasetCacheKeys.remove(datasetCacheKey, due)) {
+                try {
+                    if (_sessionManager.warmDatasetCacheEntry(datasetCacheKey)) {
+                        refreshedCount++;
+                    }
+                } catch (final Throwable t) {
+                    failedCount++;
+                    LOG.log(Level.WARNING, t, () -> "Error refreshing Dataset Cache Entry " + datasetCacheKey);
+                }
+            }
+        }
+        if (LOG.isLoggable(Level.FINE)) {
+            final var durationMs = (System.nanoTime() - start) / 1000000L;
+            LOG.log(
+                    Level.FINE,
+                    "event=datasetCache.refresh.run durationMs=" + durationMs + " refreshedCount="
+                            + refreshedCount + " failedCount="
+                            + failedCount + " pendingCount="
+                            + _pendingDatasetCacheKeys.size());
+        }
+        final var now = System.nanoTime();
+        var nextDue = Long.MAX_VALUE;
+        for (final long due : _pendingDatasetCacheKeys.values()) {
+            nextDue = Math.min(nextDue, Math.max(0L, due - now));
+        }
+        if (Long.MAX_VALUE != nextDue) {
+            scheduleRefreshIfRequired(Math.max(1L, TimeUnit.NANOSECONDS.toMillis(nextDue)));
+        }
+    }
+
+    @NonNull
+    static List<DatasetCacheKey> parseWarmUpDatasetAddresses(final String warmUpDatasetAddresses) {
+        final var datasetCacheKeys = new ArrayList<DatasetCacheKey>();
+        if (null != warmUpDatasetAddresses) {
+            for (final var descriptor : warmUpDatasetAddresses.split(",")) {
+                final var datasetAddressDescriptor = descriptor.trim();
+                if (!datasetAddressDescriptor.isEmpty()) {
+                    datasetCacheKeys.add(DatasetCacheKey.of(DatasetAddress.parse(datasetAddressDescriptor)));
+                }
+            }
+        }
+        return datasetCacheKeys;
+    }
+
+    @VisibleForTesting
+    void scheduleRefreshTask(@NonNull final Runnable task, final long delayMs) {
+        _scheduledExecutorService.schedule(() -> _executorService.execute(task), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    @VisibleForTesting
+    int getPendingDatasetCacheKeyCount() {
+        return _pendingDatasetCacheKeys.size();
+    }
+
+    @VisibleForTesting
+    void setRefreshDelayMs(final int refreshDelayMs) {
+        _refreshDelayMs = refreshDelayMs;
+    }
+
+    @VisibleForTesting
+    void setWarmUpDatasetAddresses(final String warmUpDatasetAddresses) {
+        _warmUpDatasetAddresses = warmUpDatasetAddresses;
+    }
+}
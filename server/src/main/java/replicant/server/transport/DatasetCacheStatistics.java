@@ -0,0 +1,13 @@
+package replicant.server.transport;
+
+/**
+ * A snapshot of the counters of the Dataset Cache, used to size the Dataset Cache against the heap.
+ *
+ * @param hitCount       the number of requests for a Dataset Cache Entry that found an initialized entry in memory.
+ * @param missCount      the number of requests for a Dataset Cache Entry that restored or collected the entry.
+ * @param evictionCount  the number of Dataset Cache Entries evicted to keep the Dataset Cache within its budget.
+ * @param entryCount     the number of Dataset Cache Entries in memory.
+ * @param estimatedBytes the estimated heap retained by the Dataset Cache Entries in memory.
+ */
+public record DatasetCacheStatistics(
+        long hitCount, long missCount, long evictionCount, int entryCount, long estimatedBytes) {}
@@ -0,0 +1,77 @@
+package replicant.server.transport;
+
+import java.nio.ByteBuffer;
+import java.util.function.Predicate;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Holds the content of Dataset Cache Entries outside the heap so that a restarted server can restore
+ * its Dataset Cache Entries without collecting them again.
+ *
+ * <p>The session manager stores each Dataset Cache Entry when it is collected or patched, and removes it whenever the
+ * in-memory entry is invalidated, so the store never holds content that the session manager would not reuse. The
+ * default implementation keeps the content in memory-mapped segment files. An application may supply another
+ * implementation as an alternative bean.</p>
+ */
+public interface DatasetCacheStore {
+    /**
+     * The content stored for a Dataset Cache Key.
+     *
+     * @param datasetCacheVersion the Dataset Cache Version of the stored entry.
+     * @param content             a read-only view of the content of the stored entry.
+     */
+    record Entry(@NonNull String datasetCacheVersion, @NonNull ByteBuffer content) {}
+
+    /**
+     * Return true if the store retains content. The session manager does not produce content for a store that
+     * is not enabled.
+     *
+     * @return true if the store retains content.
+     */
+    boolean isEnabled();
+
+    /**
+     * Return the content stored for the Dataset Cache Key.
+     * The returned buffer must remain readable while it is referenced, even after the content is removed.
+     *
+     * @param datasetCacheKey the Dataset Cache Key.
+     * @return the stored content, or null if the store holds no content for the key.
+     */
+    @Nullable
+    Entry load(@NonNull DatasetCacheKey datasetCacheKey);
+
+    /**
+     * Store the content of a Dataset Cache Entry, replacing any content previously stored for the Dataset Cache Key.
+     * The returned buffer must remain readable while it is referenced, even after the content is removed.
+     *
+     * @param datasetCacheKey     the Dataset Cache Key.
+     * @param datasetCacheVersion the Dataset Cache Version of the entry.
+     * @param content             the content of the entry, as produced by the entry.
+     * @return a read-only view of the stored content, or null if the content could not be stored.
+     */
+    @Nullable
+    ByteBuffer store(
+            @NonNull DatasetCacheKey datasetCacheKey,
+            @NonNull String datasetCacheVersion,
+            @NonNull byte[] content);
+
+    /**
+     * Remove any content stored for the Dataset Cache Key.
+     *
+     * @param datasetCacheKey the Dataset Cache Key.
+     */
+    void remove(@NonNull DatasetCacheKey datasetCacheKey);
+
+    /**
+     * Remove the content stored for every Dataset Cache Key that matches the predicate.
+     *
+     * @param predicate the predicate that selects the Dataset Cache Keys to remove.
+     */
+    void removeIf(@NonNull Predicate<DatasetCacheKey> predicate);
+
+    /**
+     * Remove all stored content.
+     */
+    void clear();
+}
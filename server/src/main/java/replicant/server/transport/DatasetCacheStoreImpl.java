@@ -0,0 +1,608 @@
+package replicant.server.transport;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Typed;
+import javax.inject.Inject;
+import javax.json.Json;
+import javax.json.JsonException;
+import org.jetbrains.annotations.VisibleForTesting;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import replicant.server.DatasetAddress;
+import replicant.server.runtime.ReplicantSystem;
+
+/**
+ * A Dataset Cache Store that keeps the content of Dataset Cache Entries in memory-mapped segment files.
+ *
+ * <p>Records are appended to the newest segment and a new segment is started once it is full. Each record holds
+ * either the content of a Dataset Cache Entry or the removal of the content for a Dataset Cache Key, and is guarded
+ * by a checksum so that a record torn by a crash ends the segment rather than being restored. The index of live
+ * content is held on the heap and rebuilt from the segments when the store is opened, while the content itself is
+ * read through the mapping and so is paged in and out by the operating system rather than held on the heap.</p>
+ *
+ * <p>Segments are deleted oldest first so that a removal record is never deleted while the content that it removes
+ * remains. When less than half of the stored bytes are live, the live content of the oldest segment is copied to the
+ * newest segment so that the oldest segment can be deleted. Buffers returned by the store remain readable after the
+ * segment is deleted as the mapping is released only when the buffer is no longer referenced.</p>
+ *
+ * <p>The store is disabled unless a directory is configured. The directory must be dedicated to a single server as
+ * the store assumes that it is the only writer.</p>
+ */
+@ApplicationScoped
+@Typed(DatasetCacheStore.class)
+public class DatasetCacheStoreImpl implements DatasetCacheStore {
+    @NonNull
+    private static final Logger LOG = Logger.getLogger(DatasetCacheStoreImpl.class.getName());
+
+    static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    // The magic number and version of the segment format, "RDC" followed by the version
+    private static final int SEGMENT_MAGIC = 0x52444301;
+    private static final int SEGMENT_HEADER_SIZE = 4;
+    // The length and checksum of the record body
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final byte RECORD_ENTRY = 1;
+    private static final byte RECORD_REMOVAL = 2;
+    @NonNull
+    private static final String SEGMENT_FILE_PREFIX = "segment-";
+    @NonNull
+    private static final String SEGMENT_FILE_SUFFIX = ".dat";
+
+    /**
+     * The location of the live content of each Dataset Cache Key.
+     */
+    @NonNull
+    private final Map<DatasetCacheKey, Location> _index = new HashMap<>();
+
+    /**
+     * The segments ordered from oldest to newest. Records are appended to the newest segment.
+     */
+    @NonNull
+    private final TreeMap<Long, Segment> _segments = new TreeMap<>();
+
+    /**
+     * The directory containing the segments, or null if the store is not enabled.
+     */
+    @Nullable
+    private volatile Path _directory;
+
+    private int _segmentSize = DEFAULT_SEGMENT_SIZE;
+
+    private long _nextSegmentId = 1;
+
+    /**
+     * The bytes occupied by records in all segments.
+     */
+    private long _usedBytes;
+
+    /**
+     * The bytes occupied by the records of live content.
+     */
+    private long _liveBytes;
+
+    /**
+     * The directory in which the store keeps its segments. The store is disabled when this is null or empty.
+     */
+    @Inject
+    @ReplicantSystem("cache/storeDirectory")
+    private String _storeDirectory;
+
+    /**
+     * The size of each segment in bytes. A content record larger than a segment is written to a segment of its own.
+     * The default size is used when this is null or not positive.
+     */
+    @Inject
+    @ReplicantSystem("cache/storeSegmentSize")
+    private Integer _storeSegmentSize;
+
+    @PostConstruct
+    void postConstruct() {
+        if (null != _storeDirectory && !_storeDirectory.isBlank()) {
+            final var segmentSize =
+                    null == _storeSegmentSize || _storeSegmentSize <= 0 ? DEFAULT_SEGMENT_SIZE : _storeSegmentSize;
+            try {
+                open(Path.of(_storeDirectory), segmentSize);
+            } catch (final IOException ioe) {
+                if (LOG.isLoggable(Level.WARNING)) {
+                    LOG.log(
+                            Level.WARNING,
+                            "event=datasetCache.store.open.fail directory=" + _storeDirectory + " error=" + ioe,
+                            ioe);
+                }
+                close();
+            }
+        }
+    }
+
+    @PreDestroy
+    void preDestroy() {
+        close();
+    }
+
+    /**
+     * Open the store in the directory and restore the index from any segments that it contains.
+     */
+    @VisibleForTesting
+    synchronized void open(@NonNull final Path directory, final int segmentSize) throws IOException {
+        assert null == _directory;
+        Files.createDirectories(directory);
+        _segmentSize = segmentSize;
+        try (var paths = Files.newDirectoryStream(directory, SEGMENT_FILE_PREFIX + "*" + SEGMENT_FILE_SUFFIX)) {
+            for (final var path : paths) {
+                final var segment = openSegment(path);
+                if (null != segment) {
+                    _segments.put(segment._id, segment);
+                    _nextSegmentId = Math.max(_nextSegmentId, segment._id + 1);
+                }
+            }
+        }
+        for (final var segment : _segments.values()) {
+            scan(segment);
+        }
+        _directory = directory;
+        reclaimSegments();
+        if (LOG.isLoggable(Level.INFO)) {
+            LOG.log(
+                    Level.INFO,
+                    "event=datasetCache.store.open directory=" + directory + " entryCount=" + _index.size()
+                            + " segmentCount=" + _segments.size() + " usedBytes=" + _usedBytes + " liveBytes="
+                            + _liveBytes);
+        }
+    }
+
+    /**
+     * Close the store. The segments remain in the directory so that they can be restored when the store is opened.
+     */
+    @VisibleForTesting
+    synchronized void close() {
+        for (final var segment : _segments.values()) {
+            segment._buffer.force();
+        }
+        _segments.clear();
+        _index.clear();
+        _usedBytes = 0;
+        _liveBytes = 0;
+        _directory = null;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return null != _directory;
+    }
+
+    @Nullable
+    @Override
+    public synchronized Entry load(@NonNull final DatasetCacheKey datasetCacheKey) {
+        final var location = _index.get(datasetCacheKey);
+        return null == location ? null : new Entry(location.datasetCacheVersion(), location.content());
+    }
+
+    @Nullable
+    @Override
+    public synchronized ByteBuffer store(
+            @NonNull final DatasetCacheKey datasetCacheKey,
+            @NonNull final String datasetCacheVersion,
+            @NonNull final byte[] content) {
+        if (isEnabled()) {
+            try {
+                final var location = append(datasetCacheKey, datasetCacheVersion, content);
+                reclaimSegments();
+                return location.content();
+            } catch (final IOException ioe) {
+                fail(ioe);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized void remove(@NonNull final DatasetCacheKey datasetCacheKey) {
+        if (isEnabled() && _index.containsKey(datasetCacheKey)) {
+            try {
+                appendRemoval(datasetCacheKey);
+                reclaimSegments();
+            } catch (final IOException ioe) {
+                fail(ioe);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void removeIf(@NonNull final Predicate<DatasetCacheKey> predicate) {
+        if (isEnabled()) {
+            try {
+                for (final var datasetCacheKey : new ArrayList<>(_index.keySet())) {
+                    if (predicate.test(datasetCacheKey)) {
+                        appendRemoval(datasetCacheKey);
+                    }
+                }
+                reclaimSegments();
+            } catch (final IOException ioe) {
+                fail(ioe);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        if (isEnabled()) {
+            for (final var segment : new ArrayList<>(_segments.values())) {
+                deleteSegment(segment);
+            }
+            _index.clear();
+            _liveBytes = 0;
+        }
+    }
+
+    @VisibleForTesting
+    synchronized int getSegmentCount() {
+        return _segments.size();
+    }
+
+    @NonNull
+    private Location append(
+            @NonNull final DatasetCacheKey datasetCacheKey,
+            @NonNull final String datasetCacheVersion,
+            @NonNull final byte[] content)
+            throws IOException {
+        final var buffer = new ByteArrayOutputStream(content.length + 64);
+        try (var output = new DataOutputStream(buffer)) {
+            output.writeByte(RECORD_ENTRY);
+            writeDatasetCacheKey(output, datasetCacheKey);
+            writeString(output, datasetCacheVersion);
+            output.writeInt(content.length);
+            output.write(content);
+        }
+        final var body = buffer.toByteArray();
+        final var segment = appendRecord(body);
+        final var bodyOffset = segment._position - body.length;
+        final var location = new Location(
+                segment,
+                RECORD_HEADER_SIZE + body.length,
+                datasetCacheVersion,
+                segment._buffer
+                        .slice(bodyOffset + body.length - content.length, content.length)
+                        .asReadOnlyBuffer());
+        putLocation(datasetCacheKey, location);
+        return location;
+    }
+
+    private void appendRemoval(@NonNull final DatasetCacheKey datasetCacheKey) throws IOException {
+        final var buffer = new ByteArrayOutputStream();
+        try (var output = new DataOutputStream(buffer)) {
+            output.writeByte(RECORD_REMOVAL);
+            writeDatasetCacheKey(output, datasetCacheKey);
+        }
+        appendRecord(buffer.toByteArray());
+        removeLocation(datasetCacheKey);
+    }
+
+    /**
+     * Append a record to the newest segment, starting a new segment if the record does not fit.
+     *
+     * @return the segment that the record was appended to.
+     */
+    @NonNull
+    private Segment appendRecord(@NonNull final byte[] body) throws IOException {
+        final var recordSize = RECORD_HEADER_SIZE + body.length;
+        var segment = _segments.isEmpty() ? null : _segments.lastEntry().getValue();
+        // Records are never appended to a restored segment as it may end with a record torn by a crash
+        if (null == segment || !segment._writable || segment._buffer.capacity() - segment._position < recordSize) {
+            if (null != segment && segment._writable) {
+                segment._buffer.force();
+            }
+            segment = createSegment(Math.max(_segmentSize, SEGMENT_HEADER_SIZE + recordSize));
+        }
+        final var position = segment._position;
+        final var checksum = new CRC32C();
+        checksum.update(body);
+        segment._buffer.putInt(position + 4, (int) checksum.getValue());
+        segment._buffer.put(position + RECORD_HEADER_SIZE, body);
+        // The length is written last so that a partially written record is not read
+        segment._buffer.putInt(position, body.length);
+        segment._position += recordSize;
+        _usedBytes += recordSize;
+        return segment;
+    }
+
+    /**
+     * Read the records of a segment into the index, stopping at the first incomplete or corrupt record.
+     */
+    private void scan(@NonNull final Segment segment) {
+        final var buffer = segment._buffer;
+        var position = SEGMENT_HEADER_SIZE;
+        while (buffer.capacity() - position >= RECORD_HEADER_SIZE) {
+            final var length = buffer.getInt(position);
+            if (length <= 0 || length > buffer.capacity() - position - RECORD_HEADER_SIZE) {
+                break;
+            }
+            final var body = buffer.slice(position + RECORD_HEADER_SIZE, length);
+            final var checksum = new CRC32C();
+            checksum.update(body.duplicate());
+            if (buffer.getInt(position + 4) != (int) checksum.getValue()) {
+                if (LOG.isLoggable(Level.WARNING)) {
+                    LOG.log(
+                            Level.WARNING,
+                            "event=datasetCache.store.scan.corrupt segment=" + segment._path + " position="
+                                    + position);
+                }
+                break;
+            }
+            try {
+                restore(segment, body);
+            } catch (final BufferUnderflowException
+                    | IllegalArgumentException
+                    | IllegalStateException
+                    | JsonException e) {
+                if (LOG.isLoggable(Level.WARNING)) {
+                    LOG.log(
+                            Level.WARNING,
+                            "event=datasetCache.store.scan.invalid segment=" + segment._path + " position="
+                                    + position + " error=" + e);
+                }
+                break;
+            }
+            position += RECORD_HEADER_SIZE + length;
+        }
+        segment._position = position;
+        _usedBytes += position - SEGMENT_HEADER_SIZE;
+    }
+
+    private void restore(@NonNull final Segment segment, @NonNull final ByteBuffer body) {
+        final var kind = body.get();
+        final var datasetCacheKey = readDatasetCacheKey(body);
+        if (RECORD_ENTRY == kind) {
+            final var datasetCacheVersion = readString(body);
+            final var length = body.getInt();
+            if (length < 0 || length != body.remaining()) {
+                throw new IllegalStateException("Invalid content length " + length);
+            }
+            putLocation(
+                    datasetCacheKey,
+                    new Location(
+                            segment,
+                            RECORD_HEADER_SIZE + body.capacity(),
+                            datasetCacheVersion,
+                            body.slice().asReadOnlyBuffer()));
+        } else if (RECORD_REMOVAL == kind) {
+            removeLocation(datasetCacheKey);
+        } else {
+            throw new IllegalStateException("Unknown record kind " + kind);
+        }
+    }
+
+    private void putLocation(@NonNull final DatasetCacheKey datasetCacheKey, @NonNull final Location location) {
+        final var previous = _index.put(datasetCacheKey, location);
+        if (null != previous) {
+            releaseLocation(previous);
+        }
+        location.segment()._liveEntryCount++;
+        _liveBytes += location.recordSize();
+    }
+
+    private void removeLocation(@NonNull final DatasetCacheKey datasetCacheKey) {
+        final var previous = _index.remove(datasetCacheKey);
+        if (null != previous) {
+            releaseLocation(previous);
+        }
+    }
+
+    private void releaseLocation(@NonNull final Location location) {
+        location.segment()._liveEntryCount--;
+        _liveBytes -= location.recordSize();
+    }
+
+    /**
+     * Delete the oldest segments while they hold no live content, copying the live content of the oldest segment to
+     * the newest segment while less than half of the stored bytes are live.
+     */
+    private void reclaimSegments() throws IOException {
+        while (_segments.size() > 1) {
+            final var oldest = _segments.firstEntry().getValue();
+            if (0 != oldest._liveEntryCount) {
+                if (_usedBytes <= 2 * _liveBytes) {
+                    break;
+                }
+                for (final var entry : new ArrayList<>(_index.entrySet())) {
+                    final var location = entry.getValue();
+                    if (oldest == location.segment()) {
+                        final var content = new byte[location.content().remaining()];
+                        location.content().duplicate().get(content);
+                        append(entry.getKey(), location.datasetCacheVersion(), content);
+                    }
+                }
+                assert 0 == oldest._liveEntryCount;
+            }
+            deleteSegment(oldest);
+        }
+    }
+
+    @NonNull
+    private Segment createSegment(final int capacity) throws IOException {
+        final var id = _nextSegmentId++;
+        final var path = getSegmentPath(Objects.requireNonNull(_directory), id);
+        final MappedByteBuffer buffer;
+        try (var channel = FileChannel.open(
+                path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+        buffer.putInt(0, SEGMENT_MAGIC);
+        final var segment = new Segment(id, path, buffer);
+        segment._position = SEGMENT_HEADER_SIZE;
+        segment._writable = true;
+        _segments.put(id, segment);
+        return segment;
+    }
+
+    @Nullable
+    private Segment openSegment(@NonNull final Path path) throws IOException {
+        final var fileName = path.getFileName().toString();
+        final long id;
+        try {
+            id = Long.parseLong(fileName.substring(
+                    SEGMENT_FILE_PREFIX.length(), fileName.length() - SEGMENT_FILE_SUFFIX.length()));
+        } catch (final NumberFormatException nfe) {
+            return null;
+        }
+        final MappedByteBuffer buffer;
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final var size = channel.size();
+            if (size < SEGMENT_HEADER_SIZE || size > Integer.MAX_VALUE) {
+                buffer = null;
+            } else {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            }
+        }
+        if (null == buffer || SEGMENT_MAGIC != buffer.getInt(0)) {
+            // A segment written by an incompatible version, or deleted while mapped, is discarded
+            if (LOG.isLoggable(Level.WARNING)) {
+                LOG.log(Level.WARNING, "event=datasetCache.store.segment.discard segment=" + path);
+            }
+            Files.deleteIfExists(path);
+            return null;
+        } else {
+            return new Segment(id, path, buffer);
+        }
+    }
+
+    private void deleteSegment(@NonNull final Segment segment) {
+        _segments.remove(segment._id);
+        _usedBytes -= segment._position - SEGMENT_HEADER_SIZE;
+        // Invalidate the segment first in case the file can not be deleted while it is mapped
+        segment._buffer.putInt(0, 0);
+        try {
+            Files.deleteIfExists(segment._path);
+        } catch (final IOException ioe) {
+            if (LOG.isLoggable(Level.WARNING)) {
+                LOG.log(
+                        Level.WARNING,
+                        "event=datasetCache.store.segment.delete.fail segment=" + segment._path + " error=" + ioe);
+            }
+        }
+    }
+
+    /**
+     * Disable the store after a failed write. The segments are deleted as the store may no longer hold the removal
+     * of content that must not be restored.
+     */
+    private void fail(@NonNull final IOException ioe) {
+        if (LOG.isLoggable(Level.WARNING)) {
+            LOG.log(Level.WARNING, "event=datasetCache.store.fail directory=" + _directory + " error=" + ioe, ioe);
+        }
+        clear();
+        close();
+    }
+
+    @NonNull
+    private static Path getSegmentPath(@NonNull final Path directory, final long id) {
+        return directory.resolve(SEGMENT_FILE_PREFIX + String.format("%016d", id) + SEGMENT_FILE_SUFFIX);
+    }
+
+    private static void writeDatasetCacheKey(
+            @NonNull final DataOutputStream output, @NonNull final DatasetCacheKey datasetCacheKey)
+            throws IOException {
+        writeString(output, datasetCacheKey.datasetAddress().toString());
+        final var filterParameter = datasetCacheKey.filterParameter();
+        output.writeBoolean(null != filterParameter);
+        if (null != filterParameter) {
+            writeString(output, filterParameter.toString());
+        }
+    }
+
+    @NonNull
+    private static DatasetCacheKey readDatasetCacheKey(@NonNull final ByteBuffer input) {
+        final var datasetAddress = DatasetAddress.parse(readString(input));
+        if (0 == input.get()) {
+            return DatasetCacheKey.of(datasetAddress);
+        } else {
+            try (var reader = Json.createReader(new StringReader(readString(input)))) {
+                return DatasetCacheKey.of(datasetAddress, reader.readObject());
+            }
+        }
+    }
+
+    private static void writeString(@NonNull final DataOutputStream output, @NonNull final String value)
+            throws IOException {
+        final var bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    @NonNull
+    private static String readString(@NonNull final ByteBuffer input) {
+        final var length = input.getInt();
+        if (length < 0 || length > input.remaining()) {
+            throw new IllegalStateException("Invalid string length " + length);
+        }
+        final var bytes = new byte[length];
+        input.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The location of the live content of a Dataset Cache Key.
+     *
+     * @param segment             the segment containing the content record.
+     * @param recordSize          the size of the content record including its header.
+     * @param datasetCacheVersion the Dataset Cache Version of the content.
+     * @param content             a read-only view of the content within the segment.
+     */
+    private record Location(
+            @NonNull Segment segment,
+            int recordSize,
+            @NonNull String datasetCacheVersion,
+            @NonNull ByteBuffer content) {}
+
+    private static final class Segment {
+        private final long _id;
+
+        @NonNull
+        private final Path _path;
+
+        @NonNull
+        private final MappedByteBuffer _buffer;
+
+        /**
+         * The offset at which the next record is appended.
+         */
+        private int _position;
+
+        /**
+         * The number of records in the segment that hold live content.
+         */
+        private int _liveEntryCount;
+
+        /**
+         * True if the segment was created by this store rather than restored, and so may be appended to.
+         */
+        private boolean _writable;
+
+        Segment(final long id, @NonNull final Path path, @NonNull final MappedByteBuffer buffer) {
+            _id = id;
+            _path = path;
+            _buffer = buffer;
+        }
+    }
+}
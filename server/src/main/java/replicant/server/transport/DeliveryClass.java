@@ -0,0 +1,22 @@
+package replicant.server.transport;
+
+/**
+ * The class of a packet that determines how urgently the broker delivers it.
+ * The broker serves sessions with more urgent pending packets first. The packets of a session are always delivered
+ * in the order the session holds them, so the class of a session is the most urgent class of its pending packets.
+ * The constants are declared from the most urgent to the least urgent.
+ */
+public enum DeliveryClass {
+    /**
+     * A packet that completes a request or carries the result of a command, which the requesting client waits on.
+     */
+    REQUEST,
+    /**
+     * A packet that changes the Subscriptions of the session or delivers a Dataset Cache Entry.
+     */
+    SUBSCRIPTION,
+    /**
+     * A packet that propagates changes committed by other transactions.
+     */
+    BROADCAST
+}
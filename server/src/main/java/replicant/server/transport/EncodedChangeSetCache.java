@@ -0,0 +1,151 @@
+package replicant.server.transport;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import javax.json.JsonValue;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import replicant.server.ChangeSet;
+import replicant.server.DatasetAddress;
+import replicant.server.EntityChangeCandidate;
+import replicant.server.SubscriptionChange;
+import replicant.server.json.BinaryEncoder;
+import replicant.server.json.JsonEncoder;
+import replicant.shared.Messages;
+
+/**
+ * A cache of encoded Change Sets shared by the packets queued from one transaction.
+ *
+ * <p>Sessions subscribed to the same unfiltered Datasets typically receive byte-identical Change Sets from a
+ * transaction. The cache key captures everything that the encoder writes: the Dataset Cache Version, Subscription
+ * Changes and, for each Entity Change, the source Entity Change Candidate and the target Dataset Addresses. Entity
+ * Change Candidates are compared by identity so that Change Sets built from the shared candidates of the transaction
+ * match while candidates produced by a per-session filter never do. Matching Change Sets are encoded once and the
+ * same payload is sent to every recipient. Change Sets sent to the initiating session are never cached.</p>
+ */
+public final class EncodedChangeSetCache {
+    /**
+     * The maximum number of distinct payloads retained. Beyond this the Change Sets are likely to be distinct per
+     * session and retaining them would only extend their lifetime until every packet has been sent.
+     */
+    static final int MAX_ENTRIES = 32;
+
+    @NonNull
+    private final Map<Key, String> _encodedChangeSets = new ConcurrentHashMap<>();
+
+    @NonNull
+    private final Map<Key, byte[]> _binaryEncodedChangeSets = new ConcurrentHashMap<>();
+
+    /**
+     * Compressed payloads keyed by the identity of the encoded payload they were compressed from.
+     */
+    @NonNull
+    private final Map<Object, byte[]> _compressedChangeSets = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    /**
+     * Return the encoded Change Set, encoding it only if an identical Change Set has not already been encoded.
+     */
+    @NonNull
+    String encodeChangeSet(
+            @Nullable final Integer requestId,
+            @Nullable final JsonValue commandResult,
+            @Nullable final String datasetCacheVersion,
+            @NonNull final ChangeSet changeSet) {
+        assert null == commandResult || null != requestId;
+        if (null != requestId || _encodedChangeSets.size() >= MAX_ENTRIES) {
+            // A Change Set with a Request ID or Command Result is only ever sent to the initiating session
+            return JsonEncoder.encodeChangeSet(requestId, commandResult, datasetCacheVersion, changeSet);
+        } else {
+            return _encodedChangeSets.computeIfAbsent(
+                    Key.from(datasetCacheVersion, changeSet),
+                    k -> JsonEncoder.encodeChangeSet(null, null, datasetCacheVersion, changeSet));
+        }
+    }
+
+    /**
+     * Return the binary encoded Change Set, encoding it only if an identical Change Set has not already been encoded.
+     * The returned array is shared and must not be modified.
+     */
+    @NonNull
+    byte[] encodeBinaryChangeSet(
+            @Nullable final Integer requestId,
+            @Nullable final JsonValue commandResult,
+            @Nullable final String datasetCacheVersion,
+            @NonNull final ChangeSet changeSet) {
+        assert null == commandResult || null != requestId;
+        if (null != requestId || _binaryEncodedChangeSets.size() >= MAX_ENTRIES) {
+            return BinaryEncoder.encodeChangeSet(requestId, commandResult, datasetCacheVersion, changeSet);
+        } else {
+            return _binaryEncodedChangeSets.computeIfAbsent(
+                    Key.from(datasetCacheVersion, changeSet),
+                    k -> BinaryEncoder.encodeChangeSet(null, null, datasetCacheVersion, changeSet));
+        }
+    }
+
+    /**
+     * Return the compressed form of a JSON payload returned by this cache, compressing it only once.
+     * The returned array is shared and must not be modified.
+     */
+    @NonNull
+    byte[] compressChangeSet(@NonNull final String encodedChangeSet) {
+        return compress(
+                encodedChangeSet,
+                () -> ChangeSetCompressor.compress(
+                        Messages.CompressedChangeSet.FORMAT_DEFLATED_JSON,
+                        encodedChangeSet.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Return the compressed form of a binary payload returned by this cache, compressing it only once.
+     * The returned array is shared and must not be modified.
+     */
+    @NonNull
+    byte[] compressBinaryChangeSet(@NonNull final byte[] encodedChangeSet) {
+        return compress(
+                encodedChangeSet,
+                () -> ChangeSetCompressor.compress(
+                        Messages.CompressedChangeSet.FORMAT_DEFLATED_BINARY, encodedChangeSet));
+    }
+
+    @NonNull
+    private byte[] compress(@NonNull final Object encodedChangeSet, @NonNull final Supplier<byte[]> compressor) {
+        // Payloads encoded once the cache is full are never shared so there is no benefit in retaining them
+        if (_compressedChangeSets.size() >= MAX_ENTRIES) {
+            final var compressed = _compressedChangeSets.get(encodedChangeSet);
+            return null != compressed ? compressed : compressor.get();
+        } else {
+            return _compressedChangeSets.computeIfAbsent(encodedChangeSet, k -> compressor.get());
+        }
+    }
+
+    int size() {
+        return _encodedChangeSets.size() + _binaryEncodedChangeSets.size();
+    }
+
+    private record Key(
+            @Nullable String datasetCacheVersion,
+            @NonNull List<SubscriptionChange> subscriptionChanges,
+            @NonNull List<EntityChangeKey> entityChanges) {
+        @NonNull
+        static Key from(@Nullable final String datasetCacheVersion, @NonNull final ChangeSet changeSet) {
+            final var entityChanges = new ArrayList<EntityChangeKey>(changeSet.getEntityChanges().size());
+            for (final var entityChange : changeSet.getEntityChanges()) {
+                entityChanges.add(new EntityChangeKey(
+                        entityChange.getEntityChangeCandidate(), List.copyOf(entityChange.getDatasetAddresses())));
+            }
+            return new Key(datasetCacheVersion, List.copyOf(changeSet.getSubscriptionChanges()), entityChanges);
+        }
+    }
+
+    /**
+     * EntityChangeCandidate does not override equals so the candidate is compared by identity.
+     */
+    private record EntityChangeKey(
+            @NonNull EntityChangeCandidate entityChangeCandidate, @NonNull List<DatasetAddress> datasetAddresses) {}
+}
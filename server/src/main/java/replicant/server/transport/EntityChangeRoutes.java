@@ -0,0 +1,116 @@
+package replicant.server.transport;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.jspecify.annotations.NonNull;
+import replicant.server.DatasetAddress;
+import replicant.server.EntityChangeCandidate;
+
+/**
+ * The Dataset Addresses that a collection of Entity Change Candidates route to.
+ *
+ * <p>The routes depend only on the candidates and the System Schema so they are derived once when the transaction
+ * completes and shared, unmodified, by the packets queued for every session. Each session then only intersects the
+ * routes with its own Subscriptions. The Dataset Addresses do not include a Dataset Key, matching the granularity at
+ * which Subscriptions are looked up.</p>
+ */
+public final class EntityChangeRoutes {
+    /**
+     * The Dataset Addresses within a Dataset that an Entity Change Candidate routes to.
+     *
+     * @param dataset          the routed Dataset.
+     * @param datasetAddresses the routed Dataset Addresses. A Type Dataset has a single address while an Instance
+     *                         Dataset has one address per Dataset Root ID.
+     */
+    record Route(@NonNull Dataset dataset, @NonNull List<DatasetAddress> datasetAddresses) {}
+
+    @NonNull
+    private final Map<EntityChangeCandidate, List<Route>> _routes;
+
+    @NonNull
+    private final Set<DatasetAddress> _datasetAddresses;
+
+    private EntityChangeRoutes(
+            @NonNull final Map<EntityChangeCandidate, List<Route>> routes,
+            @NonNull final Set<DatasetAddress> datasetAddresses) {
+        _routes = routes;
+        _datasetAddresses = datasetAddresses;
+    }
+
+    /**
+     * Derive the routes for the Entity Change Candidates.
+     */
+    @NonNull
+    static EntityChangeRoutes compute(
+            @NonNull final SystemSchema systemSchema,
+            @NonNull final Collection<EntityChangeCandidate> entityChangeCandidates) {
+        final var routes = new IdentityHashMap<EntityChangeCandidate, List<Route>>(entityChangeCandidates.size());
+        final var datasetAddresses = new HashSet<DatasetAddress>();
+        for (final var entityChangeCandidate : entityChangeCandidates) {
+            final var candidateRoutes = deriveRoutes(systemSchema, entityChangeCandidate);
+            routes.put(entityChangeCandidate, candidateRoutes);
+            for (final var route : candidateRoutes) {
+                datasetAddresses.addAll(route.datasetAddresses());
+            }
+        }
+        return new EntityChangeRoutes(
+                Collections.unmodifiableMap(routes), Collections.unmodifiableSet(datasetAddresses));
+    }
+
+    /**
+     * Return the routes for the Entity Change Candidate, ordered by Dataset ID.
+     *
+     * @throws IllegalArgumentException if the candidate was not one of the candidates the routes were computed for.
+     */
+    @NonNull
+    List<Route> getRoutes(@NonNull final EntityChangeCandidate entityChangeCandidate) {
+        final var routes = _routes.get(entityChangeCandidate);
+        if (null == routes) {
+            throw new IllegalArgumentException(
+                    "Entity Change Candidate " + entityChangeCandidate + " has not been routed");
+        }
+        return routes;
+    }
+
+    /**
+     * Return every Dataset Address that any of the Entity Change Candidates route to.
+     */
+    @NonNull
+    Set<DatasetAddress> getDatasetAddresses() {
+        return _datasetAddresses;
+    }
+
+    @NonNull
+    private static List<Route> deriveRoutes(
+            @NonNull final SystemSchema systemSchema, @NonNull final EntityChangeCandidate entityChangeCandidate) {
+        final var routingKeys = entityChangeCandidate.getRoutingKeys();
+        final var datasets = systemSchema.getRoutedDatasets(routingKeys);
+        if (0 == datasets.length) {
+            return Collections.emptyList();
+        }
+        final var routes = new Route[datasets.length];
+        var count = 0;
+        for (final var dataset : datasets) {
+            if (dataset.isInstanceDataset()) {
+                @SuppressWarnings("unchecked")
+                final var datasetRootIds = (List<Integer>) routingKeys.get(dataset.getName());
+                if (null != datasetRootIds) {
+                    final var datasetAddresses = new DatasetAddress[datasetRootIds.size()];
+                    for (var i = 0; i < datasetAddresses.length; i++) {
+                        datasetAddresses[i] = DatasetAddress.of(dataset.getId(), datasetRootIds.get(i));
+                    }
+                    routes[count++] = new Route(dataset, List.of(datasetAddresses));
+                }
+            } else {
+                routes[count++] = new Route(dataset, List.of(DatasetAddress.of(dataset.getId())));
+            }
+        }
+        return List.of(count == routes.length ? routes : Arrays.copyOf(routes, count));
+    }
+}
@@ -2,12 +2,14 @@ package replicant.server.transport;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import javax.json.JsonValue;
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
 import replicant.server.ChangeSet;
 import replicant.server.DatasetAddress;
 import replicant.server.EntityChangeCandidate;
+import replicant.server.EntityChangeCandidateSet;
 
 /**
  * Packet contains the data generated from the transaction that needs to be sent to a specific client.
@@ -22,6 +24,13 @@ import replicant.server.EntityChangeCandidate;
  * @param changeSet               the complete Change Set carried by this packet.
  * @param datasetCacheEntryAddress the Dataset Address of the client Dataset Cache Entry to reuse, or null for a
  *                                 Change Set packet.
+ * @param entityChangeRoutes      the routes of the Entity Change Candidates shared by every packet queued from the
+ *                                 same transaction, or null if the routes are derived when the packet is sent.
+ * @param encodedChangeSetCache   the cache of encoded Change Sets shared by every packet queued from the same
+ *                                 transaction, or null if the Change Set is always encoded for this packet.
+ * @param datasetCacheEntry       the Dataset Cache Entry whose encoded Change Set is sent when Subscription
+ *                                 Dependency expansion leaves the Change Set unchanged, or that identifies the
+ *                                 Filter Parameter of the client Dataset Cache Entry to reuse, or null.
  */
 public record Packet(
         boolean fromSubscriptionRequest,
@@ -30,7 +39,33 @@ public record Packet(
         @Nullable String datasetCacheVersion,
         @NonNull Collection<EntityChangeCandidate> entityChangeCandidates,
         @NonNull ChangeSet changeSet,
-        @Nullable DatasetAddress datasetCacheEntryAddress) {
+        @Nullable DatasetAddress datasetCacheEntryAddress,
+        @Nullable EntityChangeRoutes entityChangeRoutes,
+        @Nullable EncodedChangeSetCache encodedChangeSetCache,
+        @Nullable DatasetCacheEntry datasetCacheEntry) {
+    public Packet(
+            final boolean fromSubscriptionRequest,
+            @Nullable final Integer requestId,
+            @Nullable final JsonValue commandResult,
+            @Nullable final String datasetCacheVersion,
+            @NonNull final Collection<EntityChangeCandidate> entityChangeCandidates,
+            @NonNull final ChangeSet changeSet,
+            @Nullable final DatasetAddress datasetCacheEntryAddress,
+            @Nullable final EntityChangeRoutes entityChangeRoutes,
+            @Nullable final EncodedChangeSetCache encodedChangeSetCache) {
+        this(
+                fromSubscriptionRequest,
+                requestId,
+                commandResult,
+                datasetCacheVersion,
+                entityChangeCandidates,
+                changeSet,
+                datasetCacheEntryAddress,
+                entityChangeRoutes,
+                encodedChangeSetCache,
+                null);
+    }
+
     public Packet(
             final boolean fromSubscriptionRequest,
             @Nullable final Integer requestId,
@@ -45,15 +80,159 @@ public record Packet(
                 datasetCacheVersion,
                 entityChangeCandidates,
                 changeSet,
+                null,
+                null,
+                null,
                 null);
     }
 
+    /**
+     * The estimated retained size of a packet excluding its Entity Change Candidates and Entity Changes.
+     */
+    static final int PACKET_SIZE_ESTIMATE = 256;
+
+    /**
+     * The estimated retained size of an Entity Change Candidate excluding its attribute values.
+     */
+    static final int ENTITY_SIZE_ESTIMATE = 128;
+
+    /**
+     * The estimated retained size of an attribute value excluding the characters of a String value.
+     */
+    static final int ATTRIBUTE_SIZE_ESTIMATE = 48;
+
+    /**
+     * Return an estimate of the heap retained by the packet, derived from the number of Entity Change Candidates
+     * and Entity Changes and the size of their attribute values. Candidates shared with packets queued for other
+     * sessions are counted in full for every packet.
+     */
+    long estimateSize() {
+        var size = (long) PACKET_SIZE_ESTIMATE;
+        for (final var entityChangeCandidate : entityChangeCandidates) {
+            size += estimateSize(entityChangeCandidate);
+        }
+        for (final var entityChange : changeSet.getEntityChanges()) {
+            size += estimateSize(entityChange.getEntityChangeCandidate());
+        }
+        return size;
+    }
+
+    static long estimateSize(@NonNull final EntityChangeCandidate entityChangeCandidate) {
+        var size = (long) ENTITY_SIZE_ESTIMATE;
+        final var attributeValues = entityChangeCandidate.getAttributeValues();
+        if (null != attributeValues) {
+            for (final var value : attributeValues.values()) {
+                size += ATTRIBUTE_SIZE_ESTIMATE + (value instanceof String string ? 2L * string.length() : 0L);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Return true if this packet may be merged with adjacent packets queued for the same session.
+     * Packets that result from a request or that carry a Dataset Cache Version must be delivered as queued.
+     */
+    boolean isCoalescable() {
+        return !fromSubscriptionRequest
+                && null == requestId
+                && null == commandResult
+                && null == datasetCacheVersion
+                && null == datasetCacheEntryAddress;
+    }
+
+    /**
+     * Return the Delivery Class of the packet.
+     */
+    @NonNull
+    DeliveryClass getDeliveryClass() {
+        if (null != requestId || null != commandResult) {
+            return DeliveryClass.REQUEST;
+        } else if (fromSubscriptionRequest || null != datasetCacheVersion || null != datasetCacheEntryAddress) {
+            return DeliveryClass.SUBSCRIPTION;
+        } else {
+            return DeliveryClass.BROADCAST;
+        }
+    }
+
+    /**
+     * Return the Entity Change Candidates and Entity Changes carried by the packet.
+     */
+    int getEntityCount() {
+        return entityChangeCandidates.size() + changeSet.getEntityChanges().size();
+    }
+
+    /**
+     * Merge consecutive coalescable packets into a single packet.
+     * The Entity Change Candidates are shared with the packets queued for other sessions, so they are copied
+     * rather than modified. The merged packet does not share routes or encoded Change Sets with other packets.
+     *
+     * @param packets the packets in the order they were queued.
+     * @return the merged packet.
+     */
+    @NonNull
+    static Packet coalesce(@NonNull final List<Packet> packets) {
+        assert packets.size() > 1;
+        final var entityChangeCandidates = new EntityChangeCandidateSet();
+        final var changeSet = new ChangeSet();
+        for (final var packet : packets) {
+            assert packet.isCoalescable();
+            entityChangeCandidates.mergeAll(packet.entityChangeCandidates(), true);
+            changeSet.merge(packet.changeSet());
+            if (packet.changeSet().isDeliveryRequired()) {
+                changeSet.setDeliveryRequired(true);
+            }
+        }
+        return new Packet(false, null, null, null, entityChangeCandidates.getEntityChangeCandidates(), changeSet);
+    }
+
     @NonNull
     static Packet datasetCacheEntryReference(
             @Nullable final Integer requestId,
             @NonNull final DatasetAddress datasetAddress,
             @NonNull final String datasetCacheVersion) {
         return new Packet(
-                true, requestId, null, datasetCacheVersion, Collections.emptyList(), new ChangeSet(), datasetAddress);
+                true,
+                requestId,
+                null,
+                datasetCacheVersion,
+                Collections.emptyList(),
+                new ChangeSet(),
+                datasetAddress,
+                null,
+                null);
+    }
+
+    @NonNull
+    static Packet datasetCacheEntryReference(
+            @Nullable final Integer requestId, @NonNull final DatasetCacheEntry datasetCacheEntry) {
+        return new Packet(
+                true,
+                requestId,
+                null,
+                datasetCacheEntry.getDatasetCacheVersion(),
+                Collections.emptyList(),
+                new ChangeSet(),
+                datasetCacheEntry.getDatasetAddress(),
+                null,
+                null,
+                datasetCacheEntry);
+    }
+
+    @NonNull
+    static Packet datasetCacheEntryChangeSet(
+            @Nullable final Integer requestId,
+            @NonNull final DatasetCacheEntry datasetCacheEntry,
+            @NonNull final ChangeSet changeSet) {
+        return new Packet(
+                true,
+                requestId,
+                null,
+                datasetCacheEntry.getDatasetCacheVersion(),
+                Collections.emptyList(),
+                changeSet,
+                null,
+                null,
+                null,
+                datasetCacheEntry);
     }
 }
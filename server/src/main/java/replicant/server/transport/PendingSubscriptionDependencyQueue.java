@@ -0,0 +1,88 @@
+package replicant.server.transport;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.json.JsonObject;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import replicant.server.DatasetAddress;
+
+/**
+ * The Subscription Dependencies that remain to be followed while expanding a Change Set, grouped by the Subscriptions
+ * that a single subscribe can create. Every pending Subscription Dependency targeting an Instance Dataset with the same
+ * Filter Parameter is subscribed together, as are the Subscription Dependencies targeting the same Type Dataset
+ * Address with the same Filter Parameter. Groups are polled in the order of their lowest target Dataset Address.
+ */
+final class PendingSubscriptionDependencyQueue {
+    private record GroupKey(
+            int datasetId, @Nullable DatasetAddress typeDatasetAddress, @Nullable JsonObject filterParameter) {}
+
+    @NonNull
+    private final TreeMap<DatasetAddress, Set<PendingSubscriptionDependency>> _byTarget = new TreeMap<>();
+
+    @NonNull
+    private final Map<GroupKey, Set<PendingSubscriptionDependency>> _byGroup = new HashMap<>();
+
+    private int _size;
+
+    /**
+     * Add the Subscription Dependency unless it is already pending.
+     */
+    void add(@NonNull final PendingSubscriptionDependency pending) {
+        if (_byGroup.computeIfAbsent(groupKey(pending), k -> new LinkedHashSet<>()).add(pending)) {
+            _byTarget
+                    .computeIfAbsent(pending.targetDatasetAddress(), k -> new LinkedHashSet<>())
+                    .add(pending);
+            _size++;
+        }
+    }
+
+    /**
+     * Remove and return the group containing the pending Subscription Dependency with the lowest target Dataset
+     * Address.
+     *
+     * @return the Subscription Dependencies of the group, or null if none are pending.
+     */
+    @Nullable
+    List<PendingSubscriptionDependency> poll() {
+        final var first = _byTarget.firstEntry();
+        if (null == first) {
+            return null;
+        }
+        final var group = new ArrayList<>(_byGroup.remove(groupKey(first.getValue().iterator().next())));
+        for (final var pending : group) {
+            final var target = pending.targetDatasetAddress();
+            final var pendingForTarget = _byTarget.get(target);
+            pendingForTarget.remove(pending);
+            if (pendingForTarget.isEmpty()) {
+                _byTarget.remove(target);
+            }
+        }
+        _size -= group.size();
+        return group;
+    }
+
+    boolean isEmpty() {
+        return 0 == _size;
+    }
+
+    int size() {
+        return _size;
+    }
+
+    @NonNull
+    List<DatasetAddress> getTargetDatasetAddresses() {
+        return List.copyOf(_byTarget.keySet());
+    }
+
+    @NonNull
+    private static GroupKey groupKey(@NonNull final PendingSubscriptionDependency pending) {
+        final var target = pending.targetDatasetAddress();
+        return new GroupKey(target.datasetId(), target.hasDatasetRootId() ? null : target, pending.filterParameter());
+    }
+}
@@ -0,0 +1,10 @@
+package replicant.server.transport;
+
+/**
+ * A snapshot of the time that sessions of a Delivery Class waited in the broker queue before they were served.
+ *
+ * @param sessionCount   the number of times a session of the Delivery Class was served.
+ * @param totalWaitNanos the total time that the sessions waited, in nanoseconds.
+ * @param maxWaitNanos   the longest time that a session waited, in nanoseconds.
+ */
+public record QueueWaitStatistics(long sessionCount, long totalWaitNanos, long maxWaitNanos) {}
@@ -1,11 +1,11 @@
 package replicant.server.transport;
 
 import java.util.Collection;
+import java.util.Map;
 import javax.json.JsonValue;
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
 import replicant.server.ChangeSet;
-import replicant.server.DatasetAddress;
 import replicant.server.EntityChangeCandidate;
 
 public interface ReplicantMessageBroker {
@@ -13,8 +13,14 @@ public interface ReplicantMessageBroker {
     Packet queueDatasetCacheEntryReference(
             @NonNull ReplicantSession session,
             @Nullable Integer requestId,
-            @NonNull DatasetAddress datasetAddress,
-            @NonNull String datasetCacheVersion);
+            @NonNull DatasetCacheEntry datasetCacheEntry);
+
+    @NonNull
+    Packet queueDatasetCacheEntryChangeSet(
+            @NonNull ReplicantSession session,
+            @Nullable Integer requestId,
+            @NonNull DatasetCacheEntry datasetCacheEntry,
+            @NonNull ChangeSet changeSet);
 
     @NonNull
     Packet queueChangeSet(
@@ -24,5 +30,31 @@ public interface ReplicantMessageBroker {
             @Nullable JsonValue commandResult,
             @Nullable String datasetCacheVersion,
             @NonNull Collection<EntityChangeCandidate> entityChangeCandidates,
+            @Nullable EntityChangeRoutes entityChangeRoutes,
+            @Nullable EncodedChangeSetCache encodedChangeSetCache,
             @NonNull ChangeSet changeSet);
+
+    /**
+     * Queue the changes of a completed Replication Invocation to be published to the sessions by a broker thread.
+     * Batches are published one at a time in the order they were queued.
+     *
+     * @param batch the changes of the Replication Invocation.
+     */
+    void queueTransactionChangeBatch(@NonNull TransactionChangeBatch batch);
+
+    /**
+     * Wait until every Transaction Change Batch queued before the call has been published. Batches queued after the
+     * call are not waited for. The batches are published by a broker thread unless publication stalls, in which case
+     * the calling thread publishes the batches it is waiting for. Returns early if the calling thread is interrupted,
+     * leaving the thread interrupted.
+     */
+    void awaitQueuedTransactionChangeBatches();
+
+    /**
+     * Return the time that sessions waited in the broker queue before they were served, by Delivery Class.
+     *
+     * @return the queue wait statistics of every Delivery Class.
+     */
+    @NonNull
+    Map<DeliveryClass, QueueWaitStatistics> getQueueWaitStatistics();
 }
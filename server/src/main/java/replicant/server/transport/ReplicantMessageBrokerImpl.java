@@ -1,17 +1,29 @@
 package replicant.server.transport;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.EnumMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.inject.Typed;
@@ -23,7 +35,6 @@ import org.jetbrains.annotations.VisibleForTesting;
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
 import replicant.server.ChangeSet;
-import replicant.server.DatasetAddress;
 import replicant.server.EntityChangeCandidate;
 import replicant.server.runtime.ReplicantSystem;
 
@@ -36,8 +47,30 @@ public class ReplicantMessageBrokerImpl implements ReplicantMessageBroker {
 
     private static final long RETRY_DELAY = 20L;
 
+    /**
+     * The queued sessions of each Delivery Class, indexed by ordinal and served from the most urgent. A queue may
+     * hold stale entries for sessions that have been moved to a more urgent queue, which are skipped when polled.
+     */
     @NonNull
-    private final BlockingQueue<ReplicantSession> _queue = new LinkedBlockingQueue<>();
+    private final List<BlockingQueue<QueuedSession>> _queues = createQueues();
+
+    /**
+     * The number of sessions queued with each Delivery Class, indexed by ordinal. Stale entries are not counted.
+     */
+    @NonNull
+    private final AtomicIntegerArray _queuedSessionCounts = new AtomicIntegerArray(DeliveryClass.values().length);
+
+    /**
+     * The current queue entry of each queued session, keyed by Replicant Session ID.
+     */
+    @NonNull
+    private final Map<String, QueuedSession> _queuedSessions = new ConcurrentHashMap<>();
+
+    /**
+     * The time that sessions of each Delivery Class waited before they were served, indexed by ordinal.
+     */
+    @NonNull
+    private final List<QueueWait> _queueWaits = createQueueWaits();
 
     @NonNull
     private final ConcurrentHashMap<String, WorkState> _workStates = new ConcurrentHashMap<>();
@@ -48,6 +81,40 @@ public class ReplicantMessageBrokerImpl implements ReplicantMessageBroker {
     @NonNull
     private final AtomicBoolean _retryScheduled = new AtomicBoolean();
 
+    @NonNull
+    private final ConcurrentLinkedQueue<TransactionChangeBatch> _transactionChangeBatches =
+            new ConcurrentLinkedQueue<>();
+
+    /**
+     * The number of Transaction Change Batches that have been queued. A batch is counted before it is added to the
+     * queue so that every batch ahead of a queued batch is counted no later than the batch itself.
+     */
+    @NonNull
+    private final AtomicLong _queuedTransactionChangeBatchCount = new AtomicLong();
+
+    /**
+     * The number of Transaction Change Batches that have been published. Only updated while holding the publish lock.
+     */
+    private volatile long _publishedTransactionChangeBatchCount;
+
+    /**
+     * Held while Transaction Change Batches are published so that they are published one at a time and in order.
+     */
+    @NonNull
+    private final ReentrantLock _publishLock = new ReentrantLock();
+
+    /**
+     * Guards the signal that a Transaction Change Batch has been published.
+     */
+    @NonNull
+    private final ReentrantLock _publishedLock = new ReentrantLock();
+
+    @NonNull
+    private final Condition _transactionChangeBatchPublished = _publishedLock.newCondition();
+
+    @NonNull
+    private final AtomicBoolean _publishScheduled = new AtomicBoolean();
+
     @VisibleForTesting
     @Inject
     ReplicantSessionManager _sessionManager;
@@ -72,15 +139,70 @@ public class ReplicantMessageBrokerImpl implements ReplicantMessageBroker {
     @ReplicantSystem("broker/maxSessionsPerDrainTask")
     private Integer _maxSessionsPerDrainTask;
 
+    /**
+     * The maximum number of consecutive packets merged into a single Change Set.
+     * Packets are not merged when this is null or less than 2.
+     */
+    @Inject
+    @ReplicantSystem("broker/maxCoalescedPackets")
+    private Integer _maxCoalescedPackets;
+
+    /**
+     * The maximum number of Entity Change Candidates and Entity Changes in a merged packet.
+     * This bounds the size of the encoded Change Set. The number is unbounded when this is null or not positive.
+     */
+    @Inject
+    @ReplicantSystem("broker/maxCoalescedEntities")
+    private Integer _maxCoalescedEntities;
+
+    /**
+     * True if each session with pending packets is drained by a consumer task of its own, rather than by the shared
+     * drain tasks that claim sessions from the delivery queues. A consumer never blocks the executor: it retries after
+     * a delay when the session lock or an encode permit is unavailable. The shared drain tasks are used when this is
+     * null or false.
+     */
+    @Inject
+    @ReplicantSystem("broker/perSessionDelivery")
+    private Boolean _perSessionDelivery;
+
+    /**
+     * The maximum number of session consumers that encode and send packets concurrently.
+     * The number is unbounded when this is null or not positive.
+     */
+    @Inject
+    @ReplicantSystem("broker/maxConcurrentEncodes")
+    private Integer _maxConcurrentEncodes;
+
+    /**
+     * The cost, in packets plus their Entity Change Candidates and Entity Changes, that a session may send each time
+     * it is served before it yields to the other queued sessions. A session always sends at least one packet when it
+     * is served, and a session that exceeds its quantum sends less the next time it is served, so that a session with
+     * large packets receives the same share of the drain tasks as a session with small packets. Sessions send up to
+     * the maximum number of packets per run regardless of cost when this is null or not positive.
+     */
+    @Inject
+    @ReplicantSystem("broker/deficitQuantum")
+    private Integer _deficitQuantum;
+
+    @Nullable
+    private Semaphore _encodePermits;
+
     private volatile boolean _stopping;
 
+    @PostConstruct
+    void postConstruct() {
+        _encodePermits = null != _maxConcurrentEncodes && _maxConcurrentEncodes > 0
+                ? new Semaphore(_maxConcurrentEncodes)
+                : null;
+    }
+
     @PreDestroy
     void preDestroy() {
         _stopping = true;
         if (LOG.isLoggable(Level.INFO)) {
             LOG.log(
                     Level.INFO,
-                    "event=broker.stop queueSize=" + _queue.size() + " activeDrainTasks="
+                    "event=broker.stop queueSize=" + getQueuedSessionCount() + " activeDrainTasks="
                             + _activeDrainTasks.get() + " workStateCount="
                             + _workStates.size() + " retryScheduled="
                             + _retryScheduled.get());
@@ -92,9 +214,20 @@ public class ReplicantMessageBrokerImpl implements ReplicantMessageBroker {
     public Packet queueDatasetCacheEntryReference(
             @NonNull final ReplicantSession session,
             @Nullable final Integer requestId,
-            @NonNull final DatasetAddress datasetAddress,
-            @NonNull final String datasetCacheVersion) {
-        final var packet = Packet.datasetCacheEntryReference(requestId, datasetAddress, datasetCacheVersion);
+            @NonNull final DatasetCacheEntry datasetCacheEntry) {
+        final var packet = Packet.datasetCacheEntryReference(requestId, datasetCacheEntry);
+        queuePacket(session, packet);
+        return packet;
+    }
+
+    @NonNull
+    @Override
+    public Packet queueDatasetCacheEntryChangeSet(
+            @NonNull final ReplicantSession session,
+            @Nullable final Integer requestId,
+            @NonNull final DatasetCacheEntry datasetCacheEntry,
+            @NonNull final ChangeSet changeSet) {
+        final var packet = Packet.datasetCacheEntryChangeSet(requestId, datasetCacheEntry, changeSet);
         queuePacket(session, packet);
         return packet;
     }
@@ -108,6 +241,8 @@ public class ReplicantMessageBrokerImpl implements ReplicantMessageBroker {
             @Nullable final JsonValue commandResult,
             @Nullable final String datasetCacheVersion,
             @NonNull final Collection<EntityChangeCandidate> entityChangeCandidates,
+            @Nullable final EntityChangeRoutes entityChangeRoutes,
+            @Nullable final EncodedChangeSetCache encodedChangeSetCache,
             @NonNull final ChangeSet changeSet) {
         final var packet = new Packet(
                 fromSubscriptionRequest,
@@ -115,15 +250,155 @@ public class ReplicantMessageBrokerImpl implements ReplicantMessageBroker {
                 commandResult,
                 datasetCacheVersion,
                 entityChangeCandidates,
-                changeSet);
+                changeSet,
+                null,
+                entityChangeRoutes,
+                encodedChangeSetCache);
         queuePacket(session, packet);
         return packet;
     }
 
+    @Override
+    public void queueTransactionChangeBatch(@NonNull final TransactionChangeBatch batch) {
+        _queuedTransactionChangeBatchCount.incrementAndGet();
+        _transactionChangeBatches.add(batch);
+        schedulePublishTask();
+    }
+
+    @Override
+    public void awaitQueuedTransactionChangeBatches() {
+        final var queuedCount = _queuedTransactionChangeBatchCount.get();
+        if (_publishedTransactionChangeBatchCount >= queuedCount) {
+            return;
+        }
+        final var start = System.nanoTime();
+        _publishedLock.lock();
+        try {
+            while (_publishedTransactionChangeBatchCount < queuedCount) {
+                if (!_transactionChangeBatchPublished.await(RETRY_DELAY, TimeUnit.MILLISECONDS)
+                        && _publishedTransactionChangeBatchCount < queuedCount
+                        && _publishLock.tryLock()) {
+                    // No broker thread is publishing, as when the executor is saturated or stopping, so publish the
+                    // remaining batches queued before the call on the calling thread
+                    _publishedLock.unlock();
+                    try {
+                        publishTransactionChangeBatches(queuedCount);
+                    } finally {
+                        _publishLock.unlock();
+                        _publishedLock.lock();
+                    }
+                }
+            }
+        } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } finally {
+            _publishedLock.unlock();
+        }
+        if (LOG.isLoggable(Level.FINE)) {
+            final var durationMs = (System.nanoTime() - start) / 1000000L;
+            LOG.log(
+                    Level.FINE,
+                    "event=broker.publish.await durationMs=" + durationMs + " queuedBatchCount=" + queuedCount
+                            + " publishedBatchCount=" + _publishedTransactionChangeBatchCount);
+        }
+    }
+
+    private void publishQueuedTransactionChangeBatches() {
+        _publishLock.lock();
+        try {
+            publishTransactionChangeBatches(Long.MAX_VALUE);
+        } finally {
+            _publishLock.unlock();
+        }
+    }
+
+    /**
+     * Publish the queued Transaction Change Batches in order until the queue is empty or the number of published
+     * batches reaches the limit. The caller must hold the publish lock.
+     */
+    private void publishTransactionChangeBatches(final long limit) {
+        TransactionChangeBatch batch;
+        while (_publishedTransactionChangeBatchCount < limit && null != (batch = _transactionChangeBatches.poll())) {
+            publishTransactionChangeBatch(batch);
+            _publishedLock.lock();
+            try {
+                _publishedTransactionChangeBatchCount++;
+                _transactionChangeBatchPublished.signalAll();
+            } finally {
+                _publishedLock.unlock();
+            }
+        }
+    }
+
+    private void publishTransactionChangeBatch(@NonNull final TransactionChangeBatch batch) {
+        try {
+            _sessionManager.publishTransactionChangeBatch(batch);
+        } catch (final Throwable t) {
+            if (LOG.isLoggable(Level.SEVERE)) {
+                final var initiator = batch.initiator();
+                LOG.log(
+                        Level.SEVERE,
+                        "event=broker.batch.publish.failed replicantSessionId="
+                                + (null == initiator ? null : initiator.getReplicantSessionId()) + " requestId="
+                                + batch.requestId() + " entityChangeCandidateCount="
+                                + batch.entityChangeCandidates().size(),
+                        t);
+            }
+        }
+    }
+
+    private void schedulePublishTask() {
+        if (_publishScheduled.compareAndSet(false, true)) {
+            try {
+                submitDrainTask(this::runPublishTask);
+            } catch (final RuntimeException e) {
+                _publishScheduled.set(false);
+                if (LOG.isLoggable(Level.SEVERE)) {
+                    LOG.log(
+                            Level.SEVERE,
+                            "event=broker.publish.submit.failed pendingBatchCount=" + _transactionChangeBatches.size()
+                                    + " publishedOnCaller=true",
+                            e);
+                }
+                publishQueuedTransactionChangeBatches();
+            }
+        }
+    }
+
+    private void runPublishTask() {
+        // Clear the flag before polling so that a batch queued after the final poll schedules another task
+        _publishScheduled.set(false);
+        final var start = System.nanoTime();
+        publishQueuedTransactionChangeBatches();
+        if (LOG.isLoggable(Level.FINE)) {
+            final var durationMs = (System.nanoTime() - start) / 1000000L;
+            LOG.log(
+                    Level.FINE,
+                    "event=broker.publish.run durationMs=" + durationMs + " queueSize=" + getQueuedSessionCount()
+                            + " activeDrainTasks=" + _activeDrainTasks.get());
+        }
+    }
+
     private void queuePacket(@NonNull final ReplicantSession session, @NonNull final Packet packet) {
-        session.queuePacket(packet);
-        final var newlyQueued = enqueueSessionIfRequired(session);
-        scheduleDrainTasks();
+        if (!session.queuePacket(packet)) {
+            if (LOG.isLoggable(Level.FINE)) {
+                LOG.log(
+                        Level.FINE,
+                        "event=broker.packet.discard reason=pendingPacketBudgetExceeded replicantSessionId="
+                                + session.getReplicantSessionId() + " requestId=" + packet.requestId());
+            }
+            if (session.claimPendingPacketBudgetClose()) {
+                closeSessionOverPendingPacketBudget(session);
+            }
+            return;
+        }
+        final boolean newlyQueued;
+        if (isPerSessionDeliveryEnabled()) {
+            newlyQueued = startSessionConsumerIfRequired(session);
+        } else {
+            newlyQueued = enqueueSessionIfRequired(session);
+            scheduleDrainTasks();
+        }
         if (LOG.isLoggable(Level.FINE)) {
             LOG.log(
                     Level.FINE,
@@ -134,25 +409,126 @@ public class ReplicantMessageBrokerImpl implements ReplicantMessageBroker {
                             + packet.changeSet().getSubscriptionChanges().size() + " fromSubscriptionRequest="
                             + packet.fromSubscriptionRequest() + " newlyQueued="
                             + newlyQueued + " queueSize="
-                            + _queue.size() + " workStateCount="
+                            + getQueuedSessionCount() + " workStateCount="
                             + _workStates.size() + " activeDrainTasks="
                             + _activeDrainTasks.get());
         }
     }
 
+    /**
+     * Close the session on a broker thread as closing performs blocking I/O on the WebSocket and the packet may have
+     * been queued by a thread that is completing a transaction.
+     */
+    private void closeSessionOverPendingPacketBudget(@NonNull final ReplicantSession session) {
+        try {
+            submitDrainTask(session::closeDueToPendingPacketBudgetExceeded);
+        } catch (final RuntimeException e) {
+            if (LOG.isLoggable(Level.WARNING)) {
+                LOG.log(
+                        Level.WARNING,
+                        "event=broker.session.close.submit.failed replicantSessionId="
+                                + session.getReplicantSessionId() + " closedOnCaller=true",
+                        e);
+            }
+            session.closeDueToPendingPacketBudgetExceeded();
+        }
+    }
+
+    /**
+     * Queue the session with the most urgent Delivery Class of its pending packets unless it is already queued or
+     * running. A queued session is moved to a more urgent queue if a more urgent packet arrives. Moving a session
+     * claims its entry in the less urgent queue, which is left in place and skipped when polled.
+     *
+     * @return true if the session was newly queued.
+     */
     private boolean enqueueSessionIfRequired(@NonNull final ReplicantSession session) {
-        if (null == _workStates.putIfAbsent(session.getReplicantSessionId(), WorkState.QUEUED)) {
-            _queue.add(session);
+        final var replicantSessionId = session.getReplicantSessionId();
+        final var deliveryClass = getPendingDeliveryClass(session);
+        if (null == _workStates.putIfAbsent(replicantSessionId, WorkState.QUEUED)) {
+            addToQueue(session, deliveryClass, System.nanoTime());
             return true;
+        } else {
+            final var queuedSession = _queuedSessions.get(replicantSessionId);
+            // The session is not moved if a drain task polled it in the meantime, as that task sends every packet
+            if (null != queuedSession
+                    && deliveryClass.compareTo(queuedSession.getDeliveryClass()) < 0
+                    && WorkState.QUEUED == _workStates.get(replicantSessionId)
+                    && queuedSession.claim()) {
+                final var queuedDeliveryClass = queuedSession.getDeliveryClass();
+                _queuedSessionCounts.decrementAndGet(queuedDeliveryClass.ordinal());
+                addToQueue(session, deliveryClass, session.getQueuedAt());
+                if (LOG.isLoggable(Level.FINEST)) {
+                    LOG.log(
+                            Level.FINEST,
+                            "event=broker.session.promote replicantSessionId=" + replicantSessionId
+                                    + " fromDeliveryClass=" + queuedDeliveryClass + " toDeliveryClass="
+                                    + deliveryClass);
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Return the Delivery Class to queue the session with. Packets may be popped concurrently, so a session with no
+     * pending packets is queued as the least urgent class.
+     */
+    @NonNull
+    private DeliveryClass getPendingDeliveryClass(@NonNull final ReplicantSession session) {
+        final var deliveryClass = session.getPendingDeliveryClass();
+        return null == deliveryClass ? DeliveryClass.BROADCAST : deliveryClass;
+    }
+
+    private void addToQueue(
+            @NonNull final ReplicantSession session, @NonNull final DeliveryClass deliveryClass, final long queuedAt) {
+        session.onQueued(deliveryClass, queuedAt);
+        final var queuedSession = new QueuedSession(session, deliveryClass);
+        _queuedSessions.put(session.getReplicantSessionId(), queuedSession);
+        _queuedSessionCounts.incrementAndGet(deliveryClass.ordinal());
+        _queues.get(deliveryClass.ordinal()).add(queuedSession);
+    }
+
+    /**
+     * Remove and return the next session from the most urgent queue that holds a session.
+     * Stale entries of sessions that have been moved to a more urgent queue are discarded.
+     */
+    @Nullable
+    private ReplicantSession pollQueuedSession() {
+        for (final var queue : _queues) {
+            QueuedSession queuedSession;
+            while (null != (queuedSession = queue.poll())) {
+                if (queuedSession.claim()) {
+                    final var session = queuedSession.getSession();
+                    _queuedSessions.remove(session.getReplicantSessionId(), queuedSession);
+                    _queuedSessionCounts.decrementAndGet(queuedSession.getDeliveryClass().ordinal());
+                    return session;
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean hasQueuedSessions() {
+        for (var i = 0; i < _queuedSessionCounts.length(); i++) {
+            if (_queuedSessionCounts.get(i) > 0) {
+                return true;
+            }
         }
         return false;
     }
 
+    private void recordQueueWait(@NonNull final ReplicantSession session) {
+        final var deliveryClass = session.getQueuedDeliveryClass();
+        if (null != deliveryClass) {
+            _queueWaits.get(deliveryClass.ordinal()).record(System.nanoTime() - session.getQueuedAt());
+        }
+    }
+
     private void scheduleDrainTasks() {
         if (!_stopping) {
             final var initialActiveDrainTasks = _activeDrainTasks.get();
             var submittedDrainTasks = 0;
-            while (!_queue.isEmpty()) {
+            while (hasQueuedSessions()) {
                 if (reserveDrainTask()) {
                     try {
                         submitDrainTask(this::runDrainTask);
@@ -162,7 +538,8 @@ public class ReplicantMessageBrokerImpl implements ReplicantMessageBroker {
                         if (LOG.isLoggable(Level.SEVERE)) {
                             LOG.log(
                                     Level.SEVERE,
-                                    "event=broker.drain.submit.failed queueSize=" + _queue.size() + " activeDrainTasks="
+                                    "event=broker.drain.submit.failed queueSize=" + getQueuedSessionCount()
+                                            + " activeDrainTasks="
                                             + _activeDrainTasks.get() + " submittedDrainTasks="
                                             + submittedDrainTasks + " retryRequested=true",
                                     e);
@@ -178,7 +555,7 @@ public class ReplicantMessageBrokerImpl implements ReplicantMessageBroker {
                                         + " initialActiveDrainTasks="
                                         + initialActiveDrainTasks + " activeDrainTasks="
                                         + _activeDrainTasks.get() + " queueSize="
-                                        + _queue.size() + " workStateCount="
+                                        + getQueuedSessionCount() + " workStateCount="
                                         + _workStates.size() + " maxConcurrentDrainTasks="
                                         + _maxConcurrentDrainTasks);
                     }
@@ -192,7 +569,7 @@ public class ReplicantMessageBrokerImpl implements ReplicantMessageBroker {
                                 + " initialActiveDrainTasks="
                                 + initialActiveDrainTasks + " activeDrainTasks="
                                 + _activeDrainTasks.get() + " queueSize="
-                                + _queue.size() + " workStateCount="
+                                + getQueuedSessionCount() + " workStateCount="
                                 + _workStates.size() + " maxConcurrentDrainTasks="
                                 + _maxConcurrentDrainTasks);
             }
@@ -200,7 +577,7 @@ public class ReplicantMessageBrokerImpl implements ReplicantMessageBroker {
             if (LOG.isLoggable(Level.INFO)) {
                 LOG.log(
                         Level.INFO,
-                        "event=broker.drain.schedule.skip reason=stopping queueSize=" + _queue.size()
+                        "event=broker.drain.schedule.skip reason=stopping queueSize=" + getQueuedSessionCount()
                                 + " activeDrainTasks="
                                 + _activeDrainTasks.get() + " workStateCount="
                                 + _workStates.size());
@@ -230,7 +607,7 @@ public class ReplicantMessageBrokerImpl implements ReplicantMessageBroker {
             LOG.log(Level.SEVERE, t, () -> "Error in Replicant drain task");
         } finally {
             _activeDrainTasks.decrementAndGet();
-            if (!_stopping && !_queue.isEmpty()) {
+            if (!_stopping && hasQueuedSessions()) {
                 if (madeProgress) {
                     scheduleDrainTasks();
                 } else {
@@ -245,7 +622,7 @@ public class ReplicantMessageBrokerImpl implements ReplicantMessageBroker {
                         "event=broker.drain.run durationMs=" + durationMs + " madeProgress="
                                 + madeProgress + " retryRequested="
                                 + retryRequested + " queueSize="
-                                + _queue.size() + " activeDrainTasks="
+                                + getQueuedSessionCount() + " activeDrainTasks="
                                 + _activeDrainTasks.get() + " workStateCount="
                                 + _workStates.size() + " retryScheduled="
                                 + _retryScheduled.get());
@@ -262,14 +639,18 @@ public class ReplicantMessageBrokerImpl implements ReplicantMessageBroker {
         var madeProgress = false;
         final var processedReplicantSessionIds = new HashSet<String>();
         for (var i = 0; i < _maxSessionsPerDrainTask; i++) {
-            final var session = _queue.poll();
+            final var session = pollQueuedSession();
             if (null == session) {
                 break;
             } else {
                 sessionsPolled++;
                 if (!processedReplicantSessionIds.add(session.getReplicantSessionId())) {
                     duplicateSessionsSkipped++;
-                    _queue.add(session);
+                    final var queuedDeliveryClass = session.getQueuedDeliveryClass();
+                    addToQueue(
+                            session,
+                            null == queuedDeliveryClass ? DeliveryClass.BROADCAST : queuedDeliveryClass,
+                            session.getQueuedAt());
                     break;
                 } else if (processPendingSession(session)) {
                     sessionsProcessed++;
@@ -288,7 +669,7 @@ public class ReplicantMessageBrokerImpl implements ReplicantMessageBroker {
                             + sessionsProcessed + " duplicateSessionsSkipped="
                             + duplicateSessionsSkipped + " sessionsSkipped="
                             + sessionsSkipped + " queueSize="
-                            + _queue.size() + " maxSessionsPerDrainTask="
+                            + getQueuedSessionCount() + " maxSessionsPerDrainTask="
                             + _maxSessionsPerDrainTask);
         }
         return madeProgress;
@@ -305,11 +686,12 @@ public class ReplicantMessageBrokerImpl implements ReplicantMessageBroker {
                         Level.FINEST,
                         "event=broker.session.process.skip reason=workStateMismatch replicantSessionId="
                                 + replicantSessionId + " queueSize="
-                                + _queue.size() + " workStateCount="
+                                + getQueuedSessionCount() + " workStateCount="
                                 + _workStates.size());
             }
             return false;
         }
+        recordQueueWait(session);
         if (!session.isOpen()) {
             _workStates.remove(replicantSessionId, WorkState.RUNNING);
             if (LOG.isLoggable(Level.FINEST)) {
@@ -327,18 +709,65 @@ public class ReplicantMessageBrokerImpl implements ReplicantMessageBroker {
                 LOG.log(
                         Level.FINEST,
                         "event=broker.session.process.skip reason=lockContention replicantSessionId="
-                                + replicantSessionId + " requeued=true queueSize=" + _queue.size());
+                                + replicantSessionId + " requeued=true queueSize=" + getQueuedSessionCount());
             }
             return false;
         }
+        final SendRun sendRun;
+        try {
+            sendRun = sendPendingPackets(session);
+        } finally {
+            lock.unlock();
+        }
+        _workStates.remove(replicantSessionId, WorkState.RUNNING);
+        if (sendRun.closeSession() || !session.isOpen()) {
+            return true;
+        } else {
+            if (session.hasPendingPackets()) {
+                if (!session.hasOutboundCapacity()) {
+                    // Skip the session until a send completes rather than spinning on a slow client
+                    if (LOG.isLoggable(Level.FINEST)) {
+                        LOG.log(
+                                Level.FINEST,
+                                "event=broker.session.defer reason=outboundBudget replicantSessionId="
+                                        + replicantSessionId);
+                    }
+                    session.onOutboundCapacity(() -> resumeSession(session));
+                } else {
+                    if (LOG.isLoggable(Level.FINEST)) {
+                        LOG.log(
+                                Level.FINEST,
+                                "event=broker.session.requeue reason=pendingPackets replicantSessionId="
+                                        + replicantSessionId + " queueSize=" + getQueuedSessionCount());
+                    }
+                    enqueueSessionIfRequired(session);
+                }
+            }
+            return sendRun.processedPacket();
+        }
+    }
+
+    /**
+     * Send up to the maximum number of packets per run to the session, closing the session if a packet can not be
+     * processed. When a deficit quantum is configured the session also stops once the cost of the packets sent
+     * exhausts its quantum plus the deficit carried from its previous run. The caller must hold the session lock.
+     */
+    @NonNull
+    private SendRun sendPendingPackets(@NonNull final ReplicantSession session) {
+        final var replicantSessionId = session.getReplicantSessionId();
         var processedPacket = false;
         var closeSession = false;
         Packet currentPacket = null;
+        final var deficitQuantum = null != _deficitQuantum && _deficitQuantum > 0 ? _deficitQuantum : 0;
+        var deficit = session.getDeliveryDeficit() + deficitQuantum;
         try {
             var packetsProcessed = 0;
             var emptyPacketsSkipped = 0;
             for (var i = 0; i < _maxPacketsPerRun; i++) {
-                final var packet = session.popPendingPacket();
+                if (!session.hasOutboundCapacity()) {
+                    break;
+                }
+                final var packet = popPendingPacket(session);
                 currentPacket = packet;
                 if (null == packet) {
                     break;
@@ -353,8 +782,23 @@ public class ReplicantMessageBrokerImpl implements ReplicantMessageBroker {
                         closeSession = true;
                         break;
                     }
+                    if (0 != deficitQuantum) {
+                        deficit -= 1 + packet.getEntityCount();
+                        if (deficit <= 0) {
+                            break;
+                        }
+                    }
                 }
             }
+            if (0 != deficitQuantum) {
+                /*
+                 * Unused credit is not carried so that an idle or deferred session can not accumulate a burst, and
+                 * the deficit is bounded by one quantum so that a single large packet costs the session at most
+                 * the remainder of its next run.
+                 */
+                session.setDeliveryDeficit(
+                        session.hasPendingPackets() ? Math.max(-deficitQuantum, Math.min(0, deficit)) : 0);
+            }
             if (LOG.isLoggable(Level.FINEST)) {
                 LOG.log(
                         Level.FINEST,
@@ -363,7 +807,8 @@ public class ReplicantMessageBrokerImpl implements ReplicantMessageBroker {
                                 + packetsProcessed + " emptyPacketsSkipped="
                                 + emptyPacketsSkipped + " closeSession="
                                 + closeSession + " hasPendingPackets="
-                                + session.hasPendingPackets());
+                                + session.hasPendingPackets() + " hasOutboundCapacity="
+                                + session.hasOutboundCapacity());
             }
         } catch (final Throwable t) {
             if (LOG.isLoggable(Level.SEVERE)) {
@@ -375,34 +820,211 @@ public class ReplicantMessageBrokerImpl implements ReplicantMessageBroker {
             }
             session.close(new CloseReason(CloseReason.CloseCodes.UNEXPECTED_CONDITION, "Packet processing failed"));
             closeSession = true;
+        }
+        return new SendRun(processedPacket, closeSession);
+    }
+
+    /**
+     * Start a consumer for the session unless one is already running.
+     *
+     * @return true if a consumer was started.
+     */
+    private boolean startSessionConsumerIfRequired(@NonNull final ReplicantSession session) {
+        final var replicantSessionId = session.getReplicantSessionId();
+        if (_stopping || null != _workStates.putIfAbsent(replicantSessionId, WorkState.RUNNING)) {
+            return false;
+        }
+        session.onQueued(getPendingDeliveryClass(session), System.nanoTime());
+        try {
+            submitDrainTask(() -> runSessionConsumer(session));
+            return true;
+        } catch (final RuntimeException e) {
+            // The packets remain pending and the next packet queued for the session starts a consumer
+            _workStates.remove(replicantSessionId, WorkState.RUNNING);
+            if (LOG.isLoggable(Level.SEVERE)) {
+                LOG.log(
+                        Level.SEVERE,
+                        "event=broker.consumer.submit.failed replicantSessionId=" + replicantSessionId
+                                + " workStateCount=" + _workStates.size(),
+                        e);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Send the pending packets of the session until none remain, the session closes or the session exceeds its
+     * outbound budget. The consumer shares the executor with the drain and publish tasks so it never blocks: when a
+     * request holds the session lock, or every encode permit is in use, it releases what it holds and retries after a
+     * short delay. The session keeps its work state while the consumer waits to retry, so no other consumer starts.
+     * The encode permit is taken once the session lock is held so that a consumer that can not lock the session never
+     * holds a permit that another session could use to encode.
+     */
+    private void runSessionConsumer(@NonNull final ReplicantSession session) {
+        final var replicantSessionId = session.getReplicantSessionId();
+        final var start = System.nanoTime();
+        var runs = 0;
+        String retryReason = null;
+        recordQueueWait(session);
+        try {
+            while (!_stopping && session.isOpen() && session.hasPendingPackets()) {
+                if (!session.hasOutboundCapacity()) {
+                    // Wait for a send to complete rather than spinning on a slow client
+                    session.onOutboundCapacity(() -> resumeSession(session));
+                    break;
+                }
+                final var lock = session.getLock();
+                if (!lock.tryLock()) {
+                    retryReason = "lockContention";
+                    break;
+                }
+                final SendRun sendRun;
+                try {
+                    final var encodePermits = _encodePermits;
+                    if (null != encodePermits && !encodePermits.tryAcquire()) {
+                        retryReason = "encodePermits";
+                        break;
+                    }
+                    try {
+                        sendRun = sendPendingPackets(session);
+                    } finally {
+                        if (null != encodePermits) {
+                            encodePermits.release();
+                        }
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                runs++;
+                if (sendRun.closeSession()) {
+                    break;
+                }
+            }
+        } catch (final Throwable t) {
+            retryReason = null;
+            LOG.log(Level.SEVERE, t, () -> "Error in Replicant session consumer");
         } finally {
-            lock.unlock();
+            if (null == retryReason) {
+                _workStates.remove(replicantSessionId, WorkState.RUNNING);
+            }
+        }
+        if (LOG.isLoggable(Level.FINE)) {
+            final var durationMs = (System.nanoTime() - start) / 1000000L;
+            LOG.log(
+                    Level.FINE,
+                    "event=broker.consumer.run replicantSessionId=" + replicantSessionId + " durationMs="
+                            + durationMs + " runs=" + runs + " retryReason=" + retryReason + " workStateCount="
+                            + _workStates.size());
+        }
+        if (null != retryReason) {
+            retrySessionConsumer(session);
+        } else if (session.isOpen() && session.hasPendingPackets() && session.hasOutboundCapacity()) {
+            // A packet queued after the final check was made and before the work state was removed started no
+            // consumer
+            startSessionConsumerIfRequired(session);
+        }
+    }
+
+    /**
+     * Run the consumer of the session again after a short delay. The session keeps its work state until the consumer
+     * runs, unless the consumer can not be scheduled, in which case the next packet queued for the session starts one.
+     */
+    private void retrySessionConsumer(@NonNull final ReplicantSession session) {
+        final var replicantSessionId = session.getReplicantSessionId();
+        session.onQueued(getPendingDeliveryClass(session), System.nanoTime());
+        try {
+            scheduleRetryTask(() -> {
+                try {
+                    submitDrainTask(() -> runSessionConsumer(session));
+                } catch (final RuntimeException e) {
+                    onSessionConsumerRetryFailed(replicantSessionId, e);
+                }
+            });
+        } catch (final RuntimeException e) {
+            onSessionConsumerRetryFailed(replicantSessionId, e);
         }
+    }
+
+    private void onSessionConsumerRetryFailed(@NonNull final String replicantSessionId, @NonNull final Exception e) {
         _workStates.remove(replicantSessionId, WorkState.RUNNING);
-        if (closeSession || !session.isOpen()) {
-            return true;
+        if (LOG.isLoggable(Level.SEVERE)) {
+            LOG.log(
+                    Level.SEVERE,
+                    "event=broker.consumer.retry.failed replicantSessionId=" + replicantSessionId
+                            + " workStateCount=" + _workStates.size(),
+                    e);
+        }
+    }
+
+    /**
+     * Pop the next pending packet for the session, merging it with the consecutive packets that follow it.
+     * Packets that result from a request or carry a Dataset Cache Version are never merged and act as barriers.
+     */
+    @Nullable
+    private Packet popPendingPacket(@NonNull final ReplicantSession session) {
+        final var packet = session.popPendingPacket();
+        if (null == packet || null == _maxCoalescedPackets || _maxCoalescedPackets < 2 || !packet.isCoalescable()) {
+            return packet;
+        }
+        final var maxEntities =
+                null != _maxCoalescedEntities && _maxCoalescedEntities > 0 ? _maxCoalescedEntities : Integer.MAX_VALUE;
+        var entityCount = packet.getEntityCount();
+        List<Packet> packets = null;
+        while ((null == packets ? 1 : packets.size()) < _maxCoalescedPackets && entityCount < maxEntities) {
+            final var next = session.popCoalescablePendingPacket();
+            if (null == next) {
+                break;
+            }
+            if (null == packets) {
+                packets = new ArrayList<>();
+                packets.add(packet);
+            }
+            packets.add(next);
+            entityCount += next.getEntityCount();
+        }
+        if (null == packets) {
+            return packet;
         } else {
-            if (session.hasPendingPackets()) {
-                if (LOG.isLoggable(Level.FINEST)) {
-                    LOG.log(
-                            Level.FINEST,
-                            "event=broker.session.requeue reason=pendingPackets replicantSessionId="
-                                    + replicantSessionId + " queueSize=" + _queue.size());
-                }
-                enqueueSessionIfRequired(session);
+            if (LOG.isLoggable(Level.FINEST)) {
+                LOG.log(
+                        Level.FINEST,
+                        "event=broker.packet.coalesce replicantSessionId=" + session.getReplicantSessionId()
+                                + " packetCount=" + packets.size() + " entityCount=" + entityCount);
+            }
+            return Packet.coalesce(packets);
+        }
+    }
+
+    /**
+     * Requeue a session that was deferred as it exceeded its outbound budget.
+     * Invoked from the send completion callback once the session has outbound capacity.
+     */
+    private void resumeSession(@NonNull final ReplicantSession session) {
+        if (session.isOpen() && session.hasPendingPackets()) {
+            final boolean newlyQueued;
+            if (isPerSessionDeliveryEnabled()) {
+                newlyQueued = startSessionConsumerIfRequired(session);
+            } else {
+                newlyQueued = enqueueSessionIfRequired(session);
+                scheduleDrainTasks();
+            }
+            if (LOG.isLoggable(Level.FINEST)) {
+                LOG.log(
+                        Level.FINEST,
+                        "event=broker.session.resume replicantSessionId=" + session.getReplicantSessionId()
+                                + " newlyQueued=" + newlyQueued + " queueSize=" + getQueuedSessionCount());
             }
-            return processedPacket;
         }
     }
 
     private void requeueRunningSession(@NonNull final ReplicantSession session) {
         if (_workStates.replace(session.getReplicantSessionId(), WorkState.RUNNING, WorkState.QUEUED)) {
-            _queue.add(session);
+            addToQueue(session, getPendingDeliveryClass(session), System.nanoTime());
             if (LOG.isLoggable(Level.FINEST)) {
                 LOG.log(
                         Level.FINEST,
                         "event=broker.session.requeue reason=lockContention replicantSessionId="
-                                + session.getReplicantSessionId() + " queueSize=" + _queue.size());
+                                + session.getReplicantSessionId() + " queueSize=" + getQueuedSessionCount());
             }
         }
     }
@@ -412,12 +1034,12 @@ public class ReplicantMessageBrokerImpl implements ReplicantMessageBroker {
             if (LOG.isLoggable(Level.FINE)) {
                 LOG.log(
                         Level.FINE,
-                        "event=broker.retry.schedule.skip reason=stopping queueSize=" + _queue.size()
+                        "event=broker.retry.schedule.skip reason=stopping queueSize=" + getQueuedSessionCount()
                                 + " activeDrainTasks=" + _activeDrainTasks.get());
             }
             return;
         }
-        if (_queue.isEmpty()) {
+        if (!hasQueuedSessions()) {
             if (LOG.isLoggable(Level.FINE)) {
                 LOG.log(
                         Level.FINE,
@@ -430,7 +1052,7 @@ public class ReplicantMessageBrokerImpl implements ReplicantMessageBroker {
             if (LOG.isLoggable(Level.FINE)) {
                 LOG.log(
                         Level.FINE,
-                        "event=broker.retry.schedule.skip reason=alreadyScheduled queueSize=" + _queue.size()
+                        "event=broker.retry.schedule.skip reason=alreadyScheduled queueSize=" + getQueuedSessionCount()
                                 + " activeDrainTasks=" + _activeDrainTasks.get());
             }
             return;
@@ -441,7 +1063,7 @@ public class ReplicantMessageBrokerImpl implements ReplicantMessageBroker {
                 LOG.log(
                         Level.FINE,
                         "event=broker.retry.schedule delayMs=" + RETRY_DELAY + " queueSize="
-                                + _queue.size() + " activeDrainTasks="
+                                + getQueuedSessionCount() + " activeDrainTasks="
                                 + _activeDrainTasks.get() + " workStateCount="
                                 + _workStates.size());
             }
@@ -450,7 +1072,7 @@ public class ReplicantMessageBrokerImpl implements ReplicantMessageBroker {
             if (LOG.isLoggable(Level.SEVERE)) {
                 LOG.log(
                         Level.SEVERE,
-                        "event=broker.retry.schedule.failed queueSize=" + _queue.size() + " activeDrainTasks="
+                        "event=broker.retry.schedule.failed queueSize=" + getQueuedSessionCount() + " activeDrainTasks="
                                 + _activeDrainTasks.get(),
                         e);
             }
@@ -460,11 +1082,15 @@ public class ReplicantMessageBrokerImpl implements ReplicantMessageBroker {
     @VisibleForTesting
     void runDelayedRetry() {
         _retryScheduled.set(false);
-        if (!_stopping && !_queue.isEmpty()) {
+        if (!_stopping && hasQueuedSessions()) {
             scheduleDrainTasks();
         }
     }
 
+    private boolean isPerSessionDeliveryEnabled() {
+        return null != _perSessionDelivery && _perSessionDelivery;
+    }
+
     @NonNull
     private String describePacket(@Nullable final Packet packet) {
         if (null == packet) {
@@ -492,9 +1118,37 @@ public class ReplicantMessageBrokerImpl implements ReplicantMessageBroker {
         return _activeDrainTasks.get();
     }
 
-    @VisibleForTesting
+    @NonNull
+    @Override
+    public Map<DeliveryClass, QueueWaitStatistics> getQueueWaitStatistics() {
+        final var statistics = new EnumMap<DeliveryClass, QueueWaitStatistics>(DeliveryClass.class);
+        for (final var deliveryClass : DeliveryClass.values()) {
+            statistics.put(deliveryClass, _queueWaits.get(deliveryClass.ordinal()).toStatistics());
+        }
+        return statistics;
+    }
+
     int getQueuedSessionCount() {
-        return _queue.size();
+        var queuedSessionCount = 0;
+        for (var i = 0; i < _queuedSessionCounts.length(); i++) {
+            queuedSessionCount += _queuedSessionCounts.get(i);
+        }
+        return queuedSessionCount;
+    }
+
+    @VisibleForTesting
+    int getQueuedSessionCount(@NonNull final DeliveryClass deliveryClass) {
+        return _queuedSessionCounts.get(deliveryClass.ordinal());
+    }
+
+    @VisibleForTesting
+    int getQueueEntryCount(@NonNull final DeliveryClass deliveryClass) {
+        return _queues.get(deliveryClass.ordinal()).size();
+    }
+
+    @VisibleForTesting
+    int getPendingTransactionChangeBatchCount() {
+        return _transactionChangeBatches.size();
     }
 
     @VisibleForTesting
@@ -523,14 +1177,133 @@ public class ReplicantMessageBrokerImpl implements ReplicantMessageBroker {
         _maxPacketsPerRun = maxPacketsPerRun;
     }
 
+    @VisibleForTesting
+    void setMaxCoalescedPackets(final int maxCoalescedPackets) {
+        _maxCoalescedPackets = maxCoalescedPackets;
+    }
+
+    @VisibleForTesting
+    void setMaxCoalescedEntities(final int maxCoalescedEntities) {
+        _maxCoalescedEntities = maxCoalescedEntities;
+    }
+
     @SuppressWarnings("SameParameterValue")
     @VisibleForTesting
     void setMaxSessionsPerDrainTask(final int maxSessionsPerDrainTask) {
         _maxSessionsPerDrainTask = maxSessionsPerDrainTask;
     }
 
+    @VisibleForTesting
+    void setPerSessionDelivery(final boolean perSessionDelivery) {
+        _perSessionDelivery = perSessionDelivery;
+    }
+
+    @SuppressWarnings("SameParameterValue")
+    @VisibleForTesting
+    void setMaxConcurrentEncodes(final int maxConcurrentEncodes) {
+        _maxConcurrentEncodes = maxConcurrentEncodes;
+        postConstruct();
+    }
+
+    @VisibleForTesting
+    void setDeficitQuantum(final int deficitQuantum) {
+        _deficitQuantum = deficitQuantum;
+    }
+
+    @VisibleForTesting
+    int getAvailableEncodePermits() {
+        return null == _encodePermits ? Integer.MAX_VALUE : _encodePermits.availablePermits();
+    }
+
+    @NonNull
+    private static List<BlockingQueue<QueuedSession>> createQueues() {
+        final var queues = new ArrayList<BlockingQueue<QueuedSession>>();
+        for (final var ignored : DeliveryClass.values()) {
+            queues.add(new LinkedBlockingQueue<>());
+        }
+        return List.copyOf(queues);
+    }
+
+    @NonNull
+    private static List<QueueWait> createQueueWaits() {
+        final var queueWaits = new ArrayList<QueueWait>();
+        for (final var ignored : DeliveryClass.values()) {
+            queueWaits.add(new QueueWait());
+        }
+        return List.copyOf(queueWaits);
+    }
+
+    private static final class QueueWait {
+        @NonNull
+        private final LongAdder _sessionCount = new LongAdder();
+
+        @NonNull
+        private final LongAdder _totalWaitNanos = new LongAdder();
+
+        @NonNull
+        private final AtomicLong _maxWaitNanos = new AtomicLong();
+
+        void record(final long waitNanos) {
+            _sessionCount.increment();
+            _totalWaitNanos.add(waitNanos);
+            _maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        }
+
+        @NonNull
+        QueueWaitStatistics toStatistics() {
+            return new QueueWaitStatistics(_sessionCount.sum(), _totalWaitNanos.sum(), _maxWaitNanos.get());
+        }
+    }
+
+    /**
+     * The entry of a session in the queue of a Delivery Class. The entry is claimed once, either by the drain task
+     * that polls it or by moving the session to a more urgent queue.
+     */
+    private static final class QueuedSession {
+        @NonNull
+        private final ReplicantSession _session;
+
+        @NonNull
+        private final DeliveryClass _deliveryClass;
+
+        @NonNull
+        private final AtomicBoolean _claimed = new AtomicBoolean();
+
+        QueuedSession(@NonNull final ReplicantSession session, @NonNull final DeliveryClass deliveryClass) {
+            _session = session;
+            _deliveryClass = deliveryClass;
+        }
+
+        @NonNull
+        ReplicantSession getSession() {
+            return _session;
+        }
+
+        @NonNull
+        DeliveryClass getDeliveryClass() {
+            return _deliveryClass;
+        }
+
+        /**
+         * Claim the entry.
+         *
+         * @return true if the entry had not already been claimed.
+         */
+        boolean claim() {
+            return _claimed.compareAndSet(false, true);
+        }
+    }
+
     private enum WorkState {
         QUEUED,
         RUNNING
     }
+
+    /**
+     * The outcome of sending a run of packets to a session.
+     *
+     * @param processedPacket true if at least one packet was popped from the session.
+     * @param closeSession    true if the session closed or failed while the packets were sent.
+     */
+    private record SendRun(boolean processedPacket, boolean closeSession) {}
 }
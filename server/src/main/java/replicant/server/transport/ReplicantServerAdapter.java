@@ -102,6 +102,29 @@ public interface ReplicantServerAdapter {
             @NonNull ChangeSet changeSet,
             @NonNull SubscriptionMode mode);
 
+    /**
+     * Collect the current contents of a Dataset selection into the Change Set before the session lock is acquired to
+     * establish explicit Subscriptions. This is only invoked when
+     * {@code replicant/subscription/collectOutsideSessionLock} is enabled. No session is available, so the
+     * implementation must select the data without session state and must not update any Subscription state. The
+     * Subscriptions are recorded once the session lock is held, and the hook may be invoked again for the same request
+     * if the session changed while the data was collected.
+     * The default implementation collects nothing and returns false.
+     *
+     * @param datasetAddresses the Dataset Addresses to collect data for; every address must have the same Dataset ID
+     * @param filterParameter  the Filter Parameter. May be null if the Dataset has no Filter Parameter.
+     * @param changeSet        the changeSet to add the collected data to.
+     * @return true if the data was collected, or false if the data must instead be collected by
+     * {@link #collectSubscriptionData(ReplicantSession, List, JsonObject, ChangeSet, SubscriptionMode)} while the
+     * session lock is held.
+     */
+    default boolean collectSubscriptionDataWithoutSession(
+            @NonNull List<DatasetAddress> datasetAddresses,
+            @Nullable JsonObject filterParameter,
+            @NonNull ChangeSet changeSet) {
+        return false;
+    }
+
     /**
      * Collect the current contents of a Dataset selection into the Change Set when changing a Subscription Filter
      * Parameter.
@@ -3,6 +3,9 @@ package replicant.server.transport;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -14,24 +17,36 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.json.JsonObject;
 import javax.json.JsonValue;
 import javax.websocket.CloseReason;
+import javax.websocket.SendResult;
 import javax.websocket.Session;
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
 import replicant.server.ChangeSet;
 import replicant.server.DatasetAddress;
 import replicant.server.SubscriptionChange;
+import replicant.server.json.BinaryEncoder;
 import replicant.server.json.JsonEncoder;
+import replicant.shared.Messages;
 
 public final class ReplicantSession implements Serializable, Closeable {
     @NonNull
     private static final Logger LOG = Logger.getLogger(ReplicantSession.class.getName());
 
+    /**
+     * The number of Entity Changes at or above which a Change Set that is not shared with other sessions is streamed
+     * to the WebSocket rather than encoded into a String.
+     */
+    static final int STREAMING_ENTITY_CHANGE_THRESHOLD = 1000;
+
     @NonNull
     private final Session _webSocketSession;
 
@@ -39,7 +54,7 @@ public final class ReplicantSession implements Serializable, Closeable {
     private final ReplicantSessionAuthorization _authorization;
 
     @NonNull
-    private final Map<DatasetAddress, String> _datasetCacheVersions = new HashMap<>();
+    private final Map<DatasetCacheKey, String> _datasetCacheVersions = new HashMap<>();
 
     @NonNull
     private final Map<DatasetAddress, Subscription> _subscriptions = new HashMap<>();
@@ -53,9 +68,130 @@ public final class ReplicantSession implements Serializable, Closeable {
     @NonNull
     private final BlockingQueue<Packet> _pendingPackets = new LinkedBlockingQueue<>();
 
+    /**
+     * The estimated size of the pending packets. Only maintained when a pending packet budget has been set.
+     */
+    @NonNull
+    private final AtomicLong _pendingPacketBytes = new AtomicLong();
+
+    /**
+     * The maximum number of pending packets, or 0 if the number is unbounded.
+     */
+    private volatile int _maxPendingPackets;
+
+    /**
+     * The maximum estimated size of the pending packets, or 0 if the size is unbounded.
+     */
+    private volatile long _maxPendingPacketBytes;
+
+    private volatile boolean _pendingPacketBudgetExceeded;
+
+    /**
+     * Guards the check and reservation of the pending packet budget together with the enqueue of the packet, so that
+     * no packet is queued once the budget has been exceeded and the pending packets discarded.
+     */
+    @NonNull
+    private final transient Object _pendingPacketBudgetLock = new Object();
+
+    /**
+     * Set by the first caller that observes that the pending packet budget has been exceeded and so is responsible
+     * for arranging for the session to be closed.
+     */
+    @NonNull
+    private final AtomicBoolean _pendingPacketBudgetCloseClaimed = new AtomicBoolean();
+
+    /**
+     * The number of pending packets of each Delivery Class, indexed by ordinal, so that the broker can schedule the
+     * session by its most urgent pending packet without scanning the pending packets.
+     */
+    @NonNull
+    private final AtomicIntegerArray _pendingPacketCounts = new AtomicIntegerArray(DeliveryClass.values().length);
+
+    /**
+     * The Delivery Class that the broker last queued the session with, or null if the broker has not queued it.
+     */
+    @Nullable
+    private volatile DeliveryClass _queuedDeliveryClass;
+
+    /**
+     * The value of {@link System#nanoTime()} when the broker queued the session.
+     */
+    private volatile long _queuedAt;
+
+    /**
+     * The cost the session has sent beyond its quanta in the deficit round robin schedule of the broker.
+     * Only accessed by the thread that holds the session lock and is processing pending packets.
+     */
+    private long _deliveryDeficit;
+
+    /**
+     * Incremented whenever a Subscription is created or deleted, or Entity Change Candidates are routed to the session,
+     * within a Dataset Root whose Subscription data is being collected outside the session lock, so that the collected
+     * data can be checked for staleness. Only accessed by the thread that holds the session lock.
+     */
+    private long _subscriptionGeneration;
+
+    /**
+     * The number of Subscription data collections in progress outside the session lock for each Dataset Root.
+     * Only accessed by the thread that holds the session lock.
+     */
+    @NonNull
+    private final Map<DatasetRootKey, Integer> _collectingDatasetRoots = new HashMap<>();
+
+    /**
+     * True if Change Sets are sent using the binary encoding negotiated when the client connected.
+     */
+    private volatile boolean _binaryChangeSetsEnabled;
+
+    /**
+     * True if the client indicated that it can decompress Change Sets when it connected.
+     */
+    private volatile boolean _compressionAccepted;
+
+    /**
+     * The size of an encoded Change Set, in characters or bytes, at or above which the Change Set is compressed.
+     * Change Sets are never compressed when this is not positive.
+     */
+    private volatile int _compressionThreshold;
+
     @NonNull
     private final ReentrantLock _lock = new ReentrantLock(true);
 
+    @Nullable
+    private final transient SubscriptionIndex _subscriptionIndex;
+
+    /**
+     * Guards the outbound queue used by asynchronous delivery. This is distinct from {@link #_lock} as the send
+     * completion callback runs on a container thread and must not wait on a thread that is processing packets.
+     */
+    @NonNull
+    private final transient Object _outboundLock = new Object();
+
+    /**
+     * Messages accepted for asynchronous delivery. The head of the queue is the message currently being sent.
+     * Each message is either a String sent as a text frame or a byte array sent as a binary frame.
+     */
+    @NonNull
+    private final transient ArrayDeque<Object> _outboundMessages = new ArrayDeque<>();
+
+    /**
+     * The maximum size of the messages accepted for asynchronous delivery but not yet sent, measured in characters
+     * for text messages and bytes for binary messages. A value of 0 indicates that messages are sent synchronously.
+     */
+    private volatile long _maxOutboundBytes;
+
+    private long _outboundBytes;
+
+    private boolean _sendInProgress;
+
+    /**
+     * The value of {@link System#nanoTime()} when an asynchronous send last started or completed.
+     */
+    private long _outboundProgressAt;
+
+    @Nullable
+    private Runnable _outboundCapacityListener;
+
     @Nullable
     private String _authToken;
 
@@ -70,7 +206,15 @@ public final class ReplicantSession implements Serializable, Closeable {
 
     public ReplicantSession(
             @NonNull final Session webSocketSession, @Nullable final ReplicantSessionAuthorization authorization) {
+        this(webSocketSession, authorization, null);
+    }
+
+    ReplicantSession(
+            @NonNull final Session webSocketSession,
+            @Nullable final ReplicantSessionAuthorization authorization,
+            @Nullable final SubscriptionIndex subscriptionIndex) {
         _webSocketSession = Objects.requireNonNull(webSocketSession);
+        _subscriptionIndex = subscriptionIndex;
         _authorization = authorization;
         _principal = null == authorization ? null : authorization.getPrincipal();
     }
@@ -149,7 +293,13 @@ public final class ReplicantSession implements Serializable, Closeable {
      * that proxy non-ssl websockets and close the socket after an idle period.</p>
      */
     public void pingTransport() {
-        if (isOpen()) {
+        if (hasOutboundMessages()) {
+            // An asynchronous send is in progress so the connection is active and the basic remote is unavailable
+            LOG.log(
+                    Level.FINE,
+                    () -> "Skipping websocket ping for Replicant Session ID " + getReplicantSessionId()
+                            + " as an asynchronous send is in progress");
+        } else if (isOpen()) {
             LOG.log(Level.FINE, () -> "Pinging websocket for Replicant Session ID " + getReplicantSessionId());
             try {
                 _webSocketSession.getBasicRemote().sendPing(null);
@@ -224,7 +374,63 @@ public final class ReplicantSession implements Serializable, Closeable {
         }
     }
 
-    void queuePacket(@NonNull final Packet packet) {
+    /**
+     * Bound the packets that may be pending for the session.
+     * A value of 0 leaves the corresponding dimension unbounded.
+     *
+     * @param maxPendingPackets     the maximum number of pending packets.
+     * @param maxPendingPacketBytes the maximum estimated size of the pending packets.
+     */
+    void setPendingPacketBudget(final int maxPendingPackets, final long maxPendingPacketBytes) {
+        assert maxPendingPackets >= 0 && maxPendingPacketBytes >= 0;
+        _maxPendingPackets = maxPendingPackets;
+        _maxPendingPacketBytes = maxPendingPacketBytes;
+    }
+
+    /**
+     * Queue a packet for delivery to the client.
+     *
+     * <p>If the packet would exceed the pending packet budget then the client is not consuming changes fast enough
+     * to remain synchronized. The packet and the pending packets are discarded so that their memory can be
+     * reclaimed, and the caller should then arrange for the session to be closed via
+     * {@link #claimPendingPacketBudgetClose()} so that the client reconnects and resubscribes, resynchronizing every
+     * Subscription. The session is not closed here as closing performs blocking I/O on the WebSocket.</p>
+     *
+     * @return true if the packet was queued, false if it was discarded as the budget has been exceeded.
+     */
+    boolean queuePacket(@NonNull final Packet packet) {
+        if (_pendingPacketBudgetExceeded) {
+            return false;
+        }
+        final var maxPendingPackets = _maxPendingPackets;
+        final var maxPendingPacketBytes = _maxPendingPacketBytes;
+        if (0 == maxPendingPackets && 0 == maxPendingPacketBytes) {
+            enqueuePacket(packet);
+            return true;
+        }
+        final var packetSize = 0 != maxPendingPacketBytes ? packet.estimateSize() : 0L;
+        synchronized (_pendingPacketBudgetLock) {
+            if (_pendingPacketBudgetExceeded) {
+                return false;
+            }
+            final var pendingPacketBytes = _pendingPacketBytes.get() + packetSize;
+            if ((0 != maxPendingPacketBytes && pendingPacketBytes > maxPendingPacketBytes)
+                    || (0 != maxPendingPackets
+                            && _pendingSubscriptionPackets.size() + _pendingPackets.size() >= maxPendingPackets)) {
+                onPendingPacketBudgetExceeded(pendingPacketBytes);
+                return false;
+            }
+            // Reserve the budget before the packet is visible so that a concurrent pop never releases more than it
+            // reserved
+            _pendingPacketBytes.addAndGet(packetSize);
+            enqueuePacket(packet);
+            return true;
+        }
+    }
+
+    private void enqueuePacket(@NonNull final Packet packet) {
+        // Count the packet before it is visible so that a concurrent pop never leaves the count stale
+        _pendingPacketCounts.incrementAndGet(packet.getDeliveryClass().ordinal());
         if (packet.fromSubscriptionRequest()) {
             _pendingSubscriptionPackets.add(packet);
         } else {
@@ -232,6 +438,53 @@ public final class ReplicantSession implements Serializable, Closeable {
         }
     }
 
+    boolean isPendingPacketBudgetExceeded() {
+        return _pendingPacketBudgetExceeded;
+    }
+
+    /**
+     * Return true to exactly one caller once the pending packet budget has been exceeded. That caller is responsible
+     * for closing the session via {@link #closeDueToPendingPacketBudgetExceeded()}.
+     */
+    boolean claimPendingPacketBudgetClose() {
+        return _pendingPacketBudgetExceeded && _pendingPacketBudgetCloseClaimed.compareAndSet(false, true);
+    }
+
+    /**
+     * Close the session as the client has not consumed changes fast enough to remain within the pending packet
+     * budget.
+     */
+    void closeDueToPendingPacketBudgetExceeded() {
+        close(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, "Pending packet budget exceeded"));
+    }
+
+    private void onPendingPacketBudgetExceeded(final long pendingPacketBytes) {
+        _pendingPacketBudgetExceeded = true;
+        final var pendingPacketCount = _pendingSubscriptionPackets.size() + _pendingPackets.size();
+        _pendingSubscriptionPackets.clear();
+        _pendingPackets.clear();
+        _pendingPacketBytes.set(0);
+        for (var i = 0; i < _pendingPacketCounts.length(); i++) {
+            _pendingPacketCounts.set(i, 0);
+        }
+        LOG.log(
+                Level.WARNING,
+                () -> "Discarding " + pendingPacketCount + " pending packets with an estimated size of "
+                        + pendingPacketBytes + " for Replicant Session ID " + getReplicantSessionId()
+                        + " as the pending packet budget has been exceeded");
+    }
+
+    private void onPacketPopped(@Nullable final Packet packet) {
+        if (null != packet) {
+            // The counts are reset when the budget is exceeded, after which the pop of a discarded packet is ignored
+            _pendingPacketCounts.updateAndGet(packet.getDeliveryClass().ordinal(), v -> Math.max(0, v - 1));
+            if (0 != _maxPendingPacketBytes) {
+                final var size = packet.estimateSize();
+                _pendingPacketBytes.updateAndGet(v -> Math.max(0L, v - size));
+            }
+        }
+    }
+
     @Nullable
     Packet popPendingPacket() {
         /*
@@ -243,14 +496,347 @@ public final class ReplicantSession implements Serializable, Closeable {
          * Only after the client has been updated with all subscription changing
          * packets do we send other packets.
          */
-        final var packet = _pendingSubscriptionPackets.poll();
-        return null == packet ? _pendingPackets.poll() : packet;
+        final var subscriptionPacket = _pendingSubscriptionPackets.poll();
+        final var packet = null == subscriptionPacket ? _pendingPackets.poll() : subscriptionPacket;
+        onPacketPopped(packet);
+        return packet;
+    }
+
+    /**
+     * Remove and return the next pending packet if it is coalescable and no Subscription packet is pending.
+     * This must only be invoked by the thread that holds the session lock and is processing pending packets.
+     */
+    @Nullable
+    Packet popCoalescablePendingPacket() {
+        if (_pendingSubscriptionPackets.isEmpty()) {
+            final var packet = _pendingPackets.peek();
+            if (null != packet && packet.isCoalescable()) {
+                final var coalescablePacket = _pendingPackets.poll();
+                onPacketPopped(coalescablePacket);
+                return coalescablePacket;
+            }
+        }
+        return null;
     }
 
     boolean hasPendingPackets() {
         return !_pendingSubscriptionPackets.isEmpty() || !_pendingPackets.isEmpty();
     }
 
+    /**
+     * Return the most urgent Delivery Class of the pending packets, or null if no packets are pending.
+     */
+    @Nullable
+    DeliveryClass getPendingDeliveryClass() {
+        for (final var deliveryClass : DeliveryClass.values()) {
+            if (_pendingPacketCounts.get(deliveryClass.ordinal()) > 0) {
+                return deliveryClass;
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    DeliveryClass getQueuedDeliveryClass() {
+        return _queuedDeliveryClass;
+    }
+
+    long getQueuedAt() {
+        return _queuedAt;
+    }
+
+    /**
+     * Record that the broker queued the session.
+     *
+     * @param deliveryClass the Delivery Class the session was queued with.
+     * @param queuedAt      the value of {@link System#nanoTime()} when the session was first queued.
+     */
+    void onQueued(@NonNull final DeliveryClass deliveryClass, final long queuedAt) {
+        _queuedDeliveryClass = deliveryClass;
+        _queuedAt = queuedAt;
+    }
+
+    long getDeliveryDeficit() {
+        return _deliveryDeficit;
+    }
+
+    void setDeliveryDeficit(final long deliveryDeficit) {
+        _deliveryDeficit = deliveryDeficit;
+    }
+
+    /**
+     * Specify whether Change Sets are sent using the compact binary encoding rather than JSON text.
+     * This is negotiated when the client connects and other messages are always sent as JSON text.
+     *
+     * @param binaryChangeSetsEnabled true to send Change Sets using the binary encoding.
+     */
+    public void setBinaryChangeSetsEnabled(final boolean binaryChangeSetsEnabled) {
+        _binaryChangeSetsEnabled = binaryChangeSetsEnabled;
+    }
+
+    public boolean isBinaryChangeSetsEnabled() {
+        return _binaryChangeSetsEnabled;
+    }
+
+    /**
+     * Specify whether the client can decompress Change Sets. This is negotiated when the client connects and
+     * Change Sets are only compressed if a compression threshold has also been configured.
+     *
+     * @param compressionAccepted true if the client accepts compressed Change Sets.
+     */
+    public void setCompressionAccepted(final boolean compressionAccepted) {
+        _compressionAccepted = compressionAccepted;
+    }
+
+    public boolean isCompressionAccepted() {
+        return _compressionAccepted;
+    }
+
+    /**
+     * Specify the size of an encoded Change Set at or above which the Change Set is compressed.
+     *
+     * @param compressionThreshold the size in characters or bytes, or a non-positive value to disable compression.
+     */
+    void setCompressionThreshold(final int compressionThreshold) {
+        _compressionThreshold = compressionThreshold;
+    }
+
+    boolean isCompressionEnabled() {
+        return _compressionAccepted && _compressionThreshold > 0;
+    }
+
+    private boolean shouldCompress(final int size) {
+        return isCompressionEnabled() && size >= _compressionThreshold;
+    }
+
+    /**
+     * Deliver subsequent messages asynchronously with at most the specified number of characters accepted but not
+     * yet sent. Messages are sent one at a time, in the order they were accepted, so that the client observes the
+     * same ordering as with synchronous delivery. The limit is soft: a message is always accepted, and
+     * {@link #hasOutboundCapacity()} reports when the caller should stop producing messages.
+     *
+     * @param maxOutboundBytes the maximum number of characters in flight. Must be greater than 0.
+     */
+    void enableAsyncDelivery(final long maxOutboundBytes) {
+        assert maxOutboundBytes > 0;
+        _maxOutboundBytes = maxOutboundBytes;
+    }
+
+    boolean isAsyncDeliveryEnabled() {
+        return 0 != _maxOutboundBytes;
+    }
+
+    /**
+     * Send a text message to the client.
+     * The message is sent synchronously unless asynchronous delivery has been enabled, in which case it is queued
+     * behind any messages that have yet to be sent.
+     *
+     * @param message the message.
+     * @return true if the message was sent or queued, false if the session is closed or the send failed.
+     */
+    public boolean sendText(@NonNull final String message) {
+        return isAsyncDeliveryEnabled()
+                ? queueOutboundMessage(message)
+                : WebSocketUtil.sendText(_webSocketSession, message);
+    }
+
+    /**
+     * Send a binary message to the client.
+     * The message is sent synchronously unless asynchronous delivery has been enabled, in which case it is queued
+     * behind any messages that have yet to be sent. The message must not be modified after it has been sent.
+     *
+     * @param message the message.
+     * @return true if the message was sent or queued, false if the session is closed or the send failed.
+     */
+    boolean sendBinary(@NonNull final byte[] message) {
+        return isAsyncDeliveryEnabled()
+                ? queueOutboundMessage(message)
+                : WebSocketUtil.sendBinary(_webSocketSession, ByteBuffer.wrap(message));
+    }
+
+    private boolean queueOutboundMessage(@NonNull final Object message) {
+        if (!isOpen()) {
+            return false;
+        } else {
+            final boolean startSend;
+            synchronized (_outboundLock) {
+                _outboundMessages.add(message);
+                _outboundBytes += sizeOf(message);
+                startSend = !_sendInProgress;
+                if (startSend) {
+                    _sendInProgress = true;
+                    _outboundProgressAt = System.nanoTime();
+                }
+            }
+            if (startSend) {
+                sendQueuedMessages();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Return true if more messages should be produced for the session.
+     * This is always true when asynchronous delivery is disabled.
+     */
+    boolean hasOutboundCapacity() {
+        if (!isAsyncDeliveryEnabled()) {
+            return true;
+        } else {
+            synchronized (_outboundLock) {
+                return _outboundBytes < _maxOutboundBytes;
+            }
+        }
+    }
+
+    /**
+     * Run the listener once the session has outbound capacity.
+     * The listener is run immediately by the current thread if the session has capacity, otherwise it is run by the
+     * thread that completes the send that restores capacity. Only the most recently registered listener is retained.
+     */
+    void onOutboundCapacity(@NonNull final Runnable listener) {
+        if (isAsyncDeliveryEnabled()) {
+            synchronized (_outboundLock) {
+                if (_outboundBytes >= _maxOutboundBytes) {
+                    _outboundCapacityListener = listener;
+                    return;
+                }
+            }
+        }
+        listener.run();
+    }
+
+    /**
+     * Return true if an asynchronous send has made no progress within the timeout.
+     */
+    boolean isOutboundStalled(final long timeoutNanos) {
+        synchronized (_outboundLock) {
+            return _sendInProgress && System.nanoTime() - _outboundProgressAt > timeoutNanos;
+        }
+    }
+
+    private boolean hasOutboundMessages() {
+        synchronized (_outboundLock) {
+            return _sendInProgress;
+        }
+    }
+
+    private static int sizeOf(@NonNull final Object message) {
+        return message instanceof String ? ((String) message).length() : ((byte[]) message).length;
+    }
+
+    /**
+     * Send the queued messages, one at a time, until a send does not complete before the container returns from
+     * starting it. Containers may invoke the completion handler on the sending thread when a write completes
+     * synchronously, so the messages are sent from a loop rather than from the completion handler, which would
+     * otherwise recurse once for each queued message. A send that completes later continues the loop on the thread
+     * that completes it.
+     */
+    private void sendQueuedMessages() {
+        var sendNext = true;
+        while (sendNext) {
+            final Object message;
+            synchronized (_outboundLock) {
+                message = _outboundMessages.peek();
+            }
+            assert null != message;
+            final var send = new OutboundSend(message);
+            try {
+                if (message instanceof String) {
+                    _webSocketSession.getAsyncRemote().sendText((String) message, send::onResult);
+                } else {
+                    _webSocketSession
+                            .getAsyncRemote()
+                            .sendBinary(ByteBuffer.wrap((byte[]) message), send::onResult);
+                }
+            } catch (final RuntimeException e) {
+                // Typically an IllegalStateException as the websocket closed after the message was accepted
+                send.onResult(new SendResult(e));
+            }
+            final var result = send.detachIfPending();
+            sendNext = null != result && onSendComplete(message, result);
+        }
+    }
+
+    /**
+     * Record the completion of the send of the message at the head of the queue.
+     *
+     * @return true if the next queued message should be sent.
+     */
+    private boolean onSendComplete(@NonNull final Object message, @NonNull final SendResult result) {
+        final boolean sendNext;
+        final Runnable listener;
+        synchronized (_outboundLock) {
+            _outboundMessages.poll();
+            _outboundBytes -= sizeOf(message);
+            _outboundProgressAt = System.nanoTime();
+            if (!result.isOK()) {
+                // Discard the remaining messages as the session is closed below
+                _outboundMessages.clear();
+                _outboundBytes = 0;
+            }
+            sendNext = !_outboundMessages.isEmpty();
+            _sendInProgress = sendNext;
+            listener = _outboundBytes < _maxOutboundBytes ? _outboundCapacityListener : null;
+            if (null != listener) {
+                _outboundCapacityListener = null;
+            }
+        }
+        if (!result.isOK()) {
+            LOG.log(
+                    Level.FINE,
+                    () -> "Asynchronous send for Replicant Session ID " + getReplicantSessionId() + " generated error "
+                            + result.getException());
+            close(new CloseReason(CloseReason.CloseCodes.UNEXPECTED_CONDITION, "Failed to send message"));
+        }
+        if (null != listener) {
+            listener.run();
+        }
+        return sendNext;
+    }
+
+    /**
+     * A single asynchronous send. The result is handed to the sending loop if the send completed before the loop
+     * checked for it, otherwise the thread that completes the send continues the loop.
+     */
+    private final class OutboundSend {
+        @NonNull
+        private final Object _message;
+
+        @Nullable
+        private SendResult _result;
+
+        private boolean _detached;
+
+        OutboundSend(@NonNull final Object message) {
+            _message = message;
+        }
+
+        void onResult(@NonNull final SendResult result) {
+            synchronized (this) {
+                if (!_detached) {
+                    _result = result;
+                    return;
+                }
+            }
+            if (onSendComplete(_message, result)) {
+                sendQueuedMessages();
+            }
+        }
+
+        /**
+         * Return the result if the send has completed, otherwise leave the completion to the thread that completes
+         * the send and return null.
+         */
+        @Nullable
+        synchronized SendResult detachIfPending() {
+            if (null == _result) {
+                _detached = true;
+            }
+            return _result;
+        }
+    }
+
     /**
      * Send a Change Set to the client.
      *
@@ -265,15 +851,91 @@ public final class ReplicantSession implements Serializable, Closeable {
             @Nullable final JsonValue commandResult,
             @Nullable final String datasetCacheVersion,
             @NonNull final ChangeSet changeSet) {
+        sendChangeSet(requestId, commandResult, datasetCacheVersion, changeSet, null);
+    }
+
+    /**
+     * Send a Change Set to the client, reusing the payload from the cache if an identical Change Set has
+     * already been encoded for another session.
+     */
+    void sendChangeSet(
+            @Nullable final Integer requestId,
+            @Nullable final JsonValue commandResult,
+            @Nullable final String datasetCacheVersion,
+            @NonNull final ChangeSet changeSet,
+            @Nullable final EncodedChangeSetCache encodedChangeSetCache) {
         assert null == commandResult || null != requestId;
         ensureLockedByCurrentThread();
-        final var encodedChangeSet =
-                JsonEncoder.encodeChangeSet(requestId, commandResult, datasetCacheVersion, changeSet);
+        // Payloads that are shared with other sessions are also compressed once for all of them
+        final var sharedCache = null == requestId ? encodedChangeSetCache : null;
+        if (isBinaryChangeSetsEnabled()) {
+            final var encodedChangeSet = null != encodedChangeSetCache
+                    ? encodedChangeSetCache.encodeBinaryChangeSet(
+                            requestId, commandResult, datasetCacheVersion, changeSet)
+                    : BinaryEncoder.encodeChangeSet(requestId, commandResult, datasetCacheVersion, changeSet);
+            if (shouldCompress(encodedChangeSet.length)) {
+                sendCompressedChangeSet(
+                        null != sharedCache
+                                ? sharedCache.compressBinaryChangeSet(encodedChangeSet)
+                                : ChangeSetCompressor.compress(
+                                        Messages.CompressedChangeSet.FORMAT_DEFLATED_BINARY, encodedChangeSet),
+                        encodedChangeSet.length);
+            } else {
+                LOG.log(
+                        Level.FINE,
+                        () -> "Sending binary Change Set for Replicant Session ID " + getReplicantSessionId() + " with "
+                                + encodedChangeSet.length + " bytes");
+                if (!sendBinary(encodedChangeSet)) {
+                    LOG.log(
+                            Level.FINE,
+                            () -> "Failed to send binary Change Set for Replicant Session ID "
+                                    + getReplicantSessionId());
+                }
+            }
+            return;
+        }
+        if (changeSet.getEntityChanges().size() >= STREAMING_ENTITY_CHANGE_THRESHOLD
+                && null == sharedCache
+                && !isAsyncDeliveryEnabled()) {
+            // Large Change Sets that are not shared with other sessions are streamed to bound peak memory.
+            // Streaming blocks on the transport so it is not used when asynchronous delivery is enabled.
+            final WebSocketUtil.TextContent content = writer ->
+                    JsonEncoder.encodeChangeSet(writer, requestId, commandResult, datasetCacheVersion, changeSet);
+            final var compress = isCompressionEnabled();
+            LOG.log(
+                    Level.FINE,
+                    () -> "Streaming " + (compress ? "compressed " : "") + "Change Set for Replicant Session ID "
+                            + getReplicantSessionId() + " with " + changeSet.getEntityChanges().size()
+                            + " Entity Changes");
+            final var sent = compress
+                    ? WebSocketUtil.streamBinary(
+                            getWebSocketSession(), output -> ChangeSetCompressor.compress(output, content))
+                    : WebSocketUtil.streamText(getWebSocketSession(), content);
+            if (!sent) {
+                LOG.log(
+                        Level.FINE,
+                        () -> "Failed to stream Change Set for Replicant Session ID " + getReplicantSessionId());
+            }
+            return;
+        }
+        final var encodedChangeSet = null != encodedChangeSetCache
+                ? encodedChangeSetCache.encodeChangeSet(requestId, commandResult, datasetCacheVersion, changeSet)
+                : JsonEncoder.encodeChangeSet(requestId, commandResult, datasetCacheVersion, changeSet);
+        if (shouldCompress(encodedChangeSet.length())) {
+            sendCompressedChangeSet(
+                    null != sharedCache
+                            ? sharedCache.compressChangeSet(encodedChangeSet)
+                            : ChangeSetCompressor.compress(
+                                    Messages.CompressedChangeSet.FORMAT_DEFLATED_JSON,
+                                    encodedChangeSet.getBytes(StandardCharsets.UTF_8)),
+                    encodedChangeSet.length());
+            return;
+        }
         LOG.log(
                 Level.FINE,
                 () -> "Sending Change Set for Replicant Session ID " + getReplicantSessionId() + " with payload "
                         + encodedChangeSet);
-        if (!WebSocketUtil.sendText(getWebSocketSession(), encodedChangeSet)) {
+        if (!sendText(encodedChangeSet)) {
             LOG.log(
                     Level.FINE,
                     () -> "Failed to send Change Set for Replicant Session ID " + getReplicantSessionId()
@@ -281,6 +943,55 @@ public final class ReplicantSession implements Serializable, Closeable {
         }
     }
 
+    /**
+     * Send the complete Change Set of a Dataset Cache Entry to the client using the payload encoded for the entry,
+     * so that the Change Set is not encoded again for each session that subscribes to the Dataset.
+     */
+    void sendDatasetCacheEntryChangeSet(
+            @Nullable final Integer requestId, @NonNull final DatasetCacheEntry datasetCacheEntry) {
+        ensureLockedByCurrentThread();
+        if (isBinaryChangeSetsEnabled()) {
+            final var encodedSize = datasetCacheEntry.getBinaryEncodedChangeSetLength();
+            if (shouldCompress(encodedSize)) {
+                sendCompressedChangeSet(datasetCacheEntry.getCompressedBinaryChangeSet(requestId), encodedSize);
+            } else if (!sendBinary(datasetCacheEntry.getBinaryEncodedChangeSet(requestId))) {
+                LOG.log(
+                        Level.FINE,
+                        () -> "Failed to send binary Change Set for Replicant Session ID " + getReplicantSessionId());
+            }
+        } else {
+            final var encodedSize = datasetCacheEntry.getEncodedChangeSetLength();
+            if (shouldCompress(encodedSize)) {
+                sendCompressedChangeSet(datasetCacheEntry.getCompressedChangeSet(requestId), encodedSize);
+            } else if (datasetCacheEntry.isReleased() && !isAsyncDeliveryEnabled()) {
+                // The payload of an entry released to a Dataset Cache Store is streamed from the store rather than
+                // decoded into a String for each send. Asynchronous delivery queues messages so it needs the String.
+                if (!WebSocketUtil.streamText(
+                        getWebSocketSession(), writer -> datasetCacheEntry.writeEncodedChangeSet(requestId, writer))) {
+                    LOG.log(
+                            Level.FINE,
+                            () -> "Failed to stream Change Set for Replicant Session ID " + getReplicantSessionId());
+                }
+            } else if (!sendText(datasetCacheEntry.getEncodedChangeSet(requestId))) {
+                LOG.log(
+                        Level.FINE,
+                        () -> "Failed to send Change Set for Replicant Session ID " + getReplicantSessionId());
+            }
+        }
+    }
+
+    private void sendCompressedChangeSet(@NonNull final byte[] compressedChangeSet, final int encodedSize) {
+        LOG.log(
+                Level.FINE,
+                () -> "Sending compressed Change Set for Replicant Session ID " + getReplicantSessionId() + " with "
+                        + compressedChangeSet.length + " bytes compressed from " + encodedSize);
+        if (!sendBinary(compressedChangeSet)) {
+            LOG.log(
+                    Level.FINE,
+                    () -> "Failed to send compressed Change Set for Replicant Session ID " + getReplicantSessionId());
+        }
+    }
+
     void ensureLockedByCurrentThread() {
         if (!_lock.isHeldByCurrentThread()) {
             throw new IllegalStateException("Expected session to be locked by the current thread");
@@ -289,10 +1000,15 @@ public final class ReplicantSession implements Serializable, Closeable {
 
     @Nullable
     String getDatasetCacheVersion(@NonNull final DatasetAddress datasetAddress) {
-        return _datasetCacheVersions.get(datasetAddress);
+        return getDatasetCacheVersion(DatasetCacheKey.of(datasetAddress));
+    }
+
+    @Nullable
+    String getDatasetCacheVersion(@NonNull final DatasetCacheKey datasetCacheKey) {
+        return _datasetCacheVersions.get(datasetCacheKey);
     }
 
-    public void setDatasetCacheVersions(@NonNull final Map<DatasetAddress, String> datasetCacheVersions) {
+    public void setDatasetCacheVersions(@NonNull final Map<DatasetCacheKey, String> datasetCacheVersions) {
         ensureLockedByCurrentThread();
         _datasetCacheVersions.clear();
         for (final var datasetCacheVersion : datasetCacheVersions.entrySet()) {
@@ -302,11 +1018,16 @@ public final class ReplicantSession implements Serializable, Closeable {
 
     void setDatasetCacheVersion(
             @NonNull final DatasetAddress datasetAddress, @Nullable final String datasetCacheVersion) {
+        setDatasetCacheVersion(DatasetCacheKey.of(datasetAddress), datasetCacheVersion);
+    }
+
+    void setDatasetCacheVersion(
+            @NonNull final DatasetCacheKey datasetCacheKey, @Nullable final String datasetCacheVersion) {
         ensureLockedByCurrentThread();
         if (null == datasetCacheVersion) {
-            _datasetCacheVersions.remove(datasetAddress);
+            _datasetCacheVersions.remove(datasetCacheKey);
         } else {
-            _datasetCacheVersions.put(datasetAddress, datasetCacheVersion);
+            _datasetCacheVersions.put(datasetCacheKey, datasetCacheVersion);
         }
     }
 
@@ -415,6 +1136,62 @@ public final class ReplicantSession implements Serializable, Closeable {
         getSubscription(datasetAddress).setFilterParameter(filterParameter);
     }
 
+    /**
+     * Return the Subscription Generation. It changes whenever a Subscription is created or deleted, or the Entity
+     * Change Candidates of a transaction are routed to the session, within a Dataset Root that is being collected.
+     */
+    long getSubscriptionGeneration() {
+        ensureLockedByCurrentThread();
+        return _subscriptionGeneration;
+    }
+
+    /**
+     * Record that the Subscription data of the Dataset Addresses is being collected outside the session lock.
+     */
+    void beginSubscriptionDataCollection(@NonNull final Collection<DatasetAddress> datasetAddresses) {
+        ensureLockedByCurrentThread();
+        for (final var datasetAddress : datasetAddresses) {
+            _collectingDatasetRoots.merge(toDatasetRootKey(datasetAddress), 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Record that the Subscription data of the Dataset Addresses is no longer being collected outside the session lock.
+     */
+    void completeSubscriptionDataCollection(@NonNull final Collection<DatasetAddress> datasetAddresses) {
+        ensureLockedByCurrentThread();
+        for (final var datasetAddress : datasetAddresses) {
+            _collectingDatasetRoots.computeIfPresent(
+                    toDatasetRootKey(datasetAddress), (key, count) -> 1 == count ? null : count - 1);
+        }
+    }
+
+    /**
+     * Record that Entity Change Candidates routed to the Dataset Addresses have been routed to the session.
+     */
+    void recordRoutedDatasetAddresses(@NonNull final Collection<DatasetAddress> datasetAddresses) {
+        ensureLockedByCurrentThread();
+        if (!_collectingDatasetRoots.isEmpty()) {
+            for (final var datasetAddress : datasetAddresses) {
+                if (_collectingDatasetRoots.containsKey(toDatasetRootKey(datasetAddress))) {
+                    _subscriptionGeneration++;
+                    return;
+                }
+            }
+        }
+    }
+
+    private void recordSubscriptionChange(@NonNull final DatasetAddress datasetAddress) {
+        if (_collectingDatasetRoots.containsKey(toDatasetRootKey(datasetAddress))) {
+            _subscriptionGeneration++;
+        }
+    }
+
+    @NonNull
+    private DatasetRootKey toDatasetRootKey(@NonNull final DatasetAddress datasetAddress) {
+        return new DatasetRootKey(datasetAddress.datasetId(), datasetAddress.datasetRootId());
+    }
+
     /**
      * Create and return a Subscription for the specified Dataset Address.
      *
@@ -430,11 +1207,14 @@ public final class ReplicantSession implements Serializable, Closeable {
                             + " at Dataset Address " + datasetAddress);
             final var subscription = new Subscription(this, datasetAddress, mode);
             _subscriptions.put(datasetAddress, subscription);
-            _subscriptionsByDatasetRoot
-                    .computeIfAbsent(
-                            new DatasetRootKey(datasetAddress.datasetId(), datasetAddress.datasetRootId()),
-                            key -> new HashSet<>())
-                    .add(subscription);
+            recordSubscriptionChange(datasetAddress);
+            final var subscriptions = _subscriptionsByDatasetRoot.computeIfAbsent(
+                    new DatasetRootKey(datasetAddress.datasetId(), datasetAddress.datasetRootId()),
+                    key -> new HashSet<>());
+            if (subscriptions.isEmpty() && null != _subscriptionIndex) {
+                _subscriptionIndex.add(this, datasetAddress.datasetId(), datasetAddress.datasetRootId());
+            }
+            subscriptions.add(subscription);
             return subscription;
         } else {
             throw new IllegalStateException("Subscription for Dataset Address " + datasetAddress + " already exists");
@@ -557,12 +1337,16 @@ public final class ReplicantSession implements Serializable, Closeable {
         final var datasetAddress = subscription.datasetAddress();
         final var removed = null != _subscriptions.remove(datasetAddress);
         if (removed) {
+            recordSubscriptionChange(datasetAddress);
             final var key = new DatasetRootKey(datasetAddress.datasetId(), datasetAddress.datasetRootId());
             final var subscriptions = _subscriptionsByDatasetRoot.get(key);
             if (null != subscriptions) {
                 subscriptions.remove(subscription);
                 if (subscriptions.isEmpty()) {
                     _subscriptionsByDatasetRoot.remove(key);
+                    if (null != _subscriptionIndex) {
+                        _subscriptionIndex.remove(this, datasetAddress.datasetId(), datasetAddress.datasetRootId());
+                    }
                 }
             }
             LOG.log(
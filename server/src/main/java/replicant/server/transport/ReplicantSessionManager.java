@@ -62,7 +62,7 @@ public interface ReplicantSessionManager {
     SystemSchema getSystemSchema();
 
     void setDatasetCacheVersions(
-            @NonNull ReplicantSession session, @NonNull final Map<DatasetAddress, String> datasetCacheVersions);
+            @NonNull ReplicantSession session, @NonNull final Map<DatasetCacheKey, String> datasetCacheVersions);
 
     void subscribe(
             @NonNull ReplicantSession session,
@@ -84,8 +84,36 @@ public interface ReplicantSessionManager {
      */
     boolean sendChangeSet(@NonNull ReplicantSession session, @NonNull Packet packet);
 
+    /**
+     * Invalidate the Dataset Cache Entries affected by the changes of a completed Replication Invocation and queue a
+     * packet for every session that they may affect. The initiating session is always queued a packet so that its
+     * request is paired with a Change Set. If publishing fails, every session that may have missed the changes is
+     * closed so that its client resynchronizes.
+     *
+     * @param batch the changes of the Replication Invocation.
+     */
+    void publishTransactionChangeBatch(@NonNull TransactionChangeBatch batch);
+
+    /**
+     * Collect the Dataset Cache Entry for the Dataset Cache Key unless a current entry is present.
+     * This is invoked in the background so that a later subscriber reuses the entry rather than collecting it.
+     *
+     * @param datasetCacheKey the Dataset Cache Key.
+     * @return true if a current Dataset Cache Entry is present, false if the Dataset is not cacheable or the Dataset
+     * Address was invalid.
+     */
+    boolean warmDatasetCacheEntry(@NonNull DatasetCacheKey datasetCacheKey);
+
     /**
      * Clear every Dataset Cache Entry associated with the System Schema.
      */
     void clearDatasetCacheEntries();
+
+    /**
+     * Return the counters of the Dataset Cache so that its budget can be sized against the heap.
+     *
+     * @return a snapshot of the counters.
+     */
+    @NonNull
+    DatasetCacheStatistics getDatasetCacheStatistics();
 }
@@ -1,25 +1,29 @@
 package replicant.server.transport;
 
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -60,17 +64,67 @@ public class ReplicantSessionManagerImpl implements ReplicantSessionManager {
     @NonNull
     private static final Logger LOG = Logger.getLogger(ReplicantSessionManagerImpl.class.getName());
 
+    /**
+     * The number of subscribers that a Dataset Cache Entry must have been reused by before it is refreshed in the
+     * background after an invalidation.
+     */
+    private static final int HOT_DATASET_CACHE_ENTRY_USE_COUNT = 2;
+
+    /**
+     * The number of times a Subscription request collects its data outside the session lock before it gives up on a
+     * session whose Subscriptions keep changing and collects the data while holding the lock.
+     */
+    private static final int MAX_SUBSCRIPTION_DATA_COLLECTIONS = 3;
+
+    /**
+     * The sessions keyed by Replicant Session ID. Updates lock a single bin of the map, so sessions are created and
+     * removed without contending with each other or with readers, and iteration observes the live map rather than
+     * copying it.
+     */
     @NonNull
-    private final ReadWriteLock _lock = new ReentrantReadWriteLock();
+    private final Map<String, ReplicantSession> _sessions = new ConcurrentHashMap<>();
 
     @NonNull
-    private final Map<String, ReplicantSession> _sessions = new HashMap<>();
+    private final SubscriptionIndex _subscriptionIndex = new SubscriptionIndex();
 
+    /**
+     * Subscription requests hold the read lock while they reuse or collect Dataset Cache Entries, so that Dataset
+     * Cache Entries for different Dataset Cache Keys are collected concurrently. Invalidation holds the write lock so
+     * that an entry is never reused after an Entity Change that has not been routed to its subscribers.
+     */
     @NonNull
     private final ReadWriteLock _datasetCacheEntriesLock = new ReentrantReadWriteLock();
 
     @NonNull
-    private final Map<DatasetAddress, DatasetCacheEntry> _datasetCacheEntries = new HashMap<>();
+    private final Map<DatasetCacheKey, DatasetCacheEntry> _datasetCacheEntries = new ConcurrentHashMap<>();
+
+    /**
+     * The keys of the Dataset Cache Entries that have been used, ordered from the least to the most recently used.
+     * Guarded by the use lock.
+     */
+    @NonNull
+    private final LinkedHashSet<DatasetCacheKey> _datasetCacheKeysByUse = new LinkedHashSet<>();
+
+    /**
+     * The estimated heap retained by the Dataset Cache Entries in memory.
+     */
+    @NonNull
+    private final AtomicLong _datasetCacheBytes = new AtomicLong();
+
+    @NonNull
+    private final LongAdder _datasetCacheHitCount = new LongAdder();
+
+    @NonNull
+    private final LongAdder _datasetCacheMissCount = new LongAdder();
+
+    @NonNull
+    private final LongAdder _datasetCacheEvictionCount = new LongAdder();
+
+    /**
+     * Held while the order of use of the Dataset Cache Entries is read or updated.
+     */
+    @NonNull
+    private final Object _datasetCacheUseLock = new Object();
 
     @SuppressWarnings("CdiInjectionPointsInspection")
     @Inject
@@ -83,10 +137,101 @@ public class ReplicantSessionManagerImpl implements ReplicantSessionManager {
     @Inject
     private ReplicantMessageBroker _broker;
 
+    @Inject
+    private DatasetCacheRefresher _datasetCacheRefresher;
+
+    @Inject
+    private DatasetCacheStore _datasetCacheStore;
+
     @Inject
     @ReplicantSystem("ScheduledExecutorService")
     private ScheduledExecutorService _scheduledExecutorService;
 
+    /**
+     * The maximum number of characters accepted for asynchronous delivery to a session but not yet sent.
+     * Messages are sent synchronously when this is null or not positive.
+     */
+    @Inject
+    @ReplicantSystem("broker/maxInFlightBytesPerSession")
+    private Integer _maxInFlightBytesPerSession;
+
+    /**
+     * The maximum number of packets pending for a session before the session is closed to force a resynchronization.
+     * The number is unbounded when this is null or not positive.
+     */
+    @Inject
+    @ReplicantSystem("broker/maxPendingPacketsPerSession")
+    private Integer _maxPendingPacketsPerSession;
+
+    /**
+     * The maximum estimated size of the packets pending for a session before the session is closed to force a
+     * resynchronization. The size is unbounded when this is null or not positive.
+     */
+    @Inject
+    @ReplicantSystem("broker/maxPendingBytesPerSession")
+    private Integer _maxPendingBytesPerSession;
+
+    /**
+     * The time after which a session whose asynchronous send has not completed is closed.
+     * Stalled sessions are not closed when this is null or not positive.
+     */
+    @Inject
+    @ReplicantSystem("broker/sendStallTimeoutMs")
+    private Integer _sendStallTimeoutMs;
+
+    /**
+     * The size of an encoded Change Set at or above which it is compressed for clients that accept compression.
+     * Change Sets are never compressed when this is null or not positive.
+     */
+    @Inject
+    @ReplicantSystem("broker/changeSetCompressionThreshold")
+    private Integer _changeSetCompressionThreshold;
+
+    /**
+     * True if the changes of a completed Replication Invocation are handed to the broker as a Transaction Change Batch
+     * and published to the sessions by a broker thread, so that the transaction thread does not invalidate Dataset
+     * Cache Entries or queue a packet for every affected session. Changes are published on the transaction thread
+     * when this is null or false.
+     */
+    @Inject
+    @ReplicantSystem("broker/asyncFanOut")
+    private Boolean _asyncFanOut;
+
+    /**
+     * True if an explicit Subscription request collects the data of its new Subscriptions into a private Change Set
+     * before it acquires the session lock, and only holds the lock to check that the session is unchanged, record the
+     * Subscriptions and queue the packet. The data is collected while holding the lock when this is null or false.
+     */
+    @Inject
+    @ReplicantSystem("subscription/collectOutsideSessionLock")
+    private Boolean _collectSubscriptionDataOutsideSessionLock;
+
+    /**
+     * True if the Entity Changes routed to an Unfiltered Cacheable Dataset are merged into its Dataset Cache Entry
+     * rather than invalidating it. Structural changes still invalidate the entry. Entries are always invalidated when
+     * this is null or false.
+     */
+    @Inject
+    @ReplicantSystem("cache/patchDatasetCacheEntries")
+    private Boolean _patchDatasetCacheEntries;
+
+    /**
+     * True if Dataset Cache Versions are derived from the content of the Change Set so that every node, and the same
+     * node after a restart, assigns an equal version to equal content. Versions are generated randomly when this is
+     * null or false.
+     */
+    @Inject
+    @ReplicantSystem("cache/contentAddressedDatasetCacheVersions")
+    private Boolean _contentAddressedDatasetCacheVersions;
+
+    /**
+     * The estimated heap that the Dataset Cache Entries may retain before the least recently used entries are
+     * evicted. Entries are only removed by invalidation when this is null or not positive.
+     */
+    @Inject
+    @ReplicantSystem("cache/maxBytes")
+    private Long _datasetCacheMaxBytes;
+
     @Nullable
     private ScheduledFuture<?> _removeClosedSessionsFuture;
 
@@ -105,7 +250,7 @@ public class ReplicantSessionManagerImpl implements ReplicantSessionManager {
         if (LOG.isLoggable(Level.INFO)) {
             LOG.log(
                     Level.INFO,
-                    "event=session.manager.stop sessionCount=" + getSessions().size());
+                    "event=session.manager.stop sessionCount=" + _sessions.size());
         }
         if (null != _removeClosedSessionsFuture) {
             _removeClosedSessionsFuture.cancel(true);
@@ -138,19 +283,40 @@ public class ReplicantSessionManagerImpl implements ReplicantSessionManager {
             @NonNull final ReplicantSession session,
             @Nullable final Integer requestId,
             @NonNull final Runnable action) {
+        if (isAsyncFanOutEnabled()) {
+            // Wait for the changes of earlier transactions to be published so that the Subscription request observes
+            // the Dataset Cache Entries they invalidate and its packets follow the packets they queue.
+            _broker.awaitQueuedTransactionChangeBatches();
+        }
         final var lock = session.getLock();
         try {
             lock.lockInterruptibly();
+            lockedRequest(invocationKey, session, requestId, action);
+        } catch (final InterruptedException ie) {
+            session.closeDueToInterrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Run the action as a Replication Invocation. The caller must hold the session lock.
+     */
+    private void lockedRequest(
+            @NonNull final String invocationKey,
+            @NonNull final ReplicantSession session,
+            @Nullable final Integer requestId,
+            @NonNull final Runnable action) {
+        _subscriptionIndex.beginSubscriptionUpdate(session);
+        try {
             startReplicationInvocation(invocationKey, session, requestId);
             try {
                 action.run();
             } finally {
                 completeReplicationInvocation(invocationKey);
             }
-        } catch (final InterruptedException ie) {
-            session.closeDueToInterrupt();
         } finally {
-            lock.unlock();
+            _subscriptionIndex.completeSubscriptionUpdate(session);
         }
     }
 
@@ -173,10 +339,12 @@ public class ReplicantSessionManagerImpl implements ReplicantSessionManager {
             @NonNull final ReplicantSession session,
             final int requestId,
             @NonNull final Runnable action) {
-        sessionLockingRequest(invocationKey, session, requestId, () -> {
-            _registry.putResource(ServerConstants.SUBSCRIPTION_REQUEST_KEY, "1");
-            action.run();
-        });
+        sessionLockingRequest(invocationKey, session, requestId, () -> subscriptionRequest(action));
+    }
+
+    private void subscriptionRequest(@NonNull final Runnable action) {
+        _registry.putResource(ServerConstants.SUBSCRIPTION_REQUEST_KEY, "1");
+        action.run();
     }
 
     /**
@@ -233,12 +401,23 @@ public class ReplicantSessionManagerImpl implements ReplicantSessionManager {
                         ? Collections.<EntityChangeCandidate>emptySet()
                         : entityChangeCandidateSet.getEntityChangeCandidates();
                 if (null != initiatingSessionChangeSet || !entityChangeCandidates.isEmpty() || null != requestId) {
-                    requestComplete = !saveEntityChangeCandidates(
-                            replicantSessionId,
+                    final var initiator = null == replicantSessionId ? null : getSession(replicantSessionId);
+                    final var batch = new TransactionChangeBatch(
+                            initiator,
                             requestId,
                             commandResult,
                             entityChangeCandidates,
-                            initiatingSessionChangeSet);
+                            initiatingSessionChangeSet,
+                            null != _registry.getResource(ServerConstants.SUBSCRIPTION_REQUEST_KEY),
+                            null != _registry.getResource(ServerConstants.DATASET_CACHE_ENTRY_HANDLED_KEY));
+                    if (isAsyncFanOutEnabled()) {
+                        _broker.queueTransactionChangeBatch(batch);
+                    } else {
+                        publishTransactionChangeBatch(batch);
+                    }
+                    // The initiator has been impacted, even if the underlying session has been closed,
+                    // as it is always queued a packet that completes the request.
+                    requestComplete = null == initiator;
                 }
             }
             final var complete = (String) _registry.getResource(ServerConstants.REQUEST_COMPLETE_KEY);
@@ -273,59 +452,55 @@ public class ReplicantSessionManagerImpl implements ReplicantSessionManager {
     @SuppressWarnings("resource")
     @Override
     public void invalidateSession(@NonNull final ReplicantSession session) {
-        var removed = false;
-        _lock.writeLock().lock();
-        try {
-            if (null != _sessions.remove(session.getReplicantSessionId())) {
-                removed = true;
-                session.close();
-            }
-        } finally {
-            _lock.writeLock().unlock();
+        final var removed = removeSession(session);
+        if (removed) {
+            session.close();
         }
         if (LOG.isLoggable(removed ? Level.INFO : Level.FINE)) {
             LOG.log(
                     removed ? Level.INFO : Level.FINE,
                     "event=session.invalidate replicantSessionId=" + session.getReplicantSessionId() + " removed="
                             + removed + " sessionCount="
-                            + getSessions().size());
+                            + _sessions.size());
         }
     }
 
-    @Override
-    @Nullable
-    public ReplicantSession getSession(@NonNull final String replicantSessionId) {
-        _lock.readLock().lock();
-        try {
-            return _sessions.get(replicantSessionId);
-        } finally {
-            _lock.readLock().unlock();
+    /**
+     * Remove the session from the registry and the Subscription Index unless another thread has already removed it.
+     *
+     * @return true if this invocation removed the session.
+     */
+    private boolean removeSession(@NonNull final ReplicantSession session) {
+        if (_sessions.remove(session.getReplicantSessionId(), session)) {
+            _subscriptionIndex.removeSession(session);
+            return true;
+        } else {
+            return false;
         }
     }
 
-    @NonNull
-    Set<ReplicantSession> getSessions() {
-        _lock.readLock().lock();
-        try {
-            return new HashSet<>(_sessions.values());
-        } finally {
-            _lock.readLock().unlock();
-        }
+    @Override
+    @Nullable
+    public ReplicantSession getSession(@NonNull final String replicantSessionId) {
+        return _sessions.get(replicantSessionId);
     }
 
     @Override
     @NonNull
     public ReplicantSession createSession(
             @NonNull final Session webSocketSession, @NonNull final ReplicantSessionAuthorization authorization) {
-        final var session = new ReplicantSession(webSocketSession, authorization);
-        var sessionCount = 0;
-        _lock.writeLock().lock();
-        try {
-            _sessions.put(session.getReplicantSessionId(), session);
-            sessionCount = _sessions.size();
-        } finally {
-            _lock.writeLock().unlock();
-        }
+        final var session = new ReplicantSession(webSocketSession, authorization, _subscriptionIndex);
+        if (null != _maxInFlightBytesPerSession && _maxInFlightBytesPerSession > 0) {
+            session.enableAsyncDelivery(_maxInFlightBytesPerSession);
+        }
+        if (null != _changeSetCompressionThreshold) {
+            session.setCompressionThreshold(_changeSetCompressionThreshold);
+        }
+        session.setPendingPacketBudget(
+                null != _maxPendingPacketsPerSession ? Math.max(0, _maxPendingPacketsPerSession) : 0,
+                null != _maxPendingBytesPerSession ? Math.max(0, _maxPendingBytesPerSession) : 0);
+        _sessions.put(session.getReplicantSessionId(), session);
+        final var sessionCount = _sessions.size();
         if (LOG.isLoggable(Level.INFO)) {
             LOG.log(
                     Level.INFO,
@@ -339,17 +514,24 @@ public class ReplicantSessionManagerImpl implements ReplicantSessionManager {
 
     @SuppressWarnings({"WeakerAccess", "unused"})
     public void pingSessions() {
-        if (_lock.readLock().tryLock()) {
-            try {
-                for (final var session : _sessions.values()) {
-                    if (LOG.isLoggable(Level.FINEST)) {
-                        LOG.finest("Pinging websocket for Replicant Session ID " + session.getReplicantSessionId());
-                    }
-                    session.pingTransport();
+        final var stallTimeoutNanos = null != _sendStallTimeoutMs && _sendStallTimeoutMs > 0
+                ? TimeUnit.MILLISECONDS.toNanos(_sendStallTimeoutMs)
+                : 0L;
+        for (final var session : _sessions.values()) {
+            if (0L != stallTimeoutNanos && session.isOutboundStalled(stallTimeoutNanos)) {
+                if (LOG.isLoggable(Level.INFO)) {
+                    LOG.log(
+                            Level.INFO,
+                            "event=session.send.stalled replicantSessionId=" + session.getReplicantSessionId()
+                                    + " sendStallTimeoutMs=" + _sendStallTimeoutMs);
                 }
-            } finally {
-                _lock.readLock().unlock();
+                session.close(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, "Send stalled"));
+                continue;
             }
+            if (LOG.isLoggable(Level.FINEST)) {
+                LOG.finest("Pinging websocket for Replicant Session ID " + session.getReplicantSessionId());
+            }
+            session.pingTransport();
         }
     }
 
@@ -359,42 +541,32 @@ public class ReplicantSessionManagerImpl implements ReplicantSessionManager {
     @SuppressWarnings("WeakerAccess")
     public void removeAllSessions() {
         var removedCount = 0;
-        if (_lock.writeLock().tryLock()) {
-            try {
-                removedCount = _sessions.size();
-                new ArrayList<>(_sessions.values()).forEach(ReplicantSession::close);
-                _sessions.clear();
-            } finally {
-                _lock.writeLock().unlock();
+        for (final var session : _sessions.values()) {
+            if (removeSession(session)) {
+                session.close();
+                removedCount++;
             }
         }
         if (LOG.isLoggable(Level.INFO) && removedCount > 0) {
-            LOG.log(Level.INFO, "event=session.removeAll removedCount=" + removedCount + " sessionCount=0");
+            LOG.log(
+                    Level.INFO,
+                    "event=session.removeAll removedCount=" + removedCount + " sessionCount=" + _sessions.size());
         }
     }
 
     /**
      * Remove sessions that are associated with a closed WebSocket.
+     * Sessions are normally removed when their WebSocket closes, so this only removes sessions whose close was missed.
      */
     @SuppressWarnings("WeakerAccess")
     public void removeClosedSessions() {
         var removedCount = 0;
-        var sessionCount = 0;
-        if (_lock.writeLock().tryLock()) {
-            try {
-                final var iterator = _sessions.entrySet().iterator();
-                while (iterator.hasNext()) {
-                    final var session = iterator.next().getValue();
-                    if (!session.getWebSocketSession().isOpen()) {
-                        iterator.remove();
-                        removedCount++;
-                    }
-                }
-                sessionCount = _sessions.size();
-            } finally {
-                _lock.writeLock().unlock();
+        for (final var session : _sessions.values()) {
+            if (!session.getWebSocketSession().isOpen() && removeSession(session)) {
+                removedCount++;
             }
         }
+        final var sessionCount = _sessions.size();
         if (LOG.isLoggable(Level.FINE) && removedCount > 0) {
             LOG.log(
                     Level.FINE,
@@ -406,88 +578,148 @@ public class ReplicantSessionManagerImpl implements ReplicantSessionManager {
      * Queue a complete fresh Change Set for a Cacheable Dataset Subscription request.
      * The requesting service must NOT have made any other changes that will be sent to the
      * client, otherwise this Change Set will be discarded.
-     * This can also be sent when the Dataset Address was invalidated, in which case the Dataset Cache Version is null.
+     * This can also be sent when the Dataset Address was invalidated, in which case there is no Dataset Cache Entry.
      *
-     * @param session             the session.
-     * @param datasetCacheVersion the opaque Dataset Cache Version, or null for invalidation.
-     * @param changeSet           the complete Change Set to send.
+     * @param session           the session.
+     * @param requestId         the Subscription request completed by the Change Set, if any.
+     * @param datasetCacheEntry the Dataset Cache Entry that supplies the Change Set and its encoded payload, or null
+     *                          for invalidation.
+     * @param changeSet         the complete Change Set to send.
      */
     private void queueCacheableDatasetChangeSet(
             @NonNull final ReplicantSession session,
-            @Nullable final String datasetCacheVersion,
+            @Nullable final Integer requestId,
+            @Nullable final DatasetCacheEntry datasetCacheEntry,
             @NonNull final ChangeSet changeSet) {
-        final var requestId = (Integer) _registry.getResource(ServerConstants.REQUEST_ID_KEY);
         _registry.putResource(ServerConstants.REQUEST_COMPLETE_KEY, "0");
         _registry.putResource(ServerConstants.DATASET_CACHE_ENTRY_HANDLED_KEY, "1");
-        _broker.queueChangeSet(session, true, requestId, null, datasetCacheVersion, Collections.emptyList(), changeSet);
-    }
-
-    private boolean saveEntityChangeCandidates(
-            @Nullable final String replicantSessionId,
-            @Nullable final Integer requestId,
-            @Nullable final JsonValue commandResult,
-            @NonNull final Collection<EntityChangeCandidate> entityChangeCandidates,
-            @Nullable final ChangeSet initiatingSessionChangeSet) {
-        var impactsInitiator = false;
-
-        // Invalidate Dataset Cache Entries affected by each Entity Change Candidate.
-        for (final var entityChangeCandidate : entityChangeCandidates) {
-            invalidateAffectedDatasetCacheEntries(entityChangeCandidate);
+        if (null != datasetCacheEntry) {
+            _broker.queueDatasetCacheEntryChangeSet(session, requestId, datasetCacheEntry, changeSet);
+        } else {
+            _broker.queueChangeSet(
+                    session, true, requestId, null, null, Collections.emptyList(), null, null, changeSet);
         }
+    }
 
-        // TODO: Rewrite this so that we add clients to indexes rather than searching through everyone for each change!
-        for (final var session : getSessions()) {
-            final var isInitiator = Objects.equals(session.getReplicantSessionId(), replicantSessionId);
-            if (isInitiator) {
-                // The initiator has been impacted, even if the underlying session has been closed
-                // so bring this logic outside of the session.isOpen() guard.
-                impactsInitiator = true;
+    @Override
+    public void publishTransactionChangeBatch(@NonNull final TransactionChangeBatch batch) {
+        final var requestId = batch.requestId();
+        final var commandResult = batch.commandResult();
+        final var entityChangeCandidates = batch.entityChangeCandidates();
+        final var initiatingSessionChangeSet = batch.initiatingSessionChangeSet();
+
+        var datasetCacheUpdated = false;
+        // The sessions that have not yet been queued a packet, or null if they are not yet known
+        Set<ReplicantSession> unpublishedSessions = null;
+        try {
+            // Derive the routes once and share them with the packet queued for every session.
+            final var entityChangeRoutes = EntityChangeRoutes.compute(getSystemSchema(), entityChangeCandidates);
+            // Sessions that receive identical Change Sets from this transaction share one encoded payload.
+            final var encodedChangeSetCache = new EncodedChangeSetCache();
+
+            // Patch or invalidate Dataset Cache Entries affected by the Entity Change Candidates.
+            updateAffectedDatasetCacheEntries(entityChangeCandidates, entityChangeRoutes);
+            datasetCacheUpdated = true;
+
+            // Only sessions subscribed at a Dataset Address that a candidate routes to can receive an Entity Change.
+            // The initiator always receives a packet so that the request is paired with a Change Set.
+            final var sessions = _subscriptionIndex.findSessions(entityChangeRoutes.getDatasetAddresses());
+            final var initiator = batch.initiator();
+            if (null != initiator) {
+                sessions.add(initiator);
             }
-            if (session.isOpen()) {
-                final var changeSet = new ChangeSet();
-                if (isInitiator) {
-                    if (null != initiatingSessionChangeSet) {
-                        changeSet.setDeliveryRequired(initiatingSessionChangeSet.isDeliveryRequired());
-                        changeSet.merge(initiatingSessionChangeSet.getEntityChanges());
-                        changeSet.mergeSubscriptionChanges(initiatingSessionChangeSet.getSubscriptionChanges());
-                    }
+            unpublishedSessions = new HashSet<>(sessions);
+            for (final var session : sessions) {
+                final var isInitiator = session == initiator;
+                if (session.isOpen()) {
+                    final var changeSet = new ChangeSet();
+                    if (isInitiator) {
+                        if (null != initiatingSessionChangeSet) {
+                            changeSet.setDeliveryRequired(initiatingSessionChangeSet.isDeliveryRequired());
+                            changeSet.merge(initiatingSessionChangeSet.getEntityChanges());
+                            changeSet.mergeSubscriptionChanges(initiatingSessionChangeSet.getSubscriptionChanges());
+                        }
 
-                    /*
-                     * We mark this as Delivery Required and as impacting the initiator because we no longer know
-                     * whether the action did result in an Entity Change that needs to be sent to the client as routing
-                     * occurs in a separate thread. This change here now means every rpc will be paired with a Change
-                     * Set even if it is empty. This is acceptable in the short term as we expect to remove external rpc
-                     * at a later stage and move all rpc onto the Replicant transport.
-                     */
-                    if (null == _registry.getResource(ServerConstants.DATASET_CACHE_ENTRY_HANDLED_KEY)) {
-                        // Skip the scenario where a Cacheable Dataset Change Set has already been queued.
-                        changeSet.setDeliveryRequired(true);
+                        /*
+                         * We mark this as Delivery Required and as impacting the initiator because we no longer know
+                         * whether the action did result in an Entity Change that needs to be sent to the client as
+                         * routing occurs in a separate thread. This change here now means every rpc will be paired
+                         * with a Change Set even if it is empty. This is acceptable in the short term as we expect to
+                         * remove external rpc at a later stage and move all rpc onto the Replicant transport.
+                         */
+                        if (!batch.datasetCacheEntryHandled()) {
+                            // Skip the scenario where a Cacheable Dataset Change Set has already been queued.
+                            changeSet.setDeliveryRequired(true);
+                        }
                     }
+                    _broker.queueChangeSet(
+                            session,
+                            batch.fromSubscriptionRequest(),
+                            isInitiator ? requestId : null,
+                            isInitiator ? commandResult : null,
+                            null,
+                            entityChangeCandidates,
+                            entityChangeRoutes,
+                            encodedChangeSetCache,
+                            changeSet);
                 }
-                final var fromSubscriptionRequest =
-                        null != _registry.getResource(ServerConstants.SUBSCRIPTION_REQUEST_KEY);
-                _broker.queueChangeSet(
-                        session,
-                        fromSubscriptionRequest,
-                        isInitiator ? requestId : null,
-                        isInitiator ? commandResult : null,
-                        null,
-                        entityChangeCandidates,
-                        changeSet);
+                unpublishedSessions.remove(session);
             }
+        } catch (final Throwable t) {
+            onTransactionChangeBatchPublishFailed(batch, datasetCacheUpdated, unpublishedSessions);
+            throw t;
         }
+    }
 
-        return impactsInitiator;
+    /**
+     * Force the clients that may have missed the changes of a batch that failed to publish to resynchronize.
+     * The sessions are closed so that each client reconnects and subscribes again, rather than silently retaining
+     * stale Replicas. Every open session is closed if publishing failed before the affected sessions were known.
+     * The Dataset Cache Entries are cleared if publishing failed before they were patched or invalidated.
+     */
+    private void onTransactionChangeBatchPublishFailed(
+            @NonNull final TransactionChangeBatch batch,
+            final boolean datasetCacheUpdated,
+            @Nullable final Set<ReplicantSession> unpublishedSessions) {
+        if (!datasetCacheUpdated) {
+            clearDatasetCacheEntries();
+        }
+        final var sessions = null != unpublishedSessions ? unpublishedSessions : _sessions.values();
+        var closedCount = 0;
+        for (final var session : sessions) {
+            if (session.isOpen()) {
+                session.close(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, "Change Set publish failed"));
+                closedCount++;
+            }
+        }
+        if (LOG.isLoggable(Level.WARNING)) {
+            final var initiator = batch.initiator();
+            LOG.log(
+                    Level.WARNING,
+                    "event=session.batch.publish.failed replicantSessionId="
+                            + (null == initiator ? null : initiator.getReplicantSessionId()) + " requestId="
+                            + batch.requestId() + " datasetCacheCleared=" + !datasetCacheUpdated
+                            + " closedSessionCount=" + closedCount);
+        }
+    }
+
+    private boolean isAsyncFanOutEnabled() {
+        return null != _asyncFanOut && _asyncFanOut;
     }
 
     @Override
     public boolean sendChangeSet(@NonNull final ReplicantSession session, @NonNull final Packet packet) {
         final var sent = new AtomicBoolean();
+        // Subscription Dependency expansion may create Subscriptions while the packet is processed,
+        // so include the session in any concurrent fan-out until it completes.
+        _subscriptionIndex.beginSubscriptionUpdate(session);
         try {
             return session.runIfValid(() -> sent.set(sendAuthorizedChangeSet(session, packet))) && sent.get();
         } catch (final java.io.IOException e) {
             session.close(new CloseReason(CloseReason.CloseCodes.UNEXPECTED_CONDITION, "Authorization gate failed"));
             return false;
+        } finally {
+            _subscriptionIndex.completeSubscriptionUpdate(session);
         }
     }
 
@@ -534,20 +766,27 @@ public class ReplicantSessionManagerImpl implements ReplicantSessionManager {
             if (!session.isSubscriptionPresent(datasetCacheEntryAddress)) {
                 return false;
             }
-            return WebSocketUtil.sendText(
-                    session.getWebSocketSession(),
-                    JsonEncoder.encodeUseDatasetCacheEntryMessage(
-                            datasetCacheEntryAddress, Objects.requireNonNull(datasetCacheVersion), requestId));
-        }
+            final var datasetCacheEntry = packet.datasetCacheEntry();
+            return session.sendText(JsonEncoder.encodeUseDatasetCacheEntryMessage(
+                    datasetCacheEntryAddress,
+                    null != datasetCacheEntry ? datasetCacheEntry.getFilterParameter() : null,
+                    Objects.requireNonNull(datasetCacheVersion),
+                    requestId));
+        }
+        final var entityChangeRoutes = null != packet.entityChangeRoutes()
+                ? packet.entityChangeRoutes()
+                : EntityChangeRoutes.compute(getSystemSchema(), entityChangeCandidates);
         final var hasDeletes = entityChangeCandidates.stream().anyMatch(EntityChangeCandidate::isDelete);
         final var datasetRootDeletedDatasetAddresses = hasDeletes
-                ? collectRootDeletedDatasetAddresses(entityChangeCandidates, session)
+                ? collectRootDeletedDatasetAddresses(entityChangeCandidates, entityChangeRoutes, session)
                 : Collections.<DatasetAddress>emptySet();
         if (hasDeletes) {
             preserveOwnedSubscriptionDependenciesBeforeDelete(
-                    entityChangeCandidates, session, changeSet, datasetRootDeletedDatasetAddresses);
+                    entityChangeCandidates, entityChangeRoutes, session, changeSet, datasetRootDeletedDatasetAddresses);
         }
-        routeEntityChangeCandidates(entityChangeCandidates, session, changeSet);
+        // Subscription data being collected outside the session lock may predate these changes
+        session.recordRoutedDatasetAddresses(entityChangeRoutes.getDatasetAddresses());
+        routeEntityChangeCandidates(entityChangeCandidates, entityChangeRoutes, session, changeSet);
 
         // A Subscription Operation that queues a Dataset Cache Entry reference still reaches this point.
         // Its Change Set has no changes and Delivery Required is false, so shouldDeliver() returns false.
@@ -588,7 +827,15 @@ public class ReplicantSessionManagerImpl implements ReplicantSessionManager {
                                 + expansionDuration + " subscriptionChanges="
                                 + actions);
             }
-            session.sendChangeSet(requestId, commandResult, datasetCacheVersion, changeSet);
+            final var datasetCacheEntry = packet.datasetCacheEntry();
+            if (null != datasetCacheEntry
+                    && isDatasetCacheEntryChangeSetUnchanged(datasetCacheEntry, changeSet, expandCycleCount)) {
+                // Every session that misses its client cache is sent the payload encoded once for the entry
+                session.sendDatasetCacheEntryChangeSet(requestId, datasetCacheEntry);
+            } else {
+                session.sendChangeSet(
+                        requestId, commandResult, datasetCacheVersion, changeSet, packet.encodedChangeSetCache());
+            }
             return true;
         } else {
             if (LOG.isLoggable(Level.FINE)) {
@@ -609,13 +856,43 @@ public class ReplicantSessionManagerImpl implements ReplicantSessionManager {
         }
     }
 
+    /**
+     * Return true if Subscription Dependency expansion left the Change Set copied from the Dataset Cache Entry
+     * unchanged. Expansion only adds to the Change Set so comparing the sizes is sufficient when no further
+     * Subscriptions were created.
+     */
+    private boolean isDatasetCacheEntryChangeSetUnchanged(
+            @NonNull final DatasetCacheEntry datasetCacheEntry,
+            @NonNull final ChangeSet changeSet,
+            final int expandCycleCount) {
+        return 1 == expandCycleCount
+                && changeSet.getEntityChanges().size() == datasetCacheEntry.getEntityChangeCount()
+                && changeSet.getSubscriptionChanges().size() == datasetCacheEntry.getSubscriptionChangeCount();
+    }
+
+    /**
+     * Follow the Subscription Dependencies of the Entity Changes in the Change Set until no Subscription Dependency is
+     * pending, subscribing one group of target Dataset Addresses per cycle. The expansion is incremental: a cycle only
+     * examines the Entity Changes merged into the Change Set by the previous subscribe, and the Entity Changes already
+     * examined at a Dataset Address whose Subscription the previous subscribe created or updated.
+     *
+     * @return the number of cycles, which is 1 if no Subscription Dependency was followed.
+     */
     private int completeEntityChangeProcessing(
             @NonNull final ReplicantSession session,
             @NonNull final ChangeSet changeSet,
             @NonNull final Set<DatasetAddress> datasetRootDeletedDatasetAddresses) {
         var expandCycleCount = 0;
         try {
-            final var pending = new HashSet<PendingSubscriptionDependency>();
+            final var pending = new PendingSubscriptionDependencyQueue();
+            // Source Dataset Address => the Entity Changes examined at that address
+            final var examinedEntityChanges = new HashMap<DatasetAddress, Set<EntityChange>>();
+            // Entity Change key => the Entity Change held by the Change Set
+            final var entityChanges = new HashMap<String, EntityChange>();
+            for (final var entityChange : changeSet.getEntityChanges()) {
+                entityChanges.put(entityChange.getKey(), entityChange);
+            }
+            final var worklist = new LinkedHashSet<>(entityChanges.values());
 
             while (true) {
                 if (LOG.isLoggable(Level.FINE)) {
@@ -626,36 +903,48 @@ public class ReplicantSessionManagerImpl implements ReplicantSessionManager {
                                     + expandCycleCount
                                     + " changes="
                                     + changeSet.getEntityChanges().size()
+                                    + " examinedChanges="
+                                    + worklist.size()
                                     + " subscriptionChanges="
                                     + changeSet.getSubscriptionChanges().stream()
                                             .map(JsonEncoder::toDescriptor)
                                             .toList()
                                     + " pending="
-                                    + pending.stream()
-                                            .map(e -> e.targetDatasetAddress().toString())
-                                            .toList());
+                                    + pending.getTargetDatasetAddresses());
                 }
                 expandCycleCount++;
                 collectSubscriptionDependenciesToFollow(
-                        session, changeSet, pending, datasetRootDeletedDatasetAddresses);
-                if (pending.isEmpty()) {
+                        session,
+                        worklist,
+                        changeSet,
+                        pending,
+                        examinedEntityChanges,
+                        datasetRootDeletedDatasetAddresses);
+                worklist.clear();
+                final var toSubscribe = pending.poll();
+                if (null == toSubscribe) {
                     break;
                 }
-                final var entry = pending.stream()
-                        .min(Comparator.comparing(PendingSubscriptionDependency::targetDatasetAddress))
-                        .orElseThrow();
-                final var targetDatasetAddress = entry.targetDatasetAddress();
-                final var toSubscribe = targetDatasetAddress.hasDatasetRootId()
-                        ? pending.stream()
-                                .filter(a -> a.targetDatasetAddress().datasetId() == targetDatasetAddress.datasetId()
-                                        && Objects.equals(a.filterParameter(), entry.filterParameter()))
-                                .toList()
-                        : Collections.singletonList(entry);
                 final var datasetAddresses = toSubscribe.stream()
                         .map(PendingSubscriptionDependency::targetDatasetAddress)
+                        .distinct()
                         .toList();
-                doSubscribe(session, datasetAddresses, entry.filterParameter(), changeSet, SubscriptionMode.IMPLICIT);
-                toSubscribe.forEach(pending::remove);
+                // Subscribe into a Change Set of its own so that the Entity Changes the cycle merged are known
+                final var cycleChangeSet = new ChangeSet();
+                cycleChangeSet.setDeliveryRequired(changeSet.isDeliveryRequired());
+                doSubscribe(
+                        session,
+                        datasetAddresses,
+                        toSubscribe.get(0).filterParameter(),
+                        cycleChangeSet,
+                        SubscriptionMode.IMPLICIT);
+                changeSet.setDeliveryRequired(cycleChangeSet.isDeliveryRequired());
+                changeSet.mergeSubscriptionChanges(cycleChangeSet.getSubscriptionChanges());
+                for (final var entityChange : cycleChangeSet.getEntityChanges()) {
+                    final var existing = entityChanges.putIfAbsent(entityChange.getKey(), entityChange);
+                    changeSet.merge(entityChange);
+                    worklist.add(null != existing ? existing : entityChange);
+                }
                 for (final var e : toSubscribe) {
                     final var sourceSubscription = session.getSubscription(e.sourceDatasetAddress());
                     final var targetSubscription = session.getSubscription(e.targetDatasetAddress());
@@ -663,6 +952,13 @@ public class ReplicantSessionManagerImpl implements ReplicantSessionManager {
                     InvariantUtil.assertConcreteDatasetAddress(getSystemSchema(), targetSubscription.datasetAddress());
                     session.recordSubscriptionDependency(sourceSubscription, targetSubscription, e.owner());
                 }
+                // The Subscription Dependencies of an Entity Change depend upon the Filter Parameter of its source
+                for (final var datasetAddress : datasetAddresses) {
+                    final var examined = examinedEntityChanges.get(datasetAddress);
+                    if (null != examined) {
+                        worklist.addAll(examined);
+                    }
+                }
             }
         } catch (final Exception e) {
             // This can occur when there is an error accessing the database
@@ -680,26 +976,31 @@ public class ReplicantSessionManagerImpl implements ReplicantSessionManager {
     }
 
     /**
-     * Collect a list of Subscription Dependencies in the Change Set that may need to be followed.
+     * Collect the Subscription Dependencies of the specified Entity Changes that may need to be followed.
      */
     private void collectSubscriptionDependenciesToFollow(
             @NonNull final ReplicantSession session,
+            @NonNull final Collection<EntityChange> entityChanges,
             @NonNull final ChangeSet changeSet,
-            @NonNull final Set<PendingSubscriptionDependency> targets,
+            @NonNull final PendingSubscriptionDependencyQueue pending,
+            @NonNull final Map<DatasetAddress, Set<EntityChange>> examinedEntityChanges,
             @NonNull final Set<DatasetAddress> datasetRootDeletedDatasetAddresses) {
-        for (final var change : changeSet.getEntityChanges()) {
+        for (final var change : entityChanges) {
             final var entityChangeCandidate = change.getEntityChangeCandidate();
             if (entityChangeCandidate.isUpdate()) {
                 final var owner = SubscriptionDependencyOwner.entity(
                         entityChangeCandidate.getEntityTypeId(), entityChangeCandidate.getEntityId());
                 for (final var sourceDatasetAddress : change.getDatasetAddresses()) {
+                    examinedEntityChanges
+                            .computeIfAbsent(sourceDatasetAddress, k -> new LinkedHashSet<>())
+                            .add(change);
                     final var sourceSubscription = session.findSubscription(sourceDatasetAddress);
                     if (null != sourceSubscription) {
                         final var desiredTargets =
                                 resolveDesiredSubscriptionDependencyTargets(entityChangeCandidate, sourceSubscription);
                         desiredTargets.keySet().removeAll(datasetRootDeletedDatasetAddresses);
                         reconcileOwnedSubscriptionDependencies(
-                                session, sourceSubscription, owner, desiredTargets, changeSet, targets);
+                                session, sourceSubscription, owner, desiredTargets, changeSet, pending);
                     }
                 }
             }
@@ -775,7 +1076,7 @@ public class ReplicantSessionManagerImpl implements ReplicantSessionManager {
             @NonNull final SubscriptionDependencyOwner owner,
             @NonNull final Map<DatasetAddress, JsonObject> desiredTargets,
             @NonNull final ChangeSet changeSet,
-            @NonNull final Set<PendingSubscriptionDependency> targets) {
+            @NonNull final PendingSubscriptionDependencyQueue pending) {
         final var existingTargets = new HashSet<>(sourceSubscription.getOwnedOutwardSubscriptionDependencies(owner));
         for (final var existingTarget : existingTargets) {
             if (!desiredTargets.containsKey(existingTarget)) {
@@ -784,10 +1085,10 @@ public class ReplicantSessionManagerImpl implements ReplicantSessionManager {
         }
 
         for (final var entry : desiredTargets.entrySet()) {
-            final var pending = createOrUpdatePendingSubscriptionDependency(
+            final var pendingSubscriptionDependency = createOrUpdatePendingSubscriptionDependency(
                     session, owner, sourceSubscription, entry.getKey(), entry.getValue(), changeSet);
-            if (null != pending) {
-                targets.add(pending);
+            if (null != pendingSubscriptionDependency) {
+                pending.add(pendingSubscriptionDependency);
             }
         }
     }
@@ -868,26 +1169,33 @@ public class ReplicantSessionManagerImpl implements ReplicantSessionManager {
 
     private void routeEntityChangeCandidates(
             @NonNull final Collection<EntityChangeCandidate> entityChangeCandidates,
+            @NonNull final EntityChangeRoutes entityChangeRoutes,
             @NonNull final ReplicantSession session,
             @NonNull final ChangeSet changeSet) {
         for (final var entityChangeCandidate : entityChangeCandidates) {
-            processEntityChangeCandidateRemovalSideEffects(entityChangeCandidate, session, changeSet);
+            processEntityChangeCandidateRemovalSideEffects(
+                    entityChangeCandidate, entityChangeRoutes.getRoutes(entityChangeCandidate), session, changeSet);
         }
 
         for (final var entityChangeCandidate : entityChangeCandidates) {
-            routeEntityChangeCandidate(entityChangeCandidate, session, changeSet);
+            routeEntityChangeCandidate(
+                    entityChangeCandidate, entityChangeRoutes.getRoutes(entityChangeCandidate), session, changeSet);
         }
     }
 
     private void preserveOwnedSubscriptionDependenciesBeforeDelete(
             @NonNull final Collection<EntityChangeCandidate> entityChangeCandidates,
+            @NonNull final EntityChangeRoutes entityChangeRoutes,
             @NonNull final ReplicantSession session,
             @NonNull final ChangeSet changeSet,
             @NonNull final Set<DatasetAddress> datasetRootDeletedDatasetAddresses) {
         for (final var entityChangeCandidate : entityChangeCandidates) {
             if (entityChangeCandidate.isUpdate()) {
                 preserveOwnedSubscriptionDependenciesFromEntityChangeCandidate(
-                        entityChangeCandidate, session, datasetRootDeletedDatasetAddresses);
+                        entityChangeCandidate,
+                        entityChangeRoutes.getRoutes(entityChangeCandidate),
+                        session,
+                        datasetRootDeletedDatasetAddresses);
             }
         }
         for (final var change : changeSet.getEntityChanges()) {
@@ -913,21 +1221,16 @@ public class ReplicantSessionManagerImpl implements ReplicantSessionManager {
     @NonNull
     private Set<DatasetAddress> collectRootDeletedDatasetAddresses(
             @NonNull final Collection<EntityChangeCandidate> entityChangeCandidates,
+            @NonNull final EntityChangeRoutes entityChangeRoutes,
             @NonNull final ReplicantSession session) {
         final var datasetRootDeletedDatasetAddresses = new HashSet<DatasetAddress>();
-        final var systemSchema = getSystemSchema();
-        final var instanceDatasetCount = systemSchema.getInstanceDatasetCount();
         for (final var entityChangeCandidate : entityChangeCandidates) {
             if (entityChangeCandidate.isDelete()) {
-                for (var i = 0; i < instanceDatasetCount; i++) {
-                    final var dataset = systemSchema.getInstanceDatasetByIndex(i);
-                    @SuppressWarnings("unchecked")
-                    final var datasetRootIds = (List<Integer>)
-                            entityChangeCandidate.getRoutingKeys().get(dataset.getName());
-                    if (null != datasetRootIds) {
-                        for (final var datasetRootId : datasetRootIds) {
-                            final var datasetAddress = DatasetAddress.of(dataset.getId(), datasetRootId);
-                            final var hasFilter = !dataset.isUnfiltered();
+                for (final var route : entityChangeRoutes.getRoutes(entityChangeCandidate)) {
+                    final var dataset = route.dataset();
+                    if (dataset.isInstanceDataset()) {
+                        final var hasFilter = !dataset.isUnfiltered();
+                        for (final var datasetAddress : route.datasetAddresses()) {
                             for (final var subscription : session.findSubscriptions(
                                     datasetAddress.datasetId(), datasetAddress.datasetRootId())) {
                                 final var subscriptionDatasetAddress = subscription.datasetAddress();
@@ -952,36 +1255,28 @@ public class ReplicantSessionManagerImpl implements ReplicantSessionManager {
 
     private void preserveOwnedSubscriptionDependenciesFromEntityChangeCandidate(
             @NonNull final EntityChangeCandidate entityChangeCandidate,
+            @NonNull final List<EntityChangeRoutes.Route> routes,
             @NonNull final ReplicantSession session,
             @NonNull final Set<DatasetAddress> datasetRootDeletedDatasetAddresses) {
-        final var systemSchema = getSystemSchema();
-        final var datasetCount = systemSchema.getDatasetCount();
         final var owner = SubscriptionDependencyOwner.entity(
                 entityChangeCandidate.getEntityTypeId(), entityChangeCandidate.getEntityId());
-        for (var i = 0; i < datasetCount; i++) {
-            if (systemSchema.hasDataset(i)) {
-                final var dataset = systemSchema.getDataset(i);
-                final var datasetAddresses =
-                        deriveDatasetAddressesFromEntityChangeCandidate(dataset, entityChangeCandidate);
-                if (null != datasetAddresses) {
-                    final var hasFilter = !dataset.isUnfiltered();
-                    for (final var datasetAddress : datasetAddresses) {
-                        for (final var subscription :
-                                session.findSubscriptions(datasetAddress.datasetId(), datasetAddress.datasetRootId())) {
-                            final var subscriptionDatasetAddress = subscription.datasetAddress();
-                            final var filteredCandidate = hasFilter
-                                    ? _serverAdapter.filterEntityChangeCandidate(
-                                            session, subscriptionDatasetAddress, entityChangeCandidate)
-                                    : entityChangeCandidate;
-                            if (null != filteredCandidate) {
-                                preserveOwnedSubscriptionDependenciesForSourceSubscription(
-                                        entityChangeCandidate,
-                                        session,
-                                        subscription,
-                                        owner,
-                                        datasetRootDeletedDatasetAddresses);
-                            }
-                        }
+        for (final var route : routes) {
+            final var hasFilter = !route.dataset().isUnfiltered();
+            for (final var datasetAddress : route.datasetAddresses()) {
+                for (final var subscription :
+                        session.findSubscriptions(datasetAddress.datasetId(), datasetAddress.datasetRootId())) {
+                    final var subscriptionDatasetAddress = subscription.datasetAddress();
+                    final var filteredCandidate = hasFilter
+                            ? _serverAdapter.filterEntityChangeCandidate(
+                                    session, subscriptionDatasetAddress, entityChangeCandidate)
+                            : entityChangeCandidate;
+                    if (null != filteredCandidate) {
+                        preserveOwnedSubscriptionDependenciesForSourceSubscription(
+                                entityChangeCandidate,
+                                session,
+                                subscription,
+                                owner,
+                                datasetRootDeletedDatasetAddresses);
                     }
                 }
             }
@@ -1027,20 +1322,179 @@ public class ReplicantSessionManagerImpl implements ReplicantSessionManager {
                 + (datasetAddresses.isEmpty()
                         ? "empty"
                         : datasetAddresses.get(0).datasetId()) + ")";
-        sessionUpdateRequest(key, session, requestId, () -> {
-            if (session.isOpen()) {
-                final var initiatingSessionChangeSet = EntityChangeCandidateCacheUtil.getInitiatingSessionChangeSet();
-                initiatingSessionChangeSet.setDeliveryRequired(true);
-                datasetAddresses.forEach(
-                        datasetAddress -> _serverAdapter.preSubscribe(session, datasetAddress, filterParameter));
-                doSubscribe(
-                        session,
-                        datasetAddresses,
+        if (isCollectSubscriptionDataOutsideSessionLockEnabled()
+                && !datasetAddresses.isEmpty()
+                && canCollectSubscriptionDataOutsideSessionLock(
+                        getSystemSchema().getDataset(datasetAddresses.get(0).datasetId()))) {
+            subscribeWithDataCollectedOutsideSessionLock(key, session, requestId, datasetAddresses, filterParameter);
+        } else {
+            sessionUpdateRequest(
+                    key,
+                    session,
+                    requestId,
+                    () -> explicitSubscribe(session, datasetAddresses, filterParameter, null));
+        }
+    }
+
+    private void explicitSubscribe(
+            @NonNull final ReplicantSession session,
+            @NonNull final List<DatasetAddress> datasetAddresses,
+            @Nullable final JsonObject filterParameter,
+            @Nullable final CollectedSubscriptionData collectedSubscriptionData) {
+        if (session.isOpen()) {
+            final var initiatingSessionChangeSet = EntityChangeCandidateCacheUtil.getInitiatingSessionChangeSet();
+            initiatingSessionChangeSet.setDeliveryRequired(true);
+            datasetAddresses.forEach(
+                    datasetAddress -> _serverAdapter.preSubscribe(session, datasetAddress, filterParameter));
+            doSubscribe(
+                    session,
+                    datasetAddresses,
+                    filterParameter,
+                    initiatingSessionChangeSet,
+                    SubscriptionMode.EXPLICIT,
+                    collectedSubscriptionData);
+        }
+    }
+
+    /**
+     * Perform an explicit Subscription request in two phases. The first phase invokes the preSubscribe hook, so that
+     * no data is collected for an unauthorized request, and then collects the data of the new Subscriptions into a
+     * private Change Set via {@link ReplicantServerAdapter#collectSubscriptionDataWithoutSession(List, JsonObject,
+     * ChangeSet)} without holding the session lock, noting the Subscription Generation of the session when the new
+     * Subscriptions were identified. The second phase holds the lock and runs the request as a Replication Invocation,
+     * invoking the preSubscribe hook again as in a request that collects while holding the lock. If the Subscription
+     * Generation is unchanged, it records the Subscriptions and queues the collected data.
+     * A Subscription created or deleted, or an Entity Change Candidate routed to the session, within a Dataset Root
+     * that was being collected changes the Subscription Generation, as the collected data may have missed the change,
+     * so the data is collected again. The session is included in every fan-out from the start of the first phase so
+     * that no Entity Change Candidate committed during the collection bypasses the session.
+     */
+    private void subscribeWithDataCollectedOutsideSessionLock(
+            @NonNull final String invocationKey,
+            @NonNull final ReplicantSession session,
+            final int requestId,
+            @NonNull final List<DatasetAddress> datasetAddresses,
+            @Nullable final JsonObject filterParameter) {
+        if (isAsyncFanOutEnabled()) {
+            _broker.awaitQueuedTransactionChangeBatches();
+        }
+        final var lock = session.getLock();
+        _subscriptionIndex.beginSubscriptionUpdate(session);
+        CollectedSubscriptionData collectedSubscriptionData = null;
+        try {
+            var preSubscribed = false;
+            var collectedWithoutSession = true;
+            var collectionCount = 0;
+            while (true) {
+                lock.lockInterruptibly();
+                try {
+                    final var previous = collectedSubscriptionData;
+                    collectedSubscriptionData = null;
+                    if (null != previous) {
+                        session.completeSubscriptionDataCollection(previous.datasetAddresses());
+                    }
+                    final var newDatasetAddresses = !session.isOpen()
+                            ? Collections.<DatasetAddress>emptyList()
+                            : datasetAddresses.stream()
+                                    .distinct()
+                                    .filter(datasetAddress -> !session.isSubscriptionPresent(datasetAddress))
+                                    .toList();
+                    final var generation = session.getSubscriptionGeneration();
+                    final var current = null != previous
+                            && collectedWithoutSession
+                            && previous.subscriptionGeneration() == generation;
+                    if (null != previous && collectedWithoutSession && !current && LOG.isLoggable(Level.FINE)) {
+                        LOG.log(
+                                Level.FINE,
+                                "event=subscription.collect.stale replicantSessionId="
+                                        + session.getReplicantSessionId() + " requestId="
+                                        + requestId + " collectionCount="
+                                        + collectionCount);
+                    }
+                    if (current
+                            || !collectedWithoutSession
+                            || newDatasetAddresses.isEmpty()
+                            || MAX_SUBSCRIPTION_DATA_COLLECTIONS == collectionCount) {
+                        final var collected = current ? previous : null;
+                        lockedRequest(
+                                invocationKey,
+                                session,
+                                requestId,
+                                () -> subscriptionRequest(() ->
+                                        explicitSubscribe(session, datasetAddresses, filterParameter, collected)));
+                        return;
+                    }
+                    if (!preSubscribed) {
+                        // Authorize the Subscriptions before their data is collected
+                        for (final var datasetAddress : datasetAddresses) {
+                            _serverAdapter.preSubscribe(session, datasetAddress, filterParameter);
+                        }
+                        preSubscribed = true;
+                    }
+                    collectedSubscriptionData =
+                            new CollectedSubscriptionData(generation, newDatasetAddresses, new ChangeSet());
+                    session.beginSubscriptionDataCollection(newDatasetAddresses);
+                } finally {
+                    lock.unlock();
+                }
+                collectionCount++;
+                // The server adapter may not support collecting the data without a session
+                collectedWithoutSession = _serverAdapter.collectSubscriptionDataWithoutSession(
+                        collectedSubscriptionData.datasetAddresses(),
                         filterParameter,
-                        initiatingSessionChangeSet,
-                        SubscriptionMode.EXPLICIT);
+                        collectedSubscriptionData.changeSet());
             }
-        });
+        } catch (final InterruptedException ie) {
+            session.closeDueToInterrupt();
+        } finally {
+            if (null != collectedSubscriptionData) {
+                // The request failed while the data was collected
+                lock.lock();
+                try {
+                    session.completeSubscriptionDataCollection(collectedSubscriptionData.datasetAddresses());
+                } finally {
+                    lock.unlock();
+                }
+            }
+            _subscriptionIndex.completeSubscriptionUpdate(session);
+        }
+    }
+
+    /**
+     * Return true if the data of a Subscription to the Dataset can be collected without a session. The data of a
+     * Cacheable Dataset is served from its Dataset Cache Entries and an Implicitly Filtered Dataset filters on inputs
+     * that the server adapter derives from the session.
+     */
+    private boolean canCollectSubscriptionDataOutsideSessionLock(@NonNull final Dataset dataset) {
+        return !dataset.isCacheable() && !dataset.isImplicitlyFiltered();
+    }
+
+    private boolean isCollectSubscriptionDataOutsideSessionLockEnabled() {
+        return null != _collectSubscriptionDataOutsideSessionLock && _collectSubscriptionDataOutsideSessionLock;
+    }
+
+    /**
+     * Record the Subscriptions for the data collected outside the session lock and merge the data into the Change
+     * Set. A Dataset Address whose Dataset Root does not exist is collected as an invalidation and is not subscribed.
+     */
+    private void recordCollectedSubscriptions(
+            @NonNull final ReplicantSession session,
+            @NonNull final CollectedSubscriptionData collectedSubscriptionData,
+            @Nullable final JsonObject filterParameter,
+            @NonNull final ChangeSet changeSet,
+            @NonNull final SubscriptionMode mode) {
+        final var collectedChangeSet = collectedSubscriptionData.changeSet();
+        final var subscribedDatasetAddresses = collectedChangeSet.getSubscriptionChanges().stream()
+                .filter(change -> SubscriptionChange.Type.SUBSCRIBE == change.type())
+                .map(SubscriptionChange::datasetAddress)
+                .collect(Collectors.toSet());
+        for (final var datasetAddress : collectedSubscriptionData.datasetAddresses()) {
+            if (subscribedDatasetAddresses.contains(datasetAddress)) {
+                final var subscription = session.createSubscription(datasetAddress, mode);
+                subscription.setFilterParameter(filterParameter);
+            }
+        }
+        changeSet.merge(collectedChangeSet);
     }
 
     private void doSubscribe(
@@ -1049,6 +1503,20 @@ public class ReplicantSessionManagerImpl implements ReplicantSessionManager {
             @Nullable final JsonObject filterParameter,
             @NonNull final ChangeSet changeSet,
             @NonNull final SubscriptionMode mode) {
+        doSubscribe(session, datasetAddresses, filterParameter, changeSet, mode, null);
+    }
+
+    /**
+     * Subscribe the session to the Dataset Addresses, using the Subscription data collected outside the session lock
+     * for the new Subscriptions if present.
+     */
+    private void doSubscribe(
+            @NonNull final ReplicantSession session,
+            @NonNull final List<DatasetAddress> datasetAddresses,
+            @Nullable final JsonObject filterParameter,
+            @NonNull final ChangeSet changeSet,
+            @NonNull final SubscriptionMode mode,
+            @Nullable final CollectedSubscriptionData collectedSubscriptionData) {
         final var uniqueDatasetAddresses = datasetAddresses.stream().distinct().toList();
         if (uniqueDatasetAddresses.isEmpty()) {
             return;
@@ -1092,28 +1560,32 @@ public class ReplicantSessionManagerImpl implements ReplicantSessionManager {
 
         if (!newDatasetAddresses.isEmpty()) {
             if (dataset.isCacheable()) {
-                // Only Type Datasets can be Cacheable Datasets at present; Instance Datasets require more plumbing.
-                assert dataset.isTypeDataset();
-                // Only Unfiltered Datasets can currently be Cacheable Datasets.
-                assert dataset.isUnfiltered();
+                // An Instance Dataset has a separate Dataset Cache Entry for each Dataset Root ID and a
+                // Parameter-Filtered Dataset has a separate Dataset Cache Entry for each Filter Parameter.
+                final var lastDatasetAddress = newDatasetAddresses.get(newDatasetAddresses.size() - 1);
                 for (var newDatasetAddress : newDatasetAddresses) {
-                    _datasetCacheEntriesLock.writeLock().lock();
+                    // A bulk Subscription request to an Instance Dataset queues a message per Dataset Root ID and
+                    // only the last message completes the request on the client.
+                    final var requestId = newDatasetAddress == lastDatasetAddress
+                            ? (Integer) _registry.getResource(ServerConstants.REQUEST_ID_KEY)
+                            : null;
+                    final var datasetCacheKey = DatasetCacheKey.of(newDatasetAddress, filterParameter);
+                    _datasetCacheEntriesLock.readLock().lock();
                     try {
-                        final var datasetCacheEntry = tryGetDatasetCacheEntry(newDatasetAddress);
+                        final var datasetCacheEntry = tryGetDatasetCacheEntry(datasetCacheKey);
                         if (null != datasetCacheEntry) {
+                            datasetCacheEntry.recordUse();
                             final var datasetCacheVersion = datasetCacheEntry.getDatasetCacheVersion();
-                            if (datasetCacheVersion.equals(session.getDatasetCacheVersion(newDatasetAddress))) {
-                                final var requestId = (Integer) _registry.getResource(ServerConstants.REQUEST_ID_KEY);
-                                _broker.queueDatasetCacheEntryReference(
-                                        session, requestId, newDatasetAddress, datasetCacheVersion);
+                            if (datasetCacheVersion.equals(session.getDatasetCacheVersion(datasetCacheKey))) {
+                                _broker.queueDatasetCacheEntryReference(session, requestId, datasetCacheEntry);
                                 changeSet.setDeliveryRequired(false);
                                 _registry.putResource(ServerConstants.DATASET_CACHE_ENTRY_HANDLED_KEY, "1");
                             } else {
-                                session.setDatasetCacheVersion(newDatasetAddress, null);
+                                session.setDatasetCacheVersion(datasetCacheKey, null);
                                 final var datasetCacheEntryChangeSet = new ChangeSet();
                                 datasetCacheEntryChangeSet.merge(datasetCacheEntry.getChangeSet());
                                 queueCacheableDatasetChangeSet(
-                                        session, datasetCacheVersion, datasetCacheEntryChangeSet);
+                                        session, requestId, datasetCacheEntry, datasetCacheEntryChangeSet);
                                 changeSet.setDeliveryRequired(false);
                             }
 
@@ -1123,19 +1595,25 @@ public class ReplicantSessionManagerImpl implements ReplicantSessionManager {
                             final var datasetCacheEntryChangeSet = new ChangeSet();
                             datasetCacheEntryChangeSet.mergeSubscriptionChange(
                                     newDatasetAddress, SubscriptionChange.Type.INVALIDATE_DATASET_ADDRESS);
-                            queueCacheableDatasetChangeSet(session, null, datasetCacheEntryChangeSet);
+                            queueCacheableDatasetChangeSet(session, requestId, null, datasetCacheEntryChangeSet);
                             changeSet.setDeliveryRequired(false);
                         }
                     } finally {
-                        _datasetCacheEntriesLock.writeLock().unlock();
+                        _datasetCacheEntriesLock.readLock().unlock();
                     }
+                    tryEvictDatasetCacheEntries();
                 }
+            } else if (null != collectedSubscriptionData) {
+                // The Subscription Generation is unchanged, so the new Subscriptions are the ones that were collected
+                assert collectedSubscriptionData.datasetAddresses().equals(newDatasetAddresses);
+                recordCollectedSubscriptions(session, collectedSubscriptionData, filterParameter, changeSet, mode);
             } else {
                 _serverAdapter.collectSubscriptionData(session, newDatasetAddresses, filterParameter, changeSet, mode);
             }
         }
         if (!datasetAddressesToUpdate.isEmpty()) {
-            assert !dataset.isCacheable();
+            // A Filter Parameter update is never served from a Dataset Cache Entry as the client already holds the
+            // content selected by the original Filter Parameter.
             for (final var update : datasetAddressesToUpdate.entrySet()) {
                 final var originalFilterParameter = update.getKey();
                 final var updateDatasetAddresses = update.getValue();
@@ -1157,7 +1635,7 @@ public class ReplicantSessionManagerImpl implements ReplicantSessionManager {
 
     @Override
     public void setDatasetCacheVersions(
-            @NonNull final ReplicantSession session, @NonNull final Map<DatasetAddress, String> datasetCacheVersions) {
+            @NonNull final ReplicantSession session, @NonNull final Map<DatasetCacheKey, String> datasetCacheVersions) {
         sessionLockingRequest(
                 "setDatasetCacheVersions()",
                 session,
@@ -1231,7 +1709,8 @@ public class ReplicantSessionManagerImpl implements ReplicantSessionManager {
                 subscribe(session, datasetAddress, SubscriptionMode.IMPLICIT, null, changeSet);
                 if (changeSet.shouldDeliver()) {
                     // This is a regular Change Set, so queue it for delivery.
-                    _broker.queueChangeSet(session, true, null, null, null, Collections.emptyList(), changeSet);
+                    _broker.queueChangeSet(
+                            session, true, null, null, null, Collections.emptyList(), null, null, changeSet);
                 }
 
                 _registry.putResource(ServerConstants.REQUEST_ID_KEY, requestId);
@@ -1242,86 +1721,334 @@ public class ReplicantSessionManagerImpl implements ReplicantSessionManager {
         }
     }
 
+    /**
+     * Invalidate the Dataset Cache Entry at the Dataset Address and every Dataset Cache Entry of the Datasets that
+     * transitively depend upon it. Only the entry of the routed Dataset Root is invalidated for an Instance Dataset,
+     * while the dependent Datasets may include content from any Dataset Root and so are invalidated entirely. The
+     * entries for every Filter Parameter are invalidated for a Parameter-Filtered Dataset as an Entity Change is
+     * routed without regard to the Filter Parameters of the entries.
+     */
     private void invalidateDatasetCacheEntry(@NonNull final DatasetAddress datasetAddress) {
-        InvariantUtil.assertConcreteDatasetAddress(getSystemSchema(), datasetAddress);
+        final var hotDatasetCacheKeys = new ArrayList<DatasetCacheKey>();
         _datasetCacheEntriesLock.writeLock().lock();
         try {
-            final var invalidatedDatasetIds = new HashSet<Integer>();
-            final var pendingDatasetIds = new ArrayDeque<Integer>();
-            pendingDatasetIds.add(datasetAddress.datasetId());
-            while (!pendingDatasetIds.isEmpty()) {
-                final var datasetId = pendingDatasetIds.removeFirst();
-                if (invalidatedDatasetIds.add(datasetId)) {
-                    for (final var dependent :
-                            getSystemSchema().getDataset(datasetId).getDependentDatasets()) {
-                        pendingDatasetIds.add(dependent.getId());
-                    }
-                }
-            }
-            _datasetCacheEntries.keySet().removeIf(address -> invalidatedDatasetIds.contains(address.datasetId()));
+            invalidateDatasetCacheEntries(List.of(datasetAddress), List.of(), hotDatasetCacheKeys);
         } finally {
             _datasetCacheEntriesLock.writeLock().unlock();
         }
+        refreshDatasetCacheEntries(hotDatasetCacheKeys);
+    }
+
+    /**
+     * Invalidate the Dataset Cache Entries at the Dataset Addresses and their dependent entries as described by
+     * {@link #invalidateDatasetCacheEntry(DatasetAddress)}, and the dependent entries of the patched Dataset Addresses,
+     * adding the keys of the invalidated entries that are refreshed in the background to the supplied list. The
+     * dependent Datasets of every address are combined so that the entries are scanned at most once however many
+     * addresses a transaction invalidates or patches. The caller must hold the write lock of the Dataset Cache Entries.
+     */
+    private void invalidateDatasetCacheEntries(
+            @NonNull final Collection<DatasetAddress> datasetAddresses,
+            @NonNull final Collection<DatasetAddress> patchedDatasetAddresses,
+            @NonNull final List<DatasetCacheKey> hotDatasetCacheKeys) {
+        final var schema = getSystemSchema();
+        final var invalidatedDatasetIds = new BitSet();
+        for (final var datasetAddress : datasetAddresses) {
+            InvariantUtil.assertConcreteDatasetAddress(schema, datasetAddress);
+            for (final var datasetId : schema.getTransitiveDependentDatasetIds(datasetAddress.datasetId())) {
+                invalidatedDatasetIds.set(datasetId);
+            }
+        }
+        // A patched entry is still current but an entry derived from it may not be
+        for (final var datasetAddress : patchedDatasetAddresses) {
+            for (final var datasetId : schema.getTransitiveDependentDatasetIds(datasetAddress.datasetId())) {
+                invalidatedDatasetIds.set(datasetId);
+            }
+        }
+        final var parameterFilteredDatasetAddresses = new HashSet<DatasetAddress>();
+        for (final var datasetAddress : datasetAddresses) {
+            if (invalidatedDatasetIds.get(datasetAddress.datasetId())) {
+                // Every entry of the Dataset is invalidated as a dependent of another address
+                continue;
+            }
+            if (schema.getDataset(datasetAddress).isParameterFiltered()) {
+                parameterFilteredDatasetAddresses.add(datasetAddress);
+            } else {
+                final var datasetCacheKey = DatasetCacheKey.of(datasetAddress);
+                _datasetCacheStore.remove(datasetCacheKey);
+                final var datasetCacheEntry = _datasetCacheEntries.remove(datasetCacheKey);
+                if (null != datasetCacheEntry) {
+                    removeDatasetCacheEntry(datasetCacheEntry, hotDatasetCacheKeys);
+                }
+            }
+        }
+        if (!invalidatedDatasetIds.isEmpty() || !parameterFilteredDatasetAddresses.isEmpty()) {
+            removeDatasetCacheEntries(
+                    key -> invalidatedDatasetIds.get(key.datasetAddress().datasetId())
+                            || parameterFilteredDatasetAddresses.contains(key.datasetAddress()),
+                    hotDatasetCacheKeys);
+        }
+    }
+
+    private void removeDatasetCacheEntries(
+            @NonNull final Predicate<DatasetCacheKey> predicate,
+            @NonNull final List<DatasetCacheKey> hotDatasetCacheKeys) {
+        // The store may hold entries that have not been restored since the server started
+        _datasetCacheStore.removeIf(predicate);
+        final var iterator = _datasetCacheEntries.values().iterator();
+        while (iterator.hasNext()) {
+            final var datasetCacheEntry = iterator.next();
+            if (predicate.test(datasetCacheEntry.getDatasetCacheKey())) {
+                iterator.remove();
+                removeDatasetCacheEntry(datasetCacheEntry, hotDatasetCacheKeys);
+            }
+        }
+    }
+
+    private void removeDatasetCacheEntry(
+            @NonNull final DatasetCacheEntry datasetCacheEntry,
+            @NonNull final List<DatasetCacheKey> hotDatasetCacheKeys) {
+        synchronized (_datasetCacheUseLock) {
+            _datasetCacheKeysByUse.remove(datasetCacheEntry.getDatasetCacheKey());
+        }
+        _datasetCacheBytes.addAndGet(-datasetCacheEntry.removeAccountedSize());
+        if (datasetCacheEntry.getUseCount() >= HOT_DATASET_CACHE_ENTRY_USE_COUNT) {
+            hotDatasetCacheKeys.add(datasetCacheEntry.getDatasetCacheKey());
+        }
+    }
+
+    private void refreshDatasetCacheEntries(@NonNull final List<DatasetCacheKey> hotDatasetCacheKeys) {
+        if (!hotDatasetCacheKeys.isEmpty()) {
+            _datasetCacheRefresher.refreshDatasetCacheEntries(hotDatasetCacheKeys);
+        }
+    }
+
+    @Override
+    public boolean warmDatasetCacheEntry(@NonNull final DatasetCacheKey datasetCacheKey) {
+        final var dataset = getSystemSchema().getDataset(datasetCacheKey.datasetAddress());
+        if (!dataset.isCacheable()
+                || dataset.isImplicitlyFiltered()
+                || (!dataset.isParameterFiltered() && null != datasetCacheKey.filterParameter())) {
+            return false;
+        } else {
+            final boolean warmed;
+            _datasetCacheEntriesLock.readLock().lock();
+            try {
+                warmed = null != tryGetDatasetCacheEntry(datasetCacheKey);
+            } finally {
+                _datasetCacheEntriesLock.readLock().unlock();
+            }
+            tryEvictDatasetCacheEntries();
+            return warmed;
+        }
     }
 
     /**
-     * Return the Dataset Cache Entry for a Dataset Address. The entry's Change Set has been collected before this
-     * method returns. Each Dataset Cache Entry uses a separate lock while its Change Set is collected.
+     * Return the Dataset Cache Entry for a Dataset Cache Key. The entry's Change Set has been collected with the
+     * Filter Parameter of the key before this method returns. Each Dataset Cache Entry uses a separate lock while its
+     * Change Set is collected, so concurrent requests for the same key wait for a single collection while requests
+     * for other keys proceed. The entry becomes the most recently used entry. Entries are not evicted as the caller
+     * holds the read lock, so the caller should invoke {@link #tryEvictDatasetCacheEntries()} once it releases it.
      */
     @Nullable
-    private DatasetCacheEntry tryGetDatasetCacheEntry(@NonNull final DatasetAddress datasetAddress) {
+    private DatasetCacheEntry tryGetDatasetCacheEntry(@NonNull final DatasetCacheKey datasetCacheKey) {
+        _datasetCacheEntriesLock.readLock().lock();
+        try {
+            final var datasetCacheEntry = tryGetOrCollectDatasetCacheEntry(datasetCacheKey);
+            if (null != datasetCacheEntry) {
+                synchronized (_datasetCacheUseLock) {
+                    // Re-adding the key moves it to the most recently used end
+                    _datasetCacheKeysByUse.remove(datasetCacheKey);
+                    _datasetCacheKeysByUse.add(datasetCacheKey);
+                }
+                _datasetCacheBytes.addAndGet(datasetCacheEntry.updateAccountedSize());
+            }
+            return datasetCacheEntry;
+        } finally {
+            _datasetCacheEntriesLock.readLock().unlock();
+        }
+    }
+
+    @Nullable
+    private DatasetCacheEntry tryGetOrCollectDatasetCacheEntry(@NonNull final DatasetCacheKey datasetCacheKey) {
+        final var datasetAddress = datasetCacheKey.datasetAddress();
         InvariantUtil.assertConcreteDatasetAddress(getSystemSchema(), datasetAddress);
         final var dataset = getSystemSchema().getDataset(datasetAddress);
         assert dataset.isCacheable();
-        // Filtered Datasets cannot currently be Cacheable Datasets.
-        assert dataset.isUnfiltered();
-        // Instance Datasets cannot currently be Cacheable Datasets.
-        assert dataset.isTypeDataset();
-        while (true) {
-            _datasetCacheEntriesLock.readLock().lock();
-            try {
-                final var datasetCacheEntry = _datasetCacheEntries.get(datasetAddress);
-                if (null != datasetCacheEntry) {
-                    datasetCacheEntry.getLock().writeLock().lock();
-                    try {
-                        if (!datasetCacheEntry.isInitialized()) {
-                            final var changeSet = new ChangeSet();
-                            _serverAdapter.collectSubscriptionData(
-                                    null,
-                                    Collections.singletonList(datasetAddress),
-                                    null,
-                                    changeSet,
-                                    SubscriptionMode.IMPLICIT);
-                            final var subscriptionChange = changeSet.getSubscriptionChanges().stream()
-                                    .filter(a -> a.datasetAddress().equals(datasetAddress))
-                                    .findFirst()
-                                    .orElse(null);
-                            final var action =
-                                    Objects.requireNonNull(subscriptionChange).type();
-                            if (SubscriptionChange.Type.INVALIDATE_DATASET_ADDRESS == action) {
-                                return null;
-                            }
-                            assert SubscriptionChange.Type.SUBSCRIBE == action;
-                            datasetCacheEntry.init(changeSet);
-                        }
-                        return datasetCacheEntry;
-                    } finally {
-                        datasetCacheEntry.getLock().writeLock().unlock();
+        // Implicitly Filtered Datasets filter on inputs that are not part of the Dataset Cache Key.
+        assert !dataset.isImplicitlyFiltered();
+        assert dataset.isParameterFiltered() || null == datasetCacheKey.filterParameter();
+        final var datasetCacheEntry = _datasetCacheEntries.computeIfAbsent(datasetCacheKey, DatasetCacheEntry::new);
+        datasetCacheEntry.getLock().readLock().lock();
+        try {
+            if (datasetCacheEntry.isInitialized()) {
+                _datasetCacheHitCount.increment();
+                return datasetCacheEntry;
+            }
+        } finally {
+            datasetCacheEntry.getLock().readLock().unlock();
+        }
+        datasetCacheEntry.getLock().writeLock().lock();
+        try {
+            // Another request may have collected the entry while this request waited for the lock
+            if (datasetCacheEntry.isInitialized()) {
+                _datasetCacheHitCount.increment();
+            } else if (!restoreDatasetCacheEntry(datasetCacheEntry)) {
+                _datasetCacheMissCount.increment();
+                final var changeSet = new ChangeSet();
+                _serverAdapter.collectSubscriptionData(
+                        null,
+                        Collections.singletonList(datasetAddress),
+                        datasetCacheKey.filterParameter(),
+                        changeSet,
+                        SubscriptionMode.IMPLICIT);
+                final var subscriptionChange = changeSet.getSubscriptionChanges().stream()
+                        .filter(a -> a.datasetAddress().equals(datasetAddress))
+                        .findFirst()
+                        .orElse(null);
+                final var action = Objects.requireNonNull(subscriptionChange).type();
+                if (SubscriptionChange.Type.INVALIDATE_DATASET_ADDRESS == action) {
+                    return null;
+                }
+                assert SubscriptionChange.Type.SUBSCRIBE == action;
+                datasetCacheEntry.init(
+                        changeSet,
+                        getDatasetCacheEntryCompressionThreshold(),
+                        isContentAddressedDatasetCacheVersionsEnabled());
+                storeDatasetCacheEntry(datasetCacheEntry);
+            }
+            return datasetCacheEntry;
+        } finally {
+            datasetCacheEntry.getLock().writeLock().unlock();
+        }
+    }
+
+    /**
+     * Initialize the Dataset Cache Entry from the Dataset Cache Store if the store holds its content.
+     * Content that can not be restored is removed from the store.
+     *
+     * @return true if the entry was restored.
+     */
+    private boolean restoreDatasetCacheEntry(@NonNull final DatasetCacheEntry datasetCacheEntry) {
+        if (_datasetCacheStore.isEnabled()) {
+            final var datasetCacheKey = datasetCacheEntry.getDatasetCacheKey();
+            final var storedEntry = _datasetCacheStore.load(datasetCacheKey);
+            if (null != storedEntry) {
+                _datasetCacheMissCount.increment();
+                try {
+                    datasetCacheEntry.restore(
+                            storedEntry.datasetCacheVersion(),
+                            storedEntry.content(),
+                            isContentAddressedDatasetCacheVersionsEnabled());
+                    if (LOG.isLoggable(Level.FINE)) {
+                        LOG.log(
+                                Level.FINE,
+                                "event=datasetCache.entry.restore datasetAddress="
+                                        + datasetCacheKey.datasetAddress() + " datasetCacheVersion="
+                                        + storedEntry.datasetCacheVersion());
+                    }
+                    return true;
+                } catch (final IllegalStateException e) {
+                    if (LOG.isLoggable(Level.WARNING)) {
+                        LOG.log(
+                                Level.WARNING,
+                                "event=datasetCache.entry.restore.fail datasetAddress="
+                                        + datasetCacheKey.datasetAddress() + " error=" + e);
                     }
+                    _datasetCacheStore.remove(datasetCacheKey);
                 }
-            } finally {
-                _datasetCacheEntriesLock.readLock().unlock();
             }
+        }
+        return false;
+    }
+
+    /**
+     * Write the initialized Dataset Cache Entry to the Dataset Cache Store, releasing its Change Set and encodings
+     * from the heap. The entry must not yet be visible to other threads.
+     */
+    private void storeDatasetCacheEntry(@NonNull final DatasetCacheEntry datasetCacheEntry) {
+        if (_datasetCacheStore.isEnabled()) {
+            final var content = _datasetCacheStore.store(
+                    datasetCacheEntry.getDatasetCacheKey(),
+                    datasetCacheEntry.getDatasetCacheVersion(),
+                    datasetCacheEntry.toStoredContent(getDatasetCacheEntryCompressionThreshold()));
+            if (null != content) {
+                datasetCacheEntry.release(content);
+            }
+        }
+    }
 
-            _datasetCacheEntriesLock.writeLock().lock();
+    /**
+     * Evict the least recently used Dataset Cache Entries if the Dataset Cache exceeds its budget and the write lock
+     * of the Dataset Cache Entries is available. Eviction is otherwise left to a later request or invalidation so
+     * that a request never waits for eviction. The caller must not hold the read lock of the Dataset Cache Entries.
+     */
+    private void tryEvictDatasetCacheEntries() {
+        if (isDatasetCacheOverBudget() && _datasetCacheEntriesLock.writeLock().tryLock()) {
             try {
-                _datasetCacheEntries.computeIfAbsent(datasetAddress, DatasetCacheEntry::new);
+                evictDatasetCacheEntries();
             } finally {
                 _datasetCacheEntriesLock.writeLock().unlock();
             }
         }
     }
 
+    private boolean isDatasetCacheOverBudget() {
+        final var maxBytes = getDatasetCacheMaxBytes();
+        return maxBytes > 0 && _datasetCacheBytes.get() > maxBytes;
+    }
+
+    /**
+     * Evict the least recently used Dataset Cache Entries while the estimated heap they retain exceeds the budget.
+     * Entries are evicted until the estimate is a tenth below the budget so that eviction runs once per batch of
+     * evictions rather than once per request. An evicted entry remains in the Dataset Cache Store and remains usable
+     * by packets that reference it. The caller must hold the write lock of the Dataset Cache Entries so that no entry
+     * is being collected and eviction never races an invalidation.
+     */
+    private void evictDatasetCacheEntries() {
+        if (isDatasetCacheOverBudget()) {
+            final var maxBytes = getDatasetCacheMaxBytes();
+            final var targetBytes = maxBytes - maxBytes / 10;
+            synchronized (_datasetCacheUseLock) {
+                final var iterator = _datasetCacheKeysByUse.iterator();
+                while (_datasetCacheBytes.get() > targetBytes && iterator.hasNext()) {
+                    final var datasetCacheKey = iterator.next();
+                    iterator.remove();
+                    final var datasetCacheEntry = _datasetCacheEntries.remove(datasetCacheKey);
+                    if (null != datasetCacheEntry) {
+                        final var size = datasetCacheEntry.removeAccountedSize();
+                        _datasetCacheBytes.addAndGet(-size);
+                        _datasetCacheEvictionCount.increment();
+                        if (LOG.isLoggable(Level.FINE)) {
+                            LOG.log(
+                                    Level.FINE,
+                                    "event=datasetCache.entry.evict datasetAddress="
+                                            + datasetCacheEntry.getDatasetAddress() + " estimatedSize=" + size);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private long getDatasetCacheMaxBytes() {
+        return null == _datasetCacheMaxBytes ? 0 : Math.max(0, _datasetCacheMaxBytes);
+    }
+
+    @NonNull
+    @Override
+    public DatasetCacheStatistics getDatasetCacheStatistics() {
+        return new DatasetCacheStatistics(
+                _datasetCacheHitCount.sum(),
+                _datasetCacheMissCount.sum(),
+                _datasetCacheEvictionCount.sum(),
+                _datasetCacheEntries.size(),
+                _datasetCacheBytes.get());
+    }
+
+    private int getDatasetCacheEntryCompressionThreshold() {
+        return null == _changeSetCompressionThreshold ? 0 : Math.max(0, _changeSetCompressionThreshold);
+    }
+
     /**
      * Clear every Dataset Cache Entry.
      */
@@ -1329,7 +2056,14 @@ public class ReplicantSessionManagerImpl implements ReplicantSessionManager {
     public void clearDatasetCacheEntries() {
         _datasetCacheEntriesLock.writeLock().lock();
         try {
+            _datasetCacheStore.clear();
+            for (final var datasetCacheEntry : _datasetCacheEntries.values()) {
+                _datasetCacheBytes.addAndGet(-datasetCacheEntry.removeAccountedSize());
+            }
             _datasetCacheEntries.clear();
+            synchronized (_datasetCacheUseLock) {
+                _datasetCacheKeysByUse.clear();
+            }
         } finally {
             _datasetCacheEntriesLock.writeLock().unlock();
         }
@@ -1356,66 +2090,123 @@ public class ReplicantSessionManagerImpl implements ReplicantSessionManager {
         });
     }
 
-    private void invalidateAffectedDatasetCacheEntries(@NonNull final EntityChangeCandidate entityChangeCandidate) {
-        final var systemSchema = getSystemSchema();
-        final var datasetCount = systemSchema.getDatasetCount();
-        for (var i = 0; i < datasetCount; i++) {
-            if (systemSchema.hasDataset(i)) {
-                final var dataset = systemSchema.getDataset(i);
+    /**
+     * Update the Dataset Cache Entries at the Dataset Addresses that the Entity Change Candidates are routed to.
+     * When patching is enabled, the updates routed to an Unfiltered Cacheable Dataset are merged into a new entry
+     * with a new Dataset Cache Version. Every other change invalidates the entry and the entries that depend upon it.
+     * Patching an entry still invalidates the entries of the Datasets that depend upon it, so that a later
+     * Subscription does not reuse a dependent entry built from the unpatched content. The entries affected by the
+     * whole transaction are patched and then invalidated in a single pass under one acquisition of the write lock.
+     */
+    private void updateAffectedDatasetCacheEntries(
+            @NonNull final Collection<EntityChangeCandidate> entityChangeCandidates,
+            @NonNull final EntityChangeRoutes entityChangeRoutes) {
+        final var patchDatasetCacheEntries = isPatchDatasetCacheEntriesEnabled();
+        final var datasetAddressesToInvalidate = new LinkedHashSet<DatasetAddress>();
+        final var datasetAddressesToPatch = new LinkedHashMap<DatasetAddress, List<EntityChangeCandidate>>();
+        for (final var entityChangeCandidate : entityChangeCandidates) {
+            for (final var route : entityChangeRoutes.getRoutes(entityChangeCandidate)) {
+                final var dataset = route.dataset();
                 if (dataset.isCacheable()) {
-                    final var datasetAddresses =
-                            deriveDatasetAddressesFromEntityChangeCandidate(dataset, entityChangeCandidate);
-                    if (null != datasetAddresses) {
-                        for (final var datasetAddress : datasetAddresses) {
-                            invalidateDatasetCacheEntry(datasetAddress);
+                    final var patchable =
+                            patchDatasetCacheEntries && dataset.isUnfiltered() && entityChangeCandidate.isUpdate();
+                    for (final var datasetAddress : route.datasetAddresses()) {
+                        if (patchable) {
+                            datasetAddressesToPatch
+                                    .computeIfAbsent(datasetAddress, k -> new ArrayList<>())
+                                    .add(entityChangeCandidate);
+                        } else {
+                            datasetAddressesToInvalidate.add(datasetAddress);
                         }
                     }
                 }
             }
         }
-    }
+        if (datasetAddressesToInvalidate.isEmpty() && datasetAddressesToPatch.isEmpty()) {
+            return;
+        }
 
-    private void routeEntityChangeCandidate(
-            @NonNull final EntityChangeCandidate entityChangeCandidate,
-            @NonNull final ReplicantSession session,
-            @NonNull final ChangeSet changeSet) {
-        final var systemSchema = getSystemSchema();
-        final var datasetCount = systemSchema.getDatasetCount();
-        for (var i = 0; i < datasetCount; i++) {
-            if (systemSchema.hasDataset(i)) {
-                final var dataset = systemSchema.getDataset(i);
-                final var datasetAddresses =
-                        deriveDatasetAddressesFromEntityChangeCandidate(dataset, entityChangeCandidate);
-                if (null != datasetAddresses) {
-                    final var hasFilter = !dataset.isUnfiltered();
-                    for (final var datasetAddress : datasetAddresses) {
-                        routeEntityChangeCandidateToDatasetAddress(
-                                datasetAddress, entityChangeCandidate, session, changeSet, hasFilter);
+        final var hotDatasetCacheKeys = new ArrayList<DatasetCacheKey>();
+        _datasetCacheEntriesLock.writeLock().lock();
+        try {
+            final var patchedDatasetAddresses = new ArrayList<DatasetAddress>();
+            for (final var patch : datasetAddressesToPatch.entrySet()) {
+                final var datasetAddress = patch.getKey();
+                if (!datasetAddressesToInvalidate.contains(datasetAddress)) {
+                    if (patchDatasetCacheEntry(datasetAddress, patch.getValue())) {
+                        patchedDatasetAddresses.add(datasetAddress);
+                    } else {
+                        datasetAddressesToInvalidate.add(datasetAddress);
                     }
                 }
             }
+            if (!datasetAddressesToInvalidate.isEmpty() || !patchedDatasetAddresses.isEmpty()) {
+                invalidateDatasetCacheEntries(
+                        datasetAddressesToInvalidate, patchedDatasetAddresses, hotDatasetCacheKeys);
+            }
+            evictDatasetCacheEntries();
+        } finally {
+            _datasetCacheEntriesLock.writeLock().unlock();
         }
+        refreshDatasetCacheEntries(hotDatasetCacheKeys);
     }
 
-    @Nullable
-    private List<DatasetAddress> deriveDatasetAddressesFromEntityChangeCandidate(
-            @NonNull final Dataset dataset, @NonNull final EntityChangeCandidate entityChangeCandidate) {
-        if (dataset.isInstanceDataset()) {
-            @SuppressWarnings("unchecked")
-            final var datasetRootIds =
-                    (List<Integer>) entityChangeCandidate.getRoutingKeys().get(dataset.getName());
-            if (null != datasetRootIds) {
-                return datasetRootIds.stream()
-                        .map(datasetRootId -> DatasetAddress.of(dataset.getId(), datasetRootId))
-                        .collect(Collectors.toList());
+    /**
+     * Replace the Dataset Cache Entry at the Dataset Address with an entry that includes the Entity Change
+     * Candidates. The caller must hold the write lock of the Dataset Cache Entries.
+     *
+     * @return false if the candidates include a structural change and the entry must be invalidated instead.
+     */
+    private boolean patchDatasetCacheEntry(
+            @NonNull final DatasetAddress datasetAddress,
+            @NonNull final List<EntityChangeCandidate> entityChangeCandidates) {
+        final var datasetCacheKey = DatasetCacheKey.of(datasetAddress);
+        final var datasetCacheEntry = _datasetCacheEntries.get(datasetCacheKey);
+        if (null != datasetCacheEntry) {
+            final var patchedDatasetCacheEntry = datasetCacheEntry.isInitialized()
+                    ? datasetCacheEntry.patch(entityChangeCandidates, getDatasetCacheEntryCompressionThreshold())
+                    : null;
+            if (null != patchedDatasetCacheEntry) {
+                storeDatasetCacheEntry(patchedDatasetCacheEntry);
+                _datasetCacheEntries.put(datasetCacheKey, patchedDatasetCacheEntry);
+                _datasetCacheBytes.addAndGet(
+                        patchedDatasetCacheEntry.updateAccountedSize() - datasetCacheEntry.removeAccountedSize());
+                if (LOG.isLoggable(Level.FINE)) {
+                    LOG.log(
+                            Level.FINE,
+                            "event=datasetCache.entry.patch datasetAddress=" + datasetAddress + " entityChangeCount="
+                                    + entityChangeCandidates.size() + " datasetCacheVersion="
+                                    + patchedDatasetCacheEntry.getDatasetCacheVersion());
+                }
+                return true;
             } else {
-                return null;
+                return false;
             }
         } else {
-            if (entityChangeCandidate.getRoutingKeys().containsKey(dataset.getName())) {
-                return Collections.singletonList(DatasetAddress.of(dataset.getId()));
-            } else {
-                return null;
+            // The store may hold an entry that has not been restored since the server started
+            _datasetCacheStore.remove(datasetCacheKey);
+            return true;
+        }
+    }
+
+    private boolean isPatchDatasetCacheEntriesEnabled() {
+        return null != _patchDatasetCacheEntries && _patchDatasetCacheEntries;
+    }
+
+    private boolean isContentAddressedDatasetCacheVersionsEnabled() {
+        return null != _contentAddressedDatasetCacheVersions && _contentAddressedDatasetCacheVersions;
+    }
+
+    private void routeEntityChangeCandidate(
+            @NonNull final EntityChangeCandidate entityChangeCandidate,
+            @NonNull final List<EntityChangeRoutes.Route> routes,
+            @NonNull final ReplicantSession session,
+            @NonNull final ChangeSet changeSet) {
+        for (final var route : routes) {
+            final var hasFilter = !route.dataset().isUnfiltered();
+            for (final var datasetAddress : route.datasetAddresses()) {
+                routeEntityChangeCandidateToDatasetAddress(
+                        datasetAddress, entityChangeCandidate, session, changeSet, hasFilter);
             }
         }
     }
@@ -1442,20 +2233,14 @@ public class ReplicantSessionManagerImpl implements ReplicantSessionManager {
 
     private void processEntityChangeCandidateRemovalSideEffects(
             @NonNull final EntityChangeCandidate entityChangeCandidate,
+            @NonNull final List<EntityChangeRoutes.Route> routes,
             @NonNull final ReplicantSession session,
             @NonNull final ChangeSet changeSet) {
-        final var systemSchema = getSystemSchema();
-        final var instanceDatasetCount = systemSchema.getInstanceDatasetCount();
-        for (var i = 0; i < instanceDatasetCount; i++) {
-            final var dataset = systemSchema.getInstanceDatasetByIndex(i);
-            @SuppressWarnings("unchecked")
-            final var datasetRootIds =
-                    (List<Integer>) entityChangeCandidate.getRoutingKeys().get(dataset.getName());
-            if (null != datasetRootIds) {
-                for (final var datasetRootId : datasetRootIds) {
-                    final var datasetAddress = DatasetAddress.of(dataset.getId(), datasetRootId);
-                    final var hasFilter =
-                            !systemSchema.getInstanceDatasetByIndex(i).isUnfiltered();
+        for (final var route : routes) {
+            final var dataset = route.dataset();
+            if (dataset.isInstanceDataset()) {
+                final var hasFilter = !dataset.isUnfiltered();
+                for (final var datasetAddress : route.datasetAddresses()) {
                     processEntityChangeCandidateRemovalSideEffectsForDatasetAddress(
                             datasetAddress, entityChangeCandidate, session, changeSet, hasFilter);
                 }
@@ -1529,6 +2314,19 @@ public class ReplicantSessionManagerImpl implements ReplicantSessionManager {
                         + ". Unsubscribe and resubscribe to replace the Subscription.");
     }
 
+    /**
+     * The data of new Subscriptions collected outside the session lock.
+     *
+     * @param subscriptionGeneration the Subscription Generation of the session when the new Subscriptions were
+     *                               identified.
+     * @param datasetAddresses       the Dataset Addresses of the new Subscriptions.
+     * @param changeSet              the collected data.
+     */
+    private record CollectedSubscriptionData(
+            long subscriptionGeneration,
+            @NonNull List<DatasetAddress> datasetAddresses,
+            @NonNull ChangeSet changeSet) {}
+
     private record ResolvedSubscriptionDependency(
             @NonNull DatasetAddress targetDatasetAddress,
             @Nullable JsonObject filterParameter) {}
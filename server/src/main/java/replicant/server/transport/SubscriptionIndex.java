@@ -0,0 +1,171 @@
+package replicant.server.transport;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.jetbrains.annotations.VisibleForTesting;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import replicant.server.DatasetAddress;
+
+/**
+ * A server-wide index from routed Dataset Addresses to the Replicant Sessions that hold a Subscription there.
+ *
+ * <p>The index is keyed by the Dataset Address without its Dataset Key. For a Type Dataset this is the Dataset ID
+ * alone and for an Instance Dataset it is the Dataset ID and Dataset Root ID, which matches the granularity at which
+ * Entity Change Candidates are routed. Replicant Sessions maintain the index as Subscriptions are created and
+ * deleted so that commit-time fan-out only selects sessions that can receive a routed Entity Change.</p>
+ *
+ * <p>A session that is performing a Subscription Operation may create Subscriptions after the fan-out has consulted
+ * the index. Such sessions are tracked separately and are always selected so that they observe any Entity Change
+ * Candidates committed while the operation was in progress.</p>
+ */
+final class SubscriptionIndex {
+    @NonNull
+    private final ReadWriteLock _lock = new ReentrantReadWriteLock();
+
+    @NonNull
+    private final Map<DatasetAddress, Set<ReplicantSession>> _sessionsByDatasetAddress = new HashMap<>();
+
+    @NonNull
+    private final Map<ReplicantSession, Set<DatasetAddress>> _datasetAddressesBySession = new HashMap<>();
+
+    /**
+     * The number of operations that may create Subscriptions in progress for each session. Operations overlap when a
+     * Subscription request collects its data outside the session lock while the broker sends packets.
+     */
+    @NonNull
+    private final Map<ReplicantSession, Integer> _updatingSessions = new ConcurrentHashMap<>();
+
+    /**
+     * Return the Dataset Address used to index Subscriptions for the specified Dataset ID and Dataset Root ID.
+     */
+    @NonNull
+    static DatasetAddress toIndexKey(final int datasetId, @Nullable final Integer datasetRootId) {
+        return DatasetAddress.of(datasetId, datasetRootId);
+    }
+
+    /**
+     * Record that the session holds at least one Subscription for the Dataset ID and Dataset Root ID.
+     */
+    void add(@NonNull final ReplicantSession session, final int datasetId, @Nullable final Integer datasetRootId) {
+        final var key = toIndexKey(datasetId, datasetRootId);
+        _lock.writeLock().lock();
+        try {
+            _sessionsByDatasetAddress.computeIfAbsent(key, k -> new HashSet<>()).add(session);
+            _datasetAddressesBySession
+                    .computeIfAbsent(session, k -> new HashSet<>())
+                    .add(key);
+        } finally {
+            _lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Record that the session no longer holds any Subscription for the Dataset ID and Dataset Root ID.
+     */
+    void remove(@NonNull final ReplicantSession session, final int datasetId, @Nullable final Integer datasetRootId) {
+        final var key = toIndexKey(datasetId, datasetRootId);
+        _lock.writeLock().lock();
+        try {
+            removeSessionFromKey(session, key);
+            final var datasetAddresses = _datasetAddressesBySession.get(session);
+            if (null != datasetAddresses) {
+                datasetAddresses.remove(key);
+                if (datasetAddresses.isEmpty()) {
+                    _datasetAddressesBySession.remove(session);
+                }
+            }
+        } finally {
+            _lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove every entry for the session. Invoked when the session is removed from the session manager.
+     */
+    void removeSession(@NonNull final ReplicantSession session) {
+        _updatingSessions.remove(session);
+        _lock.writeLock().lock();
+        try {
+            final var datasetAddresses = _datasetAddressesBySession.remove(session);
+            if (null != datasetAddresses) {
+                for (final var key : datasetAddresses) {
+                    removeSessionFromKey(session, key);
+                }
+            }
+        } finally {
+            _lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Mark the session as performing an operation that may create Subscriptions.
+     */
+    void beginSubscriptionUpdate(@NonNull final ReplicantSession session) {
+        _updatingSessions.merge(session, 1, Integer::sum);
+    }
+
+    /**
+     * Clear the mark added by {@link #beginSubscriptionUpdate(ReplicantSession)}.
+     */
+    void completeSubscriptionUpdate(@NonNull final ReplicantSession session) {
+        _updatingSessions.computeIfPresent(session, (k, count) -> 1 == count ? null : count - 1);
+    }
+
+    /**
+     * Return the sessions with a Subscription at any of the indexed Dataset Addresses, together with every session
+     * that is currently performing an operation that may create Subscriptions.
+     *
+     * @param datasetAddresses the Dataset Addresses as returned by {@link #toIndexKey(int, Integer)}.
+     * @return the selected sessions.
+     */
+    @NonNull
+    Set<ReplicantSession> findSessions(@NonNull final Collection<DatasetAddress> datasetAddresses) {
+        final var sessions = new HashSet<>(_updatingSessions.keySet());
+        if (!datasetAddresses.isEmpty()) {
+            _lock.readLock().lock();
+            try {
+                for (final var datasetAddress : datasetAddresses) {
+                    final var subscribers = _sessionsByDatasetAddress.get(datasetAddress);
+                    if (null != subscribers) {
+                        sessions.addAll(subscribers);
+                    }
+                }
+            } finally {
+                _lock.readLock().unlock();
+            }
+        }
+        return sessions;
+    }
+
+    /**
+     * Return true if the session holds a Subscription for the Dataset ID and Dataset Root ID.
+     */
+    @VisibleForTesting
+    boolean contains(
+            @NonNull final ReplicantSession session, final int datasetId, @Nullable final Integer datasetRootId) {
+        _lock.readLock().lock();
+        try {
+            final var subscribers = _sessionsByDatasetAddress.get(toIndexKey(datasetId, datasetRootId));
+            return null != subscribers && subscribers.contains(session);
+        } finally {
+            _lock.readLock().unlock();
+        }
+    }
+
+    private void removeSessionFromKey(@NonNull final ReplicantSession session, @NonNull final DatasetAddress key) {
+        final var subscribers = _sessionsByDatasetAddress.get(key);
+        if (null != subscribers) {
+            subscribers.remove(session);
+            if (subscribers.isEmpty()) {
+                _sessionsByDatasetAddress.remove(key);
+            }
+        }
+    }
+}
@@ -1,6 +1,14 @@
 package replicant.server.transport;
 
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 import org.jspecify.annotations.NonNull;
 import replicant.server.DatasetAddress;
@@ -9,6 +17,9 @@ import replicant.server.DatasetAddress;
  * The server-side catalog of Dataset definitions belonging to one isolated replicated system.
  */
 public final class SystemSchema {
+    @NonNull
+    private static final Dataset[] EMPTY_DATASETS = new Dataset[0];
+
     @NonNull
     private final String _name;
 
@@ -18,6 +29,29 @@ public final class SystemSchema {
     @NonNull
     private final Dataset[] _instanceDatasets;
 
+    /**
+     * The Datasets keyed by name. Entity Change Candidates carry routing keys named after the Datasets that they
+     * route to, so this index allows routing to resolve only the Datasets that a candidate names rather than
+     * scanning every Dataset in the schema.
+     */
+    @NonNull
+    private final Map<String, Dataset> _datasetsByName = new HashMap<>();
+
+    /**
+     * The IDs of the Datasets that transitively depend upon each Dataset, indexed by Dataset ID. The table is derived
+     * once so that invalidating a Dataset Cache Entry does not traverse the Dataset graph.
+     */
+    @NonNull
+    private final int[][] _transitiveDependentDatasetIds;
+
+    /**
+     * The routed Datasets keyed by the names of the routing keys. Every Entity Change Candidate of an entity type
+     * carries the same routing key names, so there is an entry per entity type and resolving the routed Datasets
+     * of a candidate does not allocate or sort.
+     */
+    @NonNull
+    private final Map<Set<String>, Dataset[]> _routedDatasetsByRoutingKeyNames = new ConcurrentHashMap<>();
+
     public SystemSchema(@NonNull final String name, @NonNull final Dataset... datasets) {
         for (var i = 0; i < datasets.length; i++) {
             final var dataset = datasets[i];
@@ -33,6 +67,30 @@ public final class SystemSchema {
                 .filter(Objects::nonNull)
                 .filter(Dataset::isInstanceDataset)
                 .toArray(Dataset[]::new);
+        for (final var dataset : datasets) {
+            if (null != dataset) {
+                _datasetsByName.put(dataset.getName(), dataset);
+            }
+        }
+        _transitiveDependentDatasetIds = new int[datasets.length][];
+        for (var i = 0; i < datasets.length; i++) {
+            _transitiveDependentDatasetIds[i] =
+                    null == datasets[i] ? new int[0] : deriveTransitiveDependentDatasetIds(datasets[i]);
+        }
+    }
+
+    @NonNull
+    private static int[] deriveTransitiveDependentDatasetIds(@NonNull final Dataset dataset) {
+        final var datasetIds = new BitSet();
+        final var pending = new ArrayDeque<>(dataset.getDependentDatasets());
+        while (!pending.isEmpty()) {
+            final var dependent = pending.removeFirst();
+            if (!datasetIds.get(dependent.getId())) {
+                datasetIds.set(dependent.getId());
+                pending.addAll(dependent.getDependentDatasets());
+            }
+        }
+        return datasetIds.stream().toArray();
     }
 
     @NonNull
@@ -64,6 +122,20 @@ public final class SystemSchema {
         return null != _datasets[datasetId];
     }
 
+    /**
+     * Return the IDs of the Datasets that depend upon the Dataset, directly or via other dependent Datasets,
+     * ordered by Dataset ID.
+     *
+     * @param datasetId the Dataset ID.
+     * @return the Dataset IDs of the transitively dependent Datasets.
+     */
+    @NonNull
+    public int[] getTransitiveDependentDatasetIds(final int datasetId) {
+        // Reject an unknown Dataset ID
+        getDataset(datasetId);
+        return _transitiveDependentDatasetIds[datasetId].clone();
+    }
+
     public int getInstanceDatasetCount() {
         return _instanceDatasets.length;
     }
@@ -72,4 +144,44 @@ public final class SystemSchema {
     public Dataset getInstanceDatasetByIndex(final int index) {
         return _instanceDatasets[index];
     }
+
+    /**
+     * Return the Datasets that the specified routing keys route to, ordered by Dataset ID.
+     * Routing keys that do not name a Dataset in this schema are ignored. The returned array is shared between
+     * callers and must not be modified.
+     *
+     * @param routingKeys the routing keys of an Entity Change Candidate.
+     * @return the routed Datasets.
+     */
+    @NonNull
+    public Dataset[] getRoutedDatasets(@NonNull final Map<String, ?> routingKeys) {
+        if (routingKeys.isEmpty()) {
+            return EMPTY_DATASETS;
+        }
+        final var routingKeyNames = routingKeys.keySet();
+        final var routedDatasets = _routedDatasetsByRoutingKeyNames.get(routingKeyNames);
+        if (null != routedDatasets) {
+            return routedDatasets;
+        }
+        final var resolvedDatasets = resolveRoutedDatasets(routingKeyNames);
+        _routedDatasetsByRoutingKeyNames.putIfAbsent(Set.copyOf(routingKeyNames), resolvedDatasets);
+        return resolvedDatasets;
+    }
+
+    @NonNull
+    private Dataset[] resolveRoutedDatasets(@NonNull final Set<String> routingKeyNames) {
+        final var routedDatasets = new Dataset[routingKeyNames.size()];
+        var count = 0;
+        for (final var name : routingKeyNames) {
+            final var dataset = _datasetsByName.get(name);
+            if (null != dataset) {
+                routedDatasets[count++] = dataset;
+            }
+        }
+        if (0 == count) {
+            return EMPTY_DATASETS;
+        }
+        Arrays.sort(routedDatasets, 0, count, Comparator.comparingInt(Dataset::getId));
+        return count == routedDatasets.length ? routedDatasets : Arrays.copyOf(routedDatasets, count);
+    }
 }
@@ -0,0 +1,31 @@
+package replicant.server.transport;
+
+import java.util.Collection;
+import javax.json.JsonValue;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import replicant.server.ChangeSet;
+import replicant.server.EntityChangeCandidate;
+
+/**
+ * The changes of a Replication Invocation, captured when the invocation completes so that they can be published to
+ * the sessions after the transaction thread has returned. Nothing in the batch is modified once it is captured.
+ *
+ * @param initiator                  the session that initiated the Replication Invocation, or null if the session is
+ *                                   not present.
+ * @param requestId                  the id of the request that initiated the Replication Invocation, if any.
+ * @param commandResult              the result of the command that initiated the Replication Invocation, if any.
+ * @param entityChangeCandidates     the Entity Change Candidates recorded by the transaction.
+ * @param initiatingSessionChangeSet the Change Set recorded for the initiating session, if any.
+ * @param fromSubscriptionRequest    true if the Replication Invocation was a Subscription request.
+ * @param datasetCacheEntryHandled   true if the Replication Invocation already queued a Cacheable Dataset Change Set
+ *                                   for the initiating session.
+ */
+public record TransactionChangeBatch(
+        @Nullable ReplicantSession initiator,
+        @Nullable Integer requestId,
+        @Nullable JsonValue commandResult,
+        @NonNull Collection<EntityChangeCandidate> entityChangeCandidates,
+        @Nullable ChangeSet initiatingSessionChangeSet,
+        boolean fromSubscriptionRequest,
+        boolean datasetCacheEntryHandled) {}
@@ -1,6 +1,13 @@
 package replicant.server.transport;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import javax.websocket.CloseReason;
+import javax.websocket.RemoteEndpoint;
 import javax.websocket.Session;
 import org.jspecify.annotations.NonNull;
 
@@ -8,12 +15,88 @@ import org.jspecify.annotations.NonNull;
 public final class WebSocketUtil {
     private WebSocketUtil() {}
 
+    /**
+     * The size of the buffer used when streaming a message. Each time the buffer fills the content is handed to the
+     * container as a partial frame, so this bounds the memory used by a streamed message.
+     */
+    static final int STREAMING_CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * Content that is written directly to the transport rather than materialized as a String.
+     */
+    @FunctionalInterface
+    public interface TextContent {
+        /**
+         * Write the content to the writer and close the writer.
+         */
+        void writeTo(@NonNull Writer writer) throws IOException;
+    }
+
+    /**
+     * Binary content that is written directly to the transport rather than materialized as a byte array.
+     */
+    @FunctionalInterface
+    public interface BinaryContent {
+        /**
+         * Write the content to the output stream and close the output stream.
+         */
+        void writeTo(@NonNull OutputStream output) throws IOException;
+    }
+
     public static boolean sendText(@NonNull final Session session, @NonNull final String message) {
+        return send(session, endpoint -> {
+            endpoint.sendText(message);
+            endpoint.flushBatch();
+        });
+    }
+
+    public static boolean sendBinary(@NonNull final Session session, @NonNull final ByteBuffer message) {
+        return send(session, endpoint -> {
+            endpoint.sendBinary(message);
+            endpoint.flushBatch();
+        });
+    }
+
+    /**
+     * Stream a text message through the send writer of the session in chunks of {@link #STREAMING_CHUNK_SIZE}.
+     * If the content fails to encode part way through, the session is closed as the client has received an
+     * incomplete message.
+     */
+    public static boolean streamText(@NonNull final Session session, @NonNull final TextContent content) {
+        return send(session, endpoint -> {
+            final var writer = new BufferedWriter(endpoint.getSendWriter(), STREAMING_CHUNK_SIZE);
+            try {
+                content.writeTo(writer);
+            } catch (final RuntimeException e) {
+                session.close(new CloseReason(CloseReason.CloseCodes.UNEXPECTED_CONDITION, "Failed to encode message"));
+                throw e;
+            }
+            writer.close();
+        });
+    }
+
+    /**
+     * Stream a binary message through the send stream of the session in chunks of {@link #STREAMING_CHUNK_SIZE}.
+     * If the content fails to encode part way through, the session is closed as the client has received an
+     * incomplete message.
+     */
+    public static boolean streamBinary(@NonNull final Session session, @NonNull final BinaryContent content) {
+        return send(session, endpoint -> {
+            final var output = new BufferedOutputStream(endpoint.getSendStream(), STREAMING_CHUNK_SIZE);
+            try {
+                content.writeTo(output);
+            } catch (final RuntimeException e) {
+                session.close(new CloseReason(CloseReason.CloseCodes.UNEXPECTED_CONDITION, "Failed to encode message"));
+                throw e;
+            }
+            output.close();
+        });
+    }
+
+    private static boolean send(@NonNull final Session session, @NonNull final SendAction action) {
         if (session.isOpen()) {
             try {
-                final var endpoint = session.getBasicRemote();
-                endpoint.sendText(message);
-                endpoint.flushBatch();
+                action.send(session.getBasicRemote());
                 return true;
             } catch (final IOException ignored) {
                 // This typically means that either the buffer is full or the websocket is in a bad state
@@ -94,4 +177,9 @@ public final class WebSocketUtil {
         }
         return false;
     }
+
+    @FunctionalInterface
+    private interface SendAction {
+        void send(RemoteEndpoint.@NonNull Basic endpoint) throws IOException;
+    }
 }
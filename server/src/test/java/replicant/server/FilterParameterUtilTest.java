@@ -2,6 +2,7 @@ package replicant.server;
 
 import static org.testng.Assert.*;
 
+import java.math.BigDecimal;
 import javax.json.Json;
 import org.testng.annotations.Test;
 
@@ -39,4 +40,45 @@ public class FilterParameterUtilTest {
 
         assertFalse(FilterParameterUtil.filterParametersEqual(filterParameter1, filterParameter2));
     }
+
+    @Test
+    public void canonicalize_sortsMembersAndNormalizesNumbers() {
+        final var filterParameter = Json.createObjectBuilder()
+                .add("name", "alpha")
+                .add("limit", Json.createValue(new BigDecimal("10.00")))
+                .add(
+                        "nested",
+                        Json.createObjectBuilder()
+                                .add("z", Json.createValue(new BigDecimal("1.50")))
+                                .add("a", Json.createArrayBuilder()
+                                        .add(Json.createObjectBuilder().add("y", 1).add("x", 2))
+                                        .add(Json.createValue(new BigDecimal("1E+2")))))
+                .build();
+        final var canonical = FilterParameterUtil.canonicalize(filterParameter);
+
+        assertEquals(
+                canonical.toString(),
+                "{\"limit\":10,\"name\":\"alpha\",\"nested\":{\"a\":[{\"x\":2,\"y\":1},100],\"z\":1.5}}");
+        assertEquals(FilterParameterUtil.canonicalize(canonical), canonical);
+    }
+
+    @Test
+    public void canonicalize_matchesEquivalentFilterParameters() {
+        final var filterParameter1 = Json.createObjectBuilder()
+                .add("name", "alpha")
+                .add("limit", 10)
+                .build();
+        final var filterParameter2 = Json.createObjectBuilder()
+                .add("limit", Json.createValue(new BigDecimal("10.0")))
+                .add("name", "alpha")
+                .build();
+
+        assertFalse(FilterParameterUtil.filterParametersEqual(filterParameter1, filterParameter2));
+        assertEquals(
+                FilterParameterUtil.canonicalize(filterParameter1),
+                FilterParameterUtil.canonicalize(filterParameter2));
+        assertEquals(
+                FilterParameterUtil.canonicalize(filterParameter1).toString(),
+                FilterParameterUtil.canonicalize(filterParameter2).toString());
+    }
 }
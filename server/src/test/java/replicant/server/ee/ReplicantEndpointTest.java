@@ -7,6 +7,7 @@ import java.io.IOException;
 import java.io.StringReader;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import javax.enterprise.event.Event;
 import javax.json.Json;
@@ -19,11 +20,13 @@ import org.jspecify.annotations.Nullable;
 import org.testng.annotations.Test;
 import replicant.server.DatasetAddress;
 import replicant.server.transport.Dataset;
+import replicant.server.transport.DatasetCacheKey;
 import replicant.server.transport.ReplicantSession;
 import replicant.server.transport.ReplicantSessionAuthorization;
 import replicant.server.transport.ReplicantSessionManager;
 import replicant.server.transport.SystemSchema;
 import replicant.shared.Messages;
+import replicant.shared.SharedConstants;
 
 public final class ReplicantEndpointTest {
     @Test
@@ -38,6 +41,38 @@ public final class ReplicantEndpointTest {
         final var response = getLastSentMessage(fixture);
         assertEquals(response.getString(Messages.Common.TYPE), Messages.S2C_Type.SESSION_CREATED);
         assertEquals(response.getString(Messages.S2C_Common.REPLICANT_SESSION_ID), fixture.replicantSessionId);
+        assertFalse(fixture.replicantSession.isBinaryChangeSetsEnabled());
+        assertFalse(fixture.replicantSession.isCompressionAccepted());
+    }
+
+    @Test
+    public void onOpen_acceptsCompressionWhenRequested() throws Exception {
+        final var fixture = newFixture();
+        when(fixture.session.getRequestParameterMap())
+                .thenReturn(Map.of(
+                        SharedConstants.CHANGE_SET_COMPRESSION_PARAMETER,
+                        List.of(SharedConstants.DEFLATE_CHANGE_SET_COMPRESSION)));
+
+        fixture.endpoint.onOpen(fixture.session);
+
+        assertFalse(fixture.replicantSession.isBinaryChangeSetsEnabled());
+        assertTrue(fixture.replicantSession.isCompressionAccepted());
+    }
+
+    @Test
+    public void onOpen_enablesBinaryChangeSetsWhenRequested() throws Exception {
+        final var fixture = newFixture();
+        when(fixture.session.getRequestParameterMap())
+                .thenReturn(Map.of(
+                        SharedConstants.CHANGE_SET_ENCODING_PARAMETER,
+                        List.of(SharedConstants.BINARY_CHANGE_SET_ENCODING)));
+
+        fixture.endpoint.onOpen(fixture.session);
+
+        assertTrue(fixture.replicantSession.isBinaryChangeSetsEnabled());
+        // Messages other than Change Sets are still sent as JSON text
+        final var response = getLastSentMessage(fixture);
+        assertEquals(response.getString(Messages.Common.TYPE), Messages.S2C_Type.SESSION_CREATED);
     }
 
     @Test
@@ -208,12 +243,13 @@ public final class ReplicantEndpointTest {
         fixture.endpoint.onMessage(fixture.session, command.toString());
 
         @SuppressWarnings("unchecked")
-        final var captor = (org.mockito.ArgumentCaptor<Map<DatasetAddress, String>>)
+        final var captor = (org.mockito.ArgumentCaptor<Map<DatasetCacheKey, String>>)
                 (Object) org.mockito.ArgumentCaptor.forClass(Map.class);
         verify(fixture.sessionManager).setDatasetCacheVersions(eq(fixture.replicantSession), captor.capture());
         final var captured = captor.getValue();
-        assertEquals(captured.get(DatasetAddress.of(1)), "e1");
-        assertEquals(captured.get(DatasetAddress.of(2, 3, "fi")), "e2");
+        assertEquals(captured.size(), 2);
+        assertEquals(captured.get(DatasetCacheKey.of(DatasetAddress.of(1))), "e1");
+        assertEquals(captured.get(DatasetCacheKey.of(DatasetAddress.of(2, 3, "fi"))), "e2");
 
         final var response = getLastSentMessage(fixture);
         assertEquals(response.getString(Messages.Common.TYPE), Messages.S2C_Type.OK);
@@ -221,6 +257,45 @@ public final class ReplicantEndpointTest {
         verify(fixture.updatedEvent).fire(new ReplicantSessionUpdated(fixture.replicantSessionId));
     }
 
+    @Test
+    public void command_datasetCacheVersions_withFilteredDatasetCacheVersions() throws Exception {
+        final var fixture = newFixture();
+        final var filterParameter =
+                Json.createObjectBuilder().add("b", 2).add("a", 1).build();
+        final var command = Json.createObjectBuilder()
+                .add(Messages.Common.TYPE, Messages.C2S_Type.DATASET_CACHE_VERSIONS)
+                .add(Messages.Common.REQUEST_ID, 9)
+                .add(
+                        Messages.DatasetCacheVersions.DATASET_CACHE_VERSIONS,
+                        Json.createObjectBuilder().add("1", "e1"))
+                .add(
+                        Messages.DatasetCacheVersions.FILTERED_DATASET_CACHE_VERSIONS,
+                        Json.createArrayBuilder()
+                                .add(Json.createObjectBuilder()
+                                        .add(Messages.Common.DATASET_ADDRESS, "2.3")
+                                        .add(Messages.Common.FILTER_PARAMETER, filterParameter)
+                                        .add(Messages.S2C_Common.DATASET_CACHE_VERSION, "e2")))
+                .build();
+
+        fixture.endpoint.onMessage(fixture.session, command.toString());
+
+        @SuppressWarnings("unchecked")
+        final var captor = (org.mockito.ArgumentCaptor<Map<DatasetCacheKey, String>>)
+                (Object) org.mockito.ArgumentCaptor.forClass(Map.class);
+        verify(fixture.sessionManager).setDatasetCacheVersions(eq(fixture.replicantSession), captor.capture());
+        final var captured = captor.getValue();
+        assertEquals(captured.size(), 2);
+        assertEquals(captured.get(DatasetCacheKey.of(DatasetAddress.of(1))), "e1");
+        final var equivalentFilterParameter =
+                Json.createObjectBuilder().add("a", 1).add("b", 2).build();
+        assertEquals(captured.get(DatasetCacheKey.of(DatasetAddress.of(2, 3), equivalentFilterParameter)), "e2");
+        assertNull(captured.get(DatasetCacheKey.of(DatasetAddress.of(2, 3))));
+
+        final var response = getLastSentMessage(fixture);
+        assertEquals(response.getString(Messages.Common.TYPE), Messages.S2C_Type.OK);
+        assertEquals(response.getInt(Messages.Common.REQUEST_ID), 9);
+    }
+
     @Test
     public void command_ping() throws Exception {
         final var fixture = newFixture();
@@ -0,0 +1,258 @@
+package replicant.server.json;
+
+import static org.testng.Assert.*;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import javax.json.Json;
+import org.jspecify.annotations.NonNull;
+import org.testng.annotations.Test;
+import replicant.server.ChangeSet;
+import replicant.server.DatasetAddress;
+import replicant.server.EntityChange;
+import replicant.server.EntityChangeCandidateTestUtil;
+import replicant.server.SubscriptionChange;
+import replicant.shared.Messages;
+
+/**
+ * Tests encoding Change Sets into the compact binary format.
+ */
+public final class BinaryEncoderTest {
+    @Test
+    public void encodeAllData() {
+        final var entityChangeCandidate =
+                EntityChangeCandidateTestUtil.createEntityChangeCandidate(17, 42, 0, "r1", "r2", "a1", "a2");
+        final var values = Objects.requireNonNull(entityChangeCandidate.getAttributeValues());
+        values.put("int", -5);
+        values.put("long", 12345678901L);
+        values.put("float", 1.5F);
+        values.put("true", true);
+        values.put("false", false);
+        values.put("null", null);
+
+        final var change = new EntityChange(entityChangeCandidate);
+        change.getDatasetAddresses().add(DatasetAddress.of(1, null));
+        change.getDatasetAddresses().add(DatasetAddress.of(2, 42));
+
+        final var filterParameter = Json.createObjectBuilder().add("a", "b").build();
+        final var changeSet = new ChangeSet();
+        changeSet.merge(change);
+        changeSet.mergeSubscriptionChange(
+                SubscriptionChange.of(DatasetAddress.of(3), SubscriptionChange.Type.SUBSCRIBE));
+        changeSet.mergeSubscriptionChange(
+                SubscriptionChange.of(DatasetAddress.of(45, 77), SubscriptionChange.Type.UPDATE, filterParameter));
+
+        final var commandResult = Json.createArrayBuilder().add(17).add(42).build();
+        final var input = new Input(BinaryEncoder.encodeChangeSet(1, commandResult, "#1", changeSet));
+
+        assertEquals(input.readByte(), Messages.BinaryChangeSet.VERSION);
+        assertEquals(
+                input.readUnsigned(),
+                Messages.BinaryChangeSet.FLAG_REQUEST_ID
+                        | Messages.BinaryChangeSet.FLAG_COMMAND_RESULT
+                        | Messages.BinaryChangeSet.FLAG_DATASET_CACHE_VERSION);
+        assertEquals(input.readSigned(), 1);
+        assertEquals(input.readString(), "[17,42]");
+        assertEquals(input.readString(), "#1");
+
+        assertEquals(input.readUnsigned(), 1);
+        assertEquals(input.readString(), "+3");
+
+        assertEquals(input.readUnsigned(), 1);
+        assertEquals(input.readString(), "=45.77");
+        assertEquals(input.readString(), filterParameter.toString());
+
+        assertEquals(input.readUnsigned(), 1);
+        assertEquals(input.readUnsigned(), 42);
+        assertEquals(input.readSigned(), 17);
+        assertEquals(input.readUnsigned(), 2);
+        assertEquals(input.readRef(), "1");
+        assertEquals(input.readRef(), "2.42");
+
+        final var attributeCount = input.readUnsigned() - 1;
+        final var attributes = new HashMap<String, Serializable>();
+        for (var i = 0; i < attributeCount; i++) {
+            attributes.put(input.readRef(), input.readValue());
+        }
+        assertEquals(
+                attributes,
+                Map.of(
+                        EntityChangeCandidateTestUtil.ATTR_KEY1, "a1",
+                        EntityChangeCandidateTestUtil.ATTR_KEY2, "a2",
+                        "int", -5,
+                        "long", "12345678901",
+                        "float", 1.5F,
+                        "true", true,
+                        "false", false));
+        assertTrue(input.isComplete());
+    }
+
+    @Test
+    public void encodeRemoval() {
+        final var entityChangeCandidate =
+                EntityChangeCandidateTestUtil.createEntityChangeCandidate(17, 42, 0, "r1", "r2", null, null);
+        final var changeSet = new ChangeSet();
+        changeSet.merge(new EntityChange(entityChangeCandidate, DatasetAddress.of(1)));
+
+        final var input = new Input(BinaryEncoder.encodeChangeSet(null, null, null, changeSet));
+
+        assertEquals(input.readByte(), Messages.BinaryChangeSet.VERSION);
+        assertEquals(input.readUnsigned(), 0);
+        assertEquals(input.readUnsigned(), 0);
+        assertEquals(input.readUnsigned(), 0);
+        assertEquals(input.readUnsigned(), 1);
+        assertEquals(input.readUnsigned(), 42);
+        assertEquals(input.readSigned(), 17);
+        assertEquals(input.readUnsigned(), 1);
+        assertEquals(input.readRef(), "1");
+        assertEquals(input.readUnsigned(), 0);
+        assertTrue(input.isComplete());
+    }
+
+    @Test
+    public void encodeRepeatedStringsOnce() {
+        final var changeSet = new ChangeSet();
+        for (var i = 0; i < 3; i++) {
+            final var entityChangeCandidate =
+                    EntityChangeCandidateTestUtil.createEntityChangeCandidate(i, 42, 0, "r1", "r2", "a1", null);
+            changeSet.merge(new EntityChange(entityChangeCandidate, DatasetAddress.of(7, 3)));
+        }
+
+        final var input = new Input(BinaryEncoder.encodeChangeSet(null, null, null, changeSet));
+
+        assertEquals(input.readByte(), Messages.BinaryChangeSet.VERSION);
+        assertEquals(input.readUnsigned(), 0);
+        assertEquals(input.readUnsigned(), 0);
+        assertEquals(input.readUnsigned(), 0);
+        assertEquals(input.readUnsigned(), 3);
+        final var entityIds = new ArrayList<Integer>();
+        for (var i = 0; i < 3; i++) {
+            assertEquals(input.readUnsigned(), 42);
+            entityIds.add(input.readSigned());
+            assertEquals(input.readUnsigned(), 1);
+            final var datasetAddressRef = input.readUnsigned();
+            if (0 == i) {
+                assertEquals(datasetAddressRef, 0);
+                assertEquals(input.readString(), "7.3");
+            } else {
+                assertEquals(datasetAddressRef, 1);
+            }
+            assertEquals(input.readUnsigned(), 2);
+            final var attributeKeyRef = input.readUnsigned();
+            if (0 == i) {
+                assertEquals(attributeKeyRef, 0);
+                assertEquals(input.readString(), EntityChangeCandidateTestUtil.ATTR_KEY1);
+            } else {
+                assertEquals(attributeKeyRef, 2);
+            }
+            assertEquals(input.readValue(), "a1");
+        }
+        assertEquals(entityIds.stream().sorted().toList(), List.of(0, 1, 2));
+        assertTrue(input.isComplete());
+    }
+
+    @Test
+    public void insertRequestId() {
+        final var changeSet = new ChangeSet();
+        changeSet.merge(new EntityChange(
+                EntityChangeCandidateTestUtil.createEntityChangeCandidate(17, 42, 0, "r1", "r2", "a1", "a2"),
+                DatasetAddress.of(1)));
+        changeSet.mergeSubscriptionChange(
+                SubscriptionChange.of(DatasetAddress.of(1), SubscriptionChange.Type.SUBSCRIBE));
+
+        final var encoded = BinaryEncoder.encodeChangeSet(null, null, "#1", changeSet);
+
+        assertEquals(
+                BinaryEncoder.insertRequestId(encoded, 23), BinaryEncoder.encodeChangeSet(23, null, "#1", changeSet));
+        assertEquals(
+                BinaryEncoder.insertRequestId(encoded, 100000),
+                BinaryEncoder.encodeChangeSet(100000, null, "#1", changeSet));
+    }
+
+    /**
+     * A minimal decoder for the binary format used to verify the encoded output.
+     */
+    private static final class Input {
+        @NonNull
+        private final byte[] _bytes;
+
+        @NonNull
+        private final List<String> _strings = new ArrayList<>();
+
+        private int _offset;
+
+        Input(@NonNull final byte[] bytes) {
+            _bytes = bytes;
+        }
+
+        int readByte() {
+            return _bytes[_offset++] & 0xFF;
+        }
+
+        int readUnsigned() {
+            var value = 0;
+            var shift = 0;
+            int b;
+            do {
+                b = readByte();
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (0 != (b & 0x80));
+            return value;
+        }
+
+        int readSigned() {
+            final var value = readUnsigned();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        @NonNull
+        String readString() {
+            final var length = readUnsigned();
+            final var value = new String(_bytes, _offset, length, StandardCharsets.UTF_8);
+            _offset += length;
+            return value;
+        }
+
+        @NonNull
+        String readRef() {
+            final var index = readUnsigned();
+            if (0 == index) {
+                final var value = readString();
+                _strings.add(value);
+                return value;
+            } else {
+                return _strings.get(index - 1);
+            }
+        }
+
+        @NonNull
+        Serializable readValue() {
+            final var type = readByte();
+            switch (type) {
+                case Messages.BinaryChangeSet.VALUE_STRING:
+                    return readString();
+                case Messages.BinaryChangeSet.VALUE_INTEGER:
+                    return readSigned();
+                case Messages.BinaryChangeSet.VALUE_FLOAT:
+                    return Float.intBitsToFloat(
+                            (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte());
+                case Messages.BinaryChangeSet.VALUE_TRUE:
+                    return true;
+                case Messages.BinaryChangeSet.VALUE_FALSE:
+                    return false;
+                default:
+                    throw new IllegalStateException("Unknown value type " + type);
+            }
+        }
+
+        boolean isComplete() {
+            return _offset == _bytes.length;
+        }
+    }
+}
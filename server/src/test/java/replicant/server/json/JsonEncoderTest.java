@@ -4,6 +4,7 @@ import static org.testng.Assert.*;
 
 import java.io.Serializable;
 import java.io.StringReader;
+import java.io.StringWriter;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.Objects;
@@ -112,6 +113,20 @@ public final class JsonEncoderTest {
         assertEquals(datasetAddress3, "3.73");
     }
 
+    @Test
+    public void insertRequestId() {
+        final var cs = new ChangeSet();
+        cs.merge(new EntityChange(
+                EntityChangeCandidateTestUtil.createEntityChangeCandidate(17, 42, 0, "r1", "r2", "a1", "a2"),
+                DatasetAddress.of(1)));
+        cs.mergeSubscriptionChange(SubscriptionChange.of(DatasetAddress.of(1), SubscriptionChange.Type.SUBSCRIBE));
+
+        final var encoded = JsonEncoder.encodeChangeSet(null, null, "#1", cs);
+
+        assertEquals(JsonEncoder.insertRequestId(encoded, 23), JsonEncoder.encodeChangeSet(23, null, "#1", cs));
+        assertEquals(JsonEncoder.insertRequestId(encoded, -1), JsonEncoder.encodeChangeSet(-1, null, "#1", cs));
+    }
+
     @Test
     public void encodeChangeSetFromEntityChangeCandidates_replicaRemoval() {
         final var entityId = 17;
@@ -151,6 +166,19 @@ public final class JsonEncoderTest {
         assertFalse(changeSet.containsKey(Messages.ChangeSet.ENTITY_CHANGES));
     }
 
+    @Test
+    public void encodeChangeSet_toWriter() {
+        final var entityChangeCandidate =
+                EntityChangeCandidateTestUtil.createEntityChangeCandidate(17, 42, 0, "r1", "r2", "a1", "a2");
+        final var cs = new ChangeSet();
+        cs.merge(new EntityChange(entityChangeCandidate, DatasetAddress.of(1, 2)));
+
+        final var writer = new StringWriter();
+        JsonEncoder.encodeChangeSet(writer, 3, null, "#1", cs);
+
+        assertEquals(writer.toString(), JsonEncoder.encodeChangeSet(3, null, "#1", cs));
+    }
+
     private JsonObject toJsonObject(final String encoded) {
         return Json.createReader(new StringReader(encoded)).readObject();
     }
@@ -329,6 +357,21 @@ public final class JsonEncoderTest {
         assertEquals(message.getString(Messages.Common.DATASET_ADDRESS), "1.2");
         assertEquals(message.getString(Messages.S2C_Common.DATASET_CACHE_VERSION), "e1");
         assertFalse(message.containsKey(Messages.Common.REQUEST_ID));
+        assertFalse(message.containsKey(Messages.Common.FILTER_PARAMETER));
+    }
+
+    @Test
+    public void encodeUseDatasetCacheEntryMessage_withFilterParameter() {
+        final var datasetAddress = DatasetAddress.of(1, 2);
+        final var filterParameter = Json.createObjectBuilder().add("a", 1).build();
+        final var message = toJsonObject(
+                JsonEncoder.encodeUseDatasetCacheEntryMessage(datasetAddress, filterParameter, "e1", 7));
+
+        assertEquals(message.getString(Messages.Common.TYPE), Messages.S2C_Type.USE_DATASET_CACHE_ENTRY);
+        assertEquals(message.getString(Messages.Common.DATASET_ADDRESS), "1.2");
+        assertEquals(message.getJsonObject(Messages.Common.FILTER_PARAMETER), filterParameter);
+        assertEquals(message.getString(Messages.S2C_Common.DATASET_CACHE_VERSION), "e1");
+        assertEquals(message.getInt(Messages.Common.REQUEST_ID), 7);
     }
 
     @Test
@@ -0,0 +1,87 @@
+package replicant.server.transport;
+
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import org.jspecify.annotations.NonNull;
+import org.testng.annotations.Test;
+import replicant.shared.Messages;
+
+public class ChangeSetCompressorTest {
+    @Test
+    public void compress() throws Exception {
+        final var payload = "{\"type\":\"change-set\"}".repeat(1000).getBytes(StandardCharsets.UTF_8);
+
+        final var compressed =
+                ChangeSetCompressor.compress(Messages.CompressedChangeSet.FORMAT_DEFLATED_JSON, payload);
+
+        assertEquals(compressed[0] & 0xFF, Messages.CompressedChangeSet.FORMAT_DEFLATED_JSON);
+        assertTrue(compressed.length < payload.length / 10);
+        assertEquals(inflate(compressed), payload);
+    }
+
+    @Test
+    public void compress_reusesDeflater() throws Exception {
+        final var payload1 = new byte[] {1, 2, 3, 4, 5};
+        final var payload2 = new byte[] {6, 7, 8};
+
+        final var format = Messages.CompressedChangeSet.FORMAT_DEFLATED_BINARY;
+        final var compressed1 = ChangeSetCompressor.compress(format, payload1);
+        final var compressed2 = ChangeSetCompressor.compress(format, payload2);
+
+        assertEquals(inflate(compressed1), payload1);
+        assertEquals(inflate(compressed2), payload2);
+    }
+
+    @Test
+    public void compress_sharedTail() throws Exception {
+        final var payload =
+                "{\"type\":\"change-set\",\"entityChanges\":[]}".repeat(1000).getBytes(StandardCharsets.UTF_8);
+        final var offset = 20;
+        final var compressedTail = ChangeSetCompressor.compressTail(payload, offset);
+        final var head = "{\"type\":\"change-set\",\"requestId\":42".getBytes(StandardCharsets.UTF_8);
+
+        final var compressed =
+                ChangeSetCompressor.compress(Messages.CompressedChangeSet.FORMAT_DEFLATED_JSON, head, compressedTail);
+
+        assertEquals(compressed[0] & 0xFF, Messages.CompressedChangeSet.FORMAT_DEFLATED_JSON);
+        final var expected = new ByteArrayOutputStream();
+        expected.write(head);
+        expected.write(payload, offset, payload.length - offset);
+        assertEquals(inflate(compressed), expected.toByteArray());
+    }
+
+    @Test
+    public void compress_streamed() throws Exception {
+        final var text = "{\"type\":\"change-set\",\"name\":\"\u00e9\u4e16\"}".repeat(1000);
+        final var output = new ByteArrayOutputStream();
+
+        ChangeSetCompressor.compress(output, writer -> {
+            writer.write(text);
+            writer.close();
+        });
+
+        final var compressed = output.toByteArray();
+        assertEquals(compressed[0] & 0xFF, Messages.CompressedChangeSet.FORMAT_DEFLATED_JSON);
+        assertEquals(new String(inflate(compressed), StandardCharsets.UTF_8), text);
+    }
+
+    @NonNull
+    private static byte[] inflate(@NonNull final byte[] compressed) throws DataFormatException {
+        final var inflater = new Inflater(true);
+        inflater.setInput(Arrays.copyOfRange(compressed, 1, compressed.length));
+        final var output = new ByteArrayOutputStream();
+        final var buffer = new byte[1024];
+        while (!inflater.finished()) {
+            final var length = inflater.inflate(buffer);
+            assertFalse(0 == length && inflater.needsInput(), "Truncated compressed payload");
+            output.write(buffer, 0, length);
+        }
+        inflater.end();
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,115 @@
+package replicant.server.transport;
+
+import static org.testng.Assert.*;
+
+import java.io.Serializable;
+import java.util.Base64;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TimeZone;
+import javax.json.Json;
+import org.jspecify.annotations.NonNull;
+import org.testng.annotations.Test;
+import replicant.server.ChangeSet;
+import replicant.server.DatasetAddress;
+import replicant.server.EntityChange;
+import replicant.server.EntityChangeCandidate;
+import replicant.server.SubscriptionChange;
+
+public class ChangeSetDigesterTest {
+    @Test
+    public void digest() {
+        final var digest = ChangeSetDigester.digest(new ChangeSet());
+
+        assertEquals(Base64.getUrlDecoder().decode(digest).length, 32);
+        assertEquals(ChangeSetDigester.digest(new ChangeSet()), digest);
+        final var changeSet = new ChangeSet();
+        changeSet.merge(entityChange(1, 2, Map.of("A", "x")));
+        assertNotEquals(ChangeSetDigester.digest(changeSet), digest);
+    }
+
+    @Test
+    public void digest_independentOfOrder() {
+        final var attributeValues1 = new LinkedHashMap<String, Serializable>();
+        attributeValues1.put("A", "x");
+        attributeValues1.put("B", 42);
+        final var attributeValues2 = new LinkedHashMap<String, Serializable>();
+        attributeValues2.put("B", 42);
+        attributeValues2.put("A", "x");
+
+        final var changeSet1 = new ChangeSet();
+        changeSet1.mergeSubscriptionChange(
+                SubscriptionChange.of(DatasetAddress.of(1, 2), SubscriptionChange.Type.SUBSCRIBE));
+        changeSet1.mergeSubscriptionChange(SubscriptionChange.of(
+                DatasetAddress.of(3),
+                SubscriptionChange.Type.SUBSCRIBE,
+                Json.createObjectBuilder().add("a", 1).add("b", 2).build()));
+        changeSet1.merge(entityChange(1, 2, attributeValues1));
+        changeSet1.merge(entityChange(1, 3, Map.of("A", "y")));
+
+        final var changeSet2 = new ChangeSet();
+        changeSet2.merge(entityChange(1, 3, Map.of("A", "y")));
+        changeSet2.merge(entityChange(1, 2, attributeValues2));
+        changeSet2.mergeSubscriptionChange(SubscriptionChange.of(
+                DatasetAddress.of(3),
+                SubscriptionChange.Type.SUBSCRIBE,
+                Json.createObjectBuilder().add("b", 2).add("a", 1).build()));
+        changeSet2.mergeSubscriptionChange(
+                SubscriptionChange.of(DatasetAddress.of(1, 2), SubscriptionChange.Type.SUBSCRIBE));
+
+        assertEquals(ChangeSetDigester.digest(changeSet2), ChangeSetDigester.digest(changeSet1));
+    }
+
+    @Test
+    public void digest_independentOfTimeZone() {
+        final var changeSet = new ChangeSet();
+        changeSet.merge(entityChange(1, 2, Map.of("A", new Date(1_700_000_000_000L))));
+        final var timeZone = TimeZone.getDefault();
+        final String digest;
+        try {
+            TimeZone.setDefault(TimeZone.getTimeZone("Australia/Melbourne"));
+            digest = ChangeSetDigester.digest(changeSet);
+            TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+        } finally {
+            TimeZone.setDefault(timeZone);
+        }
+
+        assertEquals(ChangeSetDigester.digest(changeSet), digest);
+    }
+
+    @Test
+    public void digest_distinguishesValueTypes() {
+        final var changeSet1 = new ChangeSet();
+        changeSet1.merge(entityChange(1, 2, Map.of("A", 42)));
+        final var changeSet2 = new ChangeSet();
+        changeSet2.merge(entityChange(1, 2, Map.of("A", 42L)));
+        final var changeSet3 = new ChangeSet();
+        changeSet3.merge(entityChange(1, 2, Map.of("A", "42")));
+
+        final var digest1 = ChangeSetDigester.digest(changeSet1);
+        final var digest2 = ChangeSetDigester.digest(changeSet2);
+        final var digest3 = ChangeSetDigester.digest(changeSet3);
+
+        assertNotEquals(digest2, digest1);
+        assertNotEquals(digest3, digest1);
+        assertNotEquals(digest3, digest2);
+    }
+
+    @Test
+    public void digest_distinguishesRemovals() {
+        final var update = new ChangeSet();
+        update.merge(entityChange(1, 2, Map.of()));
+        final var remove = new ChangeSet();
+        remove.merge(new EntityChange(new EntityChangeCandidate(2, 1, 0, Map.of(), null), DatasetAddress.of(1)));
+
+        assertNotEquals(ChangeSetDigester.digest(remove), ChangeSetDigester.digest(update));
+    }
+
+    @NonNull
+    private static EntityChange entityChange(
+            final int entityTypeId, final int entityId, @NonNull final Map<String, Serializable> attributeValues) {
+        return new EntityChange(
+                new EntityChangeCandidate(entityId, entityTypeId, 0, Map.of(), attributeValues), DatasetAddress.of(1));
+    }
+}
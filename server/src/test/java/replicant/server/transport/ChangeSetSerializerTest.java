@@ -0,0 +1,105 @@
+package replicant.server.transport;
+
+import static org.testng.Assert.*;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.json.Json;
+import org.testng.annotations.Test;
+import replicant.server.ChangeSet;
+import replicant.server.DatasetAddress;
+import replicant.server.DatasetAddressTemplate;
+import replicant.server.EntityChange;
+import replicant.server.EntityChangeCandidate;
+import replicant.server.SubscriptionChange;
+import replicant.server.SubscriptionDependencyCandidate;
+
+public class ChangeSetSerializerTest {
+    @Test
+    public void serialize() {
+        final var filterParameter = Json.createObjectBuilder().add("a", 1).build();
+        final var routingKeys = new HashMap<String, Serializable>();
+        routingKeys.put("R1", 3);
+        routingKeys.put("R2", new ArrayList<>(List.of(4, 5)));
+        final var attributeValues = new HashMap<String, Serializable>();
+        attributeValues.put("String", "\u00e9\u4e16");
+        attributeValues.put("Integer", 42);
+        attributeValues.put("Long", 1L << 40);
+        attributeValues.put("Float", 1.5F);
+        attributeValues.put("Date", new Date(1_700_000_000_000L));
+        attributeValues.put("Boolean", true);
+        attributeValues.put("Null", null);
+        final var subscriptionDependencyCandidate = new SubscriptionDependencyCandidate(
+                DatasetAddress.of(1, 5), DatasetAddressTemplate.of(2), filterParameter);
+        final var update = new EntityChange(
+                new EntityChangeCandidate(
+                        5, 3, 17, routingKeys, attributeValues, Set.of(subscriptionDependencyCandidate)),
+                DatasetAddress.of(1, 5));
+        update.getDatasetAddresses().add(DatasetAddress.of(4, null, "key"));
+        final var remove = new EntityChange(
+                new EntityChangeCandidate(6, 3, 18, new HashMap<>(), null), DatasetAddress.of(1, 5));
+
+        final var changeSet = new ChangeSet();
+        changeSet.mergeSubscriptionChange(
+                SubscriptionChange.of(DatasetAddress.of(1, 5), SubscriptionChange.Type.SUBSCRIBE));
+        changeSet.mergeSubscriptionChange(
+                SubscriptionChange.of(DatasetAddress.of(2), SubscriptionChange.Type.SUBSCRIBE, filterParameter));
+        changeSet.merge(update);
+        changeSet.merge(remove);
+
+        final var serialized = ByteBuffer.wrap(ChangeSetSerializer.serialize(changeSet));
+        final var result = ChangeSetSerializer.deserialize(serialized);
+
+        assertEquals(serialized.position(), 0);
+        assertEquals(result.getSubscriptionChanges(), changeSet.getSubscriptionChanges());
+        final var entityChanges = new ArrayList<>(result.getEntityChanges());
+        assertEquals(entityChanges.size(), 2);
+
+        final var resultUpdate = entityChanges.get(0);
+        final var resultUpdateCandidate = resultUpdate.getEntityChangeCandidate();
+        assertEquals(resultUpdateCandidate.getEntityId(), 5);
+        assertEquals(resultUpdateCandidate.getEntityTypeId(), 3);
+        assertEquals(resultUpdateCandidate.getTimestamp(), 17);
+        assertEquals(resultUpdateCandidate.getRoutingKeys(), routingKeys);
+        assertEquals(resultUpdateCandidate.getAttributeValues(), attributeValues);
+        assertEquals(
+                resultUpdateCandidate.getSubscriptionDependencyCandidates(), Set.of(subscriptionDependencyCandidate));
+        assertEquals(
+                new ArrayList<>(resultUpdate.getDatasetAddresses()),
+                List.of(DatasetAddress.of(1, 5), DatasetAddress.of(4, null, "key")));
+
+        final var resultRemove = entityChanges.get(1).getEntityChangeCandidate();
+        assertEquals(resultRemove.getEntityId(), 6);
+        assertTrue(resultRemove.isDelete());
+        assertNull(resultRemove.getSubscriptionDependencyCandidates());
+    }
+
+    @Test
+    public void deserialize_unsupportedVersion() {
+        final var serialized = ChangeSetSerializer.serialize(new ChangeSet());
+        serialized[3]++;
+
+        final var exception = expectThrows(
+                IllegalStateException.class, () -> ChangeSetSerializer.deserialize(ByteBuffer.wrap(serialized)));
+
+        assertEquals(exception.getMessage(), "Unsupported serialized Change Set version 2");
+    }
+
+    @Test
+    public void deserialize_malformed() {
+        final var changeSet = new ChangeSet();
+        changeSet.merge(new EntityChange(
+                new EntityChangeCandidate(5, 3, 17, new HashMap<>(), Map.of("A", "x")), DatasetAddress.of(1)));
+        final var serialized = ChangeSetSerializer.serialize(changeSet);
+
+        expectThrows(
+                IllegalStateException.class,
+                () -> ChangeSetSerializer.deserialize(ByteBuffer.wrap(serialized, 0, serialized.length - 1)));
+    }
+}
@@ -2,10 +2,29 @@ package replicant.server.transport;
 
 import static org.testng.Assert.*;
 
+import java.io.ByteArrayOutputStream;
+import java.io.Serializable;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.zip.Inflater;
+import org.jspecify.annotations.NonNull;
 import org.testng.annotations.Test;
 import replicant.server.ChangeSet;
 import replicant.server.DatasetAddress;
+import replicant.server.EntityChange;
+import replicant.server.EntityChangeCandidate;
+import replicant.server.EntityChangeCandidateTestUtil;
+import replicant.server.SubscriptionChange;
+import replicant.server.SubscriptionDependencyCandidate;
+import replicant.server.json.BinaryEncoder;
+import replicant.server.json.JsonEncoder;
+import replicant.shared.Messages;
 
 public class DatasetCacheEntryTest {
     @Test
@@ -19,13 +38,312 @@ public class DatasetCacheEntryTest {
         expectThrows(NullPointerException.class, entry::getChangeSet);
 
         final var changeSet = new ChangeSet();
-        entry.init(changeSet);
+        entry.init(changeSet, 0);
 
         assertEquals(UUID.fromString(entry.getDatasetCacheVersion()).toString(), entry.getDatasetCacheVersion());
         assertEquals(entry.getChangeSet(), changeSet);
 
         final var other = new DatasetCacheEntry(datasetAddress);
-        other.init(new ChangeSet());
+        other.init(new ChangeSet(), 0);
         assertNotEquals(other.getDatasetCacheVersion(), entry.getDatasetCacheVersion());
     }
+
+    @Test
+    public void encodedChangeSetIsSharedAndPairedWithRequest() throws Exception {
+        final var changeSet = createChangeSet();
+        final var entry = new DatasetCacheEntry(DatasetAddress.of(1));
+        entry.init(changeSet, 0);
+        final var datasetCacheVersion = entry.getDatasetCacheVersion();
+
+        final var encodedChangeSet = entry.getEncodedChangeSet(null);
+        assertSame(entry.getEncodedChangeSet(null), encodedChangeSet);
+        assertEquals(encodedChangeSet, JsonEncoder.encodeChangeSet(null, null, datasetCacheVersion, changeSet));
+        assertEquals(entry.getEncodedChangeSetLength(), encodedChangeSet.length());
+        assertEquals(
+                entry.getEncodedChangeSet(7), JsonEncoder.encodeChangeSet(7, null, datasetCacheVersion, changeSet));
+
+        final var compressed = entry.getCompressedChangeSet(7);
+        assertEquals(compressed[0] & 0xFF, Messages.CompressedChangeSet.FORMAT_DEFLATED_JSON);
+        assertEquals(
+                new String(inflate(compressed), StandardCharsets.UTF_8),
+                JsonEncoder.encodeChangeSet(7, null, datasetCacheVersion, changeSet));
+        assertEquals(
+                new String(inflate(entry.getCompressedChangeSet(null)), StandardCharsets.UTF_8), encodedChangeSet);
+    }
+
+    @Test
+    public void binaryEncodedChangeSetIsSharedAndPairedWithRequest() throws Exception {
+        final var changeSet = createChangeSet();
+        final var entry = new DatasetCacheEntry(DatasetAddress.of(1));
+        entry.init(changeSet, 0);
+        final var datasetCacheVersion = entry.getDatasetCacheVersion();
+
+        final var encodedChangeSet = entry.getBinaryEncodedChangeSet(null);
+        assertSame(entry.getBinaryEncodedChangeSet(null), encodedChangeSet);
+        assertEquals(encodedChangeSet, BinaryEncoder.encodeChangeSet(null, null, datasetCacheVersion, changeSet));
+        assertEquals(entry.getBinaryEncodedChangeSetLength(), encodedChangeSet.length);
+        final var expected = BinaryEncoder.encodeChangeSet(7, null, datasetCacheVersion, changeSet);
+        assertEquals(entry.getBinaryEncodedChangeSet(7), expected);
+
+        final var compressed = entry.getCompressedBinaryChangeSet(7);
+        assertEquals(compressed[0] & 0xFF, Messages.CompressedChangeSet.FORMAT_DEFLATED_BINARY);
+        assertEquals(inflate(compressed), expected);
+    }
+
+    @Test
+    public void contentAddressedDatasetCacheVersion() {
+        final var entry = new DatasetCacheEntry(DatasetAddress.of(1));
+        entry.init(createChangeSet(), 0, true);
+
+        assertTrue(entry.isContentAddressed());
+        assertEquals(entry.getDatasetCacheVersion(), ChangeSetDigester.digest(entry.getChangeSet()));
+        assertEquals(
+                entry.getEncodedChangeSet(null),
+                JsonEncoder.encodeChangeSet(null, null, entry.getDatasetCacheVersion(), entry.getChangeSet()));
+
+        final var other = new DatasetCacheEntry(DatasetAddress.of(1));
+        other.init(createChangeSet(), 0, true);
+        assertEquals(other.getDatasetCacheVersion(), entry.getDatasetCacheVersion());
+
+        final var patched = entry.patch(
+                List.of(EntityChangeCandidateTestUtil.createEntityChangeCandidate(5, 2, 1, "r1", "r2", "a3", "a4")),
+                0);
+        assertNotNull(patched);
+        assertTrue(patched.isContentAddressed());
+        assertNotEquals(patched.getDatasetCacheVersion(), entry.getDatasetCacheVersion());
+        assertEquals(patched.getDatasetCacheVersion(), ChangeSetDigester.digest(patched.getChangeSet()));
+
+        // A patch that leaves the content unchanged leaves the version unchanged
+        final var unchanged = entry.patch(
+                List.of(EntityChangeCandidateTestUtil.createEntityChangeCandidate(5, 2, 1, "r1", "r2", "a1", "a2")),
+                0);
+        assertNotNull(unchanged);
+        assertEquals(unchanged.getDatasetCacheVersion(), entry.getDatasetCacheVersion());
+    }
+
+    @Test
+    public void accountedSize() {
+        final var entry = new DatasetCacheEntry(DatasetAddress.of(1));
+        entry.init(createChangeSet(), 0);
+        final var size = entry.estimateSize();
+        assertTrue(size > DatasetCacheEntry.ENTRY_SIZE_ESTIMATE + 2L * entry.getEncodedChangeSetLength());
+
+        assertEquals(entry.updateAccountedSize(), size);
+        assertEquals(entry.updateAccountedSize(), 0);
+
+        // Encodings produced on first use are accounted when the entry is next used
+        final var binaryLength = entry.getBinaryEncodedChangeSetLength();
+        assertEquals(entry.updateAccountedSize(), binaryLength);
+
+        assertEquals(entry.removeAccountedSize(), size + binaryLength);
+        assertEquals(entry.removeAccountedSize(), 0);
+        entry.getCompressedChangeSet(null);
+        assertEquals(entry.updateAccountedSize(), 0);
+    }
+
+    @Test
+    public void restore() throws Exception {
+        final var changeSet = createChangeSet();
+        final var source = new DatasetCacheEntry(DatasetAddress.of(1));
+        source.init(changeSet, 1);
+        final var datasetCacheVersion = source.getDatasetCacheVersion();
+        // Stored content is held outside the heap by the store
+        final var content = toDirectBuffer(source.toStoredContent(1));
+
+        final var entry = new DatasetCacheEntry(DatasetAddress.of(1));
+        entry.restore(datasetCacheVersion, content, false);
+
+        assertTrue(entry.isInitialized());
+        assertTrue(entry.isReleased());
+        assertEquals(entry.getDatasetCacheVersion(), datasetCacheVersion);
+        assertEquals(entry.getEntityChangeCount(), 100);
+        assertEquals(entry.getSubscriptionChangeCount(), 1);
+        // Encodings and compressed tails are served from the stored content
+        assertEquals(entry.estimateSize(), DatasetCacheEntry.ENTRY_SIZE_ESTIMATE);
+        assertEquals(entry.getEncodedChangeSetLength(), source.getEncodedChangeSetLength());
+        assertEquals(
+                entry.getEncodedChangeSet(null),
+                JsonEncoder.encodeChangeSet(null, null, datasetCacheVersion, changeSet));
+        assertEquals(
+                entry.getEncodedChangeSet(7), JsonEncoder.encodeChangeSet(7, null, datasetCacheVersion, changeSet));
+        assertEquals(
+                new String(inflate(entry.getCompressedChangeSet(7)), StandardCharsets.UTF_8),
+                JsonEncoder.encodeChangeSet(7, null, datasetCacheVersion, changeSet));
+        final var binaryEncodedChangeSet = BinaryEncoder.encodeChangeSet(7, null, datasetCacheVersion, changeSet);
+        assertEquals(entry.getBinaryEncodedChangeSet(7), binaryEncodedChangeSet);
+        assertEquals(inflate(entry.getCompressedBinaryChangeSet(7)), binaryEncodedChangeSet);
+        assertEquals(entry.updateAccountedSize(), DatasetCacheEntry.ENTRY_SIZE_ESTIMATE);
+        // The released Change Set is deserialized on demand
+        assertNotSame(entry.getChangeSet(), entry.getChangeSet());
+        assertEquals(entry.getChangeSet().getEntityChanges().size(), 100);
+        assertEquals(entry.getChangeSet().getSubscriptionChanges(), changeSet.getSubscriptionChanges());
+
+        final var malformed = new DatasetCacheEntry(DatasetAddress.of(1));
+        expectThrows(
+                IllegalStateException.class,
+                () -> malformed.restore("stored-version", ByteBuffer.wrap(new byte[] {0}), false));
+        assertFalse(malformed.isInitialized());
+        // Content that holds only a serialized Change Set is rejected
+        expectThrows(
+                IllegalStateException.class,
+                () -> new DatasetCacheEntry(DatasetAddress.of(1))
+                        .restore("stored-version", ByteBuffer.wrap(ChangeSetSerializer.serialize(changeSet)), false));
+    }
+
+    @Test
+    public void writeEncodedChangeSetDecodesStoredContentInChunks() throws Exception {
+        // Multi-byte characters spread across a payload several decode chunks long
+        final var value = "\u00e9\u4e2d";
+        final var changeSet = new ChangeSet();
+        for (var i = 0; i < 1000; i++) {
+            changeSet.merge(new EntityChange(
+                    EntityChangeCandidateTestUtil.createEntityChangeCandidate(i, 2, 0, "r1", "r2", value, "a2"),
+                    DatasetAddress.of(1)));
+        }
+        final var entry = new DatasetCacheEntry(DatasetAddress.of(1));
+        entry.init(changeSet, 0);
+        final var encodedChangeSet = entry.getEncodedChangeSet(null);
+        final var pairedEncodedChangeSet = entry.getEncodedChangeSet(7);
+
+        final var writer = new StringWriter();
+        entry.writeEncodedChangeSet(7, writer);
+        assertEquals(writer.toString(), pairedEncodedChangeSet);
+
+        entry.release(toDirectBuffer(entry.toStoredContent(0)));
+
+        final var storedWriter = new StringWriter();
+        entry.writeEncodedChangeSet(null, storedWriter);
+        assertEquals(storedWriter.toString(), encodedChangeSet);
+        final var pairedStoredWriter = new StringWriter();
+        entry.writeEncodedChangeSet(7, pairedStoredWriter);
+        assertEquals(pairedStoredWriter.toString(), pairedEncodedChangeSet);
+    }
+
+    @Test
+    public void release() throws Exception {
+        final var changeSet = createChangeSet();
+        final var entry = new DatasetCacheEntry(DatasetAddress.of(1));
+        entry.init(changeSet, 0);
+        assertFalse(entry.isReleased());
+        assertSame(entry.getChangeSet(), changeSet);
+        final var encodedChangeSet = entry.getEncodedChangeSet(null);
+
+        entry.release(toDirectBuffer(entry.toStoredContent(0)));
+
+        assertTrue(entry.isReleased());
+        assertEquals(entry.getEntityChangeCount(), 100);
+        assertEquals(entry.estimateSize(), DatasetCacheEntry.ENTRY_SIZE_ESTIMATE);
+        assertEquals(entry.getEncodedChangeSet(null), encodedChangeSet);
+        // Compressed tails that were not stored are produced on first use and held on the heap
+        assertEquals(
+                new String(inflate(entry.getCompressedChangeSet(null)), StandardCharsets.UTF_8), encodedChangeSet);
+        assertTrue(entry.estimateSize() > DatasetCacheEntry.ENTRY_SIZE_ESTIMATE);
+        assertNotSame(entry.getChangeSet(), changeSet);
+        assertEquals(entry.getChangeSet().getEntityChanges().size(), 100);
+        final var patched = entry.patch(
+                List.of(EntityChangeCandidateTestUtil.createEntityChangeCandidate(5, 2, 1, "r1", "r2", "a3", "a4")),
+                0);
+        assertNotNull(patched);
+        assertFalse(patched.isReleased());
+        assertEquals(patched.getChangeSet().getEntityChanges().size(), 100);
+    }
+
+    @Test
+    public void patch() {
+        final var entry = new DatasetCacheEntry(DatasetAddress.of(1));
+        entry.init(createChangeSet(), 0);
+        final var changeSet = entry.getChangeSet();
+
+        final var patched = entry.patch(
+                List.of(
+                        EntityChangeCandidateTestUtil.createEntityChangeCandidate(5, 2, 1, "r1", "r2", "a3", "a4"),
+                        EntityChangeCandidateTestUtil.createEntityChangeCandidate(100, 2, 1, "r1", "r2", "a1", "a2")),
+                0);
+
+        assertNotNull(patched);
+        assertNotSame(patched, entry);
+        assertEquals(patched.getDatasetCacheKey(), entry.getDatasetCacheKey());
+        assertNotEquals(patched.getDatasetCacheVersion(), entry.getDatasetCacheVersion());
+        assertEquals(patched.getChangeSet().getEntityChanges().size(), 101);
+        assertEquals(patched.getChangeSet().getSubscriptionChanges(), changeSet.getSubscriptionChanges());
+        final var entityChange = patched.getChangeSet().getEntityChanges().stream()
+                .filter(c -> c.getEntityChangeCandidate().getEntityId() == 5)
+                .findFirst()
+                .orElseThrow();
+        final var attributeValues = entityChange.getEntityChangeCandidate().getAttributeValues();
+        assertNotNull(attributeValues);
+        assertEquals(attributeValues.get(EntityChangeCandidateTestUtil.ATTR_KEY1), "a3");
+        assertEquals(entityChange.getDatasetAddresses(), Set.of(DatasetAddress.of(1)));
+        assertEquals(
+                patched.getEncodedChangeSet(null),
+                JsonEncoder.encodeChangeSet(null, null, patched.getDatasetCacheVersion(), patched.getChangeSet()));
+
+        // The original entry is unchanged
+        assertSame(entry.getChangeSet(), changeSet);
+        assertEquals(changeSet.getEntityChanges().size(), 100);
+        assertEquals(
+                changeSet.getEntityChanges().stream()
+                        .filter(c -> c.getEntityChangeCandidate().getEntityId() == 5)
+                        .findFirst()
+                        .orElseThrow()
+                        .getEntityChangeCandidate()
+                        .getAttributeValues()
+                        .get(EntityChangeCandidateTestUtil.ATTR_KEY1),
+                "a1");
+    }
+
+    @Test
+    public void patch_structuralChange() {
+        final var entry = new DatasetCacheEntry(DatasetAddress.of(1));
+        entry.init(createChangeSet(), 0);
+
+        final var delete = EntityChangeCandidateTestUtil.createEntityChangeCandidate(5, 2, 1, "r1", "r2", null, null);
+        assertNull(entry.patch(List.of(delete), 0));
+
+        final var linkAttributeValues = new HashMap<String, Serializable>();
+        linkAttributeValues.put(EntityChangeCandidateTestUtil.ATTR_KEY1, "a3");
+        final var link = new EntityChangeCandidate(
+                5,
+                2,
+                1,
+                new HashMap<>(),
+                linkAttributeValues,
+                Set.of(new SubscriptionDependencyCandidate(DatasetAddress.of(2, 5), DatasetAddress.of(1))));
+        assertNull(entry.patch(List.of(link), 0));
+    }
+
+    @NonNull
+    private static ChangeSet createChangeSet() {
+        final var changeSet = new ChangeSet();
+        for (var i = 0; i < 100; i++) {
+            changeSet.merge(new EntityChange(
+                    EntityChangeCandidateTestUtil.createEntityChangeCandidate(i, 2, 0, "r1", "r2", "a1", "a2"),
+                    DatasetAddress.of(1)));
+        }
+        changeSet.mergeSubscriptionChange(
+                SubscriptionChange.of(DatasetAddress.of(1), SubscriptionChange.Type.SUBSCRIBE));
+        return changeSet;
+    }
+
+    @NonNull
+    private static ByteBuffer toDirectBuffer(@NonNull final byte[] content) {
+        final var buffer = ByteBuffer.allocateDirect(content.length);
+        buffer.put(content).flip();
+        return buffer.asReadOnlyBuffer();
+    }
+
+    @NonNull
+    private static byte[] inflate(@NonNull final byte[] compressed) throws Exception {
+        final var inflater = new Inflater(true);
+        inflater.setInput(Arrays.copyOfRange(compressed, 1, compressed.length));
+        final var output = new ByteArrayOutputStream();
+        final var buffer = new byte[1024];
+        while (!inflater.finished()) {
+            final var length = inflater.inflate(buffer);
+            assertFalse(0 == length && inflater.needsInput(), "Truncated compressed payload");
+            output.write(buffer, 0, length);
+        }
+        inflater.end();
+        return output.toByteArray();
+    }
 }
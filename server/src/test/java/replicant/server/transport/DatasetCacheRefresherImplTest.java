@@ -0,0 +1,153 @@
+package replicant.server.transport;
+
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import org.jspecify.annotations.NonNull;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.Test;
+import replicant.server.DatasetAddress;
+
+public class DatasetCacheRefresherImplTest {
+    @Test
+    public void refreshDisabled() {
+        final var refresher = new TestDatasetCacheRefresherImpl();
+
+        refresher.refreshDatasetCacheEntries(List.of(DatasetCacheKey.of(DatasetAddress.of(1))));
+
+        assertEquals(refresher.getPendingDatasetCacheKeyCount(), 0);
+        assertEquals(refresher.getTaskCount(), 0);
+        verifyNoInteractions(refresher._sessionManager);
+    }
+
+    @Test
+    public void refreshIsDebounced() throws Exception {
+        final var refresher = new TestDatasetCacheRefresherImpl();
+        refresher.setRefreshDelayMs(60_000);
+        final var key1 = DatasetCacheKey.of(DatasetAddress.of(1));
+        final var key2 = DatasetCacheKey.of(DatasetAddress.of(2));
+
+        refresher.refreshDatasetCacheEntries(List.of(key1));
+        refresher.refreshDatasetCacheEntries(List.of(key1, key2));
+
+        assertEquals(refresher.getPendingDatasetCacheKeyCount(), 2);
+        assertEquals(refresher.getTaskCount(), 1);
+        assertEquals(refresher.getTaskDelays(), List.of(60_000L));
+
+        // The entries are not due so the refresh is rescheduled
+        refresher.runNextTask();
+
+        verifyNoInteractions(refresher._sessionManager);
+        assertEquals(refresher.getPendingDatasetCacheKeyCount(), 2);
+        assertEquals(refresher.getTaskCount(), 1);
+
+        refresher.setRefreshDelayMs(1);
+        refresher.refreshDatasetCacheEntries(List.of(key1));
+        Thread.sleep(5);
+        refresher.runNextTask();
+
+        verify(refresher._sessionManager).warmDatasetCacheEntry(key1);
+        verify(refresher._sessionManager, never()).warmDatasetCacheEntry(key2);
+        assertEquals(refresher.getPendingDatasetCacheKeyCount(), 1);
+        assertEquals(refresher.getTaskCount(), 1);
+    }
+
+    @Test
+    public void refreshWaitsForTransactionCompletion() {
+        final var refresher = new TestDatasetCacheRefresherImpl();
+        refresher.setRefreshDelayMs(1);
+        when(refresher._registry.getTransactionStatus()).thenReturn(Status.STATUS_ACTIVE);
+        final var key = DatasetCacheKey.of(DatasetAddress.of(1));
+
+        refresher.refreshDatasetCacheEntries(List.of(key));
+
+        assertEquals(refresher.getPendingDatasetCacheKeyCount(), 0);
+        final var captor = ArgumentCaptor.forClass(Synchronization.class);
+        verify(refresher._registry).registerInterposedSynchronization(captor.capture());
+
+        captor.getValue().afterCompletion(Status.STATUS_COMMITTED);
+
+        assertEquals(refresher.getPendingDatasetCacheKeyCount(), 1);
+        assertEquals(refresher.getTaskCount(), 1);
+    }
+
+    @Test
+    public void refreshFailureDoesNotStopRefresh() throws Exception {
+        final var refresher = new TestDatasetCacheRefresherImpl();
+        refresher.setRefreshDelayMs(1);
+        final var key1 = DatasetCacheKey.of(DatasetAddress.of(1));
+        final var key2 = DatasetCacheKey.of(DatasetAddress.of(2));
+        when(refresher._sessionManager.warmDatasetCacheEntry(key1)).thenThrow(new IllegalStateException());
+
+        refresher.refreshDatasetCacheEntries(List.of(key1, key2));
+        Thread.sleep(5);
+        refresher.runNextTask();
+
+        verify(refresher._sessionManager).warmDatasetCacheEntry(key1);
+        verify(refresher._sessionManager).warmDatasetCacheEntry(key2);
+        assertEquals(refresher.getPendingDatasetCacheKeyCount(), 0);
+        assertEquals(refresher.getTaskCount(), 0);
+    }
+
+    @Test
+    public void warmUp() {
+        final var refresher = new TestDatasetCacheRefresherImpl();
+        refresher.setWarmUpDatasetAddresses("1, 2.3,");
+
+        refresher.onStartup(new Object());
+
+        assertEquals(refresher.getTaskDelays(), List.of(0L));
+        refresher.runNextTask();
+
+        verify(refresher._sessionManager).warmDatasetCacheEntry(DatasetCacheKey.of(DatasetAddress.of(1)));
+        verify(refresher._sessionManager).warmDatasetCacheEntry(DatasetCacheKey.of(DatasetAddress.of(2, 3)));
+        assertEquals(refresher.getPendingDatasetCacheKeyCount(), 0);
+    }
+
+    @Test
+    public void parseWarmUpDatasetAddresses() {
+        assertEquals(DatasetCacheRefresherImpl.parseWarmUpDatasetAddresses(null), List.of());
+        assertEquals(DatasetCacheRefresherImpl.parseWarmUpDatasetAddresses(" "), List.of());
+        assertEquals(
+                DatasetCacheRefresherImpl.parseWarmUpDatasetAddresses("1,2.3"),
+                List.of(DatasetCacheKey.of(DatasetAddress.of(1)), DatasetCacheKey.of(DatasetAddress.of(2, 3))));
+    }
+
+    private static class TestDatasetCacheRefresherImpl extends DatasetCacheRefresherImpl {
+        @NonNull
+        private final List<Runnable> _tasks = new ArrayList<>();
+
+        @NonNull
+        private final List<Long> _taskDelays = new ArrayList<>();
+
+        TestDatasetCacheRefresherImpl() {
+            _sessionManager = mock(ReplicantSessionManager.class);
+            _registry = mock(TransactionSynchronizationRegistry.class);
+            when(_registry.getTransactionStatus()).thenReturn(Status.STATUS_NO_TRANSACTION);
+        }
+
+        @Override
+        void scheduleRefreshTask(@NonNull final Runnable task, final long delayMs) {
+            _tasks.add(task);
+            _taskDelays.add(delayMs);
+        }
+
+        int getTaskCount() {
+            return _tasks.size();
+        }
+
+        @NonNull
+        List<Long> getTaskDelays() {
+            return _taskDelays;
+        }
+
+        void runNextTask() {
+            _tasks.remove(0).run();
+        }
+    }
+}
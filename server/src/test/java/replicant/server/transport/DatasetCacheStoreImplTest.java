@@ -0,0 +1,207 @@
+package replicant.server.transport;
+
+import static org.testng.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import javax.json.Json;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import replicant.server.DatasetAddress;
+
+public class DatasetCacheStoreImplTest {
+    @Nullable
+    private Path _directory;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        _directory = Files.createTempDirectory("datasetCacheStore");
+    }
+
+    @AfterMethod
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory())) {
+            for (final var path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    public void disabled() {
+        final var store = new DatasetCacheStoreImpl();
+        final var key = DatasetCacheKey.of(DatasetAddress.of(1));
+
+        assertFalse(store.isEnabled());
+        assertNull(store.store(key, "v1", new byte[] {1, 2, 3}));
+        assertNull(store.load(key));
+        store.remove(key);
+        store.removeIf(k -> true);
+        store.clear();
+    }
+
+    @Test
+    public void storeAndLoad() throws IOException {
+        final var store = new DatasetCacheStoreImpl();
+        store.open(directory(), 1024);
+        assertTrue(store.isEnabled());
+        final var key1 = DatasetCacheKey.of(DatasetAddress.of(1));
+        final var key2 = DatasetCacheKey.of(
+                DatasetAddress.of(2, 7), Json.createObjectBuilder().add("a", 1).build());
+
+        final var content = store.store(key1, "v1", new byte[] {1, 2, 3});
+        store.store(key2, "v2", new byte[] {4, 5});
+
+        assertNotNull(content);
+        assertTrue(content.isReadOnly());
+        assertEquals(toBytes(content), new byte[] {1, 2, 3});
+        assertEntry(store.load(key1), "v1", new byte[] {1, 2, 3});
+        assertEntry(store.load(key2), "v2", new byte[] {4, 5});
+        assertNull(store.load(DatasetCacheKey.of(DatasetAddress.of(3))));
+
+        store.store(key1, "v3", new byte[] {6});
+        assertEntry(store.load(key1), "v3", new byte[] {6});
+        // A buffer returned earlier still holds the replaced content
+        assertEquals(toBytes(content), new byte[] {1, 2, 3});
+
+        store.close();
+        assertFalse(store.isEnabled());
+
+        final var reopened = new DatasetCacheStoreImpl();
+        reopened.open(directory(), 1024);
+        assertEntry(reopened.load(key1), "v3", new byte[] {6});
+        assertEntry(reopened.load(key2), "v2", new byte[] {4, 5});
+        reopened.close();
+    }
+
+    @Test
+    public void remove() throws IOException {
+        final var store = new DatasetCacheStoreImpl();
+        store.open(directory(), 1024);
+        final var key1 = DatasetCacheKey.of(DatasetAddress.of(1, 1));
+        final var key2 = DatasetCacheKey.of(DatasetAddress.of(1, 2));
+        final var key3 = DatasetCacheKey.of(DatasetAddress.of(2));
+        store.store(key1, "v1", new byte[] {1});
+        store.store(key2, "v2", new byte[] {2});
+        store.store(key3, "v3", new byte[] {3});
+
+        store.remove(key3);
+        assertNull(store.load(key3));
+        store.removeIf(key -> 1 == key.datasetAddress().datasetId() && 1 == key.datasetAddress().datasetRootId());
+        assertNull(store.load(key1));
+        assertNotNull(store.load(key2));
+        store.close();
+
+        // Removals are restored when the store is opened
+        final var reopened = new DatasetCacheStoreImpl();
+        reopened.open(directory(), 1024);
+        assertNull(reopened.load(key1));
+        assertEntry(reopened.load(key2), "v2", new byte[] {2});
+        assertNull(reopened.load(key3));
+
+        reopened.clear();
+        assertNull(reopened.load(key2));
+        assertEquals(reopened.getSegmentCount(), 0);
+        reopened.close();
+    }
+
+    @Test
+    public void reclaimSegments() throws IOException {
+        final var store = new DatasetCacheStoreImpl();
+        store.open(directory(), 256);
+        final var retainedKey = DatasetCacheKey.of(DatasetAddress.of(1));
+        final var replacedKey = DatasetCacheKey.of(DatasetAddress.of(2));
+        store.store(retainedKey, "retained", new byte[100]);
+        for (var i = 0; i < 50; i++) {
+            store.store(replacedKey, "v" + i, new byte[100]);
+        }
+
+        // The retained content is copied forward so that segments holding only replaced content are deleted
+        assertTrue(store.getSegmentCount() <= 3, "segmentCount=" + store.getSegmentCount());
+        assertEquals(segmentFileCount(), store.getSegmentCount());
+        assertEntry(store.load(retainedKey), "retained", new byte[100]);
+        assertEntry(store.load(replacedKey), "v49", new byte[100]);
+
+        // Content larger than a segment is written to a segment of its own
+        final var largeKey = DatasetCacheKey.of(DatasetAddress.of(3));
+        store.store(largeKey, "large", new byte[1000]);
+        assertEntry(store.load(largeKey), "large", new byte[1000]);
+        store.close();
+
+        final var reopened = new DatasetCacheStoreImpl();
+        reopened.open(directory(), 256);
+        assertEntry(reopened.load(retainedKey), "retained", new byte[100]);
+        assertEntry(reopened.load(replacedKey), "v49", new byte[100]);
+        assertEntry(reopened.load(largeKey), "large", new byte[1000]);
+        reopened.close();
+    }
+
+    @Test
+    public void open_ignoresTornRecord() throws IOException {
+        final var store = new DatasetCacheStoreImpl();
+        store.open(directory(), 1024);
+        final var key1 = DatasetCacheKey.of(DatasetAddress.of(1));
+        final var key2 = DatasetCacheKey.of(DatasetAddress.of(2));
+        store.store(key1, "v1", new byte[] {1});
+        store.store(key2, "v2", new byte[] {2});
+        store.close();
+
+        // Corrupt the last byte of the second record
+        final Path segment;
+        try (Stream<Path> paths = Files.list(directory())) {
+            segment = paths.findFirst().orElseThrow();
+        }
+        final var bytes = Files.readAllBytes(segment);
+        var end = bytes.length;
+        while (0 == bytes[end - 1]) {
+            end--;
+        }
+        bytes[end - 1]++;
+        Files.write(segment, bytes);
+
+        final var reopened = new DatasetCacheStoreImpl();
+        reopened.open(directory(), 1024);
+        assertEntry(reopened.load(key1), "v1", new byte[] {1});
+        assertNull(reopened.load(key2));
+
+        // New records are appended to a new segment rather than after the torn record
+        reopened.store(key2, "v3", new byte[] {3});
+        assertEquals(reopened.getSegmentCount(), 2);
+        reopened.close();
+    }
+
+    private void assertEntry(
+            final DatasetCacheStore.@Nullable Entry entry,
+            @NonNull final String datasetCacheVersion,
+            @NonNull final byte[] content) {
+        assertNotNull(entry);
+        assertEquals(entry.datasetCacheVersion(), datasetCacheVersion);
+        assertEquals(toBytes(entry.content()), content);
+    }
+
+    private long segmentFileCount() throws IOException {
+        try (Stream<Path> paths = Files.list(directory())) {
+            return paths.count();
+        }
+    }
+
+    @NonNull
+    private Path directory() {
+        assertNotNull(_directory);
+        return _directory;
+    }
+
+    @NonNull
+    private static byte[] toBytes(@NonNull final ByteBuffer buffer) {
+        final var bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+}
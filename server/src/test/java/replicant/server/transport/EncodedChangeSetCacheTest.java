@@ -0,0 +1,92 @@
+package replicant.server.transport;
+
+import static org.testng.Assert.*;
+
+import java.util.HashMap;
+import javax.json.Json;
+import org.testng.annotations.Test;
+import replicant.server.ChangeSet;
+import replicant.server.DatasetAddress;
+import replicant.server.EntityChange;
+import replicant.server.EntityChangeCandidate;
+import replicant.server.SubscriptionChange;
+import replicant.server.json.JsonEncoder;
+import replicant.shared.Messages;
+
+public class EncodedChangeSetCacheTest {
+    @Test
+    public void identicalChangeSetsShareEncoding() {
+        final var cache = new EncodedChangeSetCache();
+        final var candidate = new EntityChangeCandidate(1, 2, 0, new HashMap<>(), new HashMap<>());
+
+        final var changeSet1 = new ChangeSet();
+        changeSet1.merge(new EntityChange(candidate, DatasetAddress.of(1)));
+        final var changeSet2 = new ChangeSet();
+        changeSet2.merge(new EntityChange(candidate, DatasetAddress.of(1)));
+
+        final var encoded1 = cache.encodeChangeSet(null, null, null, changeSet1);
+        final var encoded2 = cache.encodeChangeSet(null, null, null, changeSet2);
+
+        assertSame(encoded2, encoded1);
+        assertEquals(encoded1, JsonEncoder.encodeChangeSet(null, null, null, changeSet1));
+        assertEquals(cache.size(), 1);
+    }
+
+    @Test
+    public void distinctChangeSetsAreEncodedSeparately() {
+        final var cache = new EncodedChangeSetCache();
+        final var candidate = new EntityChangeCandidate(1, 2, 0, new HashMap<>(), new HashMap<>());
+        // A filtered candidate with identical content is a distinct object and is not shared
+        final var filteredCandidate = new EntityChangeCandidate(1, 2, 0, new HashMap<>(), new HashMap<>());
+
+        final var changeSet1 = new ChangeSet();
+        changeSet1.merge(new EntityChange(candidate, DatasetAddress.of(1)));
+        final var changeSet2 = new ChangeSet();
+        changeSet2.merge(new EntityChange(candidate, DatasetAddress.of(2)));
+        final var changeSet3 = new ChangeSet();
+        changeSet3.merge(new EntityChange(filteredCandidate, DatasetAddress.of(1)));
+        final var changeSet4 = new ChangeSet();
+        changeSet4.merge(new EntityChange(candidate, DatasetAddress.of(1)));
+        changeSet4.mergeSubscriptionChange(DatasetAddress.of(3), SubscriptionChange.Type.SUBSCRIBE);
+
+        cache.encodeChangeSet(null, null, null, changeSet1);
+        cache.encodeChangeSet(null, null, null, changeSet2);
+        cache.encodeChangeSet(null, null, null, changeSet3);
+        cache.encodeChangeSet(null, null, null, changeSet4);
+        cache.encodeChangeSet(null, null, "X", changeSet1);
+
+        assertEquals(cache.size(), 5);
+    }
+
+    @Test
+    public void changeSetForInitiatorIsNotCached() {
+        final var cache = new EncodedChangeSetCache();
+        final var changeSet = new ChangeSet();
+        final var commandResult = Json.createObjectBuilder().build();
+
+        final var encoded = cache.encodeChangeSet(7, commandResult, null, changeSet);
+
+        assertEquals(encoded, JsonEncoder.encodeChangeSet(7, commandResult, null, changeSet));
+        assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void sharedPayloadIsCompressedOnce() {
+        final var cache = new EncodedChangeSetCache();
+        final var candidate = new EntityChangeCandidate(1, 2, 0, new HashMap<>(), new HashMap<>());
+        final var changeSet = new ChangeSet();
+        changeSet.merge(new EntityChange(candidate, DatasetAddress.of(1)));
+
+        final var encoded = cache.encodeChangeSet(null, null, null, changeSet);
+        final var compressed1 = cache.compressChangeSet(encoded);
+        final var compressed2 = cache.compressChangeSet(cache.encodeChangeSet(null, null, null, changeSet));
+
+        assertSame(compressed2, compressed1);
+        assertEquals(compressed1[0] & 0xFF, Messages.CompressedChangeSet.FORMAT_DEFLATED_JSON);
+
+        final var binaryEncoded = cache.encodeBinaryChangeSet(null, null, null, changeSet);
+        final var binaryCompressed = cache.compressBinaryChangeSet(binaryEncoded);
+        assertSame(cache.compressBinaryChangeSet(binaryEncoded), binaryCompressed);
+        assertEquals(binaryCompressed[0] & 0xFF, Messages.CompressedChangeSet.FORMAT_DEFLATED_BINARY);
+    }
+}
@@ -0,0 +1,62 @@
+package replicant.server.transport;
+
+import static org.testng.Assert.*;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import org.testng.annotations.Test;
+import replicant.server.DatasetAddress;
+import replicant.server.EntityChangeCandidate;
+import replicant.server.ValueUtil;
+
+public class EntityChangeRoutesTest {
+    @Test
+    public void basicOperation() {
+        final var typeDataset = new Dataset(
+                0,
+                "TypeDataset",
+                null,
+                Dataset.FilterMode.UNFILTERED,
+                null,
+                false,
+                false,
+                Dataset.Visibility.INTERNAL);
+        final var instanceDataset = new Dataset(
+                1,
+                "InstanceDataset",
+                3,
+                Dataset.FilterMode.UNFILTERED,
+                null,
+                false,
+                false,
+                Dataset.Visibility.INTERNAL);
+        final var systemSchema = new SystemSchema(ValueUtil.randomString(), typeDataset, instanceDataset);
+
+        final var routingKeys1 = new HashMap<String, Serializable>();
+        routingKeys1.put("TypeDataset", Boolean.TRUE);
+        routingKeys1.put("InstanceDataset", new ArrayList<>(List.of(5, 7)));
+        final var candidate1 = new EntityChangeCandidate(1, 3, 0, routingKeys1, null);
+        final var candidate2 = new EntityChangeCandidate(2, 4, 0, new HashMap<>(), null);
+
+        final var routes = EntityChangeRoutes.compute(systemSchema, List.of(candidate1, candidate2));
+
+        final var routes1 = routes.getRoutes(candidate1);
+        assertEquals(routes1.size(), 2);
+        assertEquals(routes1.get(0).dataset(), typeDataset);
+        assertEquals(routes1.get(0).datasetAddresses(), List.of(DatasetAddress.of(0)));
+        assertEquals(routes1.get(1).dataset(), instanceDataset);
+        assertEquals(routes1.get(1).datasetAddresses(), List.of(DatasetAddress.of(1, 5), DatasetAddress.of(1, 7)));
+
+        assertTrue(routes.getRoutes(candidate2).isEmpty());
+
+        assertEquals(
+                routes.getDatasetAddresses(),
+                Set.of(DatasetAddress.of(0), DatasetAddress.of(1, 5), DatasetAddress.of(1, 7)));
+
+        final var unrouted = new EntityChangeCandidate(3, 4, 0, new HashMap<>(), null);
+        expectThrows(IllegalArgumentException.class, () -> routes.getRoutes(unrouted));
+    }
+}
@@ -3,11 +3,14 @@ package replicant.server.transport;
 import static org.testng.Assert.*;
 
 import java.util.ArrayList;
+import java.util.List;
 import javax.json.Json;
 import org.testng.annotations.Test;
 import replicant.server.ChangeSet;
 import replicant.server.DatasetAddress;
+import replicant.server.EntityChange;
 import replicant.server.EntityChangeCandidate;
+import replicant.server.EntityChangeCandidateTestUtil;
 import replicant.server.ValueUtil;
 
 public class PacketTest {
@@ -59,4 +62,77 @@ public class PacketTest {
         assertTrue(packet.entityChangeCandidates().isEmpty());
         assertFalse(packet.changeSet().shouldDeliver());
     }
+
+    @Test
+    public void datasetCacheEntryReference_fromDatasetCacheEntry() {
+        final var datasetAddress = DatasetAddress.of(1, 2);
+        final var filterParameter = Json.createObjectBuilder().add("a", 1).build();
+        final var datasetCacheEntry = new DatasetCacheEntry(DatasetCacheKey.of(datasetAddress, filterParameter));
+        datasetCacheEntry.init(new ChangeSet(), 0);
+
+        final var packet = Packet.datasetCacheEntryReference(7, datasetCacheEntry);
+
+        assertTrue(packet.fromSubscriptionRequest());
+        assertEquals(packet.requestId(), (Integer) 7);
+        assertEquals(packet.datasetCacheVersion(), datasetCacheEntry.getDatasetCacheVersion());
+        assertEquals(packet.datasetCacheEntryAddress(), datasetAddress);
+        assertSame(packet.datasetCacheEntry(), datasetCacheEntry);
+        assertEquals(packet.datasetCacheEntry().getFilterParameter(), filterParameter);
+        assertFalse(packet.changeSet().shouldDeliver());
+        assertFalse(packet.isCoalescable());
+    }
+
+    @Test
+    public void isCoalescable() {
+        assertTrue(new Packet(false, null, null, null, new ArrayList<>(), new ChangeSet()).isCoalescable());
+        assertFalse(new Packet(true, null, null, null, new ArrayList<>(), new ChangeSet()).isCoalescable());
+        assertFalse(new Packet(false, 1, null, null, new ArrayList<>(), new ChangeSet()).isCoalescable());
+        assertFalse(new Packet(false, null, null, "X", new ArrayList<>(), new ChangeSet()).isCoalescable());
+        assertFalse(Packet.datasetCacheEntryReference(null, DatasetAddress.of(1), "X").isCoalescable());
+    }
+
+    @Test
+    public void coalesce() {
+        final var candidate1 =
+                EntityChangeCandidateTestUtil.createEntityChangeCandidate(1, 2, 0, "r1", "r2", "a1", "a2");
+        final var candidate2 =
+                EntityChangeCandidateTestUtil.createEntityChangeCandidate(1, 2, 1, "r1", "r2", "a3", "a4");
+        final var candidate3 =
+                EntityChangeCandidateTestUtil.createEntityChangeCandidate(2, 2, 0, "r1", "r2", "a1", "a2");
+        final var changeSet = new ChangeSet();
+        changeSet.setDeliveryRequired(true);
+
+        final var packet1 = new Packet(false, null, null, null, List.of(candidate1), new ChangeSet());
+        final var packet2 = new Packet(false, null, null, null, List.of(candidate2, candidate3), changeSet);
+
+        final var packet = Packet.coalesce(List.of(packet1, packet2));
+
+        assertTrue(packet.isCoalescable());
+        assertEquals(packet.getEntityCount(), 2);
+        assertTrue(packet.changeSet().isDeliveryRequired());
+        assertNull(packet.entityChangeRoutes());
+        assertNull(packet.encodedChangeSetCache());
+        final var merged = packet.entityChangeCandidates().iterator().next();
+        assertNotSame(merged, candidate1);
+        assertEquals(merged.getEntityId(), 1);
+        assertEquals(merged.getTimestamp(), 1);
+        // The candidates shared with other sessions are not modified
+        assertEquals(candidate1.getTimestamp(), 0);
+    }
+
+    @Test
+    public void estimateSize() {
+        final var candidate =
+                EntityChangeCandidateTestUtil.createEntityChangeCandidate(1, 2, 0, "r1", "r2", "a1", "a2");
+        final var changeSet = new ChangeSet();
+        changeSet.merge(new EntityChange(candidate, DatasetAddress.of(1)));
+
+        final var emptyPacket = new Packet(false, null, null, null, new ArrayList<>(), new ChangeSet());
+        final var packet = new Packet(false, null, null, null, List.of(candidate), new ChangeSet());
+        final var packetWithChanges = new Packet(false, null, null, null, List.of(candidate), changeSet);
+
+        assertEquals(emptyPacket.estimateSize(), Packet.PACKET_SIZE_ESTIMATE);
+        assertTrue(packet.estimateSize() > emptyPacket.estimateSize() + Packet.ENTITY_SIZE_ESTIMATE);
+        assertEquals(packetWithChanges.estimateSize(), 2 * packet.estimateSize() - Packet.PACKET_SIZE_ESTIMATE);
+    }
 }
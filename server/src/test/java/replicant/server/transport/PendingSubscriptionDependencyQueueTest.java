@@ -0,0 +1,66 @@
+package replicant.server.transport;
+
+import static org.testng.Assert.*;
+
+import java.util.List;
+import javax.json.Json;
+import javax.json.JsonObject;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.testng.annotations.Test;
+import replicant.server.DatasetAddress;
+
+public class PendingSubscriptionDependencyQueueTest {
+    @Test
+    public void poll_groupsInstanceDatasetTargetsByFilterParameter() {
+        final var filterParameter = Json.createObjectBuilder().add("k", "v").build();
+        final var queue = new PendingSubscriptionDependencyQueue();
+        final var pending1 = pending(1, DatasetAddress.of(2, 5), null);
+        final var pending2 = pending(2, DatasetAddress.of(2, 3), filterParameter);
+        final var pending3 = pending(3, DatasetAddress.of(2, 4), null);
+        final var pending4 = pending(4, DatasetAddress.of(3, 1), null);
+
+        queue.add(pending1);
+        queue.add(pending2);
+        queue.add(pending3);
+        queue.add(pending4);
+        queue.add(pending(1, DatasetAddress.of(2, 5), null));
+
+        assertEquals(queue.size(), 4);
+        assertEquals(queue.poll(), List.of(pending2));
+        assertEquals(queue.poll(), List.of(pending1, pending3));
+        assertEquals(queue.poll(), List.of(pending4));
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void poll_groupsTypeDatasetTargetsByDatasetAddress() {
+        final var queue = new PendingSubscriptionDependencyQueue();
+        final var pending1 = pending(1, DatasetAddress.of(1), null);
+        final var pending2 = pending(2, DatasetAddress.of(1), null);
+        final var pending3 = pending(3, DatasetAddress.of(1, null, "key"), null);
+
+        queue.add(pending3);
+        queue.add(pending1);
+        queue.add(pending2);
+
+        assertEquals(
+                queue.getTargetDatasetAddresses(), List.of(DatasetAddress.of(1), DatasetAddress.of(1, null, "key")));
+        assertEquals(queue.poll(), List.of(pending1, pending2));
+        assertEquals(queue.poll(), List.of(pending3));
+        assertTrue(queue.isEmpty());
+    }
+
+    @NonNull
+    private PendingSubscriptionDependency pending(
+            final int entityId,
+            @NonNull final DatasetAddress targetDatasetAddress,
+            @Nullable final JsonObject filterParameter) {
+        return new PendingSubscriptionDependency(
+                SubscriptionDependencyOwner.entity(1, entityId),
+                DatasetAddress.of(0),
+                targetDatasetAddress,
+                filterParameter);
+    }
+}
@@ -12,11 +12,16 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import javax.json.Json;
 import javax.websocket.CloseReason;
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
 import javax.websocket.Session;
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
+import org.mockito.ArgumentCaptor;
 import org.testng.annotations.Test;
 import replicant.server.ChangeSet;
+import replicant.server.EntityChangeCandidateTestUtil;
 import replicant.server.ValueUtil;
 
 public class ReplicantMessageBrokerImplTest {
@@ -38,6 +43,30 @@ public class ReplicantMessageBrokerImplTest {
         assertEquals(broker.getWorkStateCount(), 0);
     }
 
+    @Test
+    public void sessionOverPendingPacketBudgetIsClosedByDrainTask() {
+        final var session = newSession();
+        session.setPendingPacketBudget(1, 0);
+        final var broker = new TestReplicantMessageBrokerImpl();
+
+        queuePacket(broker, session);
+        assertEquals(broker.getDrainTaskCount(), 1);
+
+        queuePacket(broker, session);
+        queuePacket(broker, session);
+
+        // The packets are discarded immediately but the session is closed once, by a broker thread
+        assertTrue(session.isPendingPacketBudgetExceeded());
+        assertTrue(session.isOpen());
+        assertEquals(broker.getDrainTaskCount(), 2);
+
+        broker.runNextDrainTask();
+        broker.runNextDrainTask();
+
+        assertFalse(session.isOpen());
+        verifyNoSend(broker);
+    }
+
     @Test
     public void multipleSendsToSameSessionAreCoalesced() {
         final var session = newSession();
@@ -417,6 +446,456 @@ public class ReplicantMessageBrokerImplTest {
         assertEquals(broker.getActiveDrainTaskCount(), 2);
     }
 
+    @Test
+    public void sessionOverOutboundBudgetIsSkippedUntilSendCompletes() {
+        final var session = newSession();
+        final var remote = mock(RemoteEndpoint.Async.class);
+        when(session.getWebSocketSession().getAsyncRemote()).thenReturn(remote);
+        session.enableAsyncDelivery(1);
+        final var broker = new TestReplicantMessageBrokerImpl();
+
+        final var packet1 = queuePacket(broker, session);
+        final var packet2 = queuePacket(broker, session);
+        doAnswer(invocation -> session.sendText("payload"))
+                .when(broker._sessionManager)
+                .sendChangeSet(eq(session), eq(packet1));
+
+        broker.runNextDrainTask();
+
+        verifySendOnce(broker, session, packet1);
+        verify(broker._sessionManager, never()).sendChangeSet(eq(session), eq(packet2));
+        assertEquals(broker.getDrainTaskCount(), 0);
+        assertEquals(broker.getQueuedSessionCount(), 0);
+        assertEquals(broker.getWorkStateCount(), 0);
+
+        final var handler = ArgumentCaptor.forClass(SendHandler.class);
+        verify(remote).sendText(eq("payload"), handler.capture());
+        handler.getValue().onResult(new SendResult());
+
+        assertEquals(broker.getDrainTaskCount(), 1);
+
+        broker.runNextDrainTask();
+
+        verifySendOnce(broker, session, packet2);
+        assertEquals(broker.getWorkStateCount(), 0);
+    }
+
+    @Test
+    public void perSessionDeliveryStartsOneConsumerPerSession() {
+        final var session1 = newSession();
+        final var session2 = newSession();
+        final var broker = new TestReplicantMessageBrokerImpl();
+        broker.setPerSessionDelivery(true);
+
+        final var packet1 = queuePacket(broker, session1);
+        final var packet2 = queuePacket(broker, session1);
+        final var packet3 = queuePacket(broker, session2);
+
+        assertEquals(broker.getDrainTaskCount(), 2);
+        assertEquals(broker.getQueuedSessionCount(), 0);
+        assertEquals(broker.getWorkStateCount(), 2);
+
+        broker.runNextDrainTask();
+        broker.runNextDrainTask();
+
+        verifySendOnce(broker, session1, packet1);
+        verifySendOnce(broker, session1, packet2);
+        verifySendOnce(broker, session2, packet3);
+        assertEquals(broker.getWorkStateCount(), 0);
+        assertEquals(broker.getActiveDrainTaskCount(), 0);
+
+        // A packet queued once the consumer has completed starts another consumer
+        final var packet4 = queuePacket(broker, session1);
+        assertEquals(broker.getDrainTaskCount(), 1);
+        broker.runNextDrainTask();
+        verifySendOnce(broker, session1, packet4);
+    }
+
+    @Test
+    public void perSessionDeliveryRetriesWhenSessionLockIsHeld() throws InterruptedException {
+        final var session = newSession();
+        final var broker = new TestReplicantMessageBrokerImpl();
+        broker.setPerSessionDelivery(true);
+
+        session.getLock().lock();
+        try {
+            queuePacket(broker, session);
+            // The consumer does not block an executor thread waiting for the session lock
+            broker.runNextDrainTaskInNewThread();
+
+            verifyNoSend(broker);
+            assertEquals(broker.getRetryTaskCount(), 1);
+            assertEquals(broker.getWorkStateCount(), 1);
+        } finally {
+            session.getLock().unlock();
+        }
+
+        // A packet queued while the consumer waits to retry starts no other consumer
+        queuePacket(broker, session);
+        assertEquals(broker.getDrainTaskCount(), 0);
+
+        broker.runNextRetryTask();
+        assertEquals(broker.getDrainTaskCount(), 1);
+        broker.runNextDrainTask();
+
+        verify(broker._sessionManager, times(2)).sendChangeSet(eq(session), any());
+        assertEquals(broker.getRetryTaskCount(), 0);
+        assertEquals(broker.getWorkStateCount(), 0);
+    }
+
+    @Test
+    public void perSessionDeliveryHoldsEncodePermitWhileSending() {
+        final var session = newSession();
+        final var broker = new TestReplicantMessageBrokerImpl();
+        broker.setPerSessionDelivery(true);
+        broker.setMaxConcurrentEncodes(1);
+        final var availablePermits = new ArrayList<Integer>();
+        doAnswer(invocation -> {
+                    availablePermits.add(broker.getAvailableEncodePermits());
+                    return true;
+                })
+                .when(broker._sessionManager)
+                .sendChangeSet(eq(session), any());
+
+        queuePacket(broker, session);
+        broker.runNextDrainTask();
+
+        assertEquals(availablePermits, List.of(0));
+        assertEquals(broker.getAvailableEncodePermits(), 1);
+    }
+
+    @Test
+    public void perSessionDeliveryRetriesWithoutSessionLockWhenNoEncodePermitIsAvailable() {
+        final var session1 = newSession();
+        final var session2 = newSession();
+        final var broker = new TestReplicantMessageBrokerImpl();
+        broker.setPerSessionDelivery(true);
+        broker.setMaxConcurrentEncodes(1);
+
+        queuePacket(broker, session1);
+        final var packet2 = queuePacket(broker, session2);
+        final var session2LockHeld = new ArrayList<Boolean>();
+        doAnswer(invocation -> {
+                    // The consumer of the second session runs while the first session holds the only permit
+                    broker.runNextDrainTask();
+                    session2LockHeld.add(session2.getLock().isLocked());
+                    return true;
+                })
+                .when(broker._sessionManager)
+                .sendChangeSet(eq(session1), any());
+
+        broker.runNextDrainTask();
+
+        verify(broker._sessionManager, never()).sendChangeSet(eq(session2), any());
+        assertEquals(session2LockHeld, List.of(false));
+        assertEquals(broker.getAvailableEncodePermits(), 1);
+        assertEquals(broker.getRetryTaskCount(), 1);
+        assertEquals(broker.getWorkStateCount(), 1);
+
+        broker.runNextRetryTask();
+        broker.runNextDrainTask();
+
+        verifySendOnce(broker, session2, packet2);
+        assertEquals(broker.getAvailableEncodePermits(), 1);
+        assertEquals(broker.getWorkStateCount(), 0);
+    }
+
+    @Test
+    public void perSessionDeliveryResumesSessionOverOutboundBudgetWhenSendCompletes() {
+        final var session = newSession();
+        final var remote = mock(RemoteEndpoint.Async.class);
+        when(session.getWebSocketSession().getAsyncRemote()).thenReturn(remote);
+        session.enableAsyncDelivery(1);
+        final var broker = new TestReplicantMessageBrokerImpl();
+        broker.setPerSessionDelivery(true);
+
+        final var packet1 = queuePacket(broker, session);
+        final var packet2 = queuePacket(broker, session);
+        doAnswer(invocation -> session.sendText("payload"))
+                .when(broker._sessionManager)
+                .sendChangeSet(eq(session), eq(packet1));
+
+        broker.runNextDrainTask();
+
+        verifySendOnce(broker, session, packet1);
+        verify(broker._sessionManager, never()).sendChangeSet(eq(session), eq(packet2));
+        assertEquals(broker.getDrainTaskCount(), 0);
+        assertEquals(broker.getWorkStateCount(), 0);
+
+        final var handler = ArgumentCaptor.forClass(SendHandler.class);
+        verify(remote).sendText(eq("payload"), handler.capture());
+        handler.getValue().onResult(new SendResult());
+
+        assertEquals(broker.getDrainTaskCount(), 1);
+
+        broker.runNextDrainTask();
+
+        verifySendOnce(broker, session, packet2);
+        assertEquals(broker.getWorkStateCount(), 0);
+    }
+
+    @Test
+    public void consecutivePacketsAreCoalesced() {
+        final var session = newSession();
+        final var broker = new TestReplicantMessageBrokerImpl();
+        broker.setMaxCoalescedPackets(2);
+
+        queueChangeSet(broker, session, 1, null);
+        queueChangeSet(broker, session, 2, null);
+        final var packet3 = queueChangeSet(broker, session, 3, null);
+
+        broker.runNextDrainTask();
+
+        final var packets = ArgumentCaptor.forClass(Packet.class);
+        verify(broker._sessionManager, times(2)).sendChangeSet(eq(session), packets.capture());
+        assertEquals(packets.getAllValues().get(0).entityChangeCandidates().size(), 2);
+        assertSame(packets.getAllValues().get(1), packet3);
+        assertEquals(broker.getWorkStateCount(), 0);
+    }
+
+    @Test
+    public void packetWithRequestIdIsCoalescingBarrier() {
+        final var session = newSession();
+        final var broker = new TestReplicantMessageBrokerImpl();
+        broker.setMaxCoalescedPackets(10);
+        broker.setMaxCoalescedEntities(10);
+
+        final var packet1 = queueChangeSet(broker, session, 1, null);
+        final var packet2 = queueChangeSet(broker, session, 2, ValueUtil.randomInt());
+        final var packet3 = queueChangeSet(broker, session, 3, null);
+
+        broker.runNextDrainTask();
+
+        verifySendOnce(broker, session, packet1);
+        verifySendOnce(broker, session, packet2);
+        verifySendOnce(broker, session, packet3);
+    }
+
+    @Test
+    public void moreUrgentSessionsAreServedFirst() {
+        final var session1 = newSession();
+        final var session2 = newSession();
+        final var broker = new TestReplicantMessageBrokerImpl();
+        broker.setMaxConcurrentDrainTasks(1);
+        broker.setMaxSessionsPerDrainTask(1);
+
+        final var packet1 = queueChangeSet(broker, session1, 1, null);
+        final var packet2 = queuePacket(broker, session2);
+
+        assertEquals(packet1.getDeliveryClass(), DeliveryClass.BROADCAST);
+        assertEquals(packet2.getDeliveryClass(), DeliveryClass.REQUEST);
+        assertEquals(broker.getQueuedSessionCount(DeliveryClass.BROADCAST), 1);
+        assertEquals(broker.getQueuedSessionCount(DeliveryClass.REQUEST), 1);
+
+        broker.runNextDrainTask();
+
+        verifySendOnce(broker, session2, packet2);
+        verify(broker._sessionManager, never()).sendChangeSet(eq(session1), any());
+
+        broker.runNextDrainTask();
+
+        verifySendOnce(broker, session1, packet1);
+        assertEquals(broker.getWorkStateCount(), 0);
+        final var statistics = broker.getQueueWaitStatistics();
+        assertEquals(statistics.get(DeliveryClass.REQUEST).sessionCount(), 1);
+        assertEquals(statistics.get(DeliveryClass.SUBSCRIPTION).sessionCount(), 0);
+        assertEquals(statistics.get(DeliveryClass.BROADCAST).sessionCount(), 1);
+        assertTrue(statistics.get(DeliveryClass.BROADCAST).maxWaitNanos()
+                <= statistics.get(DeliveryClass.BROADCAST).totalWaitNanos());
+    }
+
+    @Test
+    public void queuedSessionIsMovedToMoreUrgentQueue() {
+        final var session1 = newSession();
+        final var session2 = newSession();
+        final var broker = new TestReplicantMessageBrokerImpl();
+        broker.setMaxConcurrentDrainTasks(1);
+        broker.setMaxSessionsPerDrainTask(1);
+
+        final var packet1 = queueChangeSet(broker, session1, 1, null);
+        final var packet2 = queueChangeSet(broker, session2, 2, null);
+        final var packet3 = queuePacket(broker, session2);
+
+        assertEquals(broker.getQueuedSessionCount(DeliveryClass.BROADCAST), 1);
+        assertEquals(broker.getQueuedSessionCount(DeliveryClass.REQUEST), 1);
+        // The entry of the moved session is left in the less urgent queue rather than searched for
+        assertEquals(broker.getQueueEntryCount(DeliveryClass.BROADCAST), 2);
+
+        broker.runNextDrainTask();
+
+        // The packets of the session are still sent in the order they were queued
+        final var packets = ArgumentCaptor.forClass(Packet.class);
+        verify(broker._sessionManager, times(2)).sendChangeSet(eq(session2), packets.capture());
+        assertEquals(packets.getAllValues(), List.of(packet2, packet3));
+        verify(broker._sessionManager, never()).sendChangeSet(eq(session1), any());
+
+        broker.runNextDrainTask();
+
+        verifySendOnce(broker, session1, packet1);
+        assertEquals(broker.getQueuedSessionCount(), 0);
+        assertEquals(broker.getWorkStateCount(), 0);
+
+        // The stale entry of the moved session is discarded by the next poll rather than serving the session again
+        assertEquals(broker.getQueueEntryCount(DeliveryClass.BROADCAST), 1);
+        final var packet4 = queueChangeSet(broker, session1, 4, null);
+        broker.runNextDrainTask();
+
+        verifySendOnce(broker, session1, packet4);
+        verify(broker._sessionManager, times(2)).sendChangeSet(eq(session2), any());
+        assertEquals(broker.getQueueEntryCount(DeliveryClass.BROADCAST), 0);
+    }
+
+    @Test
+    public void deficitQuantumBoundsCostPerRun() {
+        final var session1 = newSession();
+        final var session2 = newSession();
+        final var broker = new TestReplicantMessageBrokerImpl();
+        broker.setMaxConcurrentDrainTasks(1);
+        broker.setMaxSessionsPerDrainTask(1);
+        // Each packet carries one Entity Change Candidate and so costs 2
+        broker.setDeficitQuantum(3);
+
+        final var packet1 = queueChangeSet(broker, session1, 1, null);
+        final var packet2 = queueChangeSet(broker, session1, 2, null);
+        final var packet3 = queueChangeSet(broker, session1, 3, null);
+        final var packet4 = queueChangeSet(broker, session2, 4, null);
+
+        broker.runNextDrainTask();
+
+        verifySendOnce(broker, session1, packet1);
+        verifySendOnce(broker, session1, packet2);
+        verify(broker._sessionManager, never()).sendChangeSet(eq(session1), eq(packet3));
+        assertEquals(session1.getDeliveryDeficit(), -1);
+
+        broker.runNextDrainTask();
+
+        verifySendOnce(broker, session2, packet4);
+        verify(broker._sessionManager, never()).sendChangeSet(eq(session1), eq(packet3));
+
+        broker.runNextDrainTask();
+
+        verifySendOnce(broker, session1, packet3);
+        assertEquals(session1.getDeliveryDeficit(), 0);
+        assertEquals(broker.getWorkStateCount(), 0);
+    }
+
+    @Test
+    public void transactionChangeBatchesArePublishedInOrderByBrokerThread() {
+        final var broker = new TestReplicantMessageBrokerImpl();
+        final var batch1 = newTransactionChangeBatch();
+        final var batch2 = newTransactionChangeBatch();
+
+        broker.queueTransactionChangeBatch(batch1);
+        broker.queueTransactionChangeBatch(batch2);
+
+        verify(broker._sessionManager, never()).publishTransactionChangeBatch(any());
+        assertEquals(broker.getPendingTransactionChangeBatchCount(), 2);
+        assertEquals(broker.getDrainTaskCount(), 1);
+
+        broker.runNextDrainTask();
+
+        final var batches = ArgumentCaptor.forClass(TransactionChangeBatch.class);
+        verify(broker._sessionManager, times(2)).publishTransactionChangeBatch(batches.capture());
+        assertEquals(batches.getAllValues(), List.of(batch1, batch2));
+        assertEquals(broker.getPendingTransactionChangeBatchCount(), 0);
+    }
+
+    @Test
+    public void awaitQueuedTransactionChangeBatchesReturnsWhenNothingIsQueued() {
+        final var broker = new TestReplicantMessageBrokerImpl();
+        final var batch = newTransactionChangeBatch();
+
+        broker.awaitQueuedTransactionChangeBatches();
+
+        broker.queueTransactionChangeBatch(batch);
+        broker.runNextDrainTask();
+        verify(broker._sessionManager).publishTransactionChangeBatch(batch);
+
+        // Every queued batch has been published so the call returns without publishing
+        broker.awaitQueuedTransactionChangeBatches();
+        verify(broker._sessionManager).publishTransactionChangeBatch(any());
+    }
+
+    @Test
+    public void awaitQueuedTransactionChangeBatchesWaitsForBrokerThread() throws Exception {
+        final var broker = new TestReplicantMessageBrokerImpl();
+        final var batch = newTransactionChangeBatch();
+        final var publishing = new CountDownLatch(1);
+        final var release = new CountDownLatch(1);
+        final var published = new AtomicBoolean();
+        doAnswer(invocation -> {
+            publishing.countDown();
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            published.set(true);
+            return null;
+        }).when(broker._sessionManager).publishTransactionChangeBatch(batch);
+
+        broker.queueTransactionChangeBatch(batch);
+        final var drainTask = broker.startNextDrainTaskInNewThread();
+        assertTrue(publishing.await(5, TimeUnit.SECONDS));
+
+        // Release the broker thread once the calling thread is waiting for it
+        final var caller = Thread.currentThread();
+        final var releaser = new Thread(() -> {
+            while (Thread.State.TIMED_WAITING != caller.getState()) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+        });
+        releaser.start();
+        broker.awaitQueuedTransactionChangeBatches();
+
+        assertTrue(published.get());
+        drainTask.join();
+        releaser.join();
+        verify(broker._sessionManager).publishTransactionChangeBatch(batch);
+        assertEquals(broker.getPendingTransactionChangeBatchCount(), 0);
+    }
+
+    @Test
+    public void awaitQueuedTransactionChangeBatchesWaitsOnlyForBatchesQueuedBeforeCall() {
+        final var broker = new TestReplicantMessageBrokerImpl();
+        final var batch = newTransactionChangeBatch();
+        final var batch2 = newTransactionChangeBatch();
+        doAnswer(invocation -> {
+            broker.queueTransactionChangeBatch(batch2);
+            return null;
+        }).when(broker._sessionManager).publishTransactionChangeBatch(batch);
+
+        broker.queueTransactionChangeBatch(batch);
+        broker.awaitQueuedTransactionChangeBatches();
+
+        // No broker thread published the batch so the caller published it but not the batch queued during the call
+        verify(broker._sessionManager).publishTransactionChangeBatch(batch);
+        verify(broker._sessionManager, never()).publishTransactionChangeBatch(batch2);
+        assertEquals(broker.getPendingTransactionChangeBatchCount(), 1);
+
+        broker.runNextDrainTask();
+        verify(broker._sessionManager).publishTransactionChangeBatch(batch2);
+        assertEquals(broker.getPendingTransactionChangeBatchCount(), 0);
+    }
+
+    @Test
+    public void awaitQueuedTransactionChangeBatchesPublishesOnCallingThreadWhenPublicationStalls() {
+        final var broker = new TestReplicantMessageBrokerImpl();
+        final var batch = newTransactionChangeBatch();
+        doThrow(new IllegalStateException()).when(broker._sessionManager).publishTransactionChangeBatch(batch);
+        final var batch2 = newTransactionChangeBatch();
+
+        broker.queueTransactionChangeBatch(batch);
+        broker.queueTransactionChangeBatch(batch2);
+        broker.awaitQueuedTransactionChangeBatches();
+
+        // A batch that fails to publish does not prevent later batches from being published
+        verify(broker._sessionManager).publishTransactionChangeBatch(batch);
+        verify(broker._sessionManager).publishTransactionChangeBatch(batch2);
+        assertEquals(broker.getPendingTransactionChangeBatchCount(), 0);
+
+        // The scheduled task finds nothing left to publish
+        broker.runNextDrainTask();
+        verify(broker._sessionManager, times(2)).publishTransactionChangeBatch(any());
+    }
+
     private void verifySendOnce(
             @NonNull final ReplicantMessageBroker broker,
             @NonNull final ReplicantSession session,
@@ -441,9 +920,36 @@ public class ReplicantMessageBrokerImplTest {
                         .build(),
                 ValueUtil.randomString(),
                 Collections.emptyList(),
+                null,
+                null,
                 new ChangeSet());
     }
 
+    @NonNull
+    private Packet queueChangeSet(
+            @NonNull final ReplicantMessageBroker broker,
+            @NonNull final ReplicantSession session,
+            final int entityId,
+            @Nullable final Integer requestId) {
+        return broker.queueChangeSet(
+                session,
+                false,
+                requestId,
+                null,
+                null,
+                List.of(EntityChangeCandidateTestUtil.createEntityChangeCandidate(
+                        entityId, 1, 0, "r1", "r2", "a1", "a2")),
+                null,
+                null,
+                new ChangeSet());
+    }
+
+    @NonNull
+    private TransactionChangeBatch newTransactionChangeBatch() {
+        return new TransactionChangeBatch(
+                null, ValueUtil.randomInt(), null, Collections.emptyList(), null, false, false);
+    }
+
     @NonNull
     private ReplicantSession newSession() {
         return newSession(new AtomicBoolean(true));
@@ -4,19 +4,31 @@ import static org.mockito.Mockito.*;
 import static org.testng.Assert.*;
 
 import java.io.Serializable;
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.stream.Stream;
 import javax.json.Json;
 import javax.json.JsonObject;
+import javax.websocket.CloseReason;
 import javax.websocket.RemoteEndpoint;
 import javax.websocket.Session;
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
+import org.mockito.ArgumentCaptor;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -1075,6 +1087,143 @@ public class ReplicantSessionManagerImplTest {
         }
     }
 
+    @Test
+    public void subscribe_collectsSubscriptionDataOutsideSessionLock() {
+        final var dataset = new Dataset(
+                0,
+                "Dataset",
+                null,
+                Dataset.FilterMode.PARAMETER_FILTERED,
+                Dataset.FilterParameterMode.FIXED,
+                false,
+                false,
+                Dataset.Visibility.UNIVERSAL);
+        final var serverAdapter = new TestReplicantServerAdapter(new SystemSchema("Test", dataset));
+        final var manager = createManager(serverAdapter, mock(ReplicantMessageBroker.class));
+        setField(manager, "_collectSubscriptionDataOutsideSessionLock", true);
+        final var session = createOpenSession();
+        final var datasetAddress = DatasetAddress.of(0);
+        final var filterParameter = Json.createObjectBuilder().add("value", "v").build();
+        serverAdapter.setSubscriptionCollectionAction(() -> {
+            assertFalse(session.getLock().isHeldByCurrentThread());
+            // The Subscription is authorized before its data is collected
+            assertEquals(serverAdapter.getPreSubscribeDatasetAddresses(), List.of(datasetAddress));
+        });
+
+        TransactionSynchronizationRegistryUtil.lookup().putResource(ServerConstants.REPLICATION_INVOCATION_KEY, null);
+        manager.subscribe(session, 1, List.of(datasetAddress), filterParameter);
+
+        assertEquals(
+                serverAdapter.getSubscriptionCollectionCalls(),
+                List.of(new SubscriptionCollectionCall(
+                        List.of(datasetAddress), filterParameter, SubscriptionMode.EXPLICIT)));
+        // The hook is invoked again within the Replication Invocation that records the Subscription
+        assertEquals(serverAdapter.getPreSubscribeDatasetAddresses(), List.of(datasetAddress, datasetAddress));
+        session.getLock().lock();
+        try {
+            final var subscription = session.getSubscription(datasetAddress);
+            assertEquals(subscription.getMode(), SubscriptionMode.EXPLICIT);
+            assertEquals(subscription.getFilterParameter(), filterParameter);
+        } finally {
+            session.getLock().unlock();
+        }
+    }
+
+    @Test
+    public void subscribe_recollectsSubscriptionDataWhenCollectedDatasetRootChangesDuringCollection() {
+        final var serverAdapter =
+                new TestReplicantServerAdapter(new SystemSchema("Test", collectableInstanceDataset()));
+        final var manager = createManager(serverAdapter, mock(ReplicantMessageBroker.class));
+        setField(manager, "_collectSubscriptionDataOutsideSessionLock", true);
+        final var session = createOpenSession();
+        final var datasetAddress = DatasetAddress.of(0, 1);
+        serverAdapter.setSubscriptionCollectionAction(() -> {
+            if (1 == serverAdapter.getSubscriptionCollectionCalls().size()) {
+                // A transaction routes changes to the Dataset Root while the data is collected
+                session.getLock().lock();
+                try {
+                    session.recordRoutedDatasetAddresses(List.of(DatasetAddress.of(0, 1)));
+                } finally {
+                    session.getLock().unlock();
+                }
+            }
+        });
+
+        TransactionSynchronizationRegistryUtil.lookup().putResource(ServerConstants.REPLICATION_INVOCATION_KEY, null);
+        manager.subscribe(session, 1, List.of(datasetAddress), null);
+
+        final var collectionCall =
+                new SubscriptionCollectionCall(List.of(datasetAddress), null, SubscriptionMode.EXPLICIT);
+        assertEquals(serverAdapter.getSubscriptionCollectionCalls(), List.of(collectionCall, collectionCall));
+        assertEquals(serverAdapter.getPreSubscribeDatasetAddresses(), List.of(datasetAddress, datasetAddress));
+        session.getLock().lock();
+        try {
+            assertTrue(session.isSubscriptionPresent(datasetAddress));
+        } finally {
+            session.getLock().unlock();
+        }
+    }
+
+    @Test
+    public void subscribe_collectsSubscriptionDataInSessionLockWhenServerAdapterRequiresSession() {
+        final var serverAdapter =
+                new TestReplicantServerAdapter(new SystemSchema("Test", collectableInstanceDataset()));
+        serverAdapter.setCollectSubscriptionDataWithoutSession(false);
+        final var manager = createManager(serverAdapter, mock(ReplicantMessageBroker.class));
+        setField(manager, "_collectSubscriptionDataOutsideSessionLock", true);
+        final var session = createOpenSession();
+        final var datasetAddress = DatasetAddress.of(0, 1);
+        serverAdapter.setSubscriptionCollectionAction(() -> assertTrue(session.getLock().isHeldByCurrentThread()));
+
+        TransactionSynchronizationRegistryUtil.lookup().putResource(ServerConstants.REPLICATION_INVOCATION_KEY, null);
+        manager.subscribe(session, 1, List.of(datasetAddress), null);
+
+        assertEquals(
+                serverAdapter.getSubscriptionCollectionCalls(),
+                List.of(new SubscriptionCollectionCall(List.of(datasetAddress), null, SubscriptionMode.EXPLICIT)));
+        session.getLock().lock();
+        try {
+            assertTrue(session.isSubscriptionPresent(datasetAddress));
+        } finally {
+            session.getLock().unlock();
+        }
+    }
+
+    @Test
+    public void subscribe_keepsSubscriptionDataWhenOtherDatasetRootsChangeDuringCollection() {
+        final var serverAdapter =
+                new TestReplicantServerAdapter(new SystemSchema("Test", collectableInstanceDataset()));
+        final var manager = createManager(serverAdapter, mock(ReplicantMessageBroker.class));
+        setField(manager, "_collectSubscriptionDataOutsideSessionLock", true);
+        final var session = createOpenSession();
+        final var datasetAddress = DatasetAddress.of(0, 1);
+        final var concurrentDatasetAddress = DatasetAddress.of(0, 2);
+        serverAdapter.setSubscriptionCollectionAction(() -> {
+            // Another request subscribes to, and a transaction routes changes to, another Dataset Root
+            session.getLock().lock();
+            try {
+                session.createSubscription(concurrentDatasetAddress, SubscriptionMode.EXPLICIT);
+                session.recordRoutedDatasetAddresses(List.of(concurrentDatasetAddress));
+            } finally {
+                session.getLock().unlock();
+            }
+        });
+
+        TransactionSynchronizationRegistryUtil.lookup().putResource(ServerConstants.REPLICATION_INVOCATION_KEY, null);
+        manager.subscribe(session, 1, List.of(datasetAddress), null);
+
+        assertEquals(
+                serverAdapter.getSubscriptionCollectionCalls(),
+                List.of(new SubscriptionCollectionCall(List.of(datasetAddress), null, SubscriptionMode.EXPLICIT)));
+        session.getLock().lock();
+        try {
+            assertTrue(session.isSubscriptionPresent(datasetAddress));
+            assertTrue(session.isSubscriptionPresent(concurrentDatasetAddress));
+        } finally {
+            session.getLock().unlock();
+        }
+    }
+
     @Test
     public void invalidateSession_removesAndClosesExistingSession() throws Exception {
         final var systemSchema = new SystemSchema(
@@ -1104,6 +1253,110 @@ public class ReplicantSessionManagerImplTest {
         verify(webSocketSession).close();
     }
 
+    @Test
+    public void publishTransactionChangeBatch_queuesRequestCompletionForInitiator() throws Exception {
+        final var source = cacheableDataset(0, "Source");
+        final var broker = mock(ReplicantMessageBroker.class);
+        final var manager = createManager(new TestReplicantServerAdapter(new SystemSchema("Test", source)), broker);
+
+        final var webSocketSession = mock(Session.class);
+        when(webSocketSession.getId()).thenReturn("session-1");
+        when(webSocketSession.isOpen()).thenReturn(true);
+        final var session = manager.createSession(webSocketSession, mock(ReplicantSessionAuthorization.class));
+
+        final var entityChangeCandidates =
+                List.of(new EntityChangeCandidate(1, 1, 1L, typeRouting("Source"), attributes(1), null));
+        manager.publishTransactionChangeBatch(
+                new TransactionChangeBatch(session, 7, null, entityChangeCandidates, null, false, false));
+
+        final var changeSet = ArgumentCaptor.forClass(ChangeSet.class);
+        verify(broker)
+                .queueChangeSet(
+                        eq(session),
+                        eq(false),
+                        eq(7),
+                        isNull(),
+                        isNull(),
+                        eq(entityChangeCandidates),
+                        any(),
+                        any(),
+                        changeSet.capture());
+        // The request is paired with a Change Set even if no Entity Change is routed to the session
+        assertTrue(changeSet.getValue().isDeliveryRequired());
+    }
+
+    @Test
+    public void publishTransactionChangeBatch_closesUnpublishedSessionsOnFailure() throws Exception {
+        final var source = cacheableDataset(0, "Source");
+        final var broker = mock(ReplicantMessageBroker.class);
+        final var manager = createManager(new TestReplicantServerAdapter(new SystemSchema("Test", source)), broker);
+
+        final var webSocketSession1 = mock(Session.class);
+        when(webSocketSession1.getId()).thenReturn("session-1");
+        when(webSocketSession1.isOpen()).thenReturn(true);
+        final var session1 = manager.createSession(webSocketSession1, mock(ReplicantSessionAuthorization.class));
+        final var webSocketSession2 = mock(Session.class);
+        when(webSocketSession2.getId()).thenReturn("session-2");
+        when(webSocketSession2.isOpen()).thenReturn(true);
+        manager.createSession(webSocketSession2, mock(ReplicantSessionAuthorization.class));
+
+        final var failure = new IllegalStateException();
+        doThrow(failure)
+                .when(broker)
+                .queueChangeSet(any(), anyBoolean(), any(), any(), any(), any(), any(), any(), any());
+
+        final var entityChangeCandidates =
+                List.of(new EntityChangeCandidate(1, 1, 1L, typeRouting("Source"), attributes(1), null));
+        final var exception = expectThrows(
+                IllegalStateException.class,
+                () -> manager.publishTransactionChangeBatch(
+                        new TransactionChangeBatch(session1, 7, null, entityChangeCandidates, null, false, false)));
+        assertSame(exception, failure);
+
+        // The initiator missed its Change Set and is closed so that its client resynchronizes
+        final var closeReason = ArgumentCaptor.forClass(CloseReason.class);
+        verify(webSocketSession1).close(closeReason.capture());
+        assertEquals(closeReason.getValue().getCloseCode(), CloseReason.CloseCodes.TRY_AGAIN_LATER);
+        // A session that the changes were not routed to is unaffected
+        verify(webSocketSession2, never()).close(any(CloseReason.class));
+    }
+
+    @Test
+    public void removeClosedSessions() throws Exception {
+        final var systemSchema = new SystemSchema(
+                "Test",
+                new Dataset(
+                        0,
+                        "Source",
+                        null,
+                        Dataset.FilterMode.UNFILTERED,
+                        null,
+                        false,
+                        false,
+                        Dataset.Visibility.UNIVERSAL));
+        final var manager =
+                createManager(new TestReplicantServerAdapter(systemSchema), mock(ReplicantMessageBroker.class));
+
+        final var openWebSocketSession = mock(Session.class);
+        when(openWebSocketSession.getId()).thenReturn("session-1");
+        when(openWebSocketSession.isOpen()).thenReturn(true);
+        final var closedWebSocketSession = mock(Session.class);
+        when(closedWebSocketSession.getId()).thenReturn("session-2");
+        when(closedWebSocketSession.isOpen()).thenReturn(false);
+        manager.createSession(openWebSocketSession, mock(ReplicantSessionAuthorization.class));
+        manager.createSession(closedWebSocketSession, mock(ReplicantSessionAuthorization.class));
+
+        manager.removeClosedSessions();
+
+        assertNotNull(manager.getSession("session-1"));
+        assertNull(manager.getSession("session-2"));
+
+        manager.removeAllSessions();
+
+        assertNull(manager.getSession("session-1"));
+        verify(openWebSocketSession).close();
+    }
+
     @Test
     public void invalidateSession_ignoresUnknownSession() throws Exception {
         final var systemSchema = new SystemSchema(
@@ -1299,11 +1552,11 @@ public class ReplicantSessionManagerImplTest {
         final var manager = createManager(
                 new TestReplicantServerAdapter(new SystemSchema("Test", dataset)), mock(ReplicantMessageBroker.class));
         final var method =
-                ReplicantSessionManagerImpl.class.getDeclaredMethod("tryGetDatasetCacheEntry", DatasetAddress.class);
+                ReplicantSessionManagerImpl.class.getDeclaredMethod("tryGetDatasetCacheEntry", DatasetCacheKey.class);
         method.setAccessible(true);
 
         final var exception =
-                expectThrows(InvocationTargetException.class, () -> method.invoke(manager, DatasetAddress.of(0)));
+                expectThrows(InvocationTargetException.class, () -> method.invoke(manager, key(DatasetAddress.of(0))));
 
         assertTrue(exception.getCause() instanceof AssertionError);
     }
@@ -1322,18 +1575,458 @@ public class ReplicantSessionManagerImplTest {
 
         final var field = ReplicantSessionManagerImpl.class.getDeclaredField("_datasetCacheEntries");
         field.setAccessible(true);
-        final var datasetCacheEntries = (HashMap<DatasetAddress, DatasetCacheEntry>) field.get(manager);
-        datasetCacheEntries.put(DatasetAddress.of(0), new DatasetCacheEntry(DatasetAddress.of(0)));
-        datasetCacheEntries.put(DatasetAddress.of(1), new DatasetCacheEntry(DatasetAddress.of(1)));
-        datasetCacheEntries.put(DatasetAddress.of(2), new DatasetCacheEntry(DatasetAddress.of(2)));
-        datasetCacheEntries.put(DatasetAddress.of(3), new DatasetCacheEntry(DatasetAddress.of(3)));
+        final var datasetCacheEntries = (Map<DatasetCacheKey, DatasetCacheEntry>) field.get(manager);
+        for (var datasetId = 0; datasetId < 4; datasetId++) {
+            final var datasetCacheKey = key(DatasetAddress.of(datasetId));
+            datasetCacheEntries.put(datasetCacheKey, new DatasetCacheEntry(datasetCacheKey));
+        }
+
+        final var method = ReplicantSessionManagerImpl.class.getDeclaredMethod(
+                "invalidateDatasetCacheEntry", DatasetAddress.class);
+        method.setAccessible(true);
+        method.invoke(manager, DatasetAddress.of(0));
+
+        assertEquals(datasetCacheEntries.keySet(), Set.of(key(DatasetAddress.of(3))));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void updateAffectedDatasetCacheEntries_invalidatesEveryRoutedDataset() throws Exception {
+        final var source1 = cacheableDataset(0, "Source1");
+        final var source2 = cacheableDataset(1, "Source2");
+        final var dependent1 = cacheableDataset(2, "Dependent1", source1);
+        final var sharedDependent = cacheableDataset(3, "SharedDependent", source1, source2);
+        final var unrelated = cacheableDataset(4, "Unrelated");
+        final var manager = createManager(
+                new TestReplicantServerAdapter(
+                        new SystemSchema("Test", source1, source2, dependent1, sharedDependent, unrelated)),
+                mock(ReplicantMessageBroker.class));
+
+        final var field = ReplicantSessionManagerImpl.class.getDeclaredField("_datasetCacheEntries");
+        field.setAccessible(true);
+        final var datasetCacheEntries = (Map<DatasetCacheKey, DatasetCacheEntry>) field.get(manager);
+        for (var datasetId = 0; datasetId < 5; datasetId++) {
+            final var datasetCacheKey = key(DatasetAddress.of(datasetId));
+            datasetCacheEntries.put(datasetCacheKey, new DatasetCacheEntry(datasetCacheKey));
+        }
+
+        final var method = ReplicantSessionManagerImpl.class.getDeclaredMethod(
+                "updateAffectedDatasetCacheEntries", Collection.class, EntityChangeRoutes.class);
+        method.setAccessible(true);
+        final var entityChangeCandidates = List.of(
+                new EntityChangeCandidate(1, 1, 1L, typeRouting("Source1"), attributes(1), null),
+                new EntityChangeCandidate(2, 1, 1L, typeRouting("Source2"), attributes(2), null),
+                new EntityChangeCandidate(3, 1, 1L, typeRouting("Dependent1"), attributes(3), null));
+        method.invoke(
+                manager,
+                entityChangeCandidates,
+                EntityChangeRoutes.compute(manager.getSystemSchema(), entityChangeCandidates));
+
+        assertEquals(datasetCacheEntries.keySet(), Set.of(key(DatasetAddress.of(4))));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void invalidateDatasetCacheEntry_refreshesHotDatasetCacheEntries() throws Exception {
+        final var source = cacheableDataset(0, "Source");
+        final var dependent = cacheableDataset(1, "Dependent", source);
+        final var manager = createManager(
+                new TestReplicantServerAdapter(new SystemSchema("Test", source, dependent)),
+                mock(ReplicantMessageBroker.class));
+        final var refresher = mock(DatasetCacheRefresher.class);
+        setField(manager, "_datasetCacheRefresher", refresher);
+
+        final var field = ReplicantSessionManagerImpl.class.getDeclaredField("_datasetCacheEntries");
+        field.setAccessible(true);
+        final var datasetCacheEntries = (Map<DatasetCacheKey, DatasetCacheEntry>) field.get(manager);
+        final var sourceEntry = new DatasetCacheEntry(key(DatasetAddress.of(0)));
+        sourceEntry.recordUse();
+        final var dependentEntry = new DatasetCacheEntry(key(DatasetAddress.of(1)));
+        dependentEntry.recordUse();
+        dependentEntry.recordUse();
+        datasetCacheEntries.put(key(DatasetAddress.of(0)), sourceEntry);
+        datasetCacheEntries.put(key(DatasetAddress.of(1)), dependentEntry);
 
         final var method = ReplicantSessionManagerImpl.class.getDeclaredMethod(
                 "invalidateDatasetCacheEntry", DatasetAddress.class);
         method.setAccessible(true);
         method.invoke(manager, DatasetAddress.of(0));
 
-        assertEquals(datasetCacheEntries.keySet(), Set.of(DatasetAddress.of(3)));
+        assertTrue(datasetCacheEntries.isEmpty());
+        verify(refresher).refreshDatasetCacheEntries(List.of(key(DatasetAddress.of(1))));
+    }
+
+    @Test
+    public void warmDatasetCacheEntry() {
+        final var cacheable = cacheableDataset(0, "Cacheable");
+        final var uncacheable = new Dataset(
+                1,
+                "Uncacheable",
+                null,
+                Dataset.FilterMode.UNFILTERED,
+                null,
+                false,
+                false,
+                Dataset.Visibility.UNIVERSAL);
+        final var serverAdapter = new TestReplicantServerAdapter(new SystemSchema("Test", cacheable, uncacheable));
+        final var manager = createManager(serverAdapter, mock(ReplicantMessageBroker.class));
+
+        assertTrue(manager.warmDatasetCacheEntry(key(DatasetAddress.of(0))));
+        assertTrue(manager.warmDatasetCacheEntry(key(DatasetAddress.of(0))));
+        assertFalse(manager.warmDatasetCacheEntry(key(DatasetAddress.of(1))));
+        assertFalse(manager.warmDatasetCacheEntry(
+                DatasetCacheKey.of(DatasetAddress.of(0), Json.createObjectBuilder().add("a", 1).build())));
+
+        // The entry is collected once
+        assertEquals(
+                serverAdapter.getSubscriptionCollectionCalls().stream()
+                        .map(SubscriptionCollectionCall::datasetAddresses)
+                        .toList(),
+                List.of(List.of(DatasetAddress.of(0))));
+    }
+
+    @Test
+    public void tryGetDatasetCacheEntry_createsEntryPerDatasetRoot() throws Exception {
+        final var dataset = new Dataset(
+                0, "Project", 1, Dataset.FilterMode.UNFILTERED, null, false, true, Dataset.Visibility.UNIVERSAL);
+        final var serverAdapter = new TestReplicantServerAdapter(new SystemSchema("Test", dataset));
+        final var manager = createManager(serverAdapter, mock(ReplicantMessageBroker.class));
+        final var method =
+                ReplicantSessionManagerImpl.class.getDeclaredMethod("tryGetDatasetCacheEntry", DatasetCacheKey.class);
+        method.setAccessible(true);
+
+        final var entry1 = (DatasetCacheEntry) method.invoke(manager, key(DatasetAddress.of(0, 1)));
+        final var entry2 = (DatasetCacheEntry) method.invoke(manager, key(DatasetAddress.of(0, 2)));
+
+        assertNotNull(entry1);
+        assertNotNull(entry2);
+        assertEquals(entry1.getDatasetAddress(), DatasetAddress.of(0, 1));
+        assertEquals(entry2.getDatasetAddress(), DatasetAddress.of(0, 2));
+        assertNotEquals(entry1.getDatasetCacheVersion(), entry2.getDatasetCacheVersion());
+        assertSame(method.invoke(manager, key(DatasetAddress.of(0, 1))), entry1);
+        assertEquals(
+                serverAdapter.getSubscriptionCollectionCalls().stream()
+                        .map(SubscriptionCollectionCall::datasetAddresses)
+                        .toList(),
+                List.of(List.of(DatasetAddress.of(0, 1)), List.of(DatasetAddress.of(0, 2))));
+    }
+
+    @Test
+    public void tryGetDatasetCacheEntry_evictsLeastRecentlyUsedEntries() throws Exception {
+        final var dataset = new Dataset(
+                0, "Project", 1, Dataset.FilterMode.UNFILTERED, null, false, true, Dataset.Visibility.UNIVERSAL);
+        final var serverAdapter = new TestReplicantServerAdapter(new SystemSchema("Test", dataset));
+        final var manager = createManager(serverAdapter, mock(ReplicantMessageBroker.class));
+        final var method =
+                ReplicantSessionManagerImpl.class.getDeclaredMethod("tryGetDatasetCacheEntry", DatasetCacheKey.class);
+        method.setAccessible(true);
+        final var evictMethod = ReplicantSessionManagerImpl.class.getDeclaredMethod("tryEvictDatasetCacheEntries");
+        evictMethod.setAccessible(true);
+        final var field = ReplicantSessionManagerImpl.class.getDeclaredField("_datasetCacheEntries");
+        field.setAccessible(true);
+        @SuppressWarnings("unchecked")
+        final var datasetCacheEntries = (Map<DatasetCacheKey, DatasetCacheEntry>) field.get(manager);
+
+        final var entry1 = (DatasetCacheEntry) method.invoke(manager, key(DatasetAddress.of(0, 1)));
+        assertNotNull(entry1);
+        final var entrySize = manager.getDatasetCacheStatistics().estimatedBytes();
+        assertEquals(entrySize, entry1.estimateSize());
+        // The budget holds two entries
+        setField(manager, "_datasetCacheMaxBytes", 2 * entrySize + entrySize / 2);
+        final var entry2 = (DatasetCacheEntry) method.invoke(manager, key(DatasetAddress.of(0, 2)));
+        assertSame(method.invoke(manager, key(DatasetAddress.of(0, 1))), entry1);
+
+        final var entry3 = (DatasetCacheEntry) method.invoke(manager, key(DatasetAddress.of(0, 3)));
+
+        assertNotNull(entry2);
+        assertNotNull(entry3);
+        // Entries are not evicted while a request holds the read lock of the Dataset Cache Entries
+        assertEquals(datasetCacheEntries.size(), 3);
+        final var lockField = ReplicantSessionManagerImpl.class.getDeclaredField("_datasetCacheEntriesLock");
+        lockField.setAccessible(true);
+        final var lock = (ReadWriteLock) lockField.get(manager);
+        final var locked = new CountDownLatch(1);
+        final var release = new CountDownLatch(1);
+        final var reader = new Thread(() -> {
+            lock.readLock().lock();
+            try {
+                locked.countDown();
+                release.await();
+            } catch (final InterruptedException ignored) {
+                // The lock is released below
+            } finally {
+                lock.readLock().unlock();
+            }
+        });
+        reader.start();
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+        evictMethod.invoke(manager);
+        assertEquals(datasetCacheEntries.size(), 3);
+        release.countDown();
+        reader.join();
+
+        evictMethod.invoke(manager);
+
+        assertEquals(datasetCacheEntries.keySet(), Set.of(key(DatasetAddress.of(0, 1)), key(DatasetAddress.of(0, 3))));
+        assertEquals(
+                manager.getDatasetCacheStatistics(),
+                new DatasetCacheStatistics(1, 3, 1, 2, entry1.estimateSize() + entry3.estimateSize()));
+
+        // An evicted entry is collected again
+        assertNotSame(method.invoke(manager, key(DatasetAddress.of(0, 2))), entry2);
+        assertEquals(manager.getDatasetCacheStatistics().missCount(), 4);
+
+        manager.clearDatasetCacheEntries();
+        assertEquals(manager.getDatasetCacheStatistics().estimatedBytes(), 0);
+    }
+
+    @Test
+    public void tryGetDatasetCacheEntry_contentAddressedDatasetCacheVersion() throws Exception {
+        final var dataset = new Dataset(
+                0, "Project", 1, Dataset.FilterMode.UNFILTERED, null, false, true, Dataset.Visibility.UNIVERSAL);
+        final var schema = new SystemSchema("Test", dataset);
+        final var manager1 = createManager(new TestReplicantServerAdapter(schema), mock(ReplicantMessageBroker.class));
+        final var manager2 = createManager(new TestReplicantServerAdapter(schema), mock(ReplicantMessageBroker.class));
+        setField(manager1, "_contentAddressedDatasetCacheVersions", true);
+        setField(manager2, "_contentAddressedDatasetCacheVersions", true);
+        final var method =
+                ReplicantSessionManagerImpl.class.getDeclaredMethod("tryGetDatasetCacheEntry", DatasetCacheKey.class);
+        method.setAccessible(true);
+
+        final var entry1 = (DatasetCacheEntry) method.invoke(manager1, key(DatasetAddress.of(0, 1)));
+        final var entry2 = (DatasetCacheEntry) method.invoke(manager2, key(DatasetAddress.of(0, 1)));
+        final var entry3 = (DatasetCacheEntry) method.invoke(manager2, key(DatasetAddress.of(0, 2)));
+
+        assertNotNull(entry1);
+        assertNotNull(entry2);
+        assertNotNull(entry3);
+        assertTrue(entry1.isContentAddressed());
+        // Equal content on different nodes has an equal version
+        assertNotSame(entry2, entry1);
+        assertEquals(entry2.getDatasetCacheVersion(), entry1.getDatasetCacheVersion());
+        assertNotEquals(entry3.getDatasetCacheVersion(), entry1.getDatasetCacheVersion());
+    }
+
+    @Test
+    public void tryGetDatasetCacheEntry_restoresFromDatasetCacheStore() throws Exception {
+        final var dataset = cacheableDataset(0, "Source");
+        final var schema = new SystemSchema("Test", dataset);
+        final var method =
+                ReplicantSessionManagerImpl.class.getDeclaredMethod("tryGetDatasetCacheEntry", DatasetCacheKey.class);
+        method.setAccessible(true);
+        final var invalidateMethod = ReplicantSessionManagerImpl.class.getDeclaredMethod(
+                "invalidateDatasetCacheEntry", DatasetAddress.class);
+        invalidateMethod.setAccessible(true);
+        final var datasetCacheKey = key(DatasetAddress.of(0));
+        final var directory = Files.createTempDirectory("datasetCacheStore");
+        try {
+            final var store = new DatasetCacheStoreImpl();
+            store.open(directory, DatasetCacheStoreImpl.DEFAULT_SEGMENT_SIZE);
+            final var manager1 =
+                    createManager(new TestReplicantServerAdapter(schema), mock(ReplicantMessageBroker.class));
+            setField(manager1, "_datasetCacheStore", store);
+
+            final var entry1 = (DatasetCacheEntry) method.invoke(manager1, datasetCacheKey);
+
+            assertNotNull(entry1);
+            assertTrue(entry1.isReleased());
+            store.close();
+
+            // A restarted server restores the entry rather than collecting it
+            final var restartedStore = new DatasetCacheStoreImpl();
+            restartedStore.open(directory, DatasetCacheStoreImpl.DEFAULT_SEGMENT_SIZE);
+            final var serverAdapter2 = new TestReplicantServerAdapter(schema);
+            final var manager2 = createManager(serverAdapter2, mock(ReplicantMessageBroker.class));
+            setField(manager2, "_datasetCacheStore", restartedStore);
+
+            final var entry2 = (DatasetCacheEntry) method.invoke(manager2, datasetCacheKey);
+
+            assertNotNull(entry2);
+            assertEquals(entry2.getDatasetCacheVersion(), entry1.getDatasetCacheVersion());
+            assertEquals(entry2.getEncodedChangeSet(null), entry1.getEncodedChangeSet(null));
+            assertTrue(serverAdapter2.getSubscriptionCollectionCalls().isEmpty());
+
+            invalidateMethod.invoke(manager2, DatasetAddress.of(0));
+
+            assertNull(restartedStore.load(datasetCacheKey));
+            restartedStore.close();
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void invalidateDatasetCacheEntry_invalidatesOnlyRoutedDatasetRoot() throws Exception {
+        final var dataset = new Dataset(
+                0, "Project", 1, Dataset.FilterMode.UNFILTERED, null, false, true, Dataset.Visibility.UNIVERSAL);
+        final var manager = createManager(
+                new TestReplicantServerAdapter(new SystemSchema("Test", dataset)), mock(ReplicantMessageBroker.class));
+
+        final var field = ReplicantSessionManagerImpl.class.getDeclaredField("_datasetCacheEntries");
+        field.setAccessible(true);
+        final var datasetCacheEntries = (Map<DatasetCacheKey, DatasetCacheEntry>) field.get(manager);
+        datasetCacheEntries.put(key(DatasetAddress.of(0, 1)), new DatasetCacheEntry(key(DatasetAddress.of(0, 1))));
+        datasetCacheEntries.put(key(DatasetAddress.of(0, 2)), new DatasetCacheEntry(key(DatasetAddress.of(0, 2))));
+
+        final var method = ReplicantSessionManagerImpl.class.getDeclaredMethod(
+                "updateAffectedDatasetCacheEntries", Collection.class, EntityChangeRoutes.class);
+        method.setAccessible(true);
+        final var entityChangeCandidates =
+                List.of(new EntityChangeCandidate(1, 1, 0L, instanceRouting("Project", 1), attributes(1), null));
+        method.invoke(
+                manager,
+                entityChangeCandidates,
+                EntityChangeRoutes.compute(manager.getSystemSchema(), entityChangeCandidates));
+
+        assertEquals(datasetCacheEntries.keySet(), Set.of(key(DatasetAddress.of(0, 2))));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void updateAffectedDatasetCacheEntries_patchesEntryAndInvalidatesDependentEntries() throws Exception {
+        final var source = cacheableDataset(0, "Source");
+        final var dependent = cacheableDataset(1, "Dependent", source);
+        final var serverAdapter = new TestReplicantServerAdapter(new SystemSchema("Test", source, dependent));
+        final var manager = createManager(serverAdapter, mock(ReplicantMessageBroker.class));
+        setField(manager, "_patchDatasetCacheEntries", true);
+
+        final var field = ReplicantSessionManagerImpl.class.getDeclaredField("_datasetCacheEntries");
+        field.setAccessible(true);
+        final var datasetCacheEntries = (Map<DatasetCacheKey, DatasetCacheEntry>) field.get(manager);
+        final var entry = new DatasetCacheEntry(key(DatasetAddress.of(0)));
+        final var changeSet = new ChangeSet();
+        changeSet.merge(new EntityChange(
+                new EntityChangeCandidate(1, 1, 0L, typeRouting("Source"), attributes(1), null),
+                DatasetAddress.of(0)));
+        changeSet.mergeSubscriptionChange(DatasetAddress.of(0), SubscriptionChange.Type.SUBSCRIBE);
+        entry.init(changeSet, 0);
+        final var dependentEntry = new DatasetCacheEntry(key(DatasetAddress.of(1)));
+        datasetCacheEntries.put(key(DatasetAddress.of(0)), entry);
+        datasetCacheEntries.put(key(DatasetAddress.of(1)), dependentEntry);
+
+        final var method = ReplicantSessionManagerImpl.class.getDeclaredMethod(
+                "updateAffectedDatasetCacheEntries", Collection.class, EntityChangeRoutes.class);
+        method.setAccessible(true);
+        final var entityChangeCandidates = List.of(
+                new EntityChangeCandidate(1, 1, 1L, typeRouting("Source"), attributes(2), null),
+                new EntityChangeCandidate(2, 1, 1L, typeRouting("Source"), attributes(3), null));
+        method.invoke(
+                manager,
+                entityChangeCandidates,
+                EntityChangeRoutes.compute(manager.getSystemSchema(), entityChangeCandidates));
+
+        final var patched = datasetCacheEntries.get(key(DatasetAddress.of(0)));
+        assertNotNull(patched);
+        assertNotSame(patched, entry);
+        assertNotEquals(patched.getDatasetCacheVersion(), entry.getDatasetCacheVersion());
+        assertEquals(
+                patched.getChangeSet().getEntityChanges().stream()
+                        .map(c -> c.getEntityChangeCandidate().getAttributeValues())
+                        .toList(),
+                List.of(attributes(2), attributes(3)));
+        // The dependent entry was built from the unpatched Entities so it is invalidated
+        assertFalse(datasetCacheEntries.containsKey(key(DatasetAddress.of(1))));
+
+        // A later Subscription to the dependent Dataset collects a new entry rather than reusing the stale entry
+        final var tryGetDatasetCacheEntry =
+                ReplicantSessionManagerImpl.class.getDeclaredMethod("tryGetDatasetCacheEntry", DatasetCacheKey.class);
+        tryGetDatasetCacheEntry.setAccessible(true);
+        final var reusedEntry = (DatasetCacheEntry) tryGetDatasetCacheEntry.invoke(manager, key(DatasetAddress.of(1)));
+        assertNotNull(reusedEntry);
+        assertNotSame(reusedEntry, dependentEntry);
+        assertEquals(
+                serverAdapter.getSubscriptionCollectionCalls().stream()
+                        .map(SubscriptionCollectionCall::datasetAddresses)
+                        .toList(),
+                List.of(List.of(DatasetAddress.of(1))));
+        assertSame(datasetCacheEntries.get(key(DatasetAddress.of(0))), patched);
+
+        // A structural change invalidates the entry and its dependent entries
+        final var deleteCandidates = List.of(new EntityChangeCandidate(2, 1, 2L, typeRouting("Source"), null, null));
+        method.invoke(
+                manager, deleteCandidates, EntityChangeRoutes.compute(manager.getSystemSchema(), deleteCandidates));
+
+        assertTrue(datasetCacheEntries.isEmpty());
+    }
+
+    @Test
+    public void tryGetDatasetCacheEntry_createsEntryPerFilterParameter() throws Exception {
+        final var dataset = new Dataset(
+                0,
+                "Project",
+                1,
+                Dataset.FilterMode.PARAMETER_FILTERED,
+                Dataset.FilterParameterMode.FIXED,
+                false,
+                true,
+                Dataset.Visibility.UNIVERSAL);
+        final var serverAdapter = new TestReplicantServerAdapter(new SystemSchema("Test", dataset));
+        final var manager = createManager(serverAdapter, mock(ReplicantMessageBroker.class));
+        final var method =
+                ReplicantSessionManagerImpl.class.getDeclaredMethod("tryGetDatasetCacheEntry", DatasetCacheKey.class);
+        method.setAccessible(true);
+        final var datasetAddress = DatasetAddress.of(0, 1);
+        final var filterParameter1 =
+                Json.createObjectBuilder().add("a", 1).add("b", 2).build();
+        final var filterParameter2 =
+                Json.createObjectBuilder().add("a", 2).build();
+
+        final var entry1 =
+                (DatasetCacheEntry) method.invoke(manager, DatasetCacheKey.of(datasetAddress, filterParameter1));
+        final var entry2 =
+                (DatasetCacheEntry) method.invoke(manager, DatasetCacheKey.of(datasetAddress, filterParameter2));
+
+        assertNotNull(entry1);
+        assertNotNull(entry2);
+        assertNotSame(entry1, entry2);
+        assertEquals(entry1.getFilterParameter(), filterParameter1);
+        assertEquals(entry2.getFilterParameter(), filterParameter2);
+        // An equivalent Filter Parameter shares the entry
+        final var equivalentFilterParameter =
+                Json.createObjectBuilder().add("b", 2).add("a", 1).build();
+        assertSame(method.invoke(manager, DatasetCacheKey.of(datasetAddress, equivalentFilterParameter)), entry1);
+        assertEquals(
+                serverAdapter.getSubscriptionCollectionCalls().stream()
+                        .map(SubscriptionCollectionCall::filterParameter)
+                        .toList(),
+                List.of(filterParameter1, filterParameter2));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void invalidateDatasetCacheEntry_invalidatesEveryFilterParameter() throws Exception {
+        final var dataset = new Dataset(
+                0,
+                "Project",
+                1,
+                Dataset.FilterMode.PARAMETER_FILTERED,
+                Dataset.FilterParameterMode.FIXED,
+                false,
+                true,
+                Dataset.Visibility.UNIVERSAL);
+        final var manager = createManager(
+                new TestReplicantServerAdapter(new SystemSchema("Test", dataset)), mock(ReplicantMessageBroker.class));
+
+        final var field = ReplicantSessionManagerImpl.class.getDeclaredField("_datasetCacheEntries");
+        field.setAccessible(true);
+        final var datasetCacheEntries = (Map<DatasetCacheKey, DatasetCacheEntry>) field.get(manager);
+        final var key1 = DatasetCacheKey.of(
+                DatasetAddress.of(0, 1), Json.createObjectBuilder().add("a", 1).build());
+        final var key2 = DatasetCacheKey.of(
+                DatasetAddress.of(0, 1), Json.createObjectBuilder().add("a", 2).build());
+        final var key3 = DatasetCacheKey.of(
+                DatasetAddress.of(0, 2), Json.createObjectBuilder().add("a", 1).build());
+        datasetCacheEntries.put(key1, new DatasetCacheEntry(key1));
+        datasetCacheEntries.put(key2, new DatasetCacheEntry(key2));
+        datasetCacheEntries.put(key3, new DatasetCacheEntry(key3));
+
+        final var method = ReplicantSessionManagerImpl.class.getDeclaredMethod(
+                "invalidateDatasetCacheEntry", DatasetAddress.class);
+        method.setAccessible(true);
+        method.invoke(manager, DatasetAddress.of(0, 1));
+
+        assertEquals(datasetCacheEntries.keySet(), Set.of(key3));
     }
 
     @NonNull
@@ -1358,6 +2051,8 @@ public class ReplicantSessionManagerImplTest {
         setField(manager, "_serverAdapter", serverAdapter);
         setField(manager, "_broker", broker);
         setField(manager, "_registry", TransactionSynchronizationRegistryUtil.lookup());
+        setField(manager, "_datasetCacheRefresher", mock(DatasetCacheRefresher.class));
+        setField(manager, "_datasetCacheStore", mock(DatasetCacheStore.class));
         return manager;
     }
 
@@ -1366,6 +2061,14 @@ public class ReplicantSessionManagerImplTest {
         return new TestReplicantServerAdapter(systemSchema);
     }
 
+    private static void deleteDirectory(@NonNull final Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (final var path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
     private void setField(@NonNull final Object target, @NonNull final String name, @Nullable final Object value) {
         try {
             final var field = ReplicantSessionManagerImpl.class.getDeclaredField(name);
@@ -1399,6 +2102,24 @@ public class ReplicantSessionManagerImplTest {
         return routingKeys;
     }
 
+    @NonNull
+    private Dataset collectableInstanceDataset() {
+        return new Dataset(
+                0,
+                "Dataset",
+                7,
+                Dataset.FilterMode.UNFILTERED,
+                null,
+                false,
+                false,
+                Dataset.Visibility.UNIVERSAL);
+    }
+
+    @NonNull
+    private DatasetCacheKey key(@NonNull final DatasetAddress datasetAddress) {
+        return DatasetCacheKey.of(datasetAddress);
+    }
+
     @NonNull
     private HashMap<String, Serializable> attributes(final int id) {
         final var attributes = new HashMap<String, Serializable>();
@@ -1416,6 +2137,9 @@ public class ReplicantSessionManagerImplTest {
         @NonNull
         private final List<FilterParameterChangeCall> _filterParameterChangeCalls = new ArrayList<>();
 
+        @NonNull
+        private final List<DatasetAddress> _preSubscribeDatasetAddresses = new ArrayList<>();
+
         @NonNull
         private final List<Packet> _preSendChangeSets = new ArrayList<>();
 
@@ -1427,6 +2151,11 @@ public class ReplicantSessionManagerImplTest {
 
         private boolean _shouldFollowDatasetLink = true;
 
+        private boolean _collectSubscriptionDataWithoutSession = true;
+
+        @Nullable
+        private Runnable _subscriptionCollectionAction;
+
         private TestReplicantServerAdapter(@NonNull final SystemSchema systemSchema) {
             _systemSchema = systemSchema;
         }
@@ -1446,7 +2175,9 @@ public class ReplicantSessionManagerImplTest {
         public void preSubscribe(
                 @NonNull final ReplicantSession session,
                 @NonNull final DatasetAddress datasetAddress,
-                @Nullable final JsonObject filterParameter) {}
+                @Nullable final JsonObject filterParameter) {
+            _preSubscribeDatasetAddresses.add(datasetAddress);
+        }
 
         @Override
         public void preSendChangeSet(@NonNull final ReplicantSession session, @NonNull final Packet packet) {
@@ -1495,6 +2226,9 @@ public class ReplicantSessionManagerImplTest {
                 @NonNull final ChangeSet changeSet,
                 @NonNull final SubscriptionMode mode) {
             _subscriptionCollectionCalls.add(new SubscriptionCollectionCall(datasetAddresses, filterParameter, mode));
+            if (null != _subscriptionCollectionAction) {
+                _subscriptionCollectionAction.run();
+            }
             if (null != session) {
                 for (final var datasetAddress : datasetAddresses) {
                     final var existing = session.findSubscription(datasetAddress);
@@ -1508,6 +2242,25 @@ public class ReplicantSessionManagerImplTest {
                             null == existing ? SubscriptionChange.Type.SUBSCRIBE : SubscriptionChange.Type.UPDATE,
                             filterParameter);
                 }
+            } else {
+                // Dataset Cache Entries are collected without a session
+                for (final var datasetAddress : datasetAddresses) {
+                    changeSet.mergeSubscriptionChange(
+                            datasetAddress, SubscriptionChange.Type.SUBSCRIBE, filterParameter);
+                }
+            }
+        }
+
+        @Override
+        public boolean collectSubscriptionDataWithoutSession(
+                @NonNull final List<DatasetAddress> datasetAddresses,
+                @Nullable final JsonObject filterParameter,
+                @NonNull final ChangeSet changeSet) {
+            if (_collectSubscriptionDataWithoutSession) {
+                collectSubscriptionData(null, datasetAddresses, filterParameter, changeSet, SubscriptionMode.EXPLICIT);
+                return true;
+            } else {
+                return false;
             }
         }
 
@@ -1559,6 +2312,11 @@ public class ReplicantSessionManagerImplTest {
             return _filterParameterChangeCalls;
         }
 
+        @NonNull
+        List<DatasetAddress> getPreSubscribeDatasetAddresses() {
+            return _preSubscribeDatasetAddresses;
+        }
+
         @NonNull
         List<Packet> getPreSendChangeSets() {
             return _preSendChangeSets;
@@ -1575,6 +2333,14 @@ public class ReplicantSessionManagerImplTest {
         void setShouldFollowDatasetLink(final boolean shouldFollowDatasetLink) {
             _shouldFollowDatasetLink = shouldFollowDatasetLink;
         }
+
+        void setCollectSubscriptionDataWithoutSession(final boolean collectSubscriptionDataWithoutSession) {
+            _collectSubscriptionDataWithoutSession = collectSubscriptionDataWithoutSession;
+        }
+
+        void setSubscriptionCollectionAction(@Nullable final Runnable subscriptionCollectionAction) {
+            _subscriptionCollectionAction = subscriptionCollectionAction;
+        }
     }
 
     private record SubscriptionCollectionCall(
@@ -3,21 +3,33 @@ package replicant.server.transport;
 import static org.mockito.Mockito.*;
 import static org.testng.Assert.*;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 import javax.json.Json;
 import javax.json.JsonObject;
 import javax.websocket.CloseReason;
 import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
 import javax.websocket.Session;
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
+import org.mockito.ArgumentCaptor;
 import org.testng.annotations.Test;
 import replicant.server.ChangeSet;
 import replicant.server.DatasetAddress;
@@ -25,6 +37,7 @@ import replicant.server.EntityChange;
 import replicant.server.EntityChangeCandidateTestUtil;
 import replicant.server.SubscriptionChange;
 import replicant.server.ValueUtil;
+import replicant.server.json.JsonEncoder;
 import replicant.shared.Messages;
 
 public class ReplicantSessionTest {
@@ -142,6 +155,45 @@ public class ReplicantSessionTest {
         }
     }
 
+    @Test
+    public void subscriptionGeneration_onlyChangesWithinCollectedDatasetRoots() {
+        final var session = new ReplicantSession(mock(Session.class));
+        session.getLock().lock();
+        try {
+            final var collected = DatasetAddress.of(1, 5, "fi");
+            final var sameRoot = DatasetAddress.of(1, 5);
+            final var otherRoot = DatasetAddress.of(1, 6);
+
+            // Nothing is being collected
+            session.recordRoutedDatasetAddresses(List.of(sameRoot));
+            session.createSubscription(sameRoot, SubscriptionMode.IMPLICIT);
+            assertEquals(session.getSubscriptionGeneration(), 0);
+
+            session.beginSubscriptionDataCollection(List.of(collected));
+            session.beginSubscriptionDataCollection(List.of(collected));
+
+            session.recordRoutedDatasetAddresses(List.of(otherRoot));
+            session.createSubscription(otherRoot, SubscriptionMode.IMPLICIT);
+            assertEquals(session.getSubscriptionGeneration(), 0);
+
+            session.recordRoutedDatasetAddresses(List.of(otherRoot, sameRoot));
+            assertEquals(session.getSubscriptionGeneration(), 1);
+            assertTrue(session.deleteSubscription(session.getSubscription(sameRoot)));
+            assertEquals(session.getSubscriptionGeneration(), 2);
+
+            // The Dataset Root is collected until every collection completes
+            session.completeSubscriptionDataCollection(List.of(collected));
+            session.recordRoutedDatasetAddresses(List.of(sameRoot));
+            assertEquals(session.getSubscriptionGeneration(), 3);
+
+            session.completeSubscriptionDataCollection(List.of(collected));
+            session.recordRoutedDatasetAddresses(List.of(sameRoot));
+            assertEquals(session.getSubscriptionGeneration(), 3);
+        } finally {
+            session.getLock().unlock();
+        }
+    }
+
     @Test
     public void setDatasetCacheVersions_resetsAndRemovesNulls() {
         final var session = new ReplicantSession(mock(Session.class));
@@ -153,13 +205,16 @@ public class ReplicantSessionTest {
             session.setDatasetCacheVersion(datasetAddress1, "v1");
             assertEquals(session.getDatasetCacheVersion(datasetAddress1), "v1");
 
-            final var datasetCacheVersions = new HashMap<DatasetAddress, String>();
-            datasetCacheVersions.put(datasetAddress1, null);
-            datasetCacheVersions.put(datasetAddress2, "v2");
+            final var filterParameter = Json.createObjectBuilder().add("a", 1).build();
+            final var datasetCacheVersions = new HashMap<DatasetCacheKey, String>();
+            datasetCacheVersions.put(DatasetCacheKey.of(datasetAddress1), null);
+            datasetCacheVersions.put(DatasetCacheKey.of(datasetAddress2), "v2");
+            datasetCacheVersions.put(DatasetCacheKey.of(datasetAddress2, filterParameter), "v3");
             session.setDatasetCacheVersions(datasetCacheVersions);
 
             assertNull(session.getDatasetCacheVersion(datasetAddress1));
             assertEquals(session.getDatasetCacheVersion(datasetAddress2), "v2");
+            assertEquals(session.getDatasetCacheVersion(DatasetCacheKey.of(datasetAddress2, filterParameter)), "v3");
         } finally {
             session.getLock().unlock();
         }
@@ -182,6 +237,55 @@ public class ReplicantSessionTest {
         assertNull(session.popPendingPacket());
     }
 
+    @Test
+    public void queuePacket_closesSessionWhenPendingPacketCountExceeded() throws IOException {
+        final var webSocketSession = mock(Session.class);
+        when(webSocketSession.isOpen()).thenReturn(true);
+        final var session = new ReplicantSession(webSocketSession);
+        session.setPendingPacketBudget(2, 0);
+
+        assertTrue(session.queuePacket(new Packet(false, null, null, null, Collections.emptyList(), new ChangeSet())));
+        assertTrue(session.queuePacket(new Packet(true, null, null, null, Collections.emptyList(), new ChangeSet())));
+        assertFalse(session.isPendingPacketBudgetExceeded());
+
+        assertFalse(session.queuePacket(new Packet(false, null, null, null, Collections.emptyList(), new ChangeSet())));
+
+        assertTrue(session.isPendingPacketBudgetExceeded());
+        assertFalse(session.hasPendingPackets());
+        // The session is closed by the caller rather than while queueing
+        verify(webSocketSession, never()).close(any(CloseReason.class));
+        assertTrue(session.claimPendingPacketBudgetClose());
+        assertFalse(session.claimPendingPacketBudgetClose());
+        session.closeDueToPendingPacketBudgetExceeded();
+        verify(webSocketSession).close(any(CloseReason.class));
+        assertFalse(session.queuePacket(new Packet(false, null, null, null, Collections.emptyList(), new ChangeSet())));
+        assertFalse(session.hasPendingPackets());
+    }
+
+    @Test
+    public void queuePacket_closesSessionWhenPendingPacketBytesExceeded() throws IOException {
+        final var webSocketSession = mock(Session.class);
+        when(webSocketSession.isOpen()).thenReturn(true);
+        final var session = new ReplicantSession(webSocketSession);
+        final var candidate =
+                EntityChangeCandidateTestUtil.createEntityChangeCandidate(1, 2, 0, "r1", "r2", "a1", "a2");
+        final var packet = new Packet(false, null, null, null, List.of(candidate), new ChangeSet());
+        session.setPendingPacketBudget(0, packet.estimateSize() * 2);
+
+        assertTrue(session.queuePacket(packet));
+        assertTrue(session.queuePacket(packet));
+        assertSame(session.popPendingPacket(), packet);
+        // Popping a packet releases its share of the budget
+        assertTrue(session.queuePacket(packet));
+        verify(webSocketSession, never()).close(any(CloseReason.class));
+
+        assertFalse(session.queuePacket(packet));
+
+        assertTrue(session.isPendingPacketBudgetExceeded());
+        assertNull(session.popPendingPacket());
+        assertTrue(session.claimPendingPacketBudgetClose());
+    }
+
     @Test
     public void sendPacket_emitsChangeSet() throws IOException {
         final var webSocketSession = mock(Session.class);
@@ -213,6 +317,259 @@ public class ReplicantSessionTest {
         }
     }
 
+    @Test
+    public void sendPacket_streamsLargeChangeSet() throws IOException {
+        final var webSocketSession = mock(Session.class);
+        final var remote = mock(RemoteEndpoint.Basic.class);
+        final var writer = new StringWriter();
+        when(webSocketSession.isOpen()).thenReturn(true);
+        when(webSocketSession.getBasicRemote()).thenReturn(remote);
+        when(remote.getSendWriter()).thenReturn(writer);
+
+        final var session = new ReplicantSession(webSocketSession);
+        session.getLock().lock();
+        try {
+            final var changeSet = new ChangeSet();
+            for (var i = 0; i < ReplicantSession.STREAMING_ENTITY_CHANGE_THRESHOLD; i++) {
+                final var entityChangeCandidate =
+                        EntityChangeCandidateTestUtil.createEntityChangeCandidate(i, 2, 0, "r1", "r2", "a1", "a2");
+                changeSet.merge(new EntityChange(entityChangeCandidate, DatasetAddress.of(5, null)));
+            }
+
+            session.sendChangeSet(7, null, null, changeSet);
+
+            verify(remote, never()).sendText(anyString());
+            final var payload =
+                    Json.createReader(new StringReader(writer.toString())).readObject();
+            assertEquals(payload.getString(Messages.Common.TYPE), Messages.S2C_Type.CHANGE_SET);
+            assertEquals(payload.getInt(Messages.Common.REQUEST_ID), 7);
+            assertEquals(
+                    payload.getJsonArray(Messages.ChangeSet.ENTITY_CHANGES).size(),
+                    ReplicantSession.STREAMING_ENTITY_CHANGE_THRESHOLD);
+        } finally {
+            session.getLock().unlock();
+        }
+    }
+
+    @Test
+    public void sendPacket_emitsBinaryChangeSet() throws IOException {
+        final var webSocketSession = mock(Session.class);
+        final var remote = mock(RemoteEndpoint.Basic.class);
+        when(webSocketSession.isOpen()).thenReturn(true);
+        when(webSocketSession.getBasicRemote()).thenReturn(remote);
+
+        final var session = new ReplicantSession(webSocketSession);
+        session.setBinaryChangeSetsEnabled(true);
+        session.getLock().lock();
+        try {
+            final var changeSet = new ChangeSet();
+            for (var i = 0; i < ReplicantSession.STREAMING_ENTITY_CHANGE_THRESHOLD; i++) {
+                final var entityChangeCandidate =
+                        EntityChangeCandidateTestUtil.createEntityChangeCandidate(i, 2, 0, "r1", "r2", "a1", "a2");
+                changeSet.merge(new EntityChange(entityChangeCandidate, DatasetAddress.of(5, null)));
+            }
+
+            session.sendChangeSet(7, null, null, changeSet);
+
+            // Binary Change Sets are never streamed
+            verify(remote, never()).getSendWriter();
+            verify(remote, never()).sendText(anyString());
+            final var captor = ArgumentCaptor.forClass(ByteBuffer.class);
+            verify(remote).sendBinary(captor.capture());
+            final var payload = captor.getValue();
+            assertEquals(payload.get(0), (byte) Messages.BinaryChangeSet.VERSION);
+            assertEquals(payload.get(1), (byte) Messages.BinaryChangeSet.FLAG_REQUEST_ID);
+        } finally {
+            session.getLock().unlock();
+        }
+    }
+
+    @Test
+    public void sendPacket_compressesChangeSetAboveThreshold() throws IOException {
+        final var webSocketSession = mock(Session.class);
+        final var remote = mock(RemoteEndpoint.Basic.class);
+        when(webSocketSession.isOpen()).thenReturn(true);
+        when(webSocketSession.getBasicRemote()).thenReturn(remote);
+
+        final var session = new ReplicantSession(webSocketSession);
+        session.setCompressionThreshold(1000);
+        session.getLock().lock();
+        try {
+            final var changeSet = new ChangeSet();
+            changeSet.merge(new EntityChange(
+                    EntityChangeCandidateTestUtil.createEntityChangeCandidate(1, 2, 0, "r1", "r2", "a1", "a2"),
+                    DatasetAddress.of(5, null)));
+
+            // Compression is not used unless the client accepts it
+            session.sendChangeSet(7, null, null, changeSet);
+            verify(remote).sendText(anyString());
+
+            session.setCompressionAccepted(true);
+
+            // Small Change Sets are not compressed
+            session.sendChangeSet(7, null, null, changeSet);
+            verify(remote, times(2)).sendText(anyString());
+            verify(remote, never()).sendBinary(any(ByteBuffer.class));
+
+            for (var i = 2; i < 100; i++) {
+                changeSet.merge(new EntityChange(
+                        EntityChangeCandidateTestUtil.createEntityChangeCandidate(i, 2, 0, "r1", "r2", "a1", "a2"),
+                        DatasetAddress.of(5, null)));
+            }
+            session.sendChangeSet(7, null, null, changeSet);
+
+            verify(remote, times(2)).sendText(anyString());
+            final var captor = ArgumentCaptor.forClass(ByteBuffer.class);
+            verify(remote).sendBinary(captor.capture());
+            final var payload = captor.getValue();
+            assertEquals(payload.get(0) & 0xFF, Messages.CompressedChangeSet.FORMAT_DEFLATED_JSON);
+            assertTrue(payload.remaining() < JsonEncoder.encodeChangeSet(7, null, null, changeSet).length() / 5);
+        } finally {
+            session.getLock().unlock();
+        }
+    }
+
+    @Test
+    public void sendDatasetCacheEntryChangeSet_sendsSharedPayload() throws IOException {
+        final var webSocketSession = mock(Session.class);
+        final var remote = mock(RemoteEndpoint.Basic.class);
+        when(webSocketSession.isOpen()).thenReturn(true);
+        when(webSocketSession.getBasicRemote()).thenReturn(remote);
+
+        final var changeSet = new ChangeSet();
+        for (var i = 0; i < 100; i++) {
+            changeSet.merge(new EntityChange(
+                    EntityChangeCandidateTestUtil.createEntityChangeCandidate(i, 2, 0, "r1", "r2", "a1", "a2"),
+                    DatasetAddress.of(5)));
+        }
+        final var datasetCacheEntry = new DatasetCacheEntry(DatasetAddress.of(5));
+        datasetCacheEntry.init(changeSet, 0);
+        final var datasetCacheVersion = datasetCacheEntry.getDatasetCacheVersion();
+
+        final var session = new ReplicantSession(webSocketSession);
+        session.getLock().lock();
+        try {
+            session.sendDatasetCacheEntryChangeSet(null, datasetCacheEntry);
+            verify(remote).sendText(same(datasetCacheEntry.getEncodedChangeSet(null)));
+
+            session.sendDatasetCacheEntryChangeSet(7, datasetCacheEntry);
+            verify(remote).sendText(JsonEncoder.encodeChangeSet(7, null, datasetCacheVersion, changeSet));
+
+            session.setCompressionThreshold(1000);
+            session.setCompressionAccepted(true);
+            session.sendDatasetCacheEntryChangeSet(7, datasetCacheEntry);
+            final var captor = ArgumentCaptor.forClass(ByteBuffer.class);
+            verify(remote).sendBinary(captor.capture());
+            assertEquals(captor.getValue().get(0) & 0xFF, Messages.CompressedChangeSet.FORMAT_DEFLATED_JSON);
+        } finally {
+            session.getLock().unlock();
+        }
+    }
+
+    @Test
+    public void sendDatasetCacheEntryChangeSet_streamsReleasedPayload() throws IOException {
+        final var webSocketSession = mock(Session.class);
+        final var remote = mock(RemoteEndpoint.Basic.class);
+        final var writer = new StringWriter();
+        when(webSocketSession.isOpen()).thenReturn(true);
+        when(webSocketSession.getBasicRemote()).thenReturn(remote);
+        when(remote.getSendWriter()).thenReturn(writer);
+
+        final var changeSet = new ChangeSet();
+        for (var i = 0; i < 100; i++) {
+            changeSet.merge(new EntityChange(
+                    EntityChangeCandidateTestUtil.createEntityChangeCandidate(i, 2, 0, "r1", "r2", "a1", "a2"),
+                    DatasetAddress.of(5)));
+        }
+        final var datasetCacheEntry = new DatasetCacheEntry(DatasetAddress.of(5));
+        datasetCacheEntry.init(changeSet, 0);
+        final var datasetCacheVersion = datasetCacheEntry.getDatasetCacheVersion();
+        final var content = datasetCacheEntry.toStoredContent(0);
+        datasetCacheEntry.release(ByteBuffer.allocateDirect(content.length).put(content).flip());
+
+        final var session = new ReplicantSession(webSocketSession);
+        session.getLock().lock();
+        try {
+            session.sendDatasetCacheEntryChangeSet(7, datasetCacheEntry);
+
+            verify(remote, never()).sendText(anyString());
+            assertEquals(writer.toString(), JsonEncoder.encodeChangeSet(7, null, datasetCacheVersion, changeSet));
+        } finally {
+            session.getLock().unlock();
+        }
+    }
+
+    @Test
+    public void sendPacket_streamsCompressedLargeChangeSet() throws IOException {
+        final var webSocketSession = mock(Session.class);
+        final var remote = mock(RemoteEndpoint.Basic.class);
+        final var output = new ByteArrayOutputStream();
+        when(webSocketSession.isOpen()).thenReturn(true);
+        when(webSocketSession.getBasicRemote()).thenReturn(remote);
+        when(remote.getSendStream()).thenReturn(output);
+
+        final var session = new ReplicantSession(webSocketSession);
+        session.setCompressionThreshold(1000);
+        session.setCompressionAccepted(true);
+        session.getLock().lock();
+        try {
+            final var changeSet = new ChangeSet();
+            for (var i = 0; i < ReplicantSession.STREAMING_ENTITY_CHANGE_THRESHOLD; i++) {
+                final var entityChangeCandidate =
+                        EntityChangeCandidateTestUtil.createEntityChangeCandidate(i, 2, 0, "r1", "r2", "a1", "a2");
+                changeSet.merge(new EntityChange(entityChangeCandidate, DatasetAddress.of(5, null)));
+            }
+
+            session.sendChangeSet(7, null, null, changeSet);
+
+            verify(remote, never()).getSendWriter();
+            verify(remote, never()).sendText(anyString());
+            final var compressed = output.toByteArray();
+            assertEquals(compressed[0] & 0xFF, Messages.CompressedChangeSet.FORMAT_DEFLATED_JSON);
+            final var inflater = new Inflater(true);
+            inflater.setInput(compressed, 1, compressed.length - 1);
+            final var inflated = new ByteArrayOutputStream();
+            final var buffer = new byte[8192];
+            while (!inflater.finished()) {
+                inflated.write(buffer, 0, inflater.inflate(buffer));
+            }
+            final var payload = Json.createReader(new StringReader(inflated.toString(StandardCharsets.UTF_8)))
+                    .readObject();
+            assertEquals(payload.getInt(Messages.Common.REQUEST_ID), 7);
+            assertEquals(
+                    payload.getJsonArray(Messages.ChangeSet.ENTITY_CHANGES).size(),
+                    ReplicantSession.STREAMING_ENTITY_CHANGE_THRESHOLD);
+        } catch (final DataFormatException e) {
+            throw new AssertionError(e);
+        } finally {
+            session.getLock().unlock();
+        }
+    }
+
+    @Test
+    public void sendBinary_asyncDeliveryPreservesOrderWithText() {
+        final var webSocketSession = mock(Session.class);
+        final var remote = mock(RemoteEndpoint.Async.class);
+        when(webSocketSession.isOpen()).thenReturn(true);
+        when(webSocketSession.getAsyncRemote()).thenReturn(remote);
+
+        final var session = new ReplicantSession(webSocketSession);
+        session.enableAsyncDelivery(10);
+
+        assertTrue(session.sendBinary(new byte[] {1, 2, 3}));
+        assertTrue(session.sendText("aaaaaaaa"));
+        assertFalse(session.hasOutboundCapacity());
+
+        final var handler = ArgumentCaptor.forClass(SendHandler.class);
+        verify(remote).sendBinary(eq(ByteBuffer.wrap(new byte[] {1, 2, 3})), handler.capture());
+        verify(remote, never()).sendText(eq("aaaaaaaa"), any(SendHandler.class));
+
+        handler.getValue().onResult(new SendResult());
+
+        verify(remote).sendText(eq("aaaaaaaa"), any(SendHandler.class));
+        verify(webSocketSession, never()).getBasicRemote();
+    }
+
     @Test
     public void sendPacket_requiresLock() {
         final var session = new ReplicantSession(mock(Session.class));
@@ -273,6 +630,114 @@ public class ReplicantSessionTest {
         verify(webSocketSession, never()).getBasicRemote();
     }
 
+    @Test
+    public void sendText_asyncDeliverySendsInOrderWithinBudget() {
+        final var webSocketSession = mock(Session.class);
+        final var remote = mock(RemoteEndpoint.Async.class);
+        when(webSocketSession.isOpen()).thenReturn(true);
+        when(webSocketSession.getAsyncRemote()).thenReturn(remote);
+
+        final var session = new ReplicantSession(webSocketSession);
+        session.enableAsyncDelivery(10);
+        final var resumed = new AtomicInteger();
+
+        assertTrue(session.sendText("aaaaaa"));
+        assertTrue(session.hasOutboundCapacity());
+        assertTrue(session.sendText("bbbbbb"));
+        assertFalse(session.hasOutboundCapacity());
+        session.onOutboundCapacity(resumed::incrementAndGet);
+        assertEquals(resumed.get(), 0);
+
+        final var handler = ArgumentCaptor.forClass(SendHandler.class);
+        verify(remote).sendText(eq("aaaaaa"), handler.capture());
+        verify(remote, never()).sendText(eq("bbbbbb"), any(SendHandler.class));
+        verify(webSocketSession, never()).getBasicRemote();
+
+        handler.getValue().onResult(new SendResult());
+
+        verify(remote).sendText(eq("bbbbbb"), any(SendHandler.class));
+        assertTrue(session.hasOutboundCapacity());
+        assertEquals(resumed.get(), 1);
+    }
+
+    @Test
+    public void sendText_asyncDeliveryCompletingInlineDoesNotRecurse() {
+        final var webSocketSession = mock(Session.class);
+        final var remote = mock(RemoteEndpoint.Async.class);
+        when(webSocketSession.isOpen()).thenReturn(true);
+        when(webSocketSession.getAsyncRemote()).thenReturn(remote);
+        final var pending = new ArrayList<SendHandler>();
+        final var sentCount = new AtomicInteger();
+        final var stackDepths = new ArrayList<Integer>();
+        doAnswer(invocation -> {
+                    sentCount.incrementAndGet();
+                    final SendHandler handler = invocation.getArgument(1);
+                    if (1 == sentCount.get()) {
+                        pending.add(handler);
+                    } else {
+                        // The container completes the write on the sending thread
+                        stackDepths.add(Thread.currentThread().getStackTrace().length);
+                        handler.onResult(new SendResult());
+                    }
+                    return null;
+                })
+                .when(remote)
+                .sendText(anyString(), any(SendHandler.class));
+
+        final var session = new ReplicantSession(webSocketSession);
+        session.enableAsyncDelivery(10);
+        final var messageCount = 10000;
+        for (var i = 0; i < messageCount; i++) {
+            session.sendText("m");
+        }
+        assertEquals(sentCount.get(), 1);
+
+        pending.get(0).onResult(new SendResult());
+
+        assertEquals(sentCount.get(), messageCount);
+        assertEquals(stackDepths.stream().distinct().count(), 1L);
+        assertTrue(session.hasOutboundCapacity());
+    }
+
+    @Test
+    public void sendText_asyncDeliveryFailureClosesSession() throws IOException {
+        final var webSocketSession = mock(Session.class);
+        final var remote = mock(RemoteEndpoint.Async.class);
+        when(webSocketSession.isOpen()).thenReturn(true);
+        when(webSocketSession.getAsyncRemote()).thenReturn(remote);
+
+        final var session = new ReplicantSession(webSocketSession);
+        session.enableAsyncDelivery(10);
+
+        session.sendText("aaaaaa");
+        session.sendText("bbbbbb");
+
+        final var handler = ArgumentCaptor.forClass(SendHandler.class);
+        verify(remote).sendText(eq("aaaaaa"), handler.capture());
+        handler.getValue().onResult(new SendResult(new IOException("Connection reset")));
+
+        verify(remote, never()).sendText(eq("bbbbbb"), any(SendHandler.class));
+        verify(webSocketSession).close(any(CloseReason.class));
+        assertTrue(session.hasOutboundCapacity());
+    }
+
+    @Test
+    public void isOutboundStalled() {
+        final var webSocketSession = mock(Session.class);
+        when(webSocketSession.isOpen()).thenReturn(true);
+        when(webSocketSession.getAsyncRemote()).thenReturn(mock(RemoteEndpoint.Async.class));
+
+        final var session = new ReplicantSession(webSocketSession);
+        session.enableAsyncDelivery(10);
+
+        assertFalse(session.isOutboundStalled(0));
+
+        session.sendText("aaaaaa");
+
+        assertTrue(session.isOutboundStalled(-1));
+        assertFalse(session.isOutboundStalled(TimeUnit.MINUTES.toNanos(1)));
+    }
+
     @Test
     public void datasetCacheVersions() {
         final var session = new ReplicantSession(mock(Session.class));
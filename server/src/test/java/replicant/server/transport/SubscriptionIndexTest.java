@@ -0,0 +1,102 @@
+package replicant.server.transport;
+
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.util.List;
+import java.util.Set;
+import javax.websocket.Session;
+import org.testng.annotations.Test;
+import replicant.server.DatasetAddress;
+import replicant.server.ValueUtil;
+
+public class SubscriptionIndexTest {
+    @Test
+    public void basicOperation() {
+        final var index = new SubscriptionIndex();
+        final var session1 = newSession(index);
+        final var session2 = newSession(index);
+
+        assertEquals(index.findSessions(List.of(DatasetAddress.of(1), DatasetAddress.of(2, 7))), Set.of());
+
+        index.add(session1, 1, null);
+        index.add(session2, 2, 7);
+
+        assertTrue(index.contains(session1, 1, null));
+        assertFalse(index.contains(session2, 1, null));
+        assertTrue(index.contains(session2, 2, 7));
+        assertFalse(index.contains(session2, 2, 8));
+
+        assertEquals(index.findSessions(List.of(DatasetAddress.of(1))), Set.of(session1));
+        assertEquals(index.findSessions(List.of(DatasetAddress.of(2, 7))), Set.of(session2));
+        assertEquals(index.findSessions(List.of(DatasetAddress.of(2, 8))), Set.of());
+        assertEquals(
+                index.findSessions(List.of(DatasetAddress.of(1), DatasetAddress.of(2, 7))), Set.of(session1, session2));
+
+        index.remove(session1, 1, null);
+        assertFalse(index.contains(session1, 1, null));
+        assertEquals(index.findSessions(List.of(DatasetAddress.of(1))), Set.of());
+
+        index.add(session2, 1, null);
+        index.removeSession(session2);
+        assertEquals(index.findSessions(List.of(DatasetAddress.of(1), DatasetAddress.of(2, 7))), Set.of());
+    }
+
+    @Test
+    public void updatingSessionsAreAlwaysSelected() {
+        final var index = new SubscriptionIndex();
+        final var session = newSession(index);
+
+        index.beginSubscriptionUpdate(session);
+        assertEquals(index.findSessions(List.of()), Set.of(session));
+        assertEquals(index.findSessions(List.of(DatasetAddress.of(3))), Set.of(session));
+
+        index.completeSubscriptionUpdate(session);
+        assertEquals(index.findSessions(List.of(DatasetAddress.of(3))), Set.of());
+    }
+
+    @Test
+    public void overlappingSubscriptionUpdatesKeepSessionSelected() {
+        final var index = new SubscriptionIndex();
+        final var session = newSession(index);
+
+        index.beginSubscriptionUpdate(session);
+        index.beginSubscriptionUpdate(session);
+
+        index.completeSubscriptionUpdate(session);
+        assertEquals(index.findSessions(List.of(DatasetAddress.of(3))), Set.of(session));
+
+        index.completeSubscriptionUpdate(session);
+        assertEquals(index.findSessions(List.of(DatasetAddress.of(3))), Set.of());
+    }
+
+    @Test
+    public void sessionMaintainsIndex() {
+        final var index = new SubscriptionIndex();
+        final var session = newSession(index);
+        session.getLock().lock();
+        try {
+            final var address1 = DatasetAddress.of(1, 2, "a");
+            final var address2 = DatasetAddress.of(1, 2, "b");
+            final var subscription1 = session.createSubscription(address1, SubscriptionMode.EXPLICIT);
+            final var subscription2 = session.createSubscription(address2, SubscriptionMode.EXPLICIT);
+
+            // Keyed Subscriptions share the index entry for the Dataset ID and Dataset Root ID
+            assertTrue(index.contains(session, 1, 2));
+
+            session.deleteSubscription(subscription1);
+            assertTrue(index.contains(session, 1, 2));
+
+            session.deleteSubscription(subscription2);
+            assertFalse(index.contains(session, 1, 2));
+        } finally {
+            session.getLock().unlock();
+        }
+    }
+
+    private ReplicantSession newSession(final SubscriptionIndex index) {
+        final var webSocketSession = mock(Session.class);
+        when(webSocketSession.getId()).thenReturn(ValueUtil.randomString());
+        return new ReplicantSession(webSocketSession, null, index);
+    }
+}
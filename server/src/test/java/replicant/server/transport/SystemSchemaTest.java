@@ -2,6 +2,7 @@ package replicant.server.transport;
 
 import static org.testng.Assert.*;
 
+import java.util.Map;
 import org.testng.annotations.Test;
 import replicant.server.ValueUtil;
 
@@ -49,4 +50,89 @@ public class SystemSchemaTest {
         assertEquals(systemSchema.getInstanceDatasetByIndex(0), dataset0);
         assertEquals(systemSchema.getInstanceDatasetByIndex(1), dataset2);
     }
+
+    @Test
+    public void getRoutedDatasets() {
+        final var dataset0 = new Dataset(
+                0,
+                "Dataset0",
+                2,
+                Dataset.FilterMode.UNFILTERED,
+                null,
+                false,
+                false,
+                Dataset.Visibility.INTERNAL);
+        final var dataset1 = new Dataset(
+                1,
+                "Dataset1",
+                null,
+                Dataset.FilterMode.UNFILTERED,
+                null,
+                false,
+                false,
+                Dataset.Visibility.INTERNAL);
+        final var dataset2 = new Dataset(
+                2,
+                "Dataset2",
+                54,
+                Dataset.FilterMode.UNFILTERED,
+                null,
+                false,
+                false,
+                Dataset.Visibility.INTERNAL);
+
+        final var systemSchema = new SystemSchema(ValueUtil.randomString(), dataset0, dataset1, dataset2);
+
+        assertEquals(systemSchema.getRoutedDatasets(Map.of()).length, 0);
+        assertEquals(systemSchema.getRoutedDatasets(Map.of("Unknown", true)).length, 0);
+        assertEquals(systemSchema.getRoutedDatasets(Map.of("Dataset1", true)), new Dataset[] {dataset1});
+        assertEquals(
+                systemSchema.getRoutedDatasets(Map.of("Dataset2", 1, "Unknown", true, "Dataset0", 3)),
+                new Dataset[] {dataset0, dataset2});
+
+        // Candidates with the same routing key names share the resolved Datasets
+        assertSame(
+                systemSchema.getRoutedDatasets(Map.of("Dataset0", 4, "Dataset2", 5)),
+                systemSchema.getRoutedDatasets(Map.of("Dataset2", 6, "Dataset0", 7)));
+    }
+
+    @Test
+    public void getTransitiveDependentDatasetIds() {
+        final var source = new Dataset(
+                0, "Source", null, Dataset.FilterMode.UNFILTERED, null, false, true, Dataset.Visibility.UNIVERSAL);
+        final var dependent = new Dataset(
+                1,
+                "Dependent",
+                null,
+                Dataset.FilterMode.UNFILTERED,
+                null,
+                false,
+                true,
+                Dataset.Visibility.UNIVERSAL,
+                source);
+        final var unrelated = new Dataset(
+                2, "Unrelated", null, Dataset.FilterMode.UNFILTERED, null, false, true, Dataset.Visibility.UNIVERSAL);
+        final var transitiveDependent = new Dataset(
+                3,
+                "TransitiveDependent",
+                null,
+                Dataset.FilterMode.UNFILTERED,
+                null,
+                false,
+                true,
+                Dataset.Visibility.UNIVERSAL,
+                dependent,
+                source);
+
+        final var systemSchema =
+                new SystemSchema(ValueUtil.randomString(), source, dependent, unrelated, transitiveDependent);
+
+        assertEquals(systemSchema.getTransitiveDependentDatasetIds(0), new int[] {1, 3});
+        assertEquals(systemSchema.getTransitiveDependentDatasetIds(1), new int[] {3});
+        assertEquals(systemSchema.getTransitiveDependentDatasetIds(2), new int[0]);
+        assertEquals(systemSchema.getTransitiveDependentDatasetIds(3), new int[0]);
+        // The returned array is a copy
+        systemSchema.getTransitiveDependentDatasetIds(0)[0] = 2;
+        assertEquals(systemSchema.getTransitiveDependentDatasetIds(0), new int[] {1, 3});
+    }
 }
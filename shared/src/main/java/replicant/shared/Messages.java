@@ -130,10 +130,84 @@ public final class Messages {
         private ChangeSet() {}
     }
 
+    /**
+     * The compact binary encoding of a Change Set message, sent as a binary WebSocket frame when the client requests
+     * it at connect time. All other messages are sent as JSON text.
+     *
+     * <pre>
+     * message      := VERSION:u8 flags:uvarint
+     *                 [requestId:svarint] [commandResult:string] [datasetCacheVersion:string]
+     *                 count:uvarint subscriptionChange:string*
+     *                 count:uvarint (subscriptionChange:string filterParameter:string)*
+     *                 count:uvarint entityChange*
+     * entityChange := entityTypeId:uvarint entityId:svarint count:uvarint datasetAddress:ref*
+     *                 attributeCount:uvarint (key:ref value)*
+     * value        := STRING string | INTEGER svarint | FLOAT float32 | TRUE | FALSE
+     * ref          := 0 string | index:uvarint
+     * string       := byteLength:uvarint utf8Bytes
+     * </pre>
+     *
+     * <p>Unsigned varints hold 7 bits per byte, least significant group first, with the high bit set on every byte
+     * but the last. Signed varints are zigzag encoded before being written as unsigned varints. A float32 is written
+     * as 4 bytes in big-endian order. The attribute count of a removal is 0 and the attribute count of an update is the
+     * number of attributes plus 1. A ref of 0 introduces a string that is appended to a table scoped to the message,
+     * and any other ref is the 1-based index of a string in that table, so repeated Dataset Addresses and attribute
+     * keys are only written once. The Command Result and Filter Parameters are written as JSON text. Values
+     * encoded as strings in JSON, such as Long and Date values, are also written as strings.</p>
+     */
+    public static final class BinaryChangeSet {
+        public static final int VERSION = 1;
+
+        public static final int FLAG_REQUEST_ID = 1;
+        public static final int FLAG_COMMAND_RESULT = 1 << 1;
+        public static final int FLAG_DATASET_CACHE_VERSION = 1 << 2;
+
+        public static final int VALUE_STRING = 0;
+        public static final int VALUE_INTEGER = 1;
+        public static final int VALUE_FLOAT = 2;
+        public static final int VALUE_TRUE = 3;
+        public static final int VALUE_FALSE = 4;
+
+        private BinaryChangeSet() {}
+    }
+
+    /**
+     * A Change Set compressed with deflate (RFC 1951, without a zlib header), sent as a binary WebSocket message when
+     * the client requests compression at connect time and the encoded Change Set exceeds the server threshold.
+     *
+     * <pre>
+     * message := format:u8 deflatedBytes
+     * </pre>
+     *
+     * <p>The format identifies the encoding of the inflated content. The format values do not overlap
+     * {@link BinaryChangeSet#VERSION} so a client can distinguish a compressed message from an uncompressed binary
+     * Change Set by the first byte.</p>
+     */
+    public static final class CompressedChangeSet {
+        /**
+         * The inflated content is the UTF-8 encoded JSON text of a Change Set message.
+         */
+        public static final int FORMAT_DEFLATED_JSON = 0xD0;
+        /**
+         * The inflated content is a binary Change Set as described by {@link BinaryChangeSet}.
+         */
+        public static final int FORMAT_DEFLATED_BINARY = 0xD1;
+
+        private CompressedChangeSet() {}
+    }
+
     public static final class DatasetCacheVersions {
         @NonNull
         public static final String DATASET_CACHE_VERSIONS = "datasetCacheVersions";
 
+        /**
+         * An optional array of the Dataset Cache Entries of Parameter-Filtered Datasets. Each element has a
+         * {@link Common#DATASET_ADDRESS}, a {@link Common#FILTER_PARAMETER} and a
+         * {@link S2C_Common#DATASET_CACHE_VERSION}.
+         */
+        @NonNull
+        public static final String FILTERED_DATASET_CACHE_VERSIONS = "filteredDatasetCacheVersions";
+
         private DatasetCacheVersions() {}
     }
 
@@ -15,5 +15,24 @@ public final class SharedConstants {
      */
     public static final String SUBSCRIPTION_URL_FRAGMENT = "/subscription";
 
+    /**
+     * The query parameter of the replicant url that selects the encoding of Change Set messages.
+     */
+    public static final String CHANGE_SET_ENCODING_PARAMETER = "changeSetEncoding";
+    /**
+     * The value of {@link #CHANGE_SET_ENCODING_PARAMETER} that requests the compact binary encoding described by
+     * {@link Messages.BinaryChangeSet}. Change Sets are encoded as JSON text when the parameter is absent.
+     */
+    public static final String BINARY_CHANGE_SET_ENCODING = "binary";
+    /**
+     * The query parameter of the replicant url that indicates the client can decompress Change Set messages.
+     */
+    public static final String CHANGE_SET_COMPRESSION_PARAMETER = "changeSetCompression";
+    /**
+     * The value of {@link #CHANGE_SET_COMPRESSION_PARAMETER} that accepts Change Sets compressed as described by
+     * {@link Messages.CompressedChangeSet}.
+     */
+    public static final String DEFLATE_CHANGE_SET_COMPRESSION = "deflate";
+
     private SharedConstants() {}
 }